@@ -0,0 +1,37 @@
+package com.ann.benchmarks;
+
+import com.ann.server.data.InMemoryUserStorage;
+import com.ann.server.main.Main;
+import com.ann.server.managers.ProductCollectionManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+/**
+ * Подготовка сервера к бенчмаркам: менеджер коллекции без базы данных, снимка и журнала.
+ */
+final class BenchmarkEnvironment {
+
+    private BenchmarkEnvironment() {
+    }
+
+    /**
+     * Создает менеджер коллекции в указанном режиме хранения, заполненный {@code size} продуктами
+     * {@link GeneratedProductStorage}. Файлы хранилища режима {@code mapped} создаются во временном каталоге.
+     *
+     * @param mode режим хранения ({@code heap}, {@code columnar}, {@code mapped}, {@code tiered})
+     * @param size количество продуктов
+     * @return менеджер коллекции
+     */
+    static ProductCollectionManager collectionManager(String mode, int size) {
+        System.setProperty("collection.mode", mode);
+        System.setProperty("storage.snapshot.enabled", "false");
+        try {
+            System.setProperty("storage.dir", Files.createTempDirectory("benchmarks").toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Main.createCollectionManager(new GeneratedProductStorage(size), new InMemoryUserStorage(0, 0));
+    }
+}
@@ -0,0 +1,62 @@
+package com.ann.benchmarks;
+
+import com.ann.server.managers.ProductCollectionManager;
+import com.general.models.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Основные операции менеджера коллекции в зависимости от размера коллекции и режима хранения.
+ * <p>
+ * Для 10 млн элементов в режиме {@code heap} нужна куча в несколько гигабайт, например:
+ * {@code java -jar benchmarks/target/benchmarks.jar CollectionManager -p size=10000000 -jvmArgs -Xmx8g}.
+ * Другие режимы хранения выбираются параметром, например {@code -p mode=heap,columnar,tiered}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollectionManagerBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int size;
+
+    @Param({"heap"})
+    private String mode;
+
+    private ProductCollectionManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = BenchmarkEnvironment.collectionManager(mode, size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        manager.shutdown();
+    }
+
+    /**
+     * Добавление и удаление одного элемента; размер коллекции между вызовами не меняется.
+     */
+    @Benchmark
+    public boolean addAndRemove() {
+        Product product = GeneratedProductStorage.product(size + 1);
+        manager.addToCollection(GeneratedProductStorage.OWNER, product);
+        return manager.removeFromCollection(product, GeneratedProductStorage.OWNER);
+    }
+
+    @Benchmark
+    public Product getById() {
+        return manager.getById(1L + ThreadLocalRandom.current().nextInt(size));
+    }
+
+    @Benchmark
+    public int sortCollection() {
+        manager.sortCollection();
+        return manager.collectionSize();
+    }
+}
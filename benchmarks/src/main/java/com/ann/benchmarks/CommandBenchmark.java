@@ -0,0 +1,70 @@
+package com.ann.benchmarks;
+
+import com.ann.server.commands.RemoveGreater;
+import com.ann.server.commands.Show;
+import com.ann.server.commands.SumOfPrice;
+import com.ann.server.managers.ProductCollectionManager;
+import com.general.models.Product;
+import com.general.network.Request;
+import com.general.network.Response;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Команды, обходящие всю коллекцию: вывод, сумма цен и удаление элементов, превышающих заданный.
+ * <p>
+ * {@code remove_greater} выполняется от имени пользователя без элементов, поэтому коллекция не меняется,
+ * а измеряются сортировка и поиск превышающих элементов.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int size;
+
+    @Param({"heap"})
+    private String mode;
+
+    private ProductCollectionManager manager;
+    private Show<Product> show;
+    private SumOfPrice sumOfPrice;
+    private RemoveGreater<Product> removeGreater;
+    private Request removeGreaterRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = BenchmarkEnvironment.collectionManager(mode, size);
+        show = new Show<>(manager);
+        sumOfPrice = new SumOfPrice(manager);
+        removeGreater = new RemoveGreater<>(manager);
+        Product median = GeneratedProductStorage.product(0);
+        median.setPrice(500000);
+        removeGreaterRequest = new Request("remove_greater", median);
+        removeGreaterRequest.setLogin("nobody");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        manager.shutdown();
+    }
+
+    @Benchmark
+    public Response show() {
+        return show.execute(new Request("show", null));
+    }
+
+    @Benchmark
+    public Response sumOfPrice() {
+        return sumOfPrice.execute(new Request("sum_of_price", null));
+    }
+
+    @Benchmark
+    public Response removeGreater() {
+        return removeGreater.execute(removeGreaterRequest);
+    }
+}
@@ -0,0 +1,111 @@
+package com.ann.benchmarks;
+
+import com.ann.server.data.ProductStorage;
+import com.general.models.Coordinates;
+import com.general.models.Organization;
+import com.general.models.Product;
+import com.general.models.UnitOfMeasure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Хранилище продуктов для бенчмарков: продукты с ID от 1 до {@code size} вычисляются по ID и нигде не хранятся,
+ * а запись только выдает новые ID. Так менеджер коллекции загружается без базы данных, а стоимость обращений
+ * к хранилищу не попадает в измерения.
+ */
+public class GeneratedProductStorage implements ProductStorage {
+    /**
+     * Владелец всех сгенерированных продуктов.
+     */
+    public static final String OWNER = "bench";
+    private static final UnitOfMeasure[] UNITS = UnitOfMeasure.values();
+
+    private final int size;
+    private final AtomicLong sequence;
+
+    /**
+     * @param size количество продуктов в хранилище
+     */
+    public GeneratedProductStorage(int size) {
+        this.size = size;
+        this.sequence = new AtomicLong(size);
+    }
+
+    /**
+     * Создает продукт с указанным ID. Цены распределены по ID псевдослучайно, чтобы сортировка не получала
+     * уже упорядоченные данные.
+     *
+     * @param id ID продукта
+     * @return продукт
+     */
+    public static Product product(long id) {
+        int n = (int) (id % 100000);
+        Product product = new Product(id, "product-" + id, new Coordinates(id % 1000, (float) (id % 700)),
+                1 + (int) ((id * 7919) % 1000003), UNITS[(int) (id % UNITS.length)],
+                new Organization("org-" + n % 100, 2000 + n % 20));
+        product.setUsername(OWNER);
+        return product;
+    }
+
+    @Override
+    public List<Product> getAllProducts() {
+        List<Product> products = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) products.add(product(id));
+        return products;
+    }
+
+    @Override
+    public long insertProduct(Product product) {
+        return sequence.incrementAndGet();
+    }
+
+    @Override
+    public boolean removeProductById(long id) {
+        return true;
+    }
+
+    @Override
+    public boolean updateProduct(Product product) {
+        return true;
+    }
+
+    @Override
+    public int removeProductsByUsername(String username) {
+        return 0;
+    }
+
+    @Override
+    public List<Product> getProductsAfterId(long id) {
+        return List.of();
+    }
+
+    @Override
+    public long[] getCountAndMaxId() {
+        return new long[]{size, size};
+    }
+
+    @Override
+    public Product getProductById(long id) {
+        return id >= 1 && id <= sequence.get() ? product(id) : null;
+    }
+
+    @Override
+    public List<Product> getProductsByIds(long[] ids) {
+        List<Product> products = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Product product = getProductById(id);
+            if (product != null) products.add(product);
+        }
+        return products;
+    }
+
+    @Override
+    public void forEachProductKey(ProductKeyConsumer consumer) {
+        for (long id = 1; id <= size; id++) {
+            Product product = product(id);
+            consumer.accept(id, product.getPrice(), OWNER);
+        }
+    }
+}
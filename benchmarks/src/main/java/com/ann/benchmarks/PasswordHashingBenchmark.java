@@ -0,0 +1,38 @@
+package com.ann.benchmarks;
+
+import com.ann.server.utility.PasswordHashing;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Хеширование паролей: регистрация (новая соль и хеш) и проверка пароля, которая выполняется в каждом запросе.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordHashingBenchmark {
+    private final String password = "correct-horse-battery";
+    private String salt;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        String[] hashed = PasswordHashing.hashPassword(password);
+        hash = hashed[0];
+        salt = hashed[1];
+    }
+
+    @Benchmark
+    public String[] hashNewPassword() {
+        return PasswordHashing.hashPassword(password);
+    }
+
+    @Benchmark
+    public boolean verifyPassword() {
+        return PasswordHashing.verifyPassword(password, salt, hash);
+    }
+}
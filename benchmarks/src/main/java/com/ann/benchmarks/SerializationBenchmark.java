@@ -0,0 +1,115 @@
+package com.ann.benchmarks;
+
+import com.ann.server.commands.Show;
+import com.ann.server.managers.ProductCollectionManager;
+import com.general.models.Product;
+import com.general.network.FrameCodec;
+import com.general.network.Request;
+import com.general.network.Response;
+import com.general.network.Sendable;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кодирование и декодирование кадров {@link FrameCodec}, через которые проходят все запросы и ответы
+ * клиента и сервера. Измеряются запрос {@code add} с продуктом, запрос без данных, несущий только
+ * учетные данные, и ответ {@code show} со страницей из {@code rows} элементов.
+ * <p>
+ * Количество выделяемой памяти на операцию выводит профилировщик GC:
+ * {@code java -jar benchmarks/target/benchmarks.jar Serialization -prof gc}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    /**
+     * Запросы и их закодированные тела.
+     */
+    @State(Scope.Benchmark)
+    public static class Requests {
+        Request productRequest;
+        Request authRequest;
+        byte[] productRequestBody;
+        byte[] authRequestBody;
+
+        @Setup
+        public void setUp() throws IOException {
+            productRequest = withCredentials(new Request("add", GeneratedProductStorage.product(42)));
+            authRequest = withCredentials(new Request("sum_of_price", null));
+            productRequestBody = body(productRequest);
+            authRequestBody = body(authRequest);
+        }
+
+        private static Request withCredentials(Request request) {
+            request.setLogin("bench-user");
+            request.setPassword("bench-password");
+            request.setRequestId(42);
+            return request;
+        }
+    }
+
+    /**
+     * Ответ команды {@code show} и его закодированное тело.
+     */
+    @State(Scope.Benchmark)
+    public static class ShowResponse {
+        @Param({"20", "100", "1000"})
+        int rows;
+
+        Response response;
+        byte[] responseBody;
+
+        @Setup
+        public void setUp() throws IOException {
+            ProductCollectionManager manager = BenchmarkEnvironment.collectionManager("heap", rows);
+            response = new Show<Product>(manager).execute(new Request("show", new String[]{"show", "size=" + rows}));
+            manager.shutdown();
+            responseBody = body(response);
+        }
+    }
+
+    @Benchmark
+    public ByteBuffer encodeProductRequest(Requests state) throws IOException {
+        return FrameCodec.encode(state.productRequest);
+    }
+
+    @Benchmark
+    public Sendable decodeProductRequest(Requests state) throws IOException, ClassNotFoundException {
+        return FrameCodec.decode(state.productRequestBody);
+    }
+
+    @Benchmark
+    public ByteBuffer encodeAuthRequest(Requests state) throws IOException {
+        return FrameCodec.encode(state.authRequest);
+    }
+
+    @Benchmark
+    public Sendable decodeAuthRequest(Requests state) throws IOException, ClassNotFoundException {
+        return FrameCodec.decode(state.authRequestBody);
+    }
+
+    @Benchmark
+    public ByteBuffer encodeShowResponse(ShowResponse state) throws IOException {
+        return FrameCodec.encode(state.response);
+    }
+
+    @Benchmark
+    public Sendable decodeShowResponse(ShowResponse state) throws IOException, ClassNotFoundException {
+        return FrameCodec.decode(state.responseBody);
+    }
+
+    /**
+     * Кодирует сообщение и выделяет тело кадра так же, как это делает получатель.
+     */
+    private static byte[] body(Sendable message) throws IOException {
+        FrameCodec.Decoder decoder = new FrameCodec.Decoder();
+        decoder.feed(FrameCodec.encode(message));
+        return decoder.frames().get(0).body();
+    }
+}
@@ -0,0 +1,214 @@
+package com.client.network;
+
+import com.general.network.FrameCodec;
+import com.general.network.Request;
+import com.general.network.Response;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Соединение с сервером, обслуживаемое {@link ClientReactor}.
+ * <p>
+ * Отправка запросов потокобезопасна: кадр запроса сериализуется в вызывающем потоке и ставится в очередь,
+ * а записывает его поток реактора. Ответы сопоставляются с запросами по идентификатору, поэтому по одному
+ * соединению может ожидаться сколько угодно ответов одновременно.
+ */
+public class ClientConnection {
+    private final ClientReactor reactor;
+    private final SocketChannel channel;
+    private final CompletableFuture<ClientConnection> connected = new CompletableFuture<>();
+    private final Map<Long, CompletableFuture<Response>> pending = new ConcurrentHashMap<>();
+    private final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final AtomicLong nextRequestId = new AtomicLong(1);
+    private final FrameCodec.Decoder decoder = new FrameCodec.Decoder(); // Используется только потоком реактора
+    private SelectionKey key; // Используется только потоком реактора
+
+    ClientConnection(ClientReactor reactor, SocketChannel channel) {
+        this.reactor = reactor;
+        this.channel = channel;
+    }
+
+    /**
+     * @return соединение, которое завершается после установки подключения
+     */
+    CompletableFuture<ClientConnection> connected() {
+        return connected;
+    }
+
+    /**
+     * Отправляет запрос, назначая ему новый идентификатор.
+     *
+     * @param request       запрос
+     * @param timeoutMillis максимальное время ожидания ответа в миллисекундах
+     * @return ответ сервера; завершается {@link java.util.concurrent.TimeoutException}, если ответ не получен вовремя,
+     * {@link IOException}, если соединение закрыто, или {@link IllegalArgumentException}, если запрос не сериализуется
+     */
+    public CompletableFuture<Response> send(Request request, long timeoutMillis) {
+        if (closed.get()) return CompletableFuture.failedFuture(new IOException("Соединение с сервером закрыто"));
+        long requestId = nextRequestId.getAndIncrement();
+        request.setRequestId(requestId);
+        ByteBuffer frame;
+        try {
+            frame = FrameCodec.encode(request);
+        } catch (IOException e) {
+            // Ошибка сериализации относится только к этому запросу, соединение исправно
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Запрос не может быть сериализован: " + e.getMessage(), e));
+        }
+
+        CompletableFuture<Response> response = new CompletableFuture<>();
+        pending.put(requestId, response);
+        if (closed.get()) {
+            // Соединение закрылось, пока запрос готовился: ожидающие запросы уже могли быть завершены
+            pending.remove(requestId);
+            return CompletableFuture.failedFuture(new IOException("Соединение с сервером закрыто"));
+        }
+        response.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((result, error) -> {
+                    if (error != null) pending.remove(requestId);
+                });
+        writeQueue.add(frame);
+        if (flushScheduled.compareAndSet(false, true)) reactor.execute(this::flush);
+        return response;
+    }
+
+    /**
+     * Отправляет кадр без ожидания ответа.
+     *
+     * @param request запрос
+     * @return идентификатор запроса
+     * @throws IOException если соединение закрыто или запрос не может быть сериализован
+     */
+    public long sendOneWay(Request request) throws IOException {
+        if (closed.get()) throw new IOException("Соединение с сервером закрыто");
+        request.setRequestId(nextRequestId.getAndIncrement());
+        writeQueue.add(FrameCodec.encode(request));
+        if (flushScheduled.compareAndSet(false, true)) reactor.execute(this::flush);
+        return request.getRequestId();
+    }
+
+    /**
+     * @return количество запросов, ожидающих ответа
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public boolean isOpen() {
+        return !closed.get() && channel.isOpen();
+    }
+
+    /**
+     * Закрывает соединение. Ожидающие ответа запросы завершаются ошибкой.
+     */
+    public void close() {
+        close(new IOException("Соединение с сервером закрыто"));
+    }
+
+    /**
+     * Регистрирует канал в селекторе реактора. Вызывается потоком реактора.
+     */
+    void register(Selector selector, boolean alreadyConnected) {
+        try {
+            key = channel.register(selector, alreadyConnected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, this);
+            if (alreadyConnected) onConnected();
+        } catch (IOException e) {
+            close(e);
+        }
+    }
+
+    /**
+     * Обрабатывает готовность канала. Вызывается потоком реактора.
+     */
+    void handle(SelectionKey key) {
+        try {
+            if (!key.isValid()) return; // Соединение закрыто другим потоком после выбора ключа
+            if (key.isConnectable() && channel.finishConnect()) {
+                key.interestOps(SelectionKey.OP_READ);
+                onConnected();
+            }
+            if (key.isValid() && key.isReadable()) read();
+            if (key.isValid() && key.isWritable()) write();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            close(e);
+        } catch (CancelledKeyException e) {
+            close(new IOException("Соединение с сервером закрыто"));
+        }
+    }
+
+    void close(Throwable cause) {
+        if (!closed.compareAndSet(false, true)) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        connected.completeExceptionally(cause);
+        for (Long requestId : pending.keySet()) {
+            CompletableFuture<Response> response = pending.remove(requestId);
+            if (response != null) response.completeExceptionally(cause);
+        }
+        writeQueue.clear();
+    }
+
+    private void onConnected() throws IOException {
+        connected.complete(this);
+        write();
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        if (key == null || !key.isValid() || channel.isConnectionPending()) return; // Запишется после подключения
+        try {
+            write();
+        } catch (IOException e) {
+            close(e);
+        } catch (CancelledKeyException e) {
+            close(new IOException("Соединение с сервером закрыто"));
+        }
+    }
+
+    /**
+     * Записывает кадры из очереди, пока канал их принимает; остаток записывается при готовности канала.
+     */
+    private void write() throws IOException {
+        ByteBuffer frame;
+        while ((frame = writeQueue.peek()) != null) {
+            channel.write(frame);
+            if (frame.hasRemaining()) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+            writeQueue.poll();
+        }
+        key.interestOps(SelectionKey.OP_READ);
+    }
+
+    private void read() throws IOException, ClassNotFoundException {
+        ByteBuffer buffer = reactor.readBuffer();
+        int bytesRead;
+        while ((bytesRead = channel.read(buffer)) > 0) {
+            buffer.flip();
+            decoder.feed(buffer);
+            buffer.clear();
+        }
+        for (FrameCodec.Frame frame : decoder.frames()) {
+            CompletableFuture<Response> response = pending.remove(frame.requestId());
+            if (response != null) response.complete((Response) FrameCodec.decode(frame.body()));
+        }
+        if (bytesRead < 0) throw new IOException("Сервер закрыл соединение");
+    }
+}
@@ -0,0 +1,138 @@
+package com.client.network;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Поток ввода-вывода клиента с одним долгоживущим селектором.
+ * <p>
+ * Реактор обслуживает любое количество соединений {@link ClientConnection}: устанавливает их, отправляет
+ * накопленные кадры запросов и разбирает кадры ответов, завершая ожидающие их {@link CompletableFuture}.
+ * Остальные потоки передают реактору работу через {@link #execute(Runnable)}. Ответы завершаются в потоке
+ * реактора, поэтому долгие действия над ответами следует выполнять в своих потоках (методы {@code *Async}).
+ */
+public class ClientReactor implements Closeable {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE); // Используется только потоком реактора
+    private volatile boolean closed;
+
+    /**
+     * Открывает селектор и запускает поток реактора.
+     *
+     * @param name имя потока
+     * @throws IOException если селектор не может быть открыт
+     */
+    public ClientReactor(String name) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * @return общий реактор клиентов, создаваемый при первом обращении
+     */
+    public static ClientReactor shared() {
+        return Shared.INSTANCE;
+    }
+
+    /**
+     * Начинает подключение к серверу.
+     *
+     * @param address адрес сервера
+     * @return соединение, которое завершается после установки подключения
+     * @throws IOException если канал не может быть открыт
+     */
+    public CompletableFuture<ClientConnection> connect(InetSocketAddress address) throws IOException {
+        if (closed) throw new IOException("Реактор клиента остановлен");
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.configureBlocking(false);
+            boolean connected = channel.connect(address);
+            ClientConnection connection = new ClientConnection(this, channel);
+            execute(() -> connection.register(selector, connected));
+            return connection.connected();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Выполняет действие в потоке реактора.
+     *
+     * @param task действие
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * @return буфер чтения, общий для всех соединений реактора
+     */
+    ByteBuffer readBuffer() {
+        return readBuffer;
+    }
+
+    private void run() {
+        while (!closed) {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+            try {
+                selector.select();
+            } catch (IOException e) {
+                break;
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                ((ClientConnection) key.attachment()).handle(key);
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            ((ClientConnection) key.attachment()).close(new IOException("Реактор клиента остановлен"));
+        }
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Останавливает поток реактора и закрывает все его соединения.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+    }
+
+    private static class Shared {
+        private static final ClientReactor INSTANCE;
+
+        static {
+            try {
+                INSTANCE = new ClientReactor("client-reactor");
+            } catch (IOException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.client.network;
+
+import com.general.network.Request;
+import com.general.network.Response;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Клиент, выполняющий команды на сервере. Реализуется одиночным {@link TCPClient}
+ * и пулом соединений {@link PooledTCPClient}.
+ */
+public interface CommandClient {
+
+    /**
+     * Отправляет команду на сервер и ждет ответа.
+     *
+     * @param request запрос для отправки
+     * @return ответ от сервера; при ошибке обмена — ответ о невыполненной команде
+     */
+    Response sendCommand(Request request);
+
+    /**
+     * Отправляет запрос, не дожидаясь ответа.
+     *
+     * @param request       запрос для отправки
+     * @param timeoutMillis максимальное время ожидания ответа в миллисекундах
+     * @return ответ сервера
+     */
+    CompletableFuture<Response> sendAsync(Request request, long timeoutMillis);
+
+    /**
+     * Отправляет запрос с временем ожидания ответа по умолчанию.
+     *
+     * @param request запрос для отправки
+     * @return ответ сервера
+     */
+    default CompletableFuture<Response> sendAsync(Request request) {
+        return sendAsync(request, TCPClient.DEFAULT_TIMEOUT_MILLIS);
+    }
+}
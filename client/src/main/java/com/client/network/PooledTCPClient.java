@@ -0,0 +1,247 @@
+package com.client.network;
+
+import com.general.io.Console;
+import com.general.network.Request;
+import com.general.network.Response;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пул соединений с сервером для многопоточных приложений.
+ * <p>
+ * Сервер выполняет изменяющие команды одного соединения по очереди, поэтому потоки, работающие через одно
+ * соединение, ждут друг друга. Пул держит несколько соединений одного пользователя:
+ * <ul>
+ *     <li>синхронная команда занимает свободное соединение на время запроса, ожидающие потоки получают
+ *     соединения в порядке очереди;</li>
+ *     <li>асинхронные запросы распределяются по подключенным соединениям по кругу;</li>
+ *     <li>фоновая проверка переподключает закрытые соединения и заново выполняет на них вход, а свободные
+ *     соединения без запросов в пути проверяет ping; занятые соединения не проверяются, чтобы долгая
+ *     команда не была прервана из-за неотвеченного ping.</li>
+ * </ul>
+ * Все соединения пула обслуживаются одним {@link ClientReactor}.
+ */
+public class PooledTCPClient implements CommandClient, Closeable {
+    private static final long PING_TIMEOUT_MILLIS = 5000;
+
+    private final TCPClient[] clients;
+    private final Semaphore permits;
+    private final Queue<TCPClient> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger nextAsync = new AtomicInteger();
+    private final ScheduledExecutorService healthCheck;
+    private final Console output;
+    private final String login;
+    private final String password;
+    private final long checkoutTimeoutMillis;
+
+    /**
+     * Создает пул, проверяющий соединения раз в 30 секунд. Соединения устанавливаются методом {@link #connect()}.
+     *
+     * @param serverAddress адрес сервера
+     * @param serverPort    порт сервера
+     * @param size          количество соединений
+     * @param login         логин пользователя или {@code null} для работы без входа
+     * @param password      пароль пользователя
+     * @param output        консоль для сообщений клиента
+     */
+    public PooledTCPClient(String serverAddress, int serverPort, int size, String login, String password, Console output) {
+        this(serverAddress, serverPort, size, login, password, output, ClientReactor.shared(), 30000);
+    }
+
+    /**
+     * @param serverAddress       адрес сервера
+     * @param serverPort          порт сервера
+     * @param size                количество соединений
+     * @param login               логин пользователя или {@code null} для работы без входа
+     * @param password            пароль пользователя
+     * @param output              консоль для сообщений клиента
+     * @param reactor             реактор, обслуживающий соединения пула
+     * @param healthCheckInterval период проверки соединений в миллисекундах
+     */
+    public PooledTCPClient(String serverAddress, int serverPort, int size, String login, String password,
+                           Console output, ClientReactor reactor, long healthCheckInterval) {
+        this.clients = new TCPClient[Math.max(1, size)];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = new TCPClient(serverAddress, serverPort, output, reactor);
+            idle.add(clients[i]);
+        }
+        this.permits = new Semaphore(clients.length, true);
+        this.output = output;
+        this.login = login;
+        this.password = password;
+        this.checkoutTimeoutMillis = TCPClient.DEFAULT_TIMEOUT_MILLIS;
+        this.healthCheck = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "client-pool-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthCheck.scheduleWithFixedDelay(this::checkHealth, healthCheckInterval, healthCheckInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Подключает все соединения пула и выполняет на них вход.
+     *
+     * @return количество подключенных соединений
+     */
+    public int connect() {
+        int connected = 0;
+        for (TCPClient client : clients) {
+            if (reconnect(client)) connected++;
+        }
+        return connected;
+    }
+
+    /**
+     * Выполняет команду на свободном соединении пула.
+     *
+     * @param request запрос для отправки
+     * @return ответ от сервера
+     */
+    @Override
+    public Response sendCommand(Request request) {
+        TCPClient client;
+        try {
+            client = checkout();
+        } catch (TimeoutException e) {
+            output.printError(e.getMessage());
+            return new Response(false, "Команда не выполнена!", null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Response(false, "Команда не выполнена!", null);
+        }
+        try {
+            return client.sendCommand(request);
+        } finally {
+            release(client);
+        }
+    }
+
+    /**
+     * Отправляет запрос через следующее по кругу подключенное соединение, не занимая его.
+     *
+     * @param request       запрос для отправки
+     * @param timeoutMillis максимальное время ожидания ответа в миллисекундах
+     * @return ответ сервера
+     */
+    @Override
+    public CompletableFuture<Response> sendAsync(Request request, long timeoutMillis) {
+        for (int attempt = 0; attempt < clients.length; attempt++) {
+            TCPClient client = clients[Math.floorMod(nextAsync.getAndIncrement(), clients.length)];
+            if (client.isConnected()) return client.sendAsync(request, timeoutMillis);
+        }
+        return CompletableFuture.failedFuture(new IOException("Нет подключения к серверу"));
+    }
+
+    /**
+     * @return количество соединений пула
+     */
+    public int size() {
+        return clients.length;
+    }
+
+    /**
+     * @return количество подключенных соединений
+     */
+    public int connectedCount() {
+        int connected = 0;
+        for (TCPClient client : clients) {
+            if (client.isConnected()) connected++;
+        }
+        return connected;
+    }
+
+    /**
+     * Останавливает проверку соединений и закрывает все соединения пула.
+     */
+    @Override
+    public void close() {
+        healthCheck.shutdownNow();
+        for (TCPClient client : clients) {
+            client.disconnect();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("соединений %d, подключено %d, свободно %d", size(), connectedCount(), idle.size());
+    }
+
+    private TCPClient checkout() throws TimeoutException, InterruptedException {
+        if (!permits.tryAcquire(checkoutTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            throw new TimeoutException("Нет свободных соединений с сервером за " + checkoutTimeoutMillis + " мс");
+        }
+        TCPClient client = idle.poll(); // Разрешений не больше, чем свободных соединений
+        if (!client.isConnected()) reconnect(client);
+        return client;
+    }
+
+    private void release(TCPClient client) {
+        idle.add(client);
+        permits.release();
+    }
+
+    /**
+     * Подключает соединение, если оно закрыто, и выполняет на нем вход.
+     *
+     * @return {@code true}, если соединение подключено и вход выполнен
+     */
+    private boolean reconnect(TCPClient client) {
+        synchronized (client) {
+            if (client.isConnected()) return true;
+            try {
+                if (!client.connect()) return false;
+            } catch (TimeoutException e) {
+                output.printError(e.getMessage());
+                return false;
+            }
+            if (login == null) return true;
+            Request request = new Request("login", null);
+            request.setLogin(login);
+            request.setPassword(password);
+            Response response = client.sendCommand(request);
+            if (!response.isSuccess()) {
+                output.printError("Не удалось выполнить вход: " + response.getMessage());
+                client.disconnect();
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Переподключает закрытые соединения и закрывает соединения, не ответившие на ping. Проверяемое соединение
+     * на время проверки занимается, как командой; проверка прекращается, если свободных соединений нет
+     * или их ждут другие потоки.
+     */
+    private void checkHealth() {
+        for (int i = 0; i < clients.length; i++) {
+            if (permits.hasQueuedThreads() || !permits.tryAcquire()) return;
+            TCPClient client = idle.poll();
+            try {
+                if (!client.isConnected()) {
+                    reconnect(client);
+                } else if (client.getPendingCount() == 0) { // Асинхронные запросы в пути подтверждают соединение сами
+                    client.sendAsync(new Request("ping", null), PING_TIMEOUT_MILLIS).get();
+                }
+            } catch (ExecutionException e) {
+                client.disconnect();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                release(client);
+            }
+        }
+    }
+}
@@ -1,32 +1,59 @@
 package com.client.network;
 
-import com.general.command.Command;
 import com.general.io.Console;
 import com.general.network.Request;
 import com.general.network.Response;
 
-import java.io.*;
+import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.nio.ByteBuffer;
-import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
-import java.nio.channels.SocketChannel;
 import java.nio.channels.UnresolvedAddressException;
-import java.util.Iterator;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
-public class TCPClient {
+/**
+ * TCP-клиент сервера коллекции.
+ * <p>
+ * Ввод-вывод выполняет поток {@link ClientReactor} с одним долгоживущим селектором, а клиент только
+ * ставит запросы в очередь соединения и ожидает ответы. Асинхронный {@link #sendAsync(Request)} позволяет
+ * держать в пути тысячи запросов одновременно; {@link #sendCommand(Request)} ждет ответа и используется
+ * {@link com.client.runtime.Runner}. Клиент потокобезопасен.
+ */
+public class TCPClient implements CommandClient {
+    /**
+     * Время ожидания ответа по умолчанию в миллисекундах.
+     */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 10000;
+
     private final Console output;
     private final String serverAddress;
     private final int serverPort;
-    private SocketChannel socketChannel;
-    private String login;
-    private String password;
+    private final ClientReactor reactor;
+    private volatile ClientConnection connection;
+    private volatile Credentials credentials = new Credentials(null, null);
+
+    /**
+     * Учетные данные, отправляемые с каждым запросом.
+     */
+    private record Credentials(String login, String password) {
+    }
+
     public TCPClient(String serverAddress, int serverPort, Console output) {
+        this(serverAddress, serverPort, output, ClientReactor.shared());
+    }
+
+    /**
+     * @param serverAddress адрес сервера
+     * @param serverPort    порт сервера
+     * @param output        консоль для сообщений клиента
+     * @param reactor       реактор, обслуживающий соединение клиента
+     */
+    public TCPClient(String serverAddress, int serverPort, Console output, ClientReactor reactor) {
         this.serverAddress = serverAddress;
         this.serverPort = serverPort;
         this.output = output;
+        this.reactor = reactor;
     }
 
     /**
@@ -35,51 +62,25 @@ public class TCPClient {
      * @return true, если подключение успешно, иначе false
      * @throws TimeoutException если время подключения истекло
      */
-    public boolean connect() throws TimeoutException {
-        Selector selector = null;
-        boolean connectFlag = false;
+    public synchronized boolean connect() throws TimeoutException {
+        CompletableFuture<ClientConnection> connecting = null;
         try {
-            socketChannel = SocketChannel.open();
-            socketChannel.configureBlocking(false);
-            InetSocketAddress address = new InetSocketAddress(serverAddress, serverPort);
-            socketChannel.connect(address);
-
-            selector = Selector.open();
-            socketChannel.register(selector, SelectionKey.OP_CONNECT);
-
-            long startTime = System.currentTimeMillis();
-            while (System.currentTimeMillis() - startTime < 10000) {
-                if (selector.select(1000) == 0) {
-                    continue;
-                }
-
-                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
-                while (keys.hasNext()) {
-                    SelectionKey key = keys.next();
-                    keys.remove();
-                    if (key.isConnectable()) {
-                        try {
-                            connectFlag = socketChannel.finishConnect();
-                        } catch (IOException ignored) {
-                        }
-                        if (connectFlag) {
-                            output.println("Подключено к серверу: " + serverAddress + ":" + serverPort);
-                            return true;
-                        }
-                    }
-                }
-            }
+            connecting = reactor.connect(new InetSocketAddress(serverAddress, serverPort));
+            connection = connecting.get(DEFAULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            output.println("Подключено к серверу: " + serverAddress + ":" + serverPort);
+            return true;
+        } catch (TimeoutException e) {
+            connecting.thenAccept(ClientConnection::close);
             throw new TimeoutException("Не удалось подключиться в течение 10 секунд");
-        } catch (IOException e) {
-            output.println("Ошибка при подключении к серверу: " + e.getMessage());
+        } catch (IOException | ExecutionException e) {
+            output.println("Ошибка при подключении к серверу: " + (e.getCause() != null ? e.getCause() : e).getMessage());
             return false;
         } catch (UnresolvedAddressException badAddress) {
             output.printError("Ошибка в указании адреса");
             return false;
-        } finally {
-            if (!connectFlag) {
-                closeResources(selector, socketChannel);
-            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
     }
 
@@ -88,12 +89,12 @@ public class TCPClient {
      *
      * @return true, если подключение обеспечено, иначе false
      */
-    public boolean ensureConnection() {
+    public synchronized boolean ensureConnection() {
         if (!isConnected()) {
             output.println("Нет подключения к серверу.");
             try {
                 output.println("Попытка повторного подключения к серверу...");
-                connect();
+                return connect();
             } catch (TimeoutException e) {
                 output.printError("Ошибка переподключения: " + e.getMessage());
                 return false;
@@ -103,88 +104,41 @@ public class TCPClient {
     }
 
     /**
-     * Отключается от сервера.
-     *
-     * @throws IOException если произошла ошибка ввода-вывода
+     * Отключается от сервера. Запросы, ожидающие ответа, завершаются ошибкой.
      */
-    public void disconnect() throws IOException {
-        if (socketChannel != null) {
-            socketChannel.close();
+    public synchronized void disconnect() {
+        if (connection != null) {
+            connection.close();
         }
     }
 
     /**
-     * Отправляет запрос на сервер.
+     * Отправляет запрос, не ожидая ответа.
      *
      * @param request запрос для отправки
-     * @throws IOException если произошла ошибка ввода-вывода
+     * @return идентификатор запроса
+     * @throws IOException если нет подключения или запрос не может быть отправлен
      */
-    public void sendRequest(Request request) throws IOException {
+    public long sendRequest(Request request) throws IOException {
         if (!ensureConnection()) throw new IOException("Не удалось обеспечить подключение");
-        request.setLogin(login);
-        request.setPassword(password);
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream);
-        objectOutputStream.writeObject(request);
-        objectOutputStream.flush();
-        byte[] requestBytes = byteArrayOutputStream.toByteArray();
-        ByteBuffer buffer = ByteBuffer.wrap(requestBytes);
-        socketChannel.write(buffer);
+        return connection.sendOneWay(withCredentials(request));
     }
 
     /**
-     * Получает ответ от сервера.
+     * Отправляет запрос, не дожидаясь ответа. Не переподключается: при отсутствии подключения
+     * ответ сразу завершается ошибкой.
      *
-     * @return ответ от сервера
-     * @throws IOException            если произошла ошибка ввода-вывода
-     * @throws ClassNotFoundException если класс ответа не найден
+     * @param request       запрос для отправки
+     * @param timeoutMillis максимальное время ожидания ответа в миллисекундах
+     * @return ответ сервера; завершается {@link TimeoutException}, если ответ не получен вовремя
      */
-    public Response receiveResponse() throws IOException, ClassNotFoundException {
-        ensureConnection();
-        Selector selector = Selector.open();
-        socketChannel.configureBlocking(false);
-        socketChannel.register(selector, SelectionKey.OP_READ);
-        ByteBuffer buffer = ByteBuffer.allocate(16384);
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        long startTime = System.currentTimeMillis();
-
-        while (System.currentTimeMillis() - startTime < 10000) { // Ожидание ответа до 10 секунд
-            int readyChannels = selector.select(10000); // Ожидание событий до 10 секунд
-            if (readyChannels == 0) {
-                continue;
-            }
-
-            Set<SelectionKey> selectedKeys = selector.selectedKeys();
-            Iterator<SelectionKey> keyIterator = selectedKeys.iterator();
-
-            while (keyIterator.hasNext()) {
-                SelectionKey key = keyIterator.next();
-                if (key.isReadable()) {
-                    int bytesRead;
-                    while ((bytesRead = socketChannel.read(buffer)) > 0) {
-                        buffer.flip();
-                        byteArrayOutputStream.write(buffer.array(), 0, bytesRead);
-                        buffer.clear();
-                    }
-                    if (bytesRead == -1) {
-                        // Закрытие канала
-                        socketChannel.close();
-                    }
-                }
-                keyIterator.remove();
-            }
-
-            byte[] responseBytes = byteArrayOutputStream.toByteArray();
-            if (responseBytes.length > 0) {
-                try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(responseBytes))) {
-                    return (Response) objectInputStream.readObject();
-                } catch (Exception ignore) {
-                }
-            }
+    @Override
+    public CompletableFuture<Response> sendAsync(Request request, long timeoutMillis) {
+        ClientConnection current = connection;
+        if (current == null || !current.isOpen()) {
+            return CompletableFuture.failedFuture(new IOException("Нет подключения к серверу"));
         }
-
-        // Если за 10 секунд не получили ответ, генерируем исключение
-        throw new IOException("Нет ответа от сервера в течение указанного времени ожидания");
+        return current.send(withCredentials(request), timeoutMillis);
     }
 
     /**
@@ -193,52 +147,79 @@ public class TCPClient {
      * @param request запрос для отправки
      * @return ответ от сервера
      */
+    @Override
     public Response sendCommand(Request request) {
-        String command = request.getCommand();
-        if (command.equals("login") || command.equals("register")) {
-            login = request.getLogin();
-            password = request.getPassword();
+        return sendCommand(request, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Отправляет команду на сервер и ждет ответа не дольше указанного времени. Соединение закрывается
+     * только при ошибке ввода-вывода; если истекло время ожидания, ошибкой завершается только эта команда,
+     * а остальные запросы в пути продолжают ждать своих ответов.
+     *
+     * @param request       запрос для отправки
+     * @param timeoutMillis максимальное время ожидания ответа в миллисекундах
+     * @return ответ от сервера
+     */
+    public Response sendCommand(Request request, long timeoutMillis) {
+        if (!ensureConnection()) {
+            output.printError("Не удалось обеспечить подключение");
+            return failure();
         }
         try {
-            sendRequest(request);
-            return receiveResponse();
-        } catch (IOException | ClassNotFoundException e) {
-            output.printError(e.getMessage());
+            return sendAsync(request, timeoutMillis).get();
+        } catch (ExecutionException e) {
+            output.printError(describe(e.getCause()));
+            if (e.getCause() instanceof IOException) return failure();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        output.printError("Запрос не отправлен. Повторите попытку позже.");
-        try {
-            disconnect();
-        } catch (IOException e) {
-            output.printError("Не удалось закрыть соединение");
+        return new Response(false, "Команда не выполнена!", null);
+    }
+
+    /**
+     * Запоминает учетные данные команд входа и регистрации и добавляет текущие учетные данные в запрос.
+     */
+    private Request withCredentials(Request request) {
+        String command = request.getCommand();
+        if (command.equals("login") || command.equals("register")) {
+            credentials = new Credentials(request.getLogin(), request.getPassword());
         }
+        Credentials current = credentials;
+        request.setLogin(current.login());
+        request.setPassword(current.password());
+        return request;
+    }
+
+    private static String describe(Throwable error) {
+        if (error instanceof TimeoutException) return "Нет ответа от сервера в течение указанного времени ожидания";
+        return error.getMessage();
+    }
+
+    /**
+     * Закрывает соединение после ошибки ввода-вывода и возвращает ответ о невыполненной команде.
+     */
+    private Response failure() {
+        output.printError("Запрос не отправлен. Повторите попытку позже.");
+        disconnect();
         return new Response(false, "Команда не выполнена!", null);
     }
 
     /**
-     * Проверяет, подключен ли клиент к серверу.
-     *
-     * @return true, если подключен, иначе false
+     * @return количество запросов, ожидающих ответа сервера
      */
-    public boolean isConnected() {
-        return socketChannel != null && socketChannel.isConnected();
+    public int getPendingCount() {
+        ClientConnection current = connection;
+        return current == null ? 0 : current.getPendingCount();
     }
 
     /**
-     * Закрывает указанные ресурсы.
+     * Проверяет, подключен ли клиент к серверу.
      *
-     * @param selector      селектор для закрытия
-     * @param socketChannel канал для закрытия
+     * @return true, если подключен, иначе false
      */
-    private void closeResources(Selector selector, SocketChannel socketChannel) {
-        try {
-            if (socketChannel != null) {
-                socketChannel.close();
-            }
-            if (selector != null) {
-                selector.close();
-            }
-        } catch (IOException e) {
-            output.println("Ошибка при закрытии ресурсов: " + e.getMessage());
-        }
+    public boolean isConnected() {
+        ClientConnection current = connection;
+        return current != null && current.isOpen();
     }
 }
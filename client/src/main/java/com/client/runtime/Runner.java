@@ -7,9 +7,15 @@ import com.general.io.Console;
 import com.general.io.Interrogator;
 import com.general.network.Request;
 import com.general.network.Response;
+import com.general.network.ScriptBundle;
+import com.general.query.NearQuery;
+import com.general.query.ProductFilter;
+import com.general.query.WithinQuery;
 
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -29,7 +35,7 @@ public class Runner {
     private final Console console;        // Консоль для взаимодействия с пользователем
     private final TCPClient tcpClient;    // TCP-клиент для обмена данными с сервером
     private final List<String> commandHistory = new ArrayList<>(); // История выполненных команд
-    private final List<String> scriptStack = new ArrayList<>();   // Стек скриптов
+    private List<Request> batch; // Команды открытого пакета или null, если пакет не открыт
 
     /**
      * Конструктор для создания объекта Runner.
@@ -76,62 +82,118 @@ public class Runner {
     }
 
     /**
-     * Режим для запуска скрипта.
+     * Режим для запуска скрипта. Скрипт вместе со всеми вызываемыми им скриптами отправляется на сервер
+     * одним запросом и выполняется там; сервер возвращает вывод всех команд скрипта.
      *
      * @param argument Аргумент скрипта
      * @return Код завершения.
      */
     public ExitCode scriptMode(String argument) {
-        String[] userCommand = {"", ""};
-        ExitCode commandStatus;
-        scriptStack.add(argument);
-        if (!new File(argument).exists()) {
-            argument = "../" + argument;
+        ScriptBundle bundle = new ScriptBundle(argument);
+        try {
+            readScript(bundle, argument);
+        } catch (NoSuchFileException exception) {
+            console.printError("Файл со скриптом не найден!");
+            return ExitCode.ERROR;
+        } catch (IOException exception) {
+            console.printError("Не удалось прочитать скрипт: " + exception.getMessage());
+            return ExitCode.ERROR;
         }
-        try (Scanner scriptScanner = new Scanner(new File(argument))) {
-            if (!scriptScanner.hasNext()) throw new NoSuchElementException();
-            Scanner tmpScanner = Interrogator.getUserScanner();
-            Interrogator.setUserScanner(scriptScanner);
-            Interrogator.setFileMode();
-
-            do {
-                do {
-                    userCommand = (scriptScanner.nextLine().trim() + " ").split(" ", 2);
-                    userCommand[1] = userCommand[1].trim();
-                } while (scriptScanner.hasNextLine() && userCommand[0].isEmpty());
-                console.println(console.getPS1() + String.join(" ", userCommand));
-                if (userCommand[0].equals("execute_script")) {
-                    for (String script : scriptStack) {
-                        if (userCommand[1].equals(script)) throw new ScriptRecursionException();
-                    }
-                }
-                commandStatus = launchCommand(userCommand);
-            } while (commandStatus == ExitCode.OK && scriptScanner.hasNextLine());
 
-            Interrogator.setUserScanner(tmpScanner);
-            Interrogator.setUserMode();
+        Response response = tcpClient.sendCommand(new Request("execute_script", bundle));
+        if (response.isSuccess()) {
+            console.println(response);
+            return ExitCode.OK;
+        }
+        console.printError(response);
+        return ExitCode.ERROR;
+    }
 
-            if (commandStatus == ExitCode.ERROR && !(userCommand[0].equals("execute_script") && !userCommand[1].isEmpty())) {
-                console.println("Проверьте скрипт на корректность введенных данных!");
+    /**
+     * Управляет пакетом команд. После {@code batch begin} изменяющие и прочие команды не отправляются сразу,
+     * а накапливаются; {@code batch commit} отправляет их одним пакетным запросом ({@link Request#batch(List)}),
+     * который сервер выполняет целиком или не выполняет совсем, {@code batch abort} отбрасывает их.
+     *
+     * @param argument begin, commit или abort
+     * @return Код завершения.
+     */
+    private ExitCode batchMode(String argument) {
+        switch (argument) {
+            case "begin" -> {
+                if (batch != null) {
+                    console.printError("Пакет уже открыт, команд в нем: " + batch.size());
+                    return ExitCode.ERROR;
+                }
+                batch = new ArrayList<>();
+                console.println("Пакет открыт. Команды будут отправлены вместе по batch commit, batch abort отменит их.");
+                return ExitCode.OK;
             }
+            case "commit" -> {
+                if (batch == null || batch.isEmpty()) {
+                    console.printError(batch == null ? "Пакет не открыт: batch begin" : "Пакет пуст");
+                    return ExitCode.ERROR;
+                }
+                List<Request> requests = batch;
+                batch = null;
+                Response response = tcpClient.sendCommand(Request.batch(requests));
+                if (response.isSuccess()) {
+                    console.println(response);
+                    return ExitCode.OK;
+                }
+                console.printError(response);
+                return ExitCode.ERROR;
+            }
+            case "abort" -> {
+                if (batch == null) {
+                    console.printError("Пакет не открыт");
+                    return ExitCode.ERROR;
+                }
+                console.println("Пакет отменен, отброшено команд: " + batch.size());
+                batch = null;
+                return ExitCode.OK;
+            }
+            default -> {
+                console.printError("Правильное использование: batch begin|commit|abort");
+                return ExitCode.ERROR;
+            }
+        }
+    }
 
-            return commandStatus;
-
-        } catch (FileNotFoundException exception) {
-            console.printError("Файл со скриптом не найден!");
-        } catch (NoSuchElementException exception) {
-            console.printError("Файл со скриптом пуст!");
-        } catch (ScriptRecursionException exception) {
-            console.printError("Скрипты не могут вызываться рекурсивно!");
-        } catch (IllegalStateException exception) {
-            console.printError("Непредвиденная ошибка!");
-
+    /**
+     * Отправляет запрос серверу или, если открыт пакет, добавляет его в пакет.
+     *
+     * @param request запрос
+     * @return ответ сервера или подтверждение добавления в пакет
+     */
+    private Response send(Request request) {
+        if (batch == null) return tcpClient.sendCommand(request);
+        batch.add(request);
+        return new Response(true, "Команда добавлена в пакет, команд в пакете: " + batch.size());
+    }
 
-            System.exit(0);
-        } finally {
-            scriptStack.remove(scriptStack.size() - 1);
+    /**
+     * Добавляет в набор текст скрипта и всех скриптов, которые он вызывает через execute_script.
+     * Недоступные вложенные скрипты в набор не попадают, сервер сообщит о них при выполнении.
+     *
+     * @param bundle набор скриптов
+     * @param name   имя скрипта
+     * @throws IOException если скрипт не может быть прочитан
+     */
+    private void readScript(ScriptBundle bundle, String name) throws IOException {
+        Path path = Path.of(name);
+        if (!Files.exists(path)) path = Path.of("..", name);
+        String content = Files.readString(path);
+        bundle.put(name, content);
+        for (String line : content.split("\n")) {
+            String[] userCommand = (line.trim() + " ").split(" ", 2);
+            String nested = userCommand[1].trim();
+            if (userCommand[0].equals("execute_script") && !bundle.contains(nested)) {
+                try {
+                    readScript(bundle, nested);
+                } catch (IOException ignored) {
+                }
+            }
         }
-        return ExitCode.ERROR;
     }
 
     /**
@@ -144,6 +206,7 @@ public class Runner {
         try {
             switch (userCommand[0]) {
                 case "exit" -> {
+                    if (batch != null) console.printError("Пакет не отправлен, его команды (" + batch.size() + ") отброшены");
                     try {
                         tcpClient.sendRequest(new Request("exit", null));
                     } catch (Exception ignored) {
@@ -151,15 +214,22 @@ public class Runner {
                     return ExitCode.EXIT;
                 }
                 case "execute_script" -> {
+                    if (batch != null) {
+                        console.printError("Скрипт нельзя выполнить внутри пакета, завершите пакет: batch commit|abort");
+                        return ExitCode.ERROR;
+                    }
                     return scriptMode(userCommand[1]);
                 }
+                case "batch" -> {
+                    return batchMode(userCommand[1]);
+                }
                 case "add", "add_if_min", "remove_greater", "remove_lower" -> {
                     try {
                         if (!userCommand[1].isEmpty())
                             throw new WrongAmountOfElementsException();
                         console.println("* Создание нового продукта:");
                         var product = (new ProductForm(console)).build();
-                        response = tcpClient.sendCommand(new Request(userCommand[0], product));
+                        response = send(new Request(userCommand[0], product));
                     } catch (WrongAmountOfElementsException | MustBeNotEmptyException exception) {
                         console.printError("Неправильное количество аргументов!");
                         console.println("Правильное использование, используйте help для получения списка команд и их аргументов");
@@ -176,7 +246,7 @@ public class Runner {
                         console.println("* Создание нового продукта:");
                         var product = (new ProductForm(console)).build();
                         product.setId(id);
-                        response = tcpClient.sendCommand(new Request(userCommand[0], product));
+                        response = send(new Request(userCommand[0], product));
                     } catch (WrongAmountOfElementsException | MustBeNotEmptyException | NumberFormatException exception) {
                         console.printError("Неправильное количество аргументов!");
                         console.println("Правильное использование, используйте help для получения списка команд и их аргументов");
@@ -190,12 +260,34 @@ public class Runner {
                         if (userCommand[1].isEmpty())
                             throw new WrongAmountOfElementsException();
                         var id = Long.parseLong(userCommand[1]);
-                        response = tcpClient.sendCommand(new Request(userCommand[0], id));
+                        response = send(new Request(userCommand[0], id));
                     } catch (WrongAmountOfElementsException | NumberFormatException exception) {
                         console.printError("Неправильное количество аргументов!");
                         console.println("Правильное использование, используйте help для получения списка команд и их аргументов");
                     }
                 }
+                case "filter" -> {
+                    try {
+                        if (userCommand[1].isEmpty())
+                            throw new WrongAmountOfElementsException();
+                        response = send(new Request(userCommand[0], ProductFilter.parse(userCommand[1])));
+                    } catch (WrongAmountOfElementsException exception) {
+                        console.printError("Не указаны условия!");
+                        console.println("Пример: filter price>100 unit=GRAMS org=\"Coca Cola\" page=2 size=50");
+                    } catch (IllegalArgumentException exception) {
+                        console.printError(exception.getMessage());
+                    }
+                }
+                case "near", "within" -> {
+                    try {
+                        Object query = userCommand[0].equals("near")
+                                ? NearQuery.parse(userCommand[1])
+                                : WithinQuery.parse(userCommand[1]);
+                        response = send(new Request(userCommand[0], query));
+                    } catch (IllegalArgumentException exception) {
+                        console.printError(exception.getMessage());
+                    }
+                }
                 case "history" -> {
                     console.println("История команд: ");
                     for (String com : commandHistory) {
@@ -219,7 +311,7 @@ public class Runner {
                     }
                 }
                 default -> {
-                    response = tcpClient.sendCommand(new Request(userCommand[0], userCommand[1].isEmpty() ? null : userCommand));
+                    response = send(new Request(userCommand[0], userCommand[1].isEmpty() ? null : userCommand));
                     if (response == null || !response.isSuccess()) return ExitCode.ERROR;
                 }
             }
@@ -232,4 +324,4 @@ public class Runner {
 
         return ExitCode.OK;
     }
-}
\ No newline at end of file
+}
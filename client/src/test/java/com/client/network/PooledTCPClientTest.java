@@ -0,0 +1,186 @@
+package com.client.network;
+
+import com.client.io.StandardConsole;
+import com.general.network.FrameCodec;
+import com.general.network.Request;
+import com.general.network.Response;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Проверяет пул соединений на сервере-заглушке, который принимает любое число соединений, запоминает входы
+ * и ping и отвечает на команду "slow" с задержкой.
+ */
+public class PooledTCPClientTest extends TestCase {
+    private ServerSocketChannel server;
+    private final List<SocketChannel> accepted = new CopyOnWriteArrayList<>();
+    private final List<String> logins = new CopyOnWriteArrayList<>();
+    private final Map<String, SocketChannel> slowCommands = new ConcurrentHashMap<>();
+    private final Set<SocketChannel> busy = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger pings = new AtomicInteger();
+    private final AtomicInteger pingsWhileBusy = new AtomicInteger();
+    private PooledTCPClient pool;
+
+    @Override
+    protected void setUp() throws Exception {
+        server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+        Thread acceptor = new Thread(this::accept, "stub-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (pool != null) pool.close();
+        server.close();
+        for (SocketChannel channel : accepted) channel.close();
+    }
+
+    private void accept() {
+        try {
+            while (true) {
+                SocketChannel channel = server.accept();
+                accepted.add(channel);
+                Thread connection = new Thread(() -> serve(channel), "stub-connection");
+                connection.setDaemon(true);
+                connection.start();
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        try (channel) {
+            FrameCodec.Decoder decoder = new FrameCodec.Decoder();
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                decoder.feed(buffer);
+                buffer.clear();
+                for (FrameCodec.Frame frame : decoder.frames()) {
+                    Request request = (Request) FrameCodec.decode(frame.body());
+                    if (request.getCommand().equals("login")) logins.add(request.getLogin());
+                    if (request.getCommand().equals("ping")) {
+                        pings.incrementAndGet();
+                        if (busy.contains(channel)) pingsWhileBusy.incrementAndGet();
+                    }
+                    if (request.getCommand().startsWith("slow")) {
+                        // Долгая команда отвечает из отдельного потока, чтобы запросы, пришедшие во время нее, были видны сразу
+                        slowCommands.put(request.getCommand(), channel);
+                        busy.add(channel);
+                        Thread slow = new Thread(() -> {
+                            try {
+                                Thread.sleep(300);
+                                busy.remove(channel);
+                                respond(channel, request, frame.requestId());
+                            } catch (Exception ignored) {
+                            }
+                        }, "stub-slow");
+                        slow.setDaemon(true);
+                        slow.start();
+                        continue;
+                    }
+                    respond(channel, request, frame.requestId());
+                }
+            }
+        } catch (Exception ignored) {
+        }
+    }
+
+    private static void respond(SocketChannel channel, Request request, long requestId) throws IOException {
+        Response response = new Response(true, request.getCommand() + " " + request.getLogin());
+        response.setRequestId(requestId);
+        ByteBuffer encoded = FrameCodec.encode(response);
+        synchronized (channel) {
+            while (encoded.hasRemaining()) channel.write(encoded);
+        }
+    }
+
+    private PooledTCPClient pool(int size, long healthCheckInterval) {
+        pool = new PooledTCPClient("localhost", server.socket().getLocalPort(), size, "ann", "secret",
+                new StandardConsole(), ClientReactor.shared(), healthCheckInterval);
+        return pool;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue("условие не выполнено за 10 секунд", System.nanoTime() < deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    private void closeServerSide() throws Exception {
+        for (SocketChannel channel : accepted) channel.close();
+        await(() -> pool.connectedCount() == 0);
+    }
+
+    public void testCommandsCheckOutSeparateConnectionsAndReleaseThem() throws Exception {
+        PooledTCPClient pool = pool(2, 60000);
+        assertEquals(2, pool.connect());
+        assertEquals(List.of("ann", "ann"), logins);
+
+        CompletableFuture<Response> first = CompletableFuture.supplyAsync(() -> pool.sendCommand(new Request("slow1", null)));
+        CompletableFuture<Response> second = CompletableFuture.supplyAsync(() -> pool.sendCommand(new Request("slow2", null)));
+        await(() -> slowCommands.size() == 2);
+        assertNotSame(slowCommands.get("slow1"), slowCommands.get("slow2"));
+        assertTrue(pool.toString(), pool.toString().endsWith("свободно 0"));
+
+        // Третья команда ждет, пока одно из соединений освободится
+        assertEquals("echo ann", pool.sendCommand(new Request("echo", null)).getMessage());
+        assertEquals("slow1 ann", first.get(5, TimeUnit.SECONDS).getMessage());
+        assertEquals("slow2 ann", second.get(5, TimeUnit.SECONDS).getMessage());
+        assertTrue(pool.toString(), pool.toString().endsWith("свободно 2"));
+        assertEquals(2, accepted.size());
+    }
+
+    public void testHealthCheckReconnectsAndLogsInAgain() throws Exception {
+        PooledTCPClient pool = pool(2, 100);
+        assertEquals(2, pool.connect());
+
+        for (SocketChannel channel : accepted) channel.close();
+        await(() -> logins.size() == 4 && pool.connectedCount() == 2);
+
+        assertEquals(4, accepted.size());
+        assertEquals(List.of("ann", "ann", "ann", "ann"), logins);
+        assertEquals("echo ann", pool.sendCommand(new Request("echo", null)).getMessage());
+    }
+
+    public void testCheckoutReconnectsClosedConnectionAndLogsIn() throws Exception {
+        PooledTCPClient pool = pool(1, 60000);
+        assertEquals(1, pool.connect());
+
+        closeServerSide();
+        assertEquals("echo ann", pool.sendCommand(new Request("echo", null)).getMessage());
+
+        assertEquals(2, accepted.size());
+        assertEquals(List.of("ann", "ann"), logins);
+        assertEquals(1, pool.connectedCount());
+    }
+
+    public void testHealthCheckPingsOnlyIdleConnections() throws Exception {
+        PooledTCPClient pool = pool(1, 20);
+        assertEquals(1, pool.connect());
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("slow" + i + " ann", pool.sendCommand(new Request("slow" + i, null)).getMessage());
+        }
+        await(() -> pings.get() > 0);
+        assertEquals(0, pingsWhileBusy.get());
+        assertEquals(1, pool.connectedCount());
+    }
+}
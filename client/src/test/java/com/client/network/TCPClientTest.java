@@ -0,0 +1,120 @@
+package com.client.network;
+
+import com.client.io.StandardConsole;
+import com.general.network.FrameCodec;
+import com.general.network.Request;
+import com.general.network.Response;
+import junit.framework.TestCase;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Проверяет асинхронный клиент на сервере-заглушке, который отвечает на запросы в обратном порядке
+ * и не отвечает на команду "silent".
+ */
+public class TCPClientTest extends TestCase {
+    private ServerSocketChannel server;
+    private Thread serverThread;
+
+    @Override
+    protected void setUp() throws Exception {
+        server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+        serverThread = new Thread(this::serve, "stub-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        server.close();
+    }
+
+    private void serve() {
+        try (SocketChannel channel = server.accept()) {
+            FrameCodec.Decoder decoder = new FrameCodec.Decoder();
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                decoder.feed(buffer);
+                buffer.clear();
+                List<FrameCodec.Frame> frames = decoder.frames();
+                Collections.reverse(frames);
+                for (FrameCodec.Frame frame : frames) {
+                    Request request = (Request) FrameCodec.decode(frame.body());
+                    if (request.getCommand().equals("silent")) continue;
+                    Response response = new Response(true, request.getCommand() + " " + request.getLogin());
+                    response.setRequestId(frame.requestId());
+                    ByteBuffer encoded = FrameCodec.encode(response);
+                    while (encoded.hasRemaining()) channel.write(encoded);
+                }
+            }
+        } catch (Exception ignored) {
+        }
+    }
+
+    private TCPClient connect() throws Exception {
+        TCPClient client = new TCPClient("localhost", server.socket().getLocalPort(), new StandardConsole());
+        assertTrue(client.connect());
+        return client;
+    }
+
+    public void testConcurrentRequestsGetTheirOwnResponses() throws Exception {
+        TCPClient client = connect();
+        Request login = new Request("login", null);
+        login.setLogin("ann");
+        login.setPassword("secret");
+        assertEquals("login ann", client.sendCommand(login).getMessage());
+
+        List<CompletableFuture<Response>> responses = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            responses.add(client.sendAsync(new Request("command" + i, null)));
+        }
+        for (int i = 0; i < responses.size(); i++) {
+            assertEquals("command" + i + " ann", responses.get(i).get().getMessage());
+        }
+        client.disconnect();
+    }
+
+    public void testTimeoutFailsOnlyThatRequest() throws Exception {
+        TCPClient client = connect();
+        CompletableFuture<Response> silent = client.sendAsync(new Request("silent", null), 200);
+        assertTrue(client.sendAsync(new Request("echo", null)).get().isSuccess());
+        try {
+            silent.get();
+            fail();
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof TimeoutException);
+        }
+        assertTrue(client.isConnected());
+        client.disconnect();
+        assertFalse(client.isConnected());
+    }
+
+    public void testSendCommandTimeoutKeepsConnectionAndOtherRequests() throws Exception {
+        TCPClient client = connect();
+        CompletableFuture<Response> inFlight = client.sendAsync(new Request("silent", null), 5000);
+
+        Response timedOut = client.sendCommand(new Request("silent", null), 200);
+
+        assertFalse(timedOut.isSuccess());
+        assertTrue(client.isConnected());
+        assertFalse("запрос в пути завершен вместе с отключением", inFlight.isDone());
+        assertEquals("echo null", client.sendCommand(new Request("echo", null)).getMessage());
+        client.disconnect();
+        try {
+            inFlight.get();
+            fail();
+        } catch (ExecutionException expected) {
+            assertFalse(expected.getCause() instanceof TimeoutException);
+        }
+    }
+}
@@ -28,6 +28,16 @@ public abstract class Command implements Describable, Executable {
         return description;
     }
 
+    /**
+     * Команды только для чтения не изменяют коллекцию, поэтому сервер может выполнять их параллельно
+     * с другими запросами того же клиента. Изменяющие команды одного клиента выполняются в порядке отправки.
+     *
+     * @return {@code true}, если команда не изменяет коллекцию
+     */
+    public boolean isReadOnly() {
+        return false;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
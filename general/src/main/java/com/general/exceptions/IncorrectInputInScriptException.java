@@ -4,4 +4,11 @@ package com.general.exceptions;
  * Выполняется, если пользователь вводит некорректные данные.
  */
 
-public class IncorrectInputInScriptException extends Exception {}
\ No newline at end of file
+public class IncorrectInputInScriptException extends Exception {
+    public IncorrectInputInScriptException() {
+    }
+
+    public IncorrectInputInScriptException(String message) {
+        super(message);
+    }
+}
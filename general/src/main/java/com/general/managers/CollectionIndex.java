@@ -0,0 +1,542 @@
+package com.general.managers;
+
+import com.general.models.base.Element;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Вторичный индекс коллекции по значению, которое функция-экстрактор вычисляет из элемента.
+ * <p>
+ * Индексы объявляются наследниками {@link CollectionManager} методом {@link CollectionManager#declareIndex}
+ * и поддерживаются им при добавлении, удалении, обновлении и очистке. Виды индексов:
+ * <ul>
+ *     <li>{@link #unique} — хеш-индекс, в котором значению соответствует не больше одного элемента;</li>
+ *     <li>{@link #multi} — хеш-индекс, в котором значению соответствует несколько элементов;</li>
+ *     <li>{@link #ordered} — упорядоченный индекс с несколькими элементами на значение, поддерживающий поиск
+ *     по диапазону;</li>
+ *     <li>{@link #spatial} — пространственный индекс по точкам на плоскости, поддерживающий поиск ближайших
+ *     элементов и элементов в прямоугольнике.</li>
+ * </ul>
+ * Элементы, для которых экстрактор вернул {@code null}, в индекс не попадают. Элементы одного значения хранятся
+ * по ID. Индекс изменяет только поток, изменяющий коллекцию; чтение не требует блокировок и видит индекс
+ * в согласованном по каждому значению, но не обязательно по всем значениям сразу состоянии.
+ *
+ * @param <T> тип элементов коллекции
+ * @param <K> тип значения, по которому строится индекс
+ */
+public abstract class CollectionIndex<T extends Element, K> {
+    /**
+     * Вид индекса.
+     */
+    public enum Kind {
+        UNIQUE, MULTI, ORDERED, SPATIAL
+    }
+
+    /**
+     * Точка на плоскости — значение пространственного индекса.
+     *
+     * @param x абсцисса
+     * @param y ордината
+     */
+    public record Point(double x, double y) {
+        /**
+         * @param other другая точка
+         * @return квадрат расстояния до нее
+         */
+        public double distanceSquared(Point other) {
+            double dx = x - other.x;
+            double dy = y - other.y;
+            return dx * dx + dy * dy;
+        }
+    }
+
+    private final String name;
+    private final Function<? super T, ? extends K> extractor;
+
+    private CollectionIndex(String name, Function<? super T, ? extends K> extractor) {
+        this.name = name;
+        this.extractor = extractor;
+    }
+
+    /**
+     * Создает уникальный хеш-индекс. Добавление элемента со значением, которое уже занято элементом
+     * с другим ID, отклоняется.
+     *
+     * @param name      название индекса
+     * @param extractor функция, вычисляющая значение из элемента
+     * @return индекс
+     */
+    public static <T extends Element, K> CollectionIndex<T, K> unique(String name, Function<? super T, ? extends K> extractor) {
+        return new Unique<>(name, extractor);
+    }
+
+    /**
+     * Создает неуникальный хеш-индекс.
+     *
+     * @param name      название индекса
+     * @param extractor функция, вычисляющая значение из элемента
+     * @return индекс
+     */
+    public static <T extends Element, K> CollectionIndex<T, K> multi(String name, Function<? super T, ? extends K> extractor) {
+        return new Multi<>(name, new ConcurrentHashMap<>(), extractor);
+    }
+
+    /**
+     * Создает упорядоченный неуникальный индекс с поиском по диапазону.
+     *
+     * @param name      название индекса
+     * @param extractor функция, вычисляющая значение из элемента
+     * @return индекс
+     */
+    public static <T extends Element, K extends Comparable<? super K>> CollectionIndex<T, K> ordered(
+            String name, Function<? super T, ? extends K> extractor) {
+        return new Multi<>(name, new ConcurrentSkipListMap<>(), extractor);
+    }
+
+    /**
+     * Создает пространственный индекс: плоскость делится на квадратные ячейки со стороной {@code cellSize},
+     * элементы хранятся по ячейкам, в которые попадают их точки. Поиск затрагивает только ячейки рядом с точкой
+     * запроса или внутри прямоугольника, поэтому при размере ячейки, сопоставимом с типичным расстоянием между
+     * соседними элементами, время поиска зависит от размера результата, а не коллекции.
+     *
+     * @param name      название индекса
+     * @param extractor функция, вычисляющая точку элемента
+     * @param cellSize  сторона ячейки
+     * @return индекс
+     * @throws IllegalArgumentException если сторона ячейки не положительна
+     */
+    public static <T extends Element> Spatial<T> spatial(String name, Function<? super T, Point> extractor, double cellSize) {
+        return new Spatial<>(name, extractor, cellSize);
+    }
+
+    /**
+     * @return название индекса
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return вид индекса
+     */
+    public abstract Kind getKind();
+
+    /**
+     * @param element элемент коллекции
+     * @return значение, по которому элемент находится в индексе, или {@code null}
+     */
+    public K keyOf(T element) {
+        return extractor.apply(element);
+    }
+
+    /**
+     * Находит элементы с заданным значением.
+     *
+     * @param key значение
+     * @return элементы с этим значением; для {@code null} — пустой поток
+     */
+    public abstract Stream<T> equalTo(K key);
+
+    /**
+     * @param key значение
+     * @return количество элементов с этим значением
+     */
+    public abstract int count(K key);
+
+    /**
+     * Находит элементы, значения которых лежат в диапазоне, в порядке возрастания значений.
+     * Поддерживается только упорядоченным индексом.
+     *
+     * @param from          нижняя граница или {@code null}, если ее нет
+     * @param fromInclusive включать ли нижнюю границу
+     * @param to            верхняя граница или {@code null}, если ее нет
+     * @param toInclusive   включать ли верхнюю границу
+     * @return элементы из диапазона
+     * @throws UnsupportedOperationException если индекс не упорядоченный
+     */
+    public Stream<T> range(K from, boolean fromInclusive, K to, boolean toInclusive) {
+        throw new UnsupportedOperationException("Индекс " + name + " не поддерживает поиск по диапазону");
+    }
+
+    /**
+     * @return количество различных значений в индексе
+     */
+    public abstract int size();
+
+    /**
+     * Проверяет, можно ли добавить элемент, не нарушив уникальность.
+     *
+     * @param element элемент
+     * @throws IllegalStateException если значение элемента уже занято другим элементом
+     */
+    void check(T element) {
+    }
+
+    /**
+     * Добавляет элемент в индекс.
+     *
+     * @param element элемент
+     * @throws IllegalStateException если значение элемента уже занято другим элементом
+     */
+    abstract void add(T element);
+
+    /**
+     * Удаляет элемент из индекса, если он там есть.
+     *
+     * @param element элемент
+     */
+    abstract void remove(T element);
+
+    /**
+     * Удаляет все элементы из индекса.
+     */
+    abstract void clear();
+
+    @Override
+    public String toString() {
+        return name + " (" + getKind().name().toLowerCase() + ", значений: " + size() + ")";
+    }
+
+    private static final class Unique<T extends Element, K> extends CollectionIndex<T, K> {
+        private final ConcurrentMap<K, T> elements = new ConcurrentHashMap<>();
+
+        Unique(String name, Function<? super T, ? extends K> extractor) {
+            super(name, extractor);
+        }
+
+        @Override
+        public Kind getKind() {
+            return Kind.UNIQUE;
+        }
+
+        @Override
+        public Stream<T> equalTo(K key) {
+            T element = key == null ? null : elements.get(key);
+            return element == null ? Stream.empty() : Stream.of(element);
+        }
+
+        @Override
+        public int count(K key) {
+            return key != null && elements.containsKey(key) ? 1 : 0;
+        }
+
+        @Override
+        public int size() {
+            return elements.size();
+        }
+
+        @Override
+        void check(T element) {
+            K key = keyOf(element);
+            T existing = key == null ? null : elements.get(key);
+            if (existing != null && !Objects.equals(existing.getId(), element.getId())) {
+                throw new IllegalStateException("Значение " + key + " уже есть в уникальном индексе " + getName());
+            }
+        }
+
+        @Override
+        void add(T element) {
+            check(element);
+            K key = keyOf(element);
+            if (key != null) elements.put(key, element);
+        }
+
+        @Override
+        void remove(T element) {
+            K key = keyOf(element);
+            if (key == null) return;
+            elements.computeIfPresent(key, (k, existing) -> Objects.equals(existing.getId(), element.getId()) ? null : existing);
+        }
+
+        @Override
+        void clear() {
+            elements.clear();
+        }
+    }
+
+    private static final class Multi<T extends Element, K> extends CollectionIndex<T, K> {
+        private final ConcurrentMap<K, Map<Long, T>> buckets;
+
+        Multi(String name, ConcurrentMap<K, Map<Long, T>> buckets, Function<? super T, ? extends K> extractor) {
+            super(name, extractor);
+            this.buckets = buckets;
+        }
+
+        @Override
+        public Kind getKind() {
+            return buckets instanceof NavigableMap ? Kind.ORDERED : Kind.MULTI;
+        }
+
+        @Override
+        public Stream<T> equalTo(K key) {
+            Map<Long, T> bucket = key == null ? null : buckets.get(key);
+            return bucket == null ? Stream.empty() : bucket.values().stream();
+        }
+
+        @Override
+        public int count(K key) {
+            Map<Long, T> bucket = key == null ? null : buckets.get(key);
+            return bucket == null ? 0 : bucket.size();
+        }
+
+        @Override
+        public Stream<T> range(K from, boolean fromInclusive, K to, boolean toInclusive) {
+            if (!(buckets instanceof NavigableMap<K, Map<Long, T>> ordered)) return super.range(from, fromInclusive, to, toInclusive);
+            NavigableMap<K, Map<Long, T>> selected = ordered;
+            if (from != null) selected = selected.tailMap(from, fromInclusive);
+            if (to != null) selected = selected.headMap(to, toInclusive);
+            return selected.values().stream().flatMap(bucket -> bucket.values().stream());
+        }
+
+        @Override
+        public int size() {
+            return buckets.size();
+        }
+
+        @Override
+        void add(T element) {
+            K key = keyOf(element);
+            if (key != null) buckets.computeIfAbsent(key, k -> new ConcurrentHashMap<>()).put(element.getId(), element);
+        }
+
+        @Override
+        void remove(T element) {
+            K key = keyOf(element);
+            if (key == null) return;
+            buckets.computeIfPresent(key, (k, bucket) -> {
+                bucket.remove(element.getId());
+                return bucket.isEmpty() ? null : bucket;
+            });
+        }
+
+        @Override
+        void clear() {
+            buckets.clear();
+        }
+    }
+
+    /**
+     * Пространственный индекс по сетке квадратных ячеек. Значение {@code size()} — количество непустых ячеек.
+     *
+     * @param <T> тип элементов коллекции
+     */
+    public static final class Spatial<T extends Element> extends CollectionIndex<T, Point> {
+        private final double cellSize;
+        private final ConcurrentMap<Cell, Map<Long, T>> cells = new ConcurrentHashMap<>();
+
+        private record Cell(long x, long y) {
+        }
+
+        /**
+         * Элемент-кандидат поиска ближайших с квадратом расстояния до точки запроса.
+         */
+        private record Candidate<T extends Element>(T element, double distanceSquared) {
+        }
+
+        Spatial(String name, Function<? super T, Point> extractor, double cellSize) {
+            super(name, extractor);
+            if (!(cellSize > 0) || Double.isInfinite(cellSize)) {
+                throw new IllegalArgumentException("Сторона ячейки индекса " + name + " должна быть положительной");
+            }
+            this.cellSize = cellSize;
+        }
+
+        @Override
+        public Kind getKind() {
+            return Kind.SPATIAL;
+        }
+
+        @Override
+        public Stream<T> equalTo(Point key) {
+            Map<Long, T> bucket = key == null ? null : cells.get(cellOf(key));
+            return bucket == null ? Stream.empty() : bucket.values().stream().filter(element -> key.equals(keyOf(element)));
+        }
+
+        @Override
+        public int count(Point key) {
+            return (int) equalTo(key).count();
+        }
+
+        @Override
+        public int size() {
+            return cells.size();
+        }
+
+        /**
+         * Находит элементы, точки которых лежат в прямоугольнике, включая его границы. Углы можно задавать
+         * в любом порядке. Если прямоугольник покрывает больше ячеек, чем непустых ячеек в индексе,
+         * просматриваются непустые ячейки.
+         *
+         * @param x1 абсцисса одного угла
+         * @param y1 ордината одного угла
+         * @param x2 абсцисса противоположного угла
+         * @param y2 ордината противоположного угла
+         * @return элементы в прямоугольнике
+         */
+        public Stream<T> within(double x1, double y1, double x2, double y2) {
+            double minX = Math.min(x1, x2), maxX = Math.max(x1, x2);
+            double minY = Math.min(y1, y2), maxY = Math.max(y1, y2);
+            long fromX = cell(minX), toX = cell(maxX);
+            long fromY = cell(minY), toY = cell(maxY);
+            // Количество ячеек прямоугольника считается в double, чтобы не переполниться на больших координатах
+            double boxCells = ((double) toX - fromX + 1) * ((double) toY - fromY + 1);
+            Stream<Map<Long, T>> buckets;
+            if (boxCells <= cells.size()) {
+                List<Map<Long, T>> selected = new ArrayList<>();
+                for (long x = fromX; x <= toX; x++) {
+                    for (long y = fromY; y <= toY; y++) {
+                        Map<Long, T> bucket = cells.get(new Cell(x, y));
+                        if (bucket != null) selected.add(bucket);
+                    }
+                }
+                buckets = selected.stream();
+            } else {
+                buckets = cells.entrySet().stream()
+                        .filter(entry -> entry.getKey().x() >= fromX && entry.getKey().x() <= toX
+                                && entry.getKey().y() >= fromY && entry.getKey().y() <= toY)
+                        .map(Map.Entry::getValue);
+            }
+            return buckets.flatMap(bucket -> bucket.values().stream()).filter(element -> {
+                Point point = keyOf(element);
+                return point != null && point.x() >= minX && point.x() <= maxX && point.y() >= minY && point.y() <= maxY;
+            });
+        }
+
+        /**
+         * Находит {@code k} элементов, ближайших к точке, в порядке возрастания расстояния (при равенстве — по ID).
+         * Ячейки просматриваются кольцами вокруг ячейки точки, пока следующее кольцо не окажется дальше
+         * k-го найденного элемента. Если колец понадобилось больше, чем непустых ячеек в индексе (точка далеко
+         * от элементов), оставшиеся элементы берутся из непустых ячеек, которые могут оказаться ближе найденных.
+         *
+         * @param x абсцисса точки
+         * @param y ордината точки
+         * @param k количество элементов
+         * @return не больше {@code k} ближайших элементов
+         */
+        public List<T> nearest(double x, double y, int k) {
+            if (k <= 0 || cells.isEmpty()) return List.of();
+            Point target = new Point(x, y);
+            Comparator<Candidate<T>> closer = Comparator.<Candidate<T>>comparingDouble(Candidate::distanceSquared)
+                    .thenComparing(candidate -> candidate.element().getId());
+            PriorityQueue<Candidate<T>> best = new PriorityQueue<>(closer.reversed()); // На вершине самый дальний
+            Consumer<Map<Long, T>> visit = bucket -> bucket.values().forEach(element -> {
+                Point point = keyOf(element);
+                if (point == null) return;
+                Candidate<T> candidate = new Candidate<>(element, point.distanceSquared(target));
+                if (best.size() < k) {
+                    best.add(candidate);
+                } else if (closer.compare(candidate, best.peek()) < 0) {
+                    best.poll();
+                    best.add(candidate);
+                }
+            });
+
+            long centerX = cell(x), centerY = cell(y);
+            long visited = 0;
+            for (long ring = 0; ; ring++) {
+                double reach = reach(target, centerX, centerY, ring);
+                if (best.size() == k && best.peek().distanceSquared() <= reach * reach) break;
+                if (visited > cells.size()) {
+                    long skipped = ring;
+                    cells.forEach((cell, bucket) -> {
+                        if (Math.max(Math.abs(cell.x() - centerX), Math.abs(cell.y() - centerY)) < skipped) return;
+                        if (best.size() == k && minDistanceSquared(cell, target) > best.peek().distanceSquared()) return;
+                        visit.accept(bucket);
+                    });
+                    break;
+                }
+                visited += visitRing(centerX, centerY, ring, visit);
+            }
+
+            List<Candidate<T>> result = new ArrayList<>(best);
+            result.sort(closer);
+            return result.stream().map(Candidate::element).toList();
+        }
+
+        /**
+         * Возвращает расстояние от точки до ближайшей границы квадрата из колец с номерами меньше {@code ring}:
+         * все ячейки за его пределами находятся от точки не ближе.
+         */
+        private double reach(Point point, long centerX, long centerY, long ring) {
+            if (ring == 0) return 0;
+            double left = point.x() - (centerX - ring + 1) * cellSize;
+            double right = (centerX + ring) * cellSize - point.x();
+            double bottom = point.y() - (centerY - ring + 1) * cellSize;
+            double top = (centerY + ring) * cellSize - point.y();
+            return Math.max(0, Math.min(Math.min(left, right), Math.min(bottom, top)));
+        }
+
+        /**
+         * Передает посетителю непустые ячейки кольца на расстоянии {@code ring} ячеек от центральной.
+         *
+         * @return количество ячеек кольца
+         */
+        private long visitRing(long centerX, long centerY, long ring, Consumer<Map<Long, T>> visit) {
+            if (ring == 0) {
+                visitCell(centerX, centerY, visit);
+                return 1;
+            }
+            for (long x = centerX - ring; x <= centerX + ring; x++) {
+                visitCell(x, centerY - ring, visit);
+                visitCell(x, centerY + ring, visit);
+            }
+            for (long y = centerY - ring + 1; y <= centerY + ring - 1; y++) {
+                visitCell(centerX - ring, y, visit);
+                visitCell(centerX + ring, y, visit);
+            }
+            return 8 * ring;
+        }
+
+        private void visitCell(long x, long y, Consumer<Map<Long, T>> visit) {
+            Map<Long, T> bucket = cells.get(new Cell(x, y));
+            if (bucket != null) visit.accept(bucket);
+        }
+
+        private double minDistanceSquared(Cell cell, Point point) {
+            double dx = Math.max(0, Math.max(cell.x() * cellSize - point.x(), point.x() - (cell.x() + 1) * cellSize));
+            double dy = Math.max(0, Math.max(cell.y() * cellSize - point.y(), point.y() - (cell.y() + 1) * cellSize));
+            return dx * dx + dy * dy;
+        }
+
+        private long cell(double coordinate) {
+            return (long) Math.floor(coordinate / cellSize);
+        }
+
+        private Cell cellOf(Point point) {
+            return new Cell(cell(point.x()), cell(point.y()));
+        }
+
+        @Override
+        void add(T element) {
+            Point point = keyOf(element);
+            if (point != null) cells.computeIfAbsent(cellOf(point), cell -> new ConcurrentHashMap<>()).put(element.getId(), element);
+        }
+
+        @Override
+        void remove(T element) {
+            Point point = keyOf(element);
+            if (point == null) return;
+            cells.computeIfPresent(cellOf(point), (cell, bucket) -> {
+                bucket.remove(element.getId());
+                return bucket.isEmpty() ? null : bucket;
+            });
+        }
+
+        @Override
+        void clear() {
+            cells.clear();
+        }
+    }
+}
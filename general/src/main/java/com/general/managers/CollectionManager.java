@@ -7,17 +7,30 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * Абстрактный класс для управления коллекцией обобщенного типа.
+ * <p>
+ * Наследники могут объявить вторичные индексы ({@link #declareIndex(CollectionIndex)}) по полям элементов.
+ * Индексы обновляются вместе с коллекцией при добавлении, удалении, обновлении и очистке: если элемент
+ * нарушает уникальный индекс, изменение не выполняется ни в коллекции, ни в одном из индексов.
  */
 public abstract class CollectionManager<T extends Element & Comparable<T>> {
     private Collection<T> collection;
+    private final Map<String, CollectionIndex<T, ?>> indexes = new LinkedHashMap<>();
     @Getter
     @Setter
     private LocalDateTime lastInitTime;
@@ -26,6 +39,7 @@ public abstract class CollectionManager<T extends Element & Comparable<T>> {
     private LocalDateTime lastSaveTime;
 
     private static final Logger logger = LoggerFactory.getLogger(CollectionManager.class);
+    private final ThreadLocal<AtomicBoolean> deferredSort = new ThreadLocal<>(); // Отложенная сортировка потока, см. withSortDeferred
 
     public CollectionManager() {
         this.collection = createCollection();
@@ -75,6 +89,72 @@ public abstract class CollectionManager<T extends Element & Comparable<T>> {
             logger.info("Все элементы коллекции валидны.");
             collection = validCollection;
         }
+        rebuildIndexes();
+    }
+
+    /**
+     * Объявляет вторичный индекс и заполняет его элементами коллекции.
+     *
+     * @param index индекс
+     * @param <I>   тип индекса
+     * @return объявленный индекс
+     * @throws IllegalArgumentException если индекс с таким названием уже объявлен
+     * @throws IllegalStateException    если элементы коллекции нарушают уникальность индекса
+     */
+    protected <I extends CollectionIndex<T, ?>> I declareIndex(I index) {
+        if (indexes.containsKey(index.getName())) {
+            throw new IllegalArgumentException("Индекс " + index.getName() + " уже объявлен");
+        }
+        for (T element : collection) {
+            index.add(element);
+        }
+        indexes.put(index.getName(), index);
+        return index;
+    }
+
+    /**
+     * Возвращает индекс по названию.
+     *
+     * @param name название индекса
+     * @param <K>  тип значения индекса
+     * @return индекс или {@code null}, если он не объявлен
+     */
+    @SuppressWarnings("unchecked")
+    public <K> CollectionIndex<T, K> getIndex(String name) {
+        return (CollectionIndex<T, K>) indexes.get(name);
+    }
+
+    /**
+     * @return объявленные индексы в порядке объявления
+     */
+    public Collection<CollectionIndex<T, ?>> getIndexes() {
+        return Collections.unmodifiableCollection(indexes.values());
+    }
+
+    /**
+     * Заполняет все индексы заново по текущему содержимому коллекции.
+     * Вызывается после того, как коллекция заменена целиком.
+     */
+    protected void rebuildIndexes() {
+        for (CollectionIndex<T, ?> index : indexes.values()) {
+            index.clear();
+            for (T element : collection) {
+                index.add(element);
+            }
+        }
+    }
+
+    /**
+     * Проверяет, что элемент можно добавить, не нарушив уникальных индексов. Позволяет отклонить элемент
+     * до изменения внешнего хранилища.
+     *
+     * @param element элемент
+     * @throws IllegalStateException если значение элемента уже занято в уникальном индексе
+     */
+    public void checkIndexes(T element) {
+        for (CollectionIndex<T, ?> index : indexes.values()) {
+            index.check(element);
+        }
     }
 
     /**
@@ -160,25 +240,103 @@ public abstract class CollectionManager<T extends Element & Comparable<T>> {
      * @param element элемент для добавления.
      */
     public Long addToCollection(String username, T element) {
-        collection.add(element);
+        index(element);
+        try {
+            collection.add(element);
+        } catch (RuntimeException e) {
+            unindex(element);
+            throw e;
+        }
         sortCollection(); // Сортировка после добавления элемента
         return element.getId();
     }
 
     /**
-     * Удаляет элемент из коллекции.
+     * Удаляет элемент из коллекции. Удаляется элемент коллекции с тем же ID, что у переданного,
+     * и из индексов убирается именно он.
      *
      * @param element  элемент для удаления.
      * @param username
      */
     public boolean removeFromCollection(T element, String username) {
-        return collection.remove(element);
+        T removed = removeElement(element);
+        if (removed == null) return false;
+        unindex(removed);
+        return true;
+    }
+
+    /**
+     * Удаляет из коллекции элемент с тем же ID, не обновляя индексы. Поиск по ID, а не {@link Collection#remove},
+     * нужен потому, что равные по полям элементы могут различаться ID. Базовая реализация просматривает коллекцию;
+     * наследники, коллекции которых удаляют элементы по ID, переопределяют метод.
+     *
+     * @param element элемент для удаления.
+     * @return удаленный элемент коллекции или null, если элемента с таким ID нет.
+     */
+    protected T removeElement(T element) {
+        Long id = getId(element);
+        Iterator<T> iterator = collection.iterator();
+        while (iterator.hasNext()) {
+            T stored = iterator.next();
+            if (getId(stored).equals(id)) {
+                iterator.remove();
+                return stored;
+            }
+        }
+        return null;
     }
 
     // Метод, который удаляет только те объекты из коллекции, которые соответствуют указанному username
     public void clearCollection(String username) {
+        removeOwned(username).forEach(this::unindex);
+    }
+
+    /**
+     * Удаляет из коллекции элементы пользователя, не обновляя индексы. Базовая реализация просматривает всю
+     * коллекцию; наследники, которые хранят элементы по владельцам, переопределяют метод.
+     *
+     * @param username имя пользователя.
+     * @return удаленные элементы.
+     */
+    protected List<T> removeOwned(String username) {
         // Используем removeIf для удаления объектов, у которых поле username совпадает с переданным значением
-        collection.removeIf(element -> username.equals(element.getUsername()));
+        List<T> removed = new ArrayList<>();
+        collection.removeIf(element -> username.equals(element.getUsername()) && removed.add(element));
+        return removed;
+    }
+
+    /**
+     * Возвращает страницу коллекции в порядке итерации. Базовая реализация проходит коллекцию до начала страницы;
+     * наследники, которые загружают элементы из внешнего хранилища, переопределяют метод и загружают только
+     * элементы страницы.
+     *
+     * @param from  номер первого элемента страницы, начиная с 0
+     * @param count наибольшее количество элементов страницы
+     * @return элементы страницы; пустой список, если {@code from} не меньше размера коллекции
+     */
+    public List<T> getPage(int from, int count) {
+        return collection.stream().skip(from).limit(count).toList();
+    }
+
+    /**
+     * Возвращает элементы, принадлежащие пользователю. Базовая реализация просматривает всю коллекцию;
+     * наследники с индексом по владельцу переопределяют метод.
+     *
+     * @param username имя пользователя.
+     * @return элементы пользователя.
+     */
+    public List<T> getOwnedBy(String username) {
+        return collection.stream().filter(element -> username.equals(element.getUsername())).toList();
+    }
+
+    /**
+     * Возвращает количество элементов, принадлежащих пользователю.
+     *
+     * @param username имя пользователя.
+     * @return количество элементов пользователя.
+     */
+    public int countOwnedBy(String username) {
+        return (int) collection.stream().filter(element -> username.equals(element.getUsername())).count();
     }
 
     /**
@@ -193,12 +351,46 @@ public abstract class CollectionManager<T extends Element & Comparable<T>> {
      * Сортирует коллекцию по имени.
      */
     public void sortCollection() {
+        if (deferSort()) return;
         Collection<T> sortedCollection = collection.stream()
                 .sorted(Comparator.comparing(T::getName))
                 .collect(Collectors.toList());
         setCollection(sortedCollection);
     }
 
+    /**
+     * Выполняет действие, откладывая сортировки коллекции, которые запрашивают его изменения, до конца действия.
+     * Если сортировка запрашивалась хотя бы раз, после действия коллекция сортируется один раз.
+     * Откладываются только сортировки текущего потока; вложенный вызов выполняется в уже открытом.
+     *
+     * @param action действие над коллекцией
+     * @param <R>    тип результата действия
+     * @return результат действия
+     */
+    public <R> R withSortDeferred(Supplier<R> action) {
+        if (deferredSort.get() != null) return action.get();
+        AtomicBoolean pending = new AtomicBoolean();
+        deferredSort.set(pending);
+        try {
+            return action.get();
+        } finally {
+            deferredSort.remove();
+            if (pending.get()) sortCollection();
+        }
+    }
+
+    /**
+     * Откладывает сортировку, если текущий поток выполняет {@link #withSortDeferred(Supplier)}.
+     *
+     * @return {@code true}, если сортировка отложена и выполнять ее сейчас не нужно
+     */
+    protected boolean deferSort() {
+        AtomicBoolean pending = deferredSort.get();
+        if (pending == null) return false;
+        pending.set(true);
+        return true;
+    }
+
     /**
      * Устанавливает коллекцию.
      *
@@ -222,9 +414,59 @@ public abstract class CollectionManager<T extends Element & Comparable<T>> {
         return info.toString();
     }
 
+    /**
+     * Выполняет действие как одно целое: при исключении в действии все сделанные им изменения отменяются,
+     * а другие изменяющие запросы ждут завершения действия. Команды только для чтения (show, filter, info,
+     * near, within) блокировку не берут и могут увидеть коллекцию с частью изменений действия, в том числе
+     * изменений, которые затем будут отменены.
+     * Базовая реализация просто выполняет действие; наследники с общим хранилищем переопределяют метод.
+     *
+     * @param action действие над коллекцией
+     * @param <R>    тип результата действия
+     * @return результат действия
+     */
+    public <R> R atomically(Supplier<R> action) {
+        return action.get();
+    }
+
     public void updateInCollection(T newElement) {
-        if (collection.removeIf(element -> element.getId().equals(newElement.getId()))) {
-            collection.add(newElement);
+        List<T> previous = new ArrayList<>(1);
+        if (!collection.removeIf(element -> element.getId().equals(newElement.getId()) && previous.add(element))) return;
+        previous.forEach(this::unindex);
+        try {
+            index(newElement);
+        } catch (RuntimeException e) {
+            previous.forEach(this::index); // Значения прежнего элемента только что освобождены
+            collection.addAll(previous);
+            throw e;
+        }
+        collection.add(newElement);
+    }
+
+    /**
+     * Добавляет элемент во все индексы. Если элемент нарушает уникальность одного из индексов,
+     * он удаляется из уже обновленных индексов.
+     *
+     * @param element элемент
+     * @throws IllegalStateException если значение элемента уже занято в уникальном индексе
+     */
+    private void index(T element) {
+        if (indexes.isEmpty()) return;
+        List<CollectionIndex<T, ?>> updated = new ArrayList<>(indexes.size());
+        try {
+            for (CollectionIndex<T, ?> index : indexes.values()) {
+                index.add(element);
+                updated.add(index);
+            }
+        } catch (RuntimeException e) {
+            updated.forEach(index -> index.remove(element));
+            throw e;
+        }
+    }
+
+    private void unindex(T element) {
+        for (CollectionIndex<T, ?> index : indexes.values()) {
+            index.remove(element);
         }
     }
 }
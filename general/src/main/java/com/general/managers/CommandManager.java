@@ -1,6 +1,9 @@
 package com.general.managers;
 
 import com.general.command.Command;
+import com.general.metrics.CommandEvent;
+import com.general.metrics.CommandMetrics;
+import com.general.metrics.Outcome;
 import com.general.network.Request;
 import com.general.network.Response;
 import lombok.Getter;
@@ -17,6 +20,7 @@ import java.util.Map;
 public class CommandManager {
     private final Map<String, Command> commands = new HashMap<>();
     private final List<String> commandHistory = new ArrayList<>();
+    private final CommandMetrics metrics = new CommandMetrics();
 
     /**
      * Добавляет команду
@@ -41,11 +45,44 @@ public class CommandManager {
         commands.get(command);
     }
 
+    /**
+     * @param command имя команды
+     * @return {@code true}, если команда зарегистрирована и не изменяет коллекцию
+     */
+    public boolean isReadOnly(String command) {
+        Command registered = command == null ? null : commands.get(command);
+        return registered != null && registered.isReadOnly();
+    }
+
+    /**
+     * Выполняет команду запроса и записывает время выполнения и результат в {@link #getMetrics()}
+     * и событием JFR {@link CommandEvent}.
+     *
+     * @param request запрос
+     * @return ответ команды
+     */
     public Response handle(Request request) {
-        if (commands.get(request.getCommand()) == null) {
+        Command command = commands.get(request.getCommand());
+        if (command == null) {
             return new Response(false, "Команда не найдена, введите help для справки");
-        } else {
-            return commands.get(request.getCommand()).execute(request);
+        }
+        CommandEvent event = new CommandEvent();
+        event.begin();
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            Response response = command.execute(request);
+            outcome = response.isSuccess() ? Outcome.SUCCESS : Outcome.FAILURE;
+            return response;
+        } finally {
+            metrics.record(request.getCommand(), outcome, System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.command = request.getCommand();
+                event.user = request.getLogin();
+                event.outcome = outcome.name();
+                event.commit();
+            }
         }
     }
 
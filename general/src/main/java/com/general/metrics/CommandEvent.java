@@ -0,0 +1,26 @@
+package com.general.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Событие JDK Flight Recorder: выполнение команды в {@link com.general.managers.CommandManager#handle}.
+ * Длительность события — время выполнения команды.
+ */
+@Name("com.ann.Command")
+@Label("Выполнение команды")
+@Category({"Lab7", "Запросы"})
+@Description("Выполнение команды менеджером команд")
+public class CommandEvent extends Event {
+    @Label("Команда")
+    public String command;
+
+    @Label("Пользователь")
+    public String user;
+
+    @Label("Результат")
+    public String outcome;
+}
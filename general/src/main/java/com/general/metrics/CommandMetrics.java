@@ -0,0 +1,74 @@
+package com.general.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержки и результаты выполнения команд по их именам.
+ * <p>
+ * Для каждой команды хранится скользящее окно в одну минуту из интервалов по пять секунд и накопленная
+ * статистика с момента запуска. Запись не блокирует потоки, выполняющие другие команды или ту же команду.
+ */
+public class CommandMetrics {
+    private static final long INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final int INTERVAL_COUNT = 12;
+    private static final long SHORT_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long LONG_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Map<String, SlidingLatencyRecorder> recorders = new ConcurrentHashMap<>();
+
+    /**
+     * Записывает выполнение команды.
+     *
+     * @param command      имя команды
+     * @param outcome      результат выполнения
+     * @param latencyNanos длительность выполнения в наносекундах
+     */
+    public void record(String command, Outcome outcome, long latencyNanos) {
+        recorders.computeIfAbsent(command, name -> new SlidingLatencyRecorder(INTERVAL_NANOS, INTERVAL_COUNT))
+                .record(latencyNanos, outcome);
+    }
+
+    /**
+     * @param command      имя команды
+     * @param windowNanos  длина окна в наносекундах, не больше минуты
+     * @return снимок задержек команды за окно или {@code null}, если команда не выполнялась
+     */
+    public LatencySnapshot snapshot(String command, long windowNanos) {
+        SlidingLatencyRecorder recorder = recorders.get(command);
+        return recorder == null ? null : recorder.snapshot(windowNanos);
+    }
+
+    /**
+     * Формирует таблицу по командам за последние 10 секунд, минуту и все время: количество выполнений,
+     * количество успешных, неуспешных и завершившихся исключением, выполнений в секунду и процентили задержки в мс.
+     *
+     * @return текст таблицы
+     */
+    public String report() {
+        if (recorders.isEmpty()) return "Команды еще не выполнялись";
+        StringBuilder report = new StringBuilder(String.format("%-16s %-6s %9s %9s %7s %7s %10s %9s %9s %9s %9s",
+                "команда", "окно", "всего", "успешно", "отказ", "ошибка", "в сек", "p50", "p99", "p99.9", "max"));
+        for (Map.Entry<String, SlidingLatencyRecorder> entry : new TreeMap<>(recorders).entrySet()) {
+            SlidingLatencyRecorder recorder = entry.getValue();
+            appendRow(report, entry.getKey(), "10с", recorder.snapshot(SHORT_WINDOW_NANOS));
+            appendRow(report, "", "1м", recorder.snapshot(LONG_WINDOW_NANOS));
+            appendRow(report, "", "всего", recorder.total());
+        }
+        return report.toString();
+    }
+
+    private static void appendRow(StringBuilder report, String command, String window, LatencySnapshot snapshot) {
+        report.append(String.format("%n%-16s %-6s %9d %9d %7d %7d %10.1f %9.3f %9.3f %9.3f %9.3f", command, window,
+                snapshot.getCount(), snapshot.getCount(Outcome.SUCCESS), snapshot.getCount(Outcome.FAILURE),
+                snapshot.getCount(Outcome.ERROR), snapshot.getThroughput(),
+                millis(snapshot.getValueAtPercentile(50)), millis(snapshot.getValueAtPercentile(99)),
+                millis(snapshot.getValueAtPercentile(99.9)), millis(snapshot.getMaxValue())));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
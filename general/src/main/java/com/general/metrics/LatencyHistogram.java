@@ -0,0 +1,66 @@
+package com.general.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Гистограмма задержек с логарифмически-линейными интервалами, как в HdrHistogram.
+ * <p>
+ * Каждая степень двойки делится на {@value #SUB_BUCKETS} равных интервалов, поэтому относительная погрешность
+ * процентилей не превышает 1/{@value #SUB_BUCKETS} при любом масштабе значений. Запись выполняется одним атомарным
+ * увеличением счетчика без блокировок, поэтому гистограмму можно заполнять из многих потоков одновременно.
+ * Значения не могут быть отрицательными; значения больше {@link #MAX_VALUE} учитываются как {@link #MAX_VALUE}.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /**
+     * Наибольшее различимое значение (около 12 дней в микросекундах).
+     */
+    public static final long MAX_VALUE = (1L << 40) - 1;
+    static final int BUCKET_COUNT = indexOf(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Записывает значение.
+     *
+     * @param value значение, например задержка в микросекундах
+     */
+    public void record(long value) {
+        counts.incrementAndGet(indexOf(value));
+    }
+
+    /**
+     * Добавляет счетчики этой гистограммы к массиву счетчиков.
+     *
+     * @param target массив длины {@link #BUCKET_COUNT}
+     */
+    void addTo(long[] target) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = counts.get(i);
+            if (count != 0) target[i] += count;
+        }
+    }
+
+    /**
+     * @param value значение
+     * @return номер интервала, в который попадает значение
+     */
+    static int indexOf(long value) {
+        long clamped = Math.min(Math.max(value, 0), MAX_VALUE);
+        if (clamped < SUB_BUCKETS) return (int) clamped;
+        int shift = 63 - Long.numberOfLeadingZeros(clamped) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (clamped >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * @param index номер интервала
+     * @return наибольшее значение, попадающее в интервал
+     */
+    static long highestValueAt(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = SUB_BUCKETS + index % SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
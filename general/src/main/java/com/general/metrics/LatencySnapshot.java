@@ -0,0 +1,69 @@
+package com.general.metrics;
+
+/**
+ * Неизменяемый снимок задержек и результатов команды за интервал времени.
+ */
+public class LatencySnapshot {
+    private final long[] counts;
+    private final long[] outcomes;
+    private final long durationNanos;
+    private final long totalCount;
+
+    LatencySnapshot(long[] counts, long[] outcomes, long durationNanos) {
+        this.counts = counts;
+        this.outcomes = outcomes;
+        this.durationNanos = durationNanos;
+        long total = 0;
+        for (long count : counts) total += count;
+        this.totalCount = total;
+    }
+
+    /**
+     * @return количество записанных выполнений
+     */
+    public long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * @param outcome результат
+     * @return количество выполнений с указанным результатом
+     */
+    public long getCount(Outcome outcome) {
+        return outcomes[outcome.ordinal()];
+    }
+
+    /**
+     * @return выполнений в секунду за интервал снимка
+     */
+    public double getThroughput() {
+        return durationNanos <= 0 ? 0 : totalCount * 1e9 / durationNanos;
+    }
+
+    /**
+     * Возвращает значение, не больше которого оказались указанный процент записанных значений.
+     *
+     * @param percentile процентиль от 0 до 100
+     * @return верхняя граница интервала гистограммы, содержащего процентиль, или 0, если значений нет
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return LatencyHistogram.highestValueAt(i);
+        }
+        return getMaxValue();
+    }
+
+    /**
+     * @return верхняя граница интервала с наибольшим записанным значением или 0, если значений нет
+     */
+    public long getMaxValue() {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] != 0) return LatencyHistogram.highestValueAt(i);
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,19 @@
+package com.general.metrics;
+
+/**
+ * Результат выполнения команды.
+ */
+public enum Outcome {
+    /**
+     * Команда выполнена, ответ успешный.
+     */
+    SUCCESS,
+    /**
+     * Команда отказала: ответ с признаком ошибки (неверные аргументы, нет доступа и т.п.).
+     */
+    FAILURE,
+    /**
+     * Команда завершилась исключением.
+     */
+    ERROR
+}
@@ -0,0 +1,113 @@
+package com.general.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Задержки и результаты выполнений одной команды в скользящем окне и за все время работы.
+ * <p>
+ * Окно состоит из кольца интервалов фиксированной длины. Запись попадает в интервал текущего момента;
+ * устаревший интервал заменяется новым атомарно, без блокировок. Запись, начатая в последний момент
+ * устаревшего интервала, может быть потеряна при его замене, что не влияет на процентили.
+ */
+public class SlidingLatencyRecorder {
+    private final long intervalNanos;
+    private final AtomicReferenceArray<Interval> intervals;
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final AtomicLongArray totalOutcomes = new AtomicLongArray(Outcome.values().length);
+    private final LongSupplier clock;
+    private final long startNanos;
+
+    /**
+     * @param intervalNanos длина интервала в наносекундах
+     * @param intervalCount количество интервалов в кольце; окно не может быть длиннее их суммы
+     */
+    public SlidingLatencyRecorder(long intervalNanos, int intervalCount) {
+        this(intervalNanos, intervalCount, System::nanoTime);
+    }
+
+    SlidingLatencyRecorder(long intervalNanos, int intervalCount, LongSupplier clock) {
+        this.intervalNanos = intervalNanos;
+        this.intervals = new AtomicReferenceArray<>(intervalCount);
+        this.clock = clock;
+        this.startNanos = clock.getAsLong();
+    }
+
+    /**
+     * Записывает выполнение.
+     *
+     * @param latencyNanos длительность выполнения в наносекундах
+     * @param outcome      результат выполнения
+     */
+    public void record(long latencyNanos, Outcome outcome) {
+        long micros = latencyNanos / 1000;
+        Interval interval = current();
+        interval.histogram.record(micros);
+        interval.outcomes.incrementAndGet(outcome.ordinal());
+        total.record(micros);
+        totalOutcomes.incrementAndGet(outcome.ordinal());
+    }
+
+    /**
+     * Возвращает снимок за последние {@code windowNanos} наносекунд, округленные вверх до целого числа интервалов.
+     * Текущий интервал учитывается частично, поэтому пропускная способность считается по прошедшему времени.
+     *
+     * @param windowNanos длина окна в наносекундах
+     * @return снимок задержек в микросекундах
+     */
+    public LatencySnapshot snapshot(long windowNanos) {
+        long now = clock.getAsLong();
+        long epoch = epochOf(now);
+        int intervalsInWindow = (int) Math.min(intervals.length(), Math.max(1, (windowNanos + intervalNanos - 1) / intervalNanos));
+        long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+        long[] outcomes = new long[Outcome.values().length];
+        for (int i = 0; i < intervals.length(); i++) {
+            Interval interval = intervals.get(i);
+            if (interval == null || interval.epoch <= epoch - intervalsInWindow || interval.epoch > epoch) continue;
+            interval.histogram.addTo(counts);
+            for (int j = 0; j < outcomes.length; j++) outcomes[j] += interval.outcomes.get(j);
+        }
+        long windowStart = Math.max(startNanos, (epoch - intervalsInWindow + 1) * intervalNanos);
+        return new LatencySnapshot(counts, outcomes, now - windowStart);
+    }
+
+    /**
+     * @return снимок за все время с создания
+     */
+    public LatencySnapshot total() {
+        long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+        total.addTo(counts);
+        long[] outcomes = new long[Outcome.values().length];
+        for (int j = 0; j < outcomes.length; j++) outcomes[j] = totalOutcomes.get(j);
+        return new LatencySnapshot(counts, outcomes, clock.getAsLong() - startNanos);
+    }
+
+    private Interval current() {
+        long epoch = epochOf(clock.getAsLong());
+        int index = (int) Math.floorMod(epoch, (long) intervals.length());
+        while (true) {
+            Interval interval = intervals.get(index);
+            if (interval != null && interval.epoch == epoch) return interval;
+            Interval fresh = new Interval(epoch);
+            if (intervals.compareAndSet(index, interval, fresh)) return fresh;
+        }
+    }
+
+    private long epochOf(long nanos) {
+        return Math.floorDiv(nanos, intervalNanos);
+    }
+
+    /**
+     * Один интервал окна.
+     */
+    private static final class Interval {
+        final long epoch;
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final AtomicLongArray outcomes = new AtomicLongArray(Outcome.values().length);
+
+        Interval(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+}
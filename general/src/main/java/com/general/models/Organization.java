@@ -1,22 +1,27 @@
 package com.general.models;
 
 import com.general.models.base.Validatable;
+import com.general.utility.InternPool;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 
+import java.io.Serial;
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
 
 /**
  * Класс дома
+ * <p>
+ * Одинаковые организации встречаются у множества продуктов, поэтому экземпляры, полученные из базы данных
+ * или при десериализации запроса, интернируются ({@link #intern(Organization)}). Интернированные экземпляры
+ * общие для нескольких продуктов и не должны изменяться.
  */
 @Data
 @NoArgsConstructor
 public class Organization implements Validatable, Serializable {
-    private static final transient Map<Integer, Organization> organizations = new HashMap<>();
+    // Заголовок объекта с двумя ссылками и объект Integer года; строка названия учитывается пулом строк
+    private static final InternPool<Organization> organizations = new InternPool<>("организации", organization -> 24 + 16);
 
     @NonNull
     private String name; // Поле не может быть null
@@ -27,6 +32,35 @@ public class Organization implements Validatable, Serializable {
         this.year = year;
     }
 
+    /**
+     * Возвращает общий экземпляр организации, равной переданной. Название интернируется в общем пуле строк.
+     *
+     * @param organization организация или {@code null}
+     * @return общий экземпляр или {@code null}
+     */
+    public static Organization intern(Organization organization) {
+        if (organization == null) return null;
+        organization.name = InternPool.STRINGS.intern(organization.name);
+        return organizations.intern(organization);
+    }
+
+    /**
+     * @return пул интернированных организаций, используется для отчетов о сэкономленной памяти
+     */
+    public static InternPool<Organization> pool() {
+        return organizations;
+    }
+
+    /**
+     * Заменяет десериализованную организацию общим экземпляром.
+     *
+     * @return интернированная организация
+     */
+    @Serial
+    private Object readResolve() {
+        return intern(this);
+    }
+
     /**
      * Валидирует правильность полей.
      * @return true, если все верно, иначе false
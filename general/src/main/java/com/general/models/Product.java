@@ -1,11 +1,13 @@
 package com.general.models;
 
 import com.general.models.base.Element;
+import com.general.utility.InternPool;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import java.io.Serial;
 import java.time.LocalDate;
 
 /**
@@ -48,6 +50,18 @@ public class Product extends Element implements Comparable<Product> {
         return true;
     }
 
+    /**
+     * Интернирует название продукта после десериализации: одинаковые названия приходят во многих запросах.
+     * Организация интернируется при собственной десериализации.
+     *
+     * @return этот продукт
+     */
+    @Serial
+    private Object readResolve() {
+        name = InternPool.STRINGS.intern(name);
+        return this;
+    }
+
     @Override
     public int compareTo(Product product) {
         int comparison = Integer.compare(this.price, product.price);
@@ -0,0 +1,96 @@
+package com.general.network;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Результаты команд пакетного запроса: по одному статусу и одному числу на команду.
+ * Для команды добавления число содержит ID нового элемента, для остальных команд оно равно 0.
+ * Пакет выполняется целиком или не выполняется совсем, поэтому при ошибке одной команды
+ * выполненные до нее команды отменяются, а следующие за ней не выполняются.
+ */
+public class BatchResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final byte APPLIED = 0;
+    public static final byte FAILED = 1;
+    public static final byte ROLLED_BACK = 2;
+    public static final byte SKIPPED = 3;
+
+    private final byte[] statuses;
+    private final long[] values;
+
+    /**
+     * Создает результаты пакета, в котором еще не выполнена ни одна команда.
+     *
+     * @param size количество команд в пакете
+     */
+    public BatchResult(int size) {
+        this.statuses = new byte[size];
+        this.values = new long[size];
+        Arrays.fill(statuses, SKIPPED);
+    }
+
+    /**
+     * Отмечает команду выполненной.
+     *
+     * @param index номер команды в пакете
+     * @param value ID добавленного элемента или 0
+     */
+    public void applied(int index, long value) {
+        statuses[index] = APPLIED;
+        values[index] = value;
+    }
+
+    /**
+     * Отмечает команду завершившейся ошибкой, а выполненные команды — отмененными.
+     *
+     * @param index номер команды в пакете
+     */
+    public void failed(int index) {
+        rolledBack();
+        statuses[index] = FAILED;
+    }
+
+    /**
+     * Отмечает выполненные команды отмененными.
+     */
+    public void rolledBack() {
+        for (int i = 0; i < statuses.length; i++) {
+            if (statuses[i] == APPLIED) {
+                statuses[i] = ROLLED_BACK;
+                values[i] = 0;
+            }
+        }
+    }
+
+    public int size() {
+        return statuses.length;
+    }
+
+    public byte getStatus(int index) {
+        return statuses[index];
+    }
+
+    public long getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * @param status статус команды
+     * @return количество команд с таким статусом
+     */
+    public int count(byte status) {
+        int count = 0;
+        for (byte current : statuses) {
+            if (current == status) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Команд: %d, выполнено: %d, с ошибкой: %d, отменено: %d, пропущено: %d",
+                size(), count(APPLIED), count(FAILED), count(ROLLED_BACK), count(SKIPPED));
+    }
+}
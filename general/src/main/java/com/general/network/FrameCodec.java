@@ -0,0 +1,121 @@
+package com.general.network;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Кадрирование сообщений протокола.
+ * <p>
+ * Каждое сообщение {@link Sendable} передается кадром: длина тела (4 байта), идентификатор запроса (8 байт)
+ * и сериализованный объект. Идентификатор в заголовке позволяет ответить на кадр, не десериализуя его
+ * (например, отказом при перегрузке сервера). Кадры позволяют передавать несколько сообщений подряд
+ * по одному соединению и отделять их друг от друга независимо от того, как данные разбиты на пакеты.
+ */
+public final class FrameCodec {
+    /**
+     * Максимальный размер тела кадра в байтах.
+     */
+    public static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+
+    private FrameCodec() {
+    }
+
+    /**
+     * Сериализует сообщение в кадр.
+     *
+     * @param message сообщение
+     * @return буфер, готовый к записи в канал
+     * @throws IOException если сообщение не может быть сериализовано или слишком велико
+     */
+    public static ByteBuffer encode(Sendable message) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        byteArrayOutputStream.write(new byte[HEADER_SIZE]); // Место под заголовок кадра
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream)) {
+            objectOutputStream.writeObject(message);
+        }
+        ByteBuffer frame = ByteBuffer.wrap(byteArrayOutputStream.toByteArray());
+        int length = frame.remaining() - HEADER_SIZE;
+        if (length > MAX_FRAME_SIZE) throw new IOException("Сообщение слишком велико: " + length + " байт");
+        frame.putInt(0, length).putLong(Integer.BYTES, message.getRequestId());
+        return frame;
+    }
+
+    /**
+     * Десериализует тело кадра.
+     *
+     * @param body тело кадра без длины
+     * @return сообщение
+     * @throws IOException            если тело повреждено
+     * @throws ClassNotFoundException если класс сообщения не найден
+     */
+    public static Sendable decode(byte[] body) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(body))) {
+            return (Sendable) objectInputStream.readObject();
+        }
+    }
+
+    /**
+     * Полученный кадр.
+     *
+     * @param requestId идентификатор запроса из заголовка
+     * @param body      сериализованное сообщение
+     */
+    public record Frame(long requestId, byte[] body) {
+    }
+
+    /**
+     * Накопитель входящих байтов, выделяющий из них полные кадры. Не потокобезопасен:
+     * используется потоком, читающим соединение.
+     */
+    public static final class Decoder {
+        private ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+        /**
+         * Добавляет прочитанные байты.
+         *
+         * @param data буфер в режиме чтения
+         */
+        public void feed(ByteBuffer data) {
+            if (buffer.remaining() < data.remaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + data.remaining()));
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            buffer.put(data);
+        }
+
+        /**
+         * Извлекает все полные кадры из накопленных байтов.
+         *
+         * @return полные кадры в порядке поступления
+         * @throws IOException если длина кадра некорректна
+         */
+        public List<Frame> frames() throws IOException {
+            List<Frame> frames = new ArrayList<>();
+            buffer.flip();
+            while (buffer.remaining() >= HEADER_SIZE) {
+                int length = buffer.getInt(buffer.position());
+                if (length < 0 || length > MAX_FRAME_SIZE) {
+                    buffer.compact();
+                    throw new IOException("Некорректная длина кадра: " + length);
+                }
+                if (buffer.remaining() < HEADER_SIZE + length) break;
+                buffer.getInt();
+                long requestId = buffer.getLong();
+                byte[] body = new byte[length];
+                buffer.get(body);
+                frames.add(new Frame(requestId, body));
+            }
+            buffer.compact();
+            return frames;
+        }
+    }
+}
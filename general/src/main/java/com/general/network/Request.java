@@ -1,5 +1,7 @@
 package com.general.network;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -31,6 +33,17 @@ public class Request extends Sendable {
         this(true, name, data);
     }
 
+    /**
+     * Создает пакетный запрос: команды выполняются сервером по порядку как одно целое,
+     * а ответ содержит {@link BatchResult}. Учетные данные берутся из пакетного запроса.
+     *
+     * @param requests запросы команд пакета
+     * @return пакетный запрос
+     */
+    public static Request batch(List<Request> requests) {
+        return new Request("batch", new ArrayList<>(requests));
+    }
+
     /**
      * Возвращает имя команды, связанной с запросом.
      *
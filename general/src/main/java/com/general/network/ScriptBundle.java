@@ -0,0 +1,54 @@
+package com.general.network;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Скрипт для выполнения на сервере вместе со всеми скриптами, которые он вызывает через execute_script.
+ * Скрипты передаются текстом по именам, под которыми они указаны в командах execute_script.
+ */
+public class ScriptBundle implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String main;
+    private final Map<String, String> scripts = new LinkedHashMap<>();
+
+    /**
+     * @param main имя запускаемого скрипта
+     */
+    public ScriptBundle(String main) {
+        this.main = main;
+    }
+
+    /**
+     * Добавляет текст скрипта.
+     *
+     * @param name    имя скрипта в команде execute_script
+     * @param content текст скрипта
+     */
+    public void put(String name, String content) {
+        scripts.put(name, content);
+    }
+
+    public String getMain() {
+        return main;
+    }
+
+    /**
+     * @param name имя скрипта
+     * @return текст скрипта или {@code null}, если клиент не смог его прочитать
+     */
+    public String get(String name) {
+        return scripts.get(name);
+    }
+
+    public boolean contains(String name) {
+        return scripts.containsKey(name);
+    }
+
+    @Override
+    public String toString() {
+        return "ScriptBundle{main='" + main + "', scripts=" + scripts.keySet() + '}';
+    }
+}
@@ -49,6 +49,14 @@ public abstract class Sendable implements Serializable {
     @Getter
     protected Integer userId;
 
+    /**
+     * Идентификатор запроса, назначаемый клиентом. Ответ сервера несет идентификатор своего запроса,
+     * что позволяет отправлять несколько запросов, не дожидаясь ответов, и получать ответы в любом порядке.
+     */
+    @Setter
+    @Getter
+    protected long requestId;
+
     /**
      * Создает объект, который может быть отправлен с указанным статусом успешности, сообщением и данными.
      *
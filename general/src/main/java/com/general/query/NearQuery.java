@@ -0,0 +1,38 @@
+package com.general.query;
+
+import java.io.Serializable;
+
+/**
+ * Запрос команды {@code near}: {@code k} продуктов, ближайших к точке {@code (x, y)}.
+ * Текст {@code "x y k"} разбирается на клиенте, сервер получает готовый запрос.
+ *
+ * @param x абсцисса точки
+ * @param y ордината точки
+ * @param k количество продуктов, от 1 до {@link ProductFilter#MAX_PAGE_SIZE}
+ */
+public record NearQuery(double x, double y, int k) implements Serializable {
+
+    public NearQuery {
+        if (!Double.isFinite(x) || !Double.isFinite(y)) throw new IllegalArgumentException("Координаты должны быть числами");
+        if (k < 1 || k > ProductFilter.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Количество продуктов должно быть от 1 до " + ProductFilter.MAX_PAGE_SIZE);
+        }
+    }
+
+    /**
+     * Разбирает аргументы команды.
+     *
+     * @param text аргументы {@code x y k}
+     * @return запрос
+     * @throws IllegalArgumentException если аргументы записаны неверно
+     */
+    public static NearQuery parse(String text) {
+        String[] parts = text.trim().split("\\s+");
+        if (parts.length != 3) throw new IllegalArgumentException("Ожидается: near x y k");
+        try {
+            return new NearQuery(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]), Integer.parseInt(parts[2]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Ожидается: near x y k, где x и y - числа, k - целое число");
+        }
+    }
+}
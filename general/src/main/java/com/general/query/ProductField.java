@@ -0,0 +1,113 @@
+package com.general.query;
+
+import com.general.models.Product;
+import com.general.models.UnitOfMeasure;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Поля продукта, по которым можно фильтровать коллекцию командой {@code filter}.
+ * <p>
+ * У каждого поля есть имена, под которыми оно записывается в условии, свойство продукта, по которому
+ * сервер ищет индекс с тем же названием, тип значения, разбор значения из текста и извлечение значения из продукта.
+ */
+public enum ProductField {
+    ID("id", Long.class, Product::getId, Long::valueOf, "id"),
+    NAME("name", String.class, Product::getName, value -> value, "name"),
+    X("x", Long.class, product -> product.getCoordinates() == null ? null : product.getCoordinates().getX(),
+            Long::valueOf, "x"),
+    Y("y", Float.class, product -> product.getCoordinates() == null ? null : product.getCoordinates().getY(),
+            Float::valueOf, "y"),
+    CREATION_DATE("creationDate", LocalDate.class, Product::getCreationDate, LocalDate::parse, "date", "creationDate"),
+    PRICE("price", Integer.class, Product::getPrice, Integer::valueOf, "price"),
+    UNIT("unitOfMeasure", UnitOfMeasure.class, Product::getUnitOfMeasure,
+            value -> UnitOfMeasure.valueOf(value.toUpperCase()), "unit", "unitOfMeasure"),
+    ORGANIZATION("organization", String.class,
+            product -> product.getOrganization() == null ? null : product.getOrganization().getName(),
+            value -> value, "org", "organization"),
+    YEAR("year", Integer.class, product -> product.getOrganization() == null ? null : product.getOrganization().getYear(),
+            Integer::valueOf, "year"),
+    USERNAME("username", String.class, Product::getUsername, value -> value, "owner", "username");
+
+    private final String property;
+    private final Class<?> type;
+    private final Function<Product, Comparable<?>> extractor;
+    private final Function<String, Comparable<?>> parser;
+    private final String[] names;
+
+    ProductField(String property, Class<?> type, Function<Product, Comparable<?>> extractor,
+                 Function<String, Comparable<?>> parser, String... names) {
+        this.property = property;
+        this.type = type;
+        this.extractor = extractor;
+        this.parser = parser;
+        this.names = names;
+    }
+
+    /**
+     * @return имя свойства продукта; индекс коллекции по этому полю называется так же
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * @return тип значения поля
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @param product продукт
+     * @return значение поля или {@code null}
+     */
+    public Comparable<?> extract(Product product) {
+        return extractor.apply(product);
+    }
+
+    /**
+     * Разбирает значение поля из текста условия.
+     *
+     * @param text текст значения
+     * @return значение поля
+     * @throws IllegalArgumentException если значение не подходит полю
+     */
+    public Comparable<?> parse(String text) {
+        try {
+            return parser.apply(text);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Неверное значение поля " + names[0] + ": " + text);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неверное значение поля " + names[0] + ": " + text
+                    + (this == UNIT ? " (допустимые: " + UnitOfMeasure.names() + ")" : ""));
+        }
+    }
+
+    /**
+     * @return основное имя поля в условиях
+     */
+    public String getName() {
+        return names[0];
+    }
+
+    /**
+     * Находит поле по имени в условии без учета регистра.
+     *
+     * @param name имя поля
+     * @return поле
+     * @throws IllegalArgumentException если такого поля нет
+     */
+    public static ProductField byName(String name) {
+        for (ProductField field : values()) {
+            for (String candidate : field.names) {
+                if (candidate.equalsIgnoreCase(name)) return field;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестное поле: " + name + ". Допустимые поля: "
+                + String.join(", ", Arrays.stream(values()).map(ProductField::getName).toList()));
+    }
+}
@@ -0,0 +1,247 @@
+package com.general.query;
+
+import com.general.models.Product;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Запрос команды {@code filter}: условия, которым должны удовлетворять продукты, и страница результата.
+ * <p>
+ * Условия записываются через пробел в виде {@code <поле><оператор><значение>}, например
+ * {@code price>100 unit=GRAMS org="Coca Cola"}; все условия должны выполняться одновременно.
+ * Операторы: {@code = != < <= > >=}. Значение с пробелами берется в двойные кавычки. Поля перечислены
+ * в {@link ProductField}. Продукт, у которого значение поля не задано, условию по этому полю не удовлетворяет.
+ * Параметры {@code page=N} и {@code size=N} задают номер страницы (с 1) и ее размер.
+ * <p>
+ * Текст разбирается на клиенте, сервер получает готовые условия.
+ */
+public class ProductFilter implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    /**
+     * Размер страницы по умолчанию.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    /**
+     * Наибольший размер страницы.
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private final List<Condition> conditions;
+    private final int page;
+    private final int pageSize;
+
+    /**
+     * Оператор сравнения значения поля со значением из условия.
+     */
+    public enum Operator {
+        // Порядок важен для разбора: двухсимвольные операторы проверяются раньше односимвольных
+        NOT_EQUAL("!="), LESS_OR_EQUAL("<="), GREATER_OR_EQUAL(">="), EQUAL("="), LESS("<"), GREATER(">");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        /**
+         * @return запись оператора в условии
+         */
+        public String getSymbol() {
+            return symbol;
+        }
+
+        /**
+         * @param comparison результат сравнения значения поля со значением условия
+         * @return выполняется ли условие
+         */
+        public boolean test(int comparison) {
+            return switch (this) {
+                case EQUAL -> comparison == 0;
+                case NOT_EQUAL -> comparison != 0;
+                case LESS -> comparison < 0;
+                case LESS_OR_EQUAL -> comparison <= 0;
+                case GREATER -> comparison > 0;
+                case GREATER_OR_EQUAL -> comparison >= 0;
+            };
+        }
+    }
+
+    /**
+     * Условие на одно поле. Проверяется и при создании, и при десериализации запроса, поэтому сервер
+     * не получит условие со значением чужого типа.
+     *
+     * @param field    поле продукта
+     * @param operator оператор сравнения
+     * @param value    значение того же типа, что и поле
+     * @throws IllegalArgumentException если поле, оператор или значение не заданы или значение не того типа
+     */
+    public record Condition(ProductField field, Operator operator, Comparable<?> value) implements Serializable {
+
+        public Condition {
+            if (field == null || operator == null || value == null) {
+                throw new IllegalArgumentException("В условии не заданы поле, оператор или значение");
+            }
+            if (!field.getType().isInstance(value)) {
+                throw new IllegalArgumentException("Значение поля " + field.getName() + " должно иметь тип "
+                        + field.getType().getSimpleName() + ": " + value);
+            }
+        }
+
+        /**
+         * @param product продукт
+         * @return выполняется ли условие для продукта
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public boolean test(Product product) {
+            Comparable actual = field.extract(product);
+            return actual != null && operator.test(actual.compareTo(value));
+        }
+
+        @Override
+        public String toString() {
+            String text = String.valueOf(value);
+            return field.getName() + operator.getSymbol() + (text.contains(" ") ? '"' + text + '"' : text);
+        }
+    }
+
+    /**
+     * @param conditions условия
+     * @param page       номер страницы, начиная с 1
+     * @param pageSize   размер страницы
+     */
+    public ProductFilter(List<Condition> conditions, int page, int pageSize) {
+        if (page < 1) throw new IllegalArgumentException("Номер страницы должен быть не меньше 1");
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        this.conditions = List.copyOf(conditions);
+        this.page = page;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Разбирает текст условий.
+     *
+     * @param text условия и параметры страницы
+     * @return запрос фильтрации
+     * @throws IllegalArgumentException если текст записан неверно
+     */
+    public static ProductFilter parse(String text) {
+        List<Condition> conditions = new ArrayList<>();
+        int page = 1;
+        int pageSize = DEFAULT_PAGE_SIZE;
+        for (String token : tokenize(text)) {
+            Operator operator = null;
+            int position = -1;
+            for (int i = 0; i < token.length() && operator == null; i++) {
+                for (Operator candidate : Operator.values()) {
+                    if (token.startsWith(candidate.symbol, i)) {
+                        operator = candidate;
+                        position = i;
+                        break;
+                    }
+                }
+            }
+            if (operator == null || position == 0) throw new IllegalArgumentException("Ожидается условие вида поле=значение: " + token);
+            String name = token.substring(0, position);
+            String value = token.substring(position + operator.symbol.length());
+            if (value.isEmpty()) throw new IllegalArgumentException("Не указано значение в условии: " + token);
+            if (name.equalsIgnoreCase("page") || name.equalsIgnoreCase("size")) {
+                if (operator != Operator.EQUAL) throw new IllegalArgumentException("Ожидается " + name + "=N");
+                try {
+                    if (name.equalsIgnoreCase("page")) page = Integer.parseInt(value);
+                    else pageSize = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Неверное значение " + name + ": " + value);
+                }
+                continue;
+            }
+            ProductField field = ProductField.byName(name);
+            conditions.add(new Condition(field, operator, field.parse(value)));
+        }
+        if (conditions.isEmpty()) throw new IllegalArgumentException("Не указано ни одного условия");
+        return new ProductFilter(conditions, page, pageSize);
+    }
+
+    /**
+     * Делит текст на условия по пробелам; пробелы внутри двойных кавычек сохраняются, сами кавычки удаляются.
+     */
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (char c : text.toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (!current.isEmpty()) tokens.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("Не закрыта кавычка");
+        if (!current.isEmpty()) tokens.add(current.toString());
+        return tokens;
+    }
+
+    /**
+     * @param product продукт
+     * @return выполняются ли для продукта все условия
+     */
+    public boolean test(Product product) {
+        for (Condition condition : conditions) {
+            if (!condition.test(product)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return условия
+     */
+    public List<Condition> getConditions() {
+        return conditions;
+    }
+
+    /**
+     * @return номер страницы, начиная с 1
+     */
+    public int getPage() {
+        return page;
+    }
+
+    /**
+     * @return размер страницы
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Проверяет параметры страницы полученного запроса так же, как конструктор. Сами условия проверяются
+     * конструктором {@link Condition} при их десериализации.
+     */
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (conditions == null || page < 1 || pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new InvalidObjectException("Недопустимые параметры фильтра");
+        }
+        for (Object condition : conditions) {
+            if (!(condition instanceof Condition)) throw new InvalidObjectException("Недопустимое условие фильтра");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return conditions.stream().map(Condition::toString).collect(Collectors.joining(" "));
+    }
+}
@@ -0,0 +1,45 @@
+package com.general.query;
+
+import java.io.Serializable;
+
+/**
+ * Запрос команды {@code within}: продукты, координаты которых лежат в прямоугольнике с углами
+ * {@code (x1, y1)} и {@code (x2, y2)}, включая границы. Выводится не больше {@code limit} продуктов.
+ * Текст {@code "x1 y1 x2 y2 [limit]"} разбирается на клиенте, сервер получает готовый запрос.
+ *
+ * @param x1    абсцисса одного угла
+ * @param y1    ордината одного угла
+ * @param x2    абсцисса противоположного угла
+ * @param y2    ордината противоположного угла
+ * @param limit наибольшее количество выводимых продуктов, от 1 до {@link ProductFilter#MAX_PAGE_SIZE}
+ */
+public record WithinQuery(double x1, double y1, double x2, double y2, int limit) implements Serializable {
+
+    public WithinQuery {
+        if (!Double.isFinite(x1) || !Double.isFinite(y1) || !Double.isFinite(x2) || !Double.isFinite(y2)) {
+            throw new IllegalArgumentException("Координаты должны быть числами");
+        }
+        if (limit < 1 || limit > ProductFilter.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Количество продуктов должно быть от 1 до " + ProductFilter.MAX_PAGE_SIZE);
+        }
+    }
+
+    /**
+     * Разбирает аргументы команды.
+     *
+     * @param text аргументы {@code x1 y1 x2 y2 [limit]}
+     * @return запрос; без {@code limit} выводится {@link ProductFilter#DEFAULT_PAGE_SIZE} продуктов
+     * @throws IllegalArgumentException если аргументы записаны неверно
+     */
+    public static WithinQuery parse(String text) {
+        String[] parts = text.trim().split("\\s+");
+        if (parts.length != 4 && parts.length != 5) throw new IllegalArgumentException("Ожидается: within x1 y1 x2 y2 [limit]");
+        try {
+            return new WithinQuery(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]),
+                    Double.parseDouble(parts[2]), Double.parseDouble(parts[3]),
+                    parts.length == 5 ? Integer.parseInt(parts[4]) : ProductFilter.DEFAULT_PAGE_SIZE);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Ожидается: within x1 y1 x2 y2 [limit], где координаты - числа, limit - целое число");
+        }
+    }
+}
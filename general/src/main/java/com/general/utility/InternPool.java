@@ -0,0 +1,141 @@
+package com.general.utility;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Потокобезопасный пул интернирования неизменяемых значений.
+ * <p>
+ * Для равных значений {@link #intern(Object)} возвращает один и тот же экземпляр, поэтому одинаковые организации
+ * и строки, пришедшие из разных запросов или строк базы данных, занимают память один раз.
+ * Пул хранит значения по слабым ссылкам и не удерживает экземпляры, которые больше нигде не используются.
+ * <p>
+ * Пул ведет счетчик повторов и оценку памяти, которую заняли бы отброшенные дубликаты.
+ * Оценка накопительная: она показывает, сколько памяти сэкономлено за все время работы, если бы дубликаты жили вечно.
+ *
+ * @param <T> тип значений; значения не должны изменяться после интернирования
+ */
+public class InternPool<T> {
+    /**
+     * Общий пул строк (названия продуктов и организаций, имена пользователей).
+     */
+    public static final InternPool<String> STRINGS = new InternPool<>("строки", InternPool::stringBytes);
+
+    private final String name;
+    private final ToLongFunction<T> sizeEstimator;
+    private final ConcurrentHashMap<Entry<T>, Entry<T>> entries = new ConcurrentHashMap<>();
+    private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder savedBytes = new LongAdder();
+
+    /**
+     * @param name          название пула для отчетов
+     * @param sizeEstimator оценка размера экземпляра в байтах, который не придется хранить при повторе
+     */
+    public InternPool(String name, ToLongFunction<T> sizeEstimator) {
+        this.name = name;
+        this.sizeEstimator = sizeEstimator;
+    }
+
+    /**
+     * Возвращает канонический экземпляр, равный переданному значению.
+     *
+     * @param value значение или {@code null}
+     * @return экземпляр из пула, либо само значение, если равного в пуле не было
+     */
+    public T intern(T value) {
+        if (value == null) return null;
+        expungeStaleEntries();
+        Entry<T> entry = new Entry<>(value, queue);
+        while (true) {
+            Entry<T> existing = entries.putIfAbsent(entry, entry);
+            if (existing == null) return value;
+            T canonical = existing.get();
+            if (canonical != null) {
+                if (canonical != value) {
+                    hits.increment();
+                    savedBytes.add(sizeEstimator.applyAsLong(value));
+                }
+                return canonical;
+            }
+            entries.remove(existing, existing); // Значение уже собрано сборщиком мусора, но запись еще не удалена
+        }
+    }
+
+    /**
+     * @return количество живых значений в пуле
+     */
+    public int size() {
+        expungeStaleEntries();
+        return entries.size();
+    }
+
+    /**
+     * @return сколько раз вместо нового экземпляра был возвращен существующий
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return оценка памяти в байтах, которую заняли бы отброшенные дубликаты
+     */
+    public long getSavedBytes() {
+        return savedBytes.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d значений, повторов %d, сэкономлено ~%d КБ", name, size(), getHits(), getSavedBytes() / 1024);
+    }
+
+    /**
+     * Оценивает размер строки в куче с учетом компактных строк и сжатых указателей.
+     *
+     * @param value строка
+     * @return размер объекта строки и ее массива в байтах
+     */
+    public static long stringBytes(String value) {
+        boolean latin1 = value.chars().allMatch(c -> c < 256);
+        long arrayBytes = 16 + (long) value.length() * (latin1 ? 1 : 2);
+        return 24 + ((arrayBytes + 7) & ~7L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void expungeStaleEntries() {
+        Reference<? extends T> reference;
+        while ((reference = queue.poll()) != null) {
+            Entry<T> entry = (Entry<T>) reference;
+            entries.remove(entry, entry);
+        }
+    }
+
+    /**
+     * Слабая ссылка на значение, сравниваемая по равенству значений. Собранные значения равны только самим себе.
+     */
+    private static final class Entry<T> extends WeakReference<T> {
+        private final int hash;
+
+        private Entry(T value, ReferenceQueue<T> queue) {
+            super(value, queue);
+            this.hash = value.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) return true;
+            if (!(object instanceof Entry<?> other) || other.hash != hash) return false;
+            Object value = get();
+            return value != null && value.equals(other.get());
+        }
+    }
+}
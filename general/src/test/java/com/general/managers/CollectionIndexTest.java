@@ -0,0 +1,165 @@
+package com.general.managers;
+
+import com.general.models.Coordinates;
+import com.general.models.Organization;
+import com.general.models.Product;
+import com.general.models.UnitOfMeasure;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Проверяет поддержку вторичных индексов при изменении коллекции.
+ */
+public class CollectionIndexTest extends TestCase {
+    private IndexedManager manager;
+
+    @Override
+    protected void setUp() {
+        manager = new IndexedManager();
+    }
+
+    public void testIndexesFollowAddRemoveUpdateAndClear() {
+        manager.addToCollection("alice", product(1, 100, "A", "alice"));
+        manager.addToCollection("alice", product(2, 200, "B", "alice"));
+        manager.addToCollection("bob", product(3, 300, "A", "bob"));
+
+        assertEquals(List.of(2L, 3L), ids(manager.price.range(150, true, null, false).toList()));
+        assertEquals(List.of(1L, 3L), ids(manager.organization.equalTo("A").toList()));
+
+        manager.updateInCollection(product(1, 250, "B", "alice"));
+        assertEquals(List.of(2L, 1L), ids(manager.price.range(200, true, 300, false).toList()));
+        assertEquals(1, manager.organization.count("A"));
+
+        manager.removeFromCollection(manager.id.equalTo(3L).findFirst().orElseThrow(), "bob");
+        assertEquals(0, manager.organization.count("A"));
+        assertEquals(0, manager.id.count(3L));
+
+        manager.clearCollection("alice");
+        assertEquals(0, manager.price.size());
+        assertEquals(0, manager.id.size());
+        assertTrue(manager.getCollection().isEmpty());
+    }
+
+    public void testUniqueViolationLeavesCollectionAndIndexesUnchanged() {
+        manager.addToCollection("alice", product(1, 100, "A", "alice"));
+        try {
+            manager.addToCollection("alice", product(1, 500, "C", "alice").withId(2));
+            fail("Ожидалось нарушение уникального индекса");
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(1, manager.getCollection().size());
+        assertEquals(0, manager.price.count(500));
+        assertEquals(0, manager.organization.count("C"));
+        assertEquals(List.of(1L), ids(manager.code.equalTo("code-1").toList()));
+    }
+
+    public void testRemovesElementWithSameIdAmongEqualOnes() {
+        TestProduct first = product(1, 100, "A", "u");
+        TestProduct second = product(2, 100, "A", "u");
+        second.setName(first.getName());
+        assertEquals(first, second); // Равенство продуктов не учитывает ID
+        manager.addToCollection("u", first);
+        manager.addToCollection("u", second);
+
+        assertTrue(manager.removeFromCollection(second, "u"));
+        assertEquals(List.of(1L), ids(new ArrayList<>(manager.getCollection())));
+        assertEquals(1, manager.id.count(1L));
+        assertEquals(0, manager.id.count(2L));
+        assertEquals(List.of(1L), ids(manager.price.equalTo(100).toList()));
+        assertFalse(manager.removeFromCollection(second, "u"));
+    }
+
+    public void testHashIndexRejectsRange() {
+        try {
+            manager.organization.range("A", true, "B", true);
+            fail("Хеш-индекс не поддерживает поиск по диапазону");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    public void testSpatialIndexMatchesFullScan() {
+        Random random = new Random(42);
+        for (int i = 1; i <= 500; i++) {
+            Product product = product(i, i, "A", "alice");
+            product.setCoordinates(new Coordinates((long) random.nextInt(200) - 100, random.nextFloat() * 100));
+            manager.addToCollection("alice", product);
+        }
+        manager.removeFromCollection(manager.id.equalTo(7L).findFirst().orElseThrow(), "alice");
+
+        double[][] points = {{0, 50}, {-100, 0}, {35.5, 99}, {10_000, -10_000}};
+        for (double[] point : points) {
+            CollectionIndex.Point target = new CollectionIndex.Point(point[0], point[1]);
+            List<Long> expected = manager.getCollection().stream()
+                    .sorted(Comparator.<Product>comparingDouble(product -> manager.coordinates.keyOf(product).distanceSquared(target))
+                            .thenComparing(Product::getId))
+                    .limit(15).map(Product::getId).toList();
+            assertEquals(expected, ids(manager.coordinates.nearest(point[0], point[1], 15)));
+        }
+        assertEquals(499, manager.coordinates.nearest(0, 0, 1000).size());
+
+        List<Long> expected = manager.getCollection().stream()
+                .filter(product -> product.getCoordinates().getX() >= -20 && product.getCoordinates().getX() <= 45
+                        && product.getCoordinates().getY() >= 10 && product.getCoordinates().getY() <= 30)
+                .map(Product::getId).sorted().toList();
+        assertEquals(expected, ids(manager.coordinates.within(45, 30, -20, 10).sorted(Comparator.comparing(Product::getId)).toList()));
+        assertEquals(499, manager.coordinates.within(-1e9, -1e9, 1e9, 1e9).count());
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products.stream().map(Product::getId).collect(Collectors.toList());
+    }
+
+    private static TestProduct product(long id, int price, String organization, String username) {
+        TestProduct product = new TestProduct(id, "p" + id, price, organization);
+        product.setUsername(username);
+        return product;
+    }
+
+    /**
+     * Продукт с кодом, не зависящим от ID, чтобы проверить уникальный индекс не по ID.
+     */
+    private static final class TestProduct extends Product {
+        private String code;
+
+        TestProduct(long id, String name, int price, String organization) {
+            super(id, name, new Coordinates(1L, 1f), price, UnitOfMeasure.values()[0], new Organization(organization, 2000));
+            this.code = "code-" + id;
+        }
+
+        TestProduct withId(long id) {
+            setId(id);
+            return this;
+        }
+    }
+
+    private static final class IndexedManager extends CollectionManager<Product> {
+        final CollectionIndex<Product, Long> id = declareIndex(CollectionIndex.unique("id", Product::getId));
+        final CollectionIndex<Product, String> code = declareIndex(CollectionIndex.unique("code",
+                product -> ((TestProduct) product).code));
+        final CollectionIndex<Product, Integer> price = declareIndex(CollectionIndex.ordered("price", Product::getPrice));
+        final CollectionIndex<Product, String> organization = declareIndex(CollectionIndex.multi("organization",
+                product -> product.getOrganization().getName()));
+        final CollectionIndex.Spatial<Product> coordinates = declareIndex(CollectionIndex.spatial("coordinates",
+                product -> new CollectionIndex.Point(product.getCoordinates().getX(), product.getCoordinates().getY()), 10));
+
+        @Override
+        protected Collection<Product> createCollection() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        protected void loadCollection() {
+        }
+
+        @Override
+        protected Long getId(Product element) {
+            return element.getId();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.general.managers;
+
+import com.general.command.Command;
+import com.general.metrics.Outcome;
+import com.general.network.Request;
+import com.general.network.Response;
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверяет, что статистика команд ведется по именам команд из запросов, а не по строкам использования.
+ */
+public class CommandManagerTest extends TestCase {
+
+    public void testRecordsMetricsByRequestCommand() {
+        CommandManager commandManager = new CommandManager();
+        commandManager.register("remove_by_id", new Command("remove_by_id <ID>", "удалить элемент по ID") {
+            @Override
+            public Response execute(Request request) {
+                return new Response(request.getData() != null, "");
+            }
+        });
+
+        commandManager.handle(new Request("remove_by_id", 1L));
+        commandManager.handle(new Request("remove_by_id", null));
+
+        long minute = TimeUnit.MINUTES.toNanos(1);
+        assertNull(commandManager.getMetrics().snapshot("remove_by_id <ID>", minute));
+        assertEquals(2, commandManager.getMetrics().snapshot("remove_by_id", minute).getCount());
+        assertEquals(1, commandManager.getMetrics().snapshot("remove_by_id", minute).getCount(Outcome.FAILURE));
+        assertFalse(commandManager.getMetrics().report().contains("<ID>"));
+    }
+}
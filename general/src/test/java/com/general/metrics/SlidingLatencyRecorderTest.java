@@ -0,0 +1,55 @@
+package com.general.metrics;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Проверяет точность процентилей гистограммы и вытеснение устаревших интервалов скользящего окна.
+ */
+public class SlidingLatencyRecorderTest extends TestCase {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    public void testPercentilesWithinRelativeError() {
+        SlidingLatencyRecorder recorder = new SlidingLatencyRecorder(SECOND, 10, new AtomicLong()::get);
+        for (long micros = 1; micros <= 100_000; micros++) {
+            recorder.record(TimeUnit.MICROSECONDS.toNanos(micros), Outcome.SUCCESS);
+        }
+        LatencySnapshot snapshot = recorder.total();
+        assertEquals(100_000, snapshot.getCount());
+        assertWithin(50_000, snapshot.getValueAtPercentile(50));
+        assertWithin(99_000, snapshot.getValueAtPercentile(99));
+        assertWithin(99_900, snapshot.getValueAtPercentile(99.9));
+        assertWithin(100_000, snapshot.getMaxValue());
+    }
+
+    public void testOldIntervalsLeaveWindow() {
+        AtomicLong clock = new AtomicLong();
+        SlidingLatencyRecorder recorder = new SlidingLatencyRecorder(SECOND, 10, clock::get);
+        recorder.record(1000, Outcome.SUCCESS);
+        recorder.record(1000, Outcome.FAILURE);
+        clock.set(5 * SECOND);
+        recorder.record(1000, Outcome.ERROR);
+
+        assertEquals(1, recorder.snapshot(2 * SECOND).getCount());
+        assertEquals(3, recorder.snapshot(10 * SECOND).getCount());
+
+        clock.set(25 * SECOND);
+        recorder.record(1000, Outcome.SUCCESS);
+        LatencySnapshot window = recorder.snapshot(10 * SECOND);
+        assertEquals(1, window.getCount());
+        assertEquals(0, window.getCount(Outcome.FAILURE));
+
+        LatencySnapshot total = recorder.total();
+        assertEquals(4, total.getCount());
+        assertEquals(2, total.getCount(Outcome.SUCCESS));
+        assertEquals(1, total.getCount(Outcome.ERROR));
+        assertEquals(4 / 25.0, total.getThroughput(), 1e-9);
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("ожидалось около " + expected + ", получено " + actual,
+                Math.abs(actual - expected) <= expected / LatencyHistogram.SUB_BUCKETS + 1);
+    }
+}
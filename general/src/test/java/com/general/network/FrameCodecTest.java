@@ -0,0 +1,51 @@
+package com.general.network;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Проверяет кадрирование сообщений.
+ */
+public class FrameCodecTest extends TestCase {
+
+    public void testFramesSplitAcrossReads() throws Exception {
+        ByteBuffer stream = ByteBuffer.allocate(1 << 16);
+        for (long id = 1; id <= 3; id++) {
+            Response response = new Response(true, "ответ " + id);
+            response.setRequestId(id);
+            stream.put(FrameCodec.encode(response));
+        }
+        stream.flip();
+
+        FrameCodec.Decoder decoder = new FrameCodec.Decoder();
+        List<FrameCodec.Frame> frames = new ArrayList<>();
+        while (stream.hasRemaining()) {
+            ByteBuffer chunk = stream.slice(stream.position(), Math.min(7, stream.remaining()));
+            stream.position(stream.position() + chunk.remaining());
+            decoder.feed(chunk);
+            frames.addAll(decoder.frames());
+        }
+
+        assertEquals(3, frames.size());
+        for (int i = 0; i < frames.size(); i++) {
+            assertEquals(i + 1, frames.get(i).requestId());
+            Response response = (Response) FrameCodec.decode(frames.get(i).body());
+            assertEquals("ответ " + (i + 1), response.getMessage());
+            assertEquals(i + 1, response.getRequestId());
+        }
+    }
+
+    public void testRejectsInvalidLength() {
+        FrameCodec.Decoder decoder = new FrameCodec.Decoder();
+        decoder.feed(ByteBuffer.allocate(12).putInt(0, -1));
+        try {
+            decoder.frames();
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+}
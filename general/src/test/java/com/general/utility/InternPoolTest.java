@@ -0,0 +1,43 @@
+package com.general.utility;
+
+import com.general.models.Organization;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Проверяет пул интернирования и интернирование организаций при десериализации.
+ */
+public class InternPoolTest extends TestCase {
+
+    public void testEqualValuesShareInstance() {
+        InternPool<String> pool = new InternPool<>("тест", InternPool::stringBytes);
+        String first = pool.intern(new String("Простоквашино"));
+        String second = pool.intern(new String("Простоквашино"));
+        assertSame(first, second);
+        assertEquals(1, pool.getHits());
+        assertTrue(pool.getSavedBytes() > 0);
+        assertNull(pool.intern(null));
+    }
+
+    public void testDeserializedOrganizationsAreInterned() throws IOException, ClassNotFoundException {
+        Organization first = copy(new Organization(new String("Рога и копыта"), 1999));
+        Organization second = copy(new Organization(new String("Рога и копыта"), 1999));
+        assertSame(first, second);
+        assertNotSame(first, copy(new Organization("Рога и копыта", 2000)));
+    }
+
+    private static Organization copy(Organization organization) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(organization);
+        }
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (Organization) input.readObject();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.ann.loadtest;
+
+import com.ann.server.data.InMemoryProductStorage;
+import com.ann.server.data.InMemoryUserStorage;
+import com.ann.server.data.ProductStorage;
+import com.ann.server.data.UserStorage;
+import com.ann.server.events.StorageEvents;
+import com.ann.server.main.Main;
+import com.ann.server.managers.ProductCollectionManager;
+import com.ann.server.network.Handler;
+import com.ann.server.network.RequestPipeline;
+import com.ann.server.network.TCPServer;
+import com.general.managers.CommandManager;
+import com.general.models.Coordinates;
+import com.general.models.Organization;
+import com.general.models.Product;
+import com.general.models.UnitOfMeasure;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сервер, запущенный в процессе нагрузочного теста, с хранилищем в памяти вместо PostgreSQL.
+ * <p>
+ * Собирается из тех же частей, что и {@link Main}: менеджер коллекции в режиме {@code collection.mode},
+ * команды, конвейер запросов и {@link TCPServer}. Хранилище всегда {@link InMemoryProductStorage}, задержка
+ * обращений к нему задается настройкой {@code storage.memory.latency.us}. Снимок и журнал коллекции
+ * отключены, если не включены явно.
+ */
+public class EmbeddedServer {
+    private static final long START_TIMEOUT_MILLIS = 10000;
+
+    private final int port;
+    private ProductCollectionManager collectionManager;
+    private RequestPipeline pipeline;
+
+    /**
+     * @param port порт, на котором сервер принимает соединения
+     */
+    public EmbeddedServer(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Запускает сервер в отдельном потоке и ждет, пока он начнет принимать соединения.
+     *
+     * @param preload количество продуктов, добавляемых в хранилище до загрузки коллекции
+     * @throws IOException если сервер не начал принимать соединения вовремя
+     */
+    public void start(int preload) throws IOException {
+        System.getProperties().putIfAbsent("storage.snapshot.enabled", "false");
+
+        InMemoryProductStorage productStorage = new InMemoryProductStorage();
+        for (int i = 0; i < preload; i++) {
+            Product product = new Product(0, "preload-" + i, new Coordinates((long) i, (float) i), 1 + i % 1000,
+                    UnitOfMeasure.values()[i % UnitOfMeasure.values().length], new Organization("org-" + i % 100, 2000 + i % 20));
+            product.setUsername("preload");
+            productStorage.insertProduct(product);
+        }
+        ProductStorage tracedProducts = StorageEvents.traced(ProductStorage.class, productStorage);
+        UserStorage userStorage = StorageEvents.traced(UserStorage.class, new InMemoryUserStorage());
+        collectionManager = Main.createCollectionManager(tracedProducts, userStorage);
+
+        CommandManager commandManager = new CommandManager();
+        Main.initCommands(collectionManager, commandManager, userStorage);
+        Handler.setUserStorage(userStorage);
+        Handler.setCommandManager(commandManager);
+        pipeline = new RequestPipeline();
+
+        Thread serverThread = new Thread(() -> new TCPServer(port, pipeline).start(), "embedded-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        awaitListening();
+    }
+
+    /**
+     * @return конвейер обработки запросов сервера
+     */
+    public RequestPipeline getPipeline() {
+        return pipeline;
+    }
+
+    /**
+     * Останавливает фоновые задачи менеджера коллекции. Поток сервера завершается вместе с процессом.
+     */
+    public void stop() {
+        if (collectionManager != null) collectionManager.shutdown();
+    }
+
+    private void awaitListening() throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(START_TIMEOUT_MILLIS);
+        while (true) {
+            try (Socket probe = new Socket()) {
+                probe.connect(new InetSocketAddress("localhost", port), 200);
+                return;
+            } catch (IOException e) {
+                if (System.nanoTime() > deadline) throw new IOException("Встроенный сервер не запустился на порту " + port, e);
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Ожидание запуска сервера прервано", interrupted);
+                }
+            }
+        }
+    }
+}
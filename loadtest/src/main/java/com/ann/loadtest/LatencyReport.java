@@ -0,0 +1,118 @@
+package com.ann.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограммы задержек по операциям.
+ * <p>
+ * Задержка записывается в микросекундах от запланированного момента отправки запроса, а не от фактического,
+ * поэтому время, которое запрос провел в очереди генератора за отстающим сервером, тоже учитывается.
+ */
+class LatencyReport {
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> rejections = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    LatencyReport() {
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new ConcurrentHistogram(SIGNIFICANT_DIGITS));
+            rejections.put(operation, new LongAdder());
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    /**
+     * Записывает завершенный запрос.
+     *
+     * @param operation    операция
+     * @param latencyNanos задержка от запланированного момента отправки в наносекундах
+     * @param success      сервер выполнил команду успешно
+     */
+    void recordResponse(Operation operation, long latencyNanos, boolean success) {
+        histograms.get(operation).recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        if (!success) rejections.get(operation).increment();
+    }
+
+    /**
+     * Записывает запрос, не получивший ответа: истекло время ожидания или соединение разорвано.
+     *
+     * @param operation операция
+     */
+    void recordError(Operation operation) {
+        errors.get(operation).increment();
+    }
+
+    /**
+     * @return гистограмма задержек всех операций в микросекундах
+     */
+    Histogram total() {
+        Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+        for (Histogram histogram : histograms.values()) total.add(histogram);
+        return total;
+    }
+
+    /**
+     * Выводит таблицу: количество ответов, отказы сервера, ошибки, пропускная способность и процентили задержки в мс.
+     *
+     * @param out            поток вывода
+     * @param elapsedSeconds длительность измерения в секундах
+     */
+    void print(PrintStream out, double elapsedSeconds) {
+        printHeader(out, "операция");
+        long totalRejections = 0;
+        long totalErrors = 0;
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = histograms.get(operation);
+            long operationRejections = rejections.get(operation).sum();
+            long operationErrors = errors.get(operation).sum();
+            totalRejections += operationRejections;
+            totalErrors += operationErrors;
+            if (histogram.getTotalCount() == 0 && operationErrors == 0) continue;
+            printRow(out, operation.getCommand(), histogram, operationRejections, operationErrors, elapsedSeconds);
+        }
+        printRow(out, "всего", total(), totalRejections, totalErrors, elapsedSeconds);
+    }
+
+    /**
+     * Выводит заголовок таблицы задержек.
+     *
+     * @param out  поток вывода
+     * @param name заголовок первого столбца
+     */
+    static void printHeader(PrintStream out, String name) {
+        out.printf("%-14s %9s %7s %7s %10s %9s %9s %9s %9s %9s%n",
+                name, "ответов", "отказов", "ошибок", "запр/с", "p50", "p90", "p99", "p99.9", "max");
+    }
+
+    /**
+     * Выводит строку таблицы задержек.
+     *
+     * @param out            поток вывода
+     * @param name           название строки
+     * @param histogram      задержки в микросекундах
+     * @param rejections     количество отказов сервера
+     * @param errors         количество запросов без ответа
+     * @param elapsedSeconds длительность измерения в секундах
+     */
+    static void printRow(PrintStream out, String name, Histogram histogram, long rejections, long errors,
+                         double elapsedSeconds) {
+        out.printf("%-14s %9d %7d %7d %10.1f %9.3f %9.3f %9.3f %9.3f %9.3f%n", name, histogram.getTotalCount(),
+                rejections, errors, histogram.getTotalCount() / elapsedSeconds,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,93 @@
+package com.ann.loadtest;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Параметры нагрузочного теста. Задаются аргументами вида {@code ключ=значение} (допускается префикс {@code --}):
+ * <ul>
+ *     <li>{@code sessions} — количество одновременных сессий (16);</li>
+ *     <li>{@code pool} — соединений у каждой сессии: 0 — одно соединение {@code TCPClient},
+ *     N — пул {@code PooledTCPClient} из N соединений (0);</li>
+ *     <li>{@code loop} — модель нагрузки: {@code open} — запросы по расписанию с частотой {@code rate},
+ *     {@code closed} — замкнутый цикл, каждый поток отправляет следующий запрос после ответа на предыдущий (open);</li>
+ *     <li>{@code rate} — запросов в секунду от всех сессий вместе в открытой модели (1000);</li>
+ *     <li>{@code concurrency} — потоков на сессию в замкнутом цикле (по размеру пула, но не меньше 1);</li>
+ *     <li>{@code duration} — длительность измерения в секундах (30);</li>
+ *     <li>{@code warmup} — длительность прогрева в секундах, результаты прогрева не учитываются (5);</li>
+ *     <li>{@code mix} — соотношение операций (см. {@link OperationMix#DEFAULT});</li>
+ *     <li>{@code embedded} — запустить сервер с хранилищем в памяти внутри процесса (true);</li>
+ *     <li>{@code executors} — режимы выполнения запросов встроенного сервера через запятую, например
+ *     {@code fixed,virtual}: тест повторяется для каждого режима на новом сервере (режим из {@code server.executor});</li>
+ *     <li>{@code host}, {@code port} — адрес сервера; для встроенного сервера порт 0 означает любой свободный;</li>
+ *     <li>{@code preload} — количество продуктов во встроенном сервере до начала теста (1000);</li>
+ *     <li>{@code timeout} — время ожидания ответа в миллисекундах (10000);</li>
+ *     <li>{@code histogram} — файл для полного распределения задержек в формате HdrHistogram (не записывается).</li>
+ * </ul>
+ */
+record LoadOptions(int sessions, int pool, boolean closedLoop, double rate, int concurrency, int durationSeconds,
+                   int warmupSeconds, OperationMix mix, boolean embedded, List<String> executors, String host, int port,
+                   int preload, long timeoutMillis, String histogramFile) {
+
+    private static final Set<String> KEYS = Set.of("sessions", "pool", "loop", "rate", "concurrency", "duration", "warmup",
+            "mix", "embedded", "executors", "host", "port", "preload", "timeout", "histogram");
+
+    /**
+     * Разбирает аргументы командной строки.
+     *
+     * @param args аргументы вида {@code ключ=значение}
+     * @return параметры теста
+     * @throws IllegalArgumentException если аргумент записан неверно или значение недопустимо
+     */
+    static LoadOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            String option = arg.startsWith("--") ? arg.substring(2) : arg;
+            int separator = option.indexOf('=');
+            if (separator <= 0) throw new IllegalArgumentException("Ожидается ключ=значение: " + arg);
+            String key = option.substring(0, separator);
+            if (!KEYS.contains(key)) throw new IllegalArgumentException("Неизвестный параметр: " + key);
+            values.put(key, option.substring(separator + 1));
+        }
+        boolean embedded = Boolean.parseBoolean(values.getOrDefault("embedded", "true"));
+        String loop = values.getOrDefault("loop", "open");
+        if (!loop.equals("open") && !loop.equals("closed")) {
+            throw new IllegalArgumentException("Ожидается loop=open или loop=closed");
+        }
+        int pool = Integer.parseInt(values.getOrDefault("pool", "0"));
+        List<String> executors = values.containsKey("executors")
+                ? List.of(values.get("executors").split(",")) : List.of();
+        for (String executor : executors) {
+            if (!executor.equals("fixed") && !executor.equals("virtual")) {
+                throw new IllegalArgumentException("Неизвестный режим выполнения запросов: " + executor);
+            }
+        }
+        LoadOptions options = new LoadOptions(
+                Integer.parseInt(values.getOrDefault("sessions", "16")),
+                pool,
+                loop.equals("closed"),
+                Double.parseDouble(values.getOrDefault("rate", "1000")),
+                Integer.parseInt(values.getOrDefault("concurrency", String.valueOf(Math.max(1, pool)))),
+                Integer.parseInt(values.getOrDefault("duration", "30")),
+                Integer.parseInt(values.getOrDefault("warmup", "5")),
+                OperationMix.parse(values.getOrDefault("mix", OperationMix.DEFAULT)),
+                embedded,
+                executors,
+                values.getOrDefault("host", "localhost"),
+                Integer.parseInt(values.getOrDefault("port", embedded ? "0" : "28358")),
+                Integer.parseInt(values.getOrDefault("preload", "1000")),
+                Long.parseLong(values.getOrDefault("timeout", "10000")),
+                values.get("histogram"));
+        if (options.sessions < 1) throw new IllegalArgumentException("Нужна хотя бы одна сессия");
+        if (options.pool < 0) throw new IllegalArgumentException("Размер пула не может быть отрицательным");
+        if (options.rate <= 0) throw new IllegalArgumentException("Частота запросов должна быть положительной");
+        if (options.concurrency < 1) throw new IllegalArgumentException("Нужен хотя бы один поток на сессию");
+        if (!executors.isEmpty() && (!embedded || options.port != 0)) {
+            throw new IllegalArgumentException("Режимы выполнения запросов сравниваются только на встроенном сервере с port=0");
+        }
+        if (options.durationSeconds < 1) throw new IllegalArgumentException("Длительность должна быть не меньше секунды");
+        return options;
+    }
+}
@@ -0,0 +1,165 @@
+package com.ann.loadtest;
+
+import com.client.network.ClientReactor;
+import com.client.network.CommandClient;
+import com.client.network.PooledTCPClient;
+import com.client.network.TCPClient;
+import com.general.models.Coordinates;
+import com.general.models.Organization;
+import com.general.models.Product;
+import com.general.models.UnitOfMeasure;
+import com.general.network.Request;
+import com.general.network.Response;
+
+import java.io.IOException;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Сессия нагрузочного теста: один пользователь со своим подключением к серверу или пулом соединений
+ * ({@link PooledTCPClient}), по которым запросы сессии распределяются по кругу.
+ * <p>
+ * Сессия помнит ID добавленных ею продуктов, чтобы обновлять и удалять только свои элементы.
+ * Запросы отправляются асинхронно, поэтому одна сессия может держать несколько запросов в пути.
+ */
+class LoadSession {
+    private static final UnitOfMeasure[] UNITS = UnitOfMeasure.values();
+
+    private final String host;
+    private final int port;
+    private final ClientReactor reactor;
+    private final CommandClient client;
+    private final String login;
+    private final String password;
+    private final long timeoutMillis;
+    private final Deque<Long> ownedIds = new ConcurrentLinkedDeque<>();
+
+    /**
+     * @param host          адрес сервера
+     * @param port          порт сервера
+     * @param reactor       реактор, обслуживающий подключения сессий
+     * @param poolSize      количество соединений пула или 0 для одного соединения без пула
+     * @param login         имя пользователя сессии
+     * @param password      пароль пользователя сессии
+     * @param timeoutMillis время ожидания ответа в миллисекундах
+     */
+    LoadSession(String host, int port, ClientReactor reactor, int poolSize, String login, String password, long timeoutMillis) {
+        this.host = host;
+        this.port = port;
+        this.reactor = reactor;
+        this.client = poolSize > 0
+                ? new PooledTCPClient(host, port, poolSize, login, password, new QuietConsole(), reactor, 30000)
+                : new TCPClient(host, port, new QuietConsole(), reactor);
+        this.login = login;
+        this.password = password;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Подключается к серверу, регистрирует пользователя, если его еще нет, и входит в систему.
+     *
+     * @throws IOException если подключиться или войти не удалось
+     */
+    void open() throws IOException {
+        if (client instanceof PooledTCPClient pool) {
+            // Пул входит на каждом соединении сам, но только под уже зарегистрированным пользователем
+            TCPClient registrar = new TCPClient(host, port, new QuietConsole(), reactor);
+            try {
+                login(registrar);
+            } finally {
+                registrar.disconnect();
+            }
+            int connected = pool.connect();
+            if (connected < pool.size()) {
+                throw new IOException("Пул сессии " + login + " подключил " + connected + " из " + pool.size() + " соединений");
+            }
+            return;
+        }
+        login((TCPClient) client);
+    }
+
+    private void login(TCPClient connection) throws IOException {
+        try {
+            if (!connection.connect()) throw new IOException("Не удалось подключиться к серверу");
+            connection.sendAsync(credentials("register"), timeoutMillis).get(); // Пользователь может уже существовать
+            Response response = connection.sendAsync(credentials("login"), timeoutMillis).get();
+            if (!response.isSuccess()) throw new IOException("Вход " + login + " не выполнен: " + response.getMessage());
+        } catch (TimeoutException | ExecutionException e) {
+            throw new IOException("Сессия " + login + " не открыта: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Открытие сессии прервано", e);
+        }
+    }
+
+    /**
+     * Заменяет операцию, которую сессия не может выполнить, на добавление продукта.
+     * Обновлять и удалять можно только свои продукты, а пока их нет, сессия их добавляет.
+     *
+     * @param operation выбранная операция
+     * @return операция, которая будет выполнена
+     */
+    Operation feasible(Operation operation) {
+        return operation.needsOwnProduct() && ownedIds.isEmpty() ? Operation.ADD : operation;
+    }
+
+    /**
+     * Отправляет запрос операции, не дожидаясь ответа.
+     *
+     * @param operation операция, допустимая для сессии (см. {@link #feasible(Operation)})
+     * @return ответ сервера
+     */
+    CompletableFuture<Response> execute(Operation operation) {
+        return switch (operation) {
+            case LOGIN -> client.sendAsync(credentials("login"), timeoutMillis);
+            case ADD -> client.sendAsync(new Request("add", randomProduct(0)), timeoutMillis)
+                    .thenApply(response -> {
+                        if (response.isSuccess() && response.getData() instanceof Long id && id > 0) ownedIds.addLast(id);
+                        return response;
+                    });
+            case UPDATE -> {
+                Long id = ownedIds.pollFirst();
+                if (id == null) yield execute(Operation.ADD);
+                yield client.sendAsync(new Request("update", randomProduct(id)), timeoutMillis)
+                        .whenComplete((response, error) -> ownedIds.addLast(id));
+            }
+            case REMOVE_BY_ID -> {
+                Long id = ownedIds.pollLast();
+                if (id == null) yield execute(Operation.ADD);
+                yield client.sendAsync(new Request("remove_by_id", id), timeoutMillis);
+            }
+            default -> client.sendAsync(new Request(operation.getCommand(), null), timeoutMillis);
+        };
+    }
+
+    /**
+     * Отключается от сервера.
+     */
+    void close() {
+        if (client instanceof PooledTCPClient pool) {
+            pool.close();
+        } else {
+            ((TCPClient) client).disconnect();
+        }
+    }
+
+    private Request credentials(String command) {
+        Request request = new Request(command, null);
+        request.setLogin(login);
+        request.setPassword(password);
+        return request;
+    }
+
+    private Product randomProduct(long id) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int n = random.nextInt(100000);
+        Product product = new Product(id, "load-" + n, new Coordinates((long) random.nextInt(1000), random.nextFloat() * 100),
+                1 + random.nextInt(10000), UNITS[random.nextInt(UNITS.length)], new Organization("org-" + n % 100, 2000 + n % 20));
+        product.setUsername(login);
+        return product;
+    }
+}
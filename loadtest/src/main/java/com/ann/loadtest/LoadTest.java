@@ -0,0 +1,247 @@
+package com.ann.loadtest;
+
+import com.ann.server.utility.ServerConfig;
+import com.client.network.ClientReactor;
+import com.general.network.Response;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Нагрузочный тест клиент-серверной пары.
+ * <p>
+ * Открывает {@code sessions} сессий и отправляет запросы с постоянной частотой {@code rate} независимо от того,
+ * успевает ли сервер отвечать (открытая модель нагрузки): запросы распределяются по сессиям по кругу,
+ * операция выбирается случайно по соотношению {@code mix}. Задержка отсчитывается от запланированного момента
+ * отправки, поэтому отставание генератора от расписания попадает в результат, а не скрывает медленные ответы.
+ * <p>
+ * По умолчанию сервер запускается внутри процесса с хранилищем в памяти ({@link EmbeddedServer}),
+ * PostgreSQL не нужен. Параметры сервера задаются системными свойствами, как и для обычного сервера.
+ * Режимы выполнения запросов сравниваются одним запуском: тест повторяется на новом встроенном сервере
+ * для каждого режима из {@code executors}:
+ * <pre>
+ * mvn -pl loadtest exec:java -Dexec.args="sessions=64 rate=5000 executors=fixed,virtual"
+ * </pre>
+ * Виртуальные потоки требуют Java 21; на более старой версии сервер использует фиксированный пул,
+ * и отчет указывает это в заголовке.
+ * <p>
+ * С {@code loop=closed} частота не задается: у каждой сессии {@code concurrency} потоков, каждый отправляет
+ * следующий запрос только после ответа на предыдущий (замкнутая модель). Так измеряется предельная пропускная
+ * способность, например сессии с одним соединением и с пулом:
+ * <pre>
+ * mvn -pl loadtest exec:java -Dexec.args="loop=closed sessions=4 concurrency=8 pool=0"
+ * mvn -pl loadtest exec:java -Dexec.args="loop=closed sessions=4 concurrency=8 pool=8"
+ * </pre>
+ * В замкнутой модели задержка отсчитывается от фактической отправки запроса.
+ * Параметры теста описаны в {@link LoadOptions}.
+ */
+public class LoadTest {
+    private static final String PASSWORD = "load-test-password";
+
+    private final LoadOptions options;
+    private final List<LoadSession> sessions = new ArrayList<>();
+    private final AtomicLong inFlight = new AtomicLong();
+
+    public LoadTest(LoadOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) {
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+        int exitCode = 0;
+        try {
+            new LoadTest(options).run(System.out);
+        } catch (IOException e) {
+            System.err.println("Нагрузочный тест прерван: " + e.getMessage());
+            exitCode = 1;
+        }
+        System.exit(exitCode); // Потоки встроенного сервера не завершаются сами
+    }
+
+    /**
+     * Запускает сервер (если нужно), открывает сессии, выполняет прогрев и измерение и выводит отчет.
+     * Если заданы режимы {@code executors}, все это повторяется для каждого режима.
+     *
+     * @param out поток для отчета
+     * @throws IOException если сервер не запустился или сессии не открылись
+     */
+    public void run(PrintStream out) throws IOException {
+        if (options.executors().isEmpty()) {
+            runOnce(out);
+            return;
+        }
+        for (String executor : options.executors()) {
+            System.setProperty("server.executor", executor);
+            runOnce(out);
+            out.println();
+        }
+    }
+
+    private void runOnce(PrintStream out) throws IOException {
+        EmbeddedServer server = null;
+        int port = options.port();
+        if (options.embedded()) {
+            if (port == 0) port = freePort();
+            server = new EmbeddedServer(port);
+            server.start(options.preload());
+        }
+        out.printf("Сервер %s:%d (%s), режим коллекции %s, выполнение запросов %s%n", options.host(), port,
+                options.embedded() ? "встроенный, хранилище в памяти" : "внешний",
+                ServerConfig.getString("collection.mode", "heap"), executorDescription());
+        out.printf("Сессий %d, %s, %s, прогрев %d с, измерение %d с, операции %s%n", options.sessions(),
+                options.pool() > 0 ? "пул из " + options.pool() + " соединений на сессию" : "одно соединение на сессию",
+                options.closedLoop() ? "замкнутый цикл, потоков на сессию " + options.concurrency()
+                        : String.format("%.0f запр/с", options.rate()),
+                options.warmupSeconds(), options.durationSeconds(), options.mix());
+        try {
+            openSessions(port);
+            if (options.warmupSeconds() > 0) load(options.warmupSeconds(), new LatencyReport());
+            LatencyReport report = new LatencyReport();
+            long elapsedNanos = load(options.durationSeconds(), report);
+            report.print(out, elapsedNanos / 1e9);
+            if (server != null) out.printf("Конвейер сервера:%n%s%n", server.getPipeline());
+            if (options.histogramFile() != null) writeHistogram(report.total());
+        } finally {
+            sessions.forEach(LoadSession::close);
+            sessions.clear();
+            if (server != null) server.stop();
+        }
+    }
+
+    private static String executorDescription() {
+        String executor = ServerConfig.getString("server.executor", "fixed");
+        if (executor.equals("virtual") && Runtime.version().feature() < 21) {
+            return "virtual (недоступно в Java " + Runtime.version().feature() + ", фиксированный пул)";
+        }
+        return executor;
+    }
+
+    private void openSessions(int port) throws IOException {
+        ClientReactor reactor = ClientReactor.shared();
+        for (int i = 0; i < options.sessions(); i++) {
+            LoadSession session = new LoadSession(options.host(), port, reactor, options.pool(), "load" + i, PASSWORD,
+                    options.timeoutMillis());
+            session.open();
+            sessions.add(session);
+        }
+    }
+
+    private long load(int seconds, LatencyReport report) {
+        return options.closedLoop() ? runClosedLoop(seconds, report) : generate(seconds, report);
+    }
+
+    /**
+     * Отправляет запросы в замкнутом цикле: {@code concurrency} потоков каждой сессии отправляют следующий запрос
+     * после ответа на предыдущий, пока не истечет указанное время.
+     *
+     * @param seconds длительность в секундах
+     * @param report  отчет для записи задержек
+     * @return время от начала до последнего ответа в наносекундах
+     */
+    private long runClosedLoop(int seconds, LatencyReport report) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        List<Thread> workers = new ArrayList<>();
+        for (LoadSession session : sessions) {
+            for (int i = 0; i < options.concurrency(); i++) {
+                Thread worker = new Thread(() -> {
+                    Random random = new Random();
+                    while (System.nanoTime() < deadline) {
+                        Operation operation = session.feasible(options.mix().next(random));
+                        long sent = System.nanoTime();
+                        try {
+                            Response response = session.execute(operation).get();
+                            report.recordResponse(operation, System.nanoTime() - sent, response.isSuccess());
+                        } catch (ExecutionException e) {
+                            report.recordError(operation);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }, "load-worker");
+                worker.setDaemon(true);
+                workers.add(worker);
+                worker.start();
+            }
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Отправляет запросы по расписанию в течение указанного времени и ждет ответов на все отправленные запросы.
+     *
+     * @param seconds длительность в секундах
+     * @param report  отчет для записи задержек
+     * @return время от начала расписания до последнего ответа в наносекундах
+     */
+    private long generate(int seconds, LatencyReport report) {
+        Random random = new Random();
+        long durationNanos = TimeUnit.SECONDS.toNanos(seconds);
+        double intervalNanos = 1e9 / options.rate();
+        long start = System.nanoTime();
+        for (long i = 0; ; i++) {
+            long offset = (long) (i * intervalNanos);
+            if (offset >= durationNanos) break;
+            long intendedStart = start + offset;
+            long delay = intendedStart - System.nanoTime();
+            if (delay > 0) LockSupport.parkNanos(delay);
+
+            LoadSession session = sessions.get((int) (i % sessions.size()));
+            Operation operation = session.feasible(options.mix().next(random));
+            inFlight.incrementAndGet();
+            session.execute(operation).whenComplete((response, error) -> {
+                if (error == null) {
+                    report.recordResponse(operation, System.nanoTime() - intendedStart, response.isSuccess());
+                } else {
+                    report.recordError(operation);
+                }
+                inFlight.decrementAndGet();
+            });
+        }
+        awaitResponses();
+        return System.nanoTime() - start;
+    }
+
+    private void awaitResponses() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.timeoutMillis() + 1000);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    private void writeHistogram(Histogram histogram) throws IOException {
+        try (PrintStream file = new PrintStream(options.histogramFile())) {
+            histogram.outputPercentileDistribution(file, 1000.0); // Значения в файле в миллисекундах
+        }
+    }
+
+    static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
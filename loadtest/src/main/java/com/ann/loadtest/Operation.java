@@ -0,0 +1,47 @@
+package com.ann.loadtest;
+
+/**
+ * Операции, из которых состоит нагрузка. Каждая операция соответствует одной команде сервера.
+ */
+public enum Operation {
+    LOGIN("login"),
+    SHOW("show"),
+    ADD("add"),
+    UPDATE("update"),
+    REMOVE_BY_ID("remove_by_id"),
+    SUM_OF_PRICE("sum_of_price");
+
+    private final String command;
+
+    Operation(String command) {
+        this.command = command;
+    }
+
+    /**
+     * @return имя команды сервера
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * @return {@code true}, если операции нужен ID продукта, добавленного сессией
+     */
+    public boolean needsOwnProduct() {
+        return this == UPDATE || this == REMOVE_BY_ID;
+    }
+
+    /**
+     * Находит операцию по имени команды.
+     *
+     * @param command имя команды
+     * @return операция
+     * @throws IllegalArgumentException если такой операции нет
+     */
+    public static Operation byCommand(String command) {
+        for (Operation operation : values()) {
+            if (operation.command.equals(command)) return operation;
+        }
+        throw new IllegalArgumentException("Неизвестная операция нагрузки: " + command);
+    }
+}
@@ -0,0 +1,78 @@
+package com.ann.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Соотношение операций в нагрузке, например {@code show=5,add=30,update=20,remove_by_id=15,sum_of_price=25,login=5}.
+ * Веса задаются целыми числами и не обязаны давать в сумме 100.
+ */
+public class OperationMix {
+    /**
+     * Соотношение операций по умолчанию: в основном изменения коллекции и дешевые агрегаты,
+     * изредка полный вывод коллекции.
+     */
+    public static final String DEFAULT = "login=5,show=5,add=30,update=20,remove_by_id=15,sum_of_price=25";
+
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    private OperationMix(Map<Operation, Integer> weights) {
+        operations = new Operation[weights.size()];
+        cumulativeWeights = new int[weights.size()];
+        int total = 0;
+        int i = 0;
+        for (Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+            total += entry.getValue();
+            operations[i] = entry.getKey();
+            cumulativeWeights[i++] = total;
+        }
+    }
+
+    /**
+     * Разбирает строку вида {@code операция=вес,...}.
+     *
+     * @param specification соотношение операций
+     * @return соотношение операций
+     * @throws IllegalArgumentException если строка записана неверно или сумма весов равна нулю
+     */
+    public static OperationMix parse(String specification) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : specification.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) throw new IllegalArgumentException("Ожидается операция=вес: " + part);
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) throw new IllegalArgumentException("Вес операции не может быть отрицательным: " + part);
+            if (weight > 0) weights.merge(Operation.byCommand(pair[0].trim()), weight, Integer::sum);
+        }
+        if (weights.isEmpty()) throw new IllegalArgumentException("Не задано ни одной операции с ненулевым весом");
+        return new OperationMix(weights);
+    }
+
+    /**
+     * Выбирает операцию случайно с учетом весов.
+     *
+     * @param random источник случайных чисел
+     * @return операция
+     */
+    public Operation next(Random random) {
+        int point = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (point < cumulativeWeights[i]) return operations[i];
+        }
+        return operations[operations.length - 1];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        int previous = 0;
+        for (int i = 0; i < operations.length; i++) {
+            if (i > 0) builder.append(',');
+            builder.append(operations[i].getCommand()).append('=').append(cumulativeWeights[i] - previous);
+            previous = cumulativeWeights[i];
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,44 @@
+package com.ann.loadtest;
+
+import com.general.io.Console;
+
+/**
+ * Консоль клиентов нагрузочного теста: сообщения о подключении не выводятся, ошибки выводятся в stderr.
+ */
+class QuietConsole implements Console {
+
+    @Override
+    public void print(Object obj) {
+    }
+
+    @Override
+    public void println(Object obj) {
+    }
+
+    @Override
+    public void printError(Object obj) {
+        System.err.println("Ошибка клиента: " + obj);
+    }
+
+    @Override
+    public void printTable(Object obj1, Object obj2) {
+    }
+
+    @Override
+    public void ps1() {
+    }
+
+    @Override
+    public void ps2() {
+    }
+
+    @Override
+    public String getPS1() {
+        return "";
+    }
+
+    @Override
+    public String getPS2() {
+        return "";
+    }
+}
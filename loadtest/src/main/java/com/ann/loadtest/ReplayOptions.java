@@ -0,0 +1,54 @@
+package com.ann.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Параметры воспроизведения записи трафика. Задаются аргументами вида {@code ключ=значение}
+ * (допускается префикс {@code --}):
+ * <ul>
+ *     <li>{@code file} — файл записи, сделанной командой {@code capture start|stop} консоли сервера (обязателен);</li>
+ *     <li>{@code speed} — во сколько раз быстрее записи отправлять запросы, например 1 или 10 (1);</li>
+ *     <li>{@code embedded} — запустить сервер с хранилищем в памяти внутри процесса (true);</li>
+ *     <li>{@code host}, {@code port} — адрес сервера; для встроенного сервера порт 0 означает любой свободный;</li>
+ *     <li>{@code preload} — количество продуктов во встроенном сервере до начала воспроизведения (1000);</li>
+ *     <li>{@code timeout} — время ожидания ответа в миллисекундах (10000).</li>
+ * </ul>
+ */
+record ReplayOptions(String file, double speed, boolean embedded, String host, int port, int preload,
+                     long timeoutMillis) {
+
+    private static final Set<String> KEYS = Set.of("file", "speed", "embedded", "host", "port", "preload", "timeout");
+
+    /**
+     * Разбирает аргументы командной строки.
+     *
+     * @param args аргументы вида {@code ключ=значение}
+     * @return параметры воспроизведения
+     * @throws IllegalArgumentException если аргумент записан неверно или значение недопустимо
+     */
+    static ReplayOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            String option = arg.startsWith("--") ? arg.substring(2) : arg;
+            int separator = option.indexOf('=');
+            if (separator <= 0) throw new IllegalArgumentException("Ожидается ключ=значение: " + arg);
+            String key = option.substring(0, separator);
+            if (!KEYS.contains(key)) throw new IllegalArgumentException("Неизвестный параметр: " + key);
+            values.put(key, option.substring(separator + 1));
+        }
+        boolean embedded = Boolean.parseBoolean(values.getOrDefault("embedded", "true"));
+        ReplayOptions options = new ReplayOptions(
+                values.get("file"),
+                Double.parseDouble(values.getOrDefault("speed", "1")),
+                embedded,
+                values.getOrDefault("host", "localhost"),
+                Integer.parseInt(values.getOrDefault("port", embedded ? "0" : "28358")),
+                Integer.parseInt(values.getOrDefault("preload", "1000")),
+                Long.parseLong(values.getOrDefault("timeout", "10000")));
+        if (options.file == null) throw new IllegalArgumentException("Не указан файл записи: file=<путь>");
+        if (options.speed <= 0) throw new IllegalArgumentException("Скорость воспроизведения должна быть положительной");
+        return options;
+    }
+}
@@ -0,0 +1,221 @@
+package com.ann.loadtest;
+
+import com.ann.server.capture.TrafficFile;
+import com.client.network.ClientReactor;
+import com.client.network.TCPClient;
+import com.general.network.Request;
+import com.general.network.Response;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Воспроизведение записи трафика сервера ({@link TrafficFile}) на тестовом сервере.
+ * <p>
+ * Запросы отправляются в записанном порядке и с записанными интервалами, деленными на {@code speed}:
+ * при {@code speed=10} та же нагрузка подается в десять раз плотнее. Каждому записанному соединению и
+ * пользователю соответствует свое подключение, поэтому порядок изменяющих запросов каждого клиента сохраняется.
+ * Пароли в запись не попадают: перед воспроизведением пользователи записи регистрируются на тестовом сервере
+ * с общим паролем. Задержка, как и в {@link LoadTest}, отсчитывается от запланированного момента отправки.
+ * <p>
+ * ID продуктов в запросах остаются записанными, поэтому {@code update} и {@code remove_by_id} выполняются так же,
+ * как на исходном сервере, только если тестовый сервер запущен с теми же данными; иначе они попадают в отказы.
+ * <pre>
+ * mvn -pl loadtest exec:java -Dexec.mainClass=com.ann.loadtest.TrafficReplay -Dexec.args="file=data/capture/traffic.bin.gz speed=10"
+ * </pre>
+ * Параметры описаны в {@link ReplayOptions}.
+ */
+public class TrafficReplay {
+    private static final String PASSWORD = "replay-password";
+
+    private final ReplayOptions options;
+    private final Map<Connection, TCPClient> clients = new LinkedHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> rejections = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final AtomicLong inFlight = new AtomicLong();
+
+    /**
+     * Подключение воспроизведения: записанное соединение и пользователь, от имени которого шли его запросы.
+     */
+    private record Connection(long session, String login) {
+    }
+
+    public TrafficReplay(ReplayOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) {
+        ReplayOptions options;
+        try {
+            options = ReplayOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+        int exitCode = 0;
+        try {
+            new TrafficReplay(options).run(System.out);
+        } catch (IOException e) {
+            System.err.println("Воспроизведение прервано: " + e.getMessage());
+            exitCode = 1;
+        }
+        System.exit(exitCode); // Потоки встроенного сервера не завершаются сами
+    }
+
+    /**
+     * Читает запись, запускает сервер (если нужно), открывает подключения, воспроизводит запросы и выводит отчет.
+     *
+     * @param out поток для отчета
+     * @throws IOException если запись не читается, сервер не запустился или подключения не открылись
+     */
+    public void run(PrintStream out) throws IOException {
+        List<TrafficFile.Entry> entries = read(Path.of(options.file()));
+        if (entries.isEmpty()) throw new IOException("Запись не содержит запросов");
+        long recordedNanos = entries.get(entries.size() - 1).offsetNanos();
+        EmbeddedServer server = null;
+        int port = options.port();
+        if (options.embedded()) {
+            if (port == 0) port = LoadTest.freePort();
+            server = new EmbeddedServer(port);
+            server.start(options.preload());
+        }
+        try {
+            openConnections(entries, port);
+            out.printf("Запись %s: %d запросов, %d подключений, %.1f с; скорость x%s%n", options.file(), entries.size(),
+                    clients.size(), recordedNanos / 1e9, options.speed());
+            long elapsedNanos = replay(entries);
+            print(out, elapsedNanos / 1e9);
+            if (server != null) out.printf("Конвейер сервера:%n%s%n", server.getPipeline());
+        } finally {
+            clients.values().forEach(TCPClient::disconnect);
+            if (server != null) server.stop();
+        }
+    }
+
+    private static List<TrafficFile.Entry> read(Path file) throws IOException {
+        List<TrafficFile.Entry> entries = new ArrayList<>();
+        try (TrafficFile.Reader reader = new TrafficFile.Reader(file)) {
+            for (TrafficFile.Entry entry = reader.next(); entry != null; entry = reader.next()) {
+                if (!"exit".equals(entry.request().getCommand())) entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Открывает подключения для всех пар соединение-пользователь записи; пользователи регистрируются и входят
+     * до начала воспроизведения, чтобы это не искажало задержки.
+     */
+    private void openConnections(List<TrafficFile.Entry> entries, int port) throws IOException {
+        ClientReactor reactor = ClientReactor.shared();
+        Map<String, Boolean> registered = new HashMap<>();
+        for (TrafficFile.Entry entry : entries) {
+            Connection connection = new Connection(entry.session(), entry.request().getLogin());
+            if (clients.containsKey(connection)) continue;
+            TCPClient client = new TCPClient(options.host(), port, new QuietConsole(), reactor);
+            clients.put(connection, client);
+            try {
+                if (!client.connect()) throw new IOException("Не удалось подключиться к серверу");
+                if (connection.login() == null) continue;
+                if (registered.putIfAbsent(connection.login(), true) == null) {
+                    client.sendAsync(credentials("register", connection.login()), options.timeoutMillis()).get();
+                }
+                Response response = client.sendAsync(credentials("login", connection.login()), options.timeoutMillis()).get();
+                if (!response.isSuccess()) throw new IOException("Вход " + connection.login() + " не выполнен: " + response.getMessage());
+            } catch (TimeoutException | ExecutionException e) {
+                throw new IOException("Подключение " + connection.login() + " не открыто: " + e.getMessage(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Открытие подключений прервано", e);
+            }
+        }
+    }
+
+    /**
+     * Отправляет запросы по расписанию записи и ждет ответов на все отправленные запросы.
+     *
+     * @return время от начала расписания до последнего ответа в наносекундах
+     */
+    private long replay(List<TrafficFile.Entry> entries) {
+        long start = System.nanoTime();
+        for (TrafficFile.Entry entry : entries) {
+            long intendedStart = start + (long) (entry.offsetNanos() / options.speed());
+            long delay = intendedStart - System.nanoTime();
+            if (delay > 0) LockSupport.parkNanos(delay);
+
+            Request request = entry.request();
+            String command = request.getCommand();
+            TCPClient client = clients.get(new Connection(entry.session(), request.getLogin()));
+            if (request.getLogin() != null) request.setPassword(PASSWORD);
+            inFlight.incrementAndGet();
+            client.sendAsync(request, options.timeoutMillis()).whenComplete((response, error) -> {
+                if (error == null) {
+                    histograms.computeIfAbsent(command, key -> new ConcurrentHistogram(3))
+                            .recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart)));
+                    if (!response.isSuccess()) counter(rejections, command).increment();
+                } else {
+                    counter(errors, command).increment();
+                }
+                inFlight.decrementAndGet();
+            });
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.timeoutMillis() + 1000);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void print(PrintStream out, double elapsedSeconds) {
+        LatencyReport.printHeader(out, "команда");
+        Histogram total = new Histogram(3);
+        long totalRejections = 0;
+        long totalErrors = 0;
+        Map<String, Histogram> sorted = new TreeMap<>(histograms);
+        errors.keySet().forEach(command -> sorted.putIfAbsent(command, new Histogram(3)));
+        for (Map.Entry<String, Histogram> row : sorted.entrySet()) {
+            long commandRejections = count(rejections, row.getKey());
+            long commandErrors = count(errors, row.getKey());
+            LatencyReport.printRow(out, row.getKey(), row.getValue(), commandRejections, commandErrors, elapsedSeconds);
+            total.add(row.getValue());
+            totalRejections += commandRejections;
+            totalErrors += commandErrors;
+        }
+        LatencyReport.printRow(out, "всего", total, totalRejections, totalErrors, elapsedSeconds);
+    }
+
+    private static LongAdder counter(Map<String, LongAdder> counters, String command) {
+        return counters.computeIfAbsent(command, key -> new LongAdder());
+    }
+
+    private static long count(Map<String, LongAdder> counters, String command) {
+        LongAdder counter = counters.get(command);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    private static Request credentials(String command, String login) {
+        Request request = new Request(command, null);
+        request.setLogin(Objects.requireNonNull(login));
+        request.setPassword(PASSWORD);
+        return request;
+    }
+}
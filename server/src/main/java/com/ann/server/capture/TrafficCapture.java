@@ -0,0 +1,174 @@
+package com.ann.server.capture;
+
+import com.ann.server.utility.ServerConfig;
+import com.general.network.FrameCodec;
+import com.general.network.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Запись входящих запросов в файл ({@link TrafficFile}) для воспроизведения инструментом {@code TrafficReplay}
+ * нагрузочного теста. Управляется командой {@code capture start|stop} консоли сервера.
+ * <p>
+ * Стадия декодирования только кладет тело кадра в ограниченную очередь ({@code capture.queue.capacity});
+ * удаление пароля, сериализацию и сжатие выполняет отдельный поток. Если поток записи не успевает,
+ * запросы не задерживаются, а пропускаются и подсчитываются.
+ */
+public final class TrafficCapture {
+    private static final Logger logger = LoggerFactory.getLogger("TrafficCapture");
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static volatile Writer writer;
+
+    private TrafficCapture() {
+    }
+
+    /**
+     * Начинает запись в новый файл в каталоге {@code capture.dir}, если запись еще не идет.
+     *
+     * @return сообщение о результате
+     * @throws IOException если файл не удалось создать
+     */
+    public static synchronized String start() throws IOException {
+        Path directory = ServerConfig.getPath("capture.dir", "data/capture");
+        Files.createDirectories(directory);
+        return start(directory.resolve("traffic-" + LocalDateTime.now().format(FILE_TIME) + ".bin.gz"));
+    }
+
+    /**
+     * Начинает запись в указанный файл, если запись еще не идет.
+     *
+     * @param file файл записи
+     * @return сообщение о результате
+     * @throws IOException если файл не удалось создать
+     */
+    public static synchronized String start(Path file) throws IOException {
+        if (writer != null) return "Запись трафика уже идет в " + writer.file;
+        writer = new Writer(file, ServerConfig.getInt("capture.queue.capacity", 8192));
+        return "Запись трафика начата в " + file;
+    }
+
+    /**
+     * Останавливает запись и дописывает накопленные запросы в файл.
+     *
+     * @return сообщение о результате
+     */
+    public static synchronized String stop() {
+        Writer current = writer;
+        if (current == null) return "Запись трафика не идет";
+        writer = null;
+        current.finish();
+        return String.format("Запись трафика остановлена: %s, записано %d, пропущено %d",
+                current.file, current.written, current.dropped.sum());
+    }
+
+    /**
+     * @return {@code true}, если запись идет
+     */
+    public static boolean isActive() {
+        return writer != null;
+    }
+
+    /**
+     * Добавляет полученный запрос в запись, если она идет. Не блокирует вызывающий поток.
+     *
+     * @param session      номер соединения
+     * @param receivedAt   время получения кадра по {@link System#nanoTime()}
+     * @param requestBytes тело кадра запроса
+     */
+    public static void record(long session, long receivedAt, byte[] requestBytes) {
+        Writer current = writer;
+        if (current != null) current.offer(session, receivedAt, requestBytes);
+    }
+
+    private record Pending(long session, long receivedAt, byte[] requestBytes) {
+    }
+
+    /**
+     * Поток записи: один на файл, завершается после остановки записи и опустошения очереди.
+     */
+    private static final class Writer implements Runnable {
+        private final Path file;
+        private final BlockingQueue<Pending> queue;
+        private final DataOutputStream out;
+        private final long startNanos = System.nanoTime();
+        private final LongAdder dropped = new LongAdder();
+        private final Thread thread;
+        private volatile boolean stopping;
+        private long written;
+
+        Writer(Path file, int capacity) throws IOException {
+            this.file = file;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(file))));
+            TrafficFile.writeHeader(out, System.currentTimeMillis());
+            thread = new Thread(this, "traffic-capture");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void offer(long session, long receivedAt, byte[] requestBytes) {
+            if (!queue.offer(new Pending(session, receivedAt, requestBytes))) dropped.increment();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!stopping || !queue.isEmpty()) {
+                    Pending pending = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (pending != null) write(pending);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                logger.error("Запись трафика прервана: {}", e.getMessage());
+            } finally {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    logger.error("Ошибка закрытия записи трафика: {}", e.getMessage());
+                }
+            }
+        }
+
+        void finish() {
+            stopping = true;
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void write(Pending pending) throws IOException {
+            Request request;
+            try {
+                request = (Request) FrameCodec.decode(pending.requestBytes());
+            } catch (ClassNotFoundException | ClassCastException | IOException e) {
+                dropped.increment(); // Недействительный запрос сервер тоже отклоняет
+                return;
+            }
+            request.setPassword(null);
+            ByteArrayOutputStream body = new ByteArrayOutputStream(pending.requestBytes().length);
+            try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(body)) {
+                objectOutputStream.writeObject(request);
+            }
+            TrafficFile.writeEntry(out, Math.max(0, pending.receivedAt() - startNanos), pending.session(), body.toByteArray());
+            written++;
+        }
+    }
+}
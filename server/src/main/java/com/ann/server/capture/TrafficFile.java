@@ -0,0 +1,115 @@
+package com.ann.server.capture;
+
+import com.general.network.FrameCodec;
+import com.general.network.Request;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Формат файла записи трафика, сжатого gzip.
+ * <p>
+ * Заголовок: сигнатура {@code ANNT} (4 байта), версия формата (4 байта) и время начала записи в миллисекундах
+ * от эпохи (8 байт). Затем записи запросов в порядке получения: смещение от начала записи в наносекундах (8 байт),
+ * номер соединения (8 байт), длина тела (4 байта) и тело — запрос, сериализованный так же, как в кадре
+ * {@link FrameCodec}, но без пароля.
+ */
+public final class TrafficFile {
+    static final int MAGIC = 0x414E4E54;
+    static final int VERSION = 1;
+
+    private TrafficFile() {
+    }
+
+    /**
+     * Записанный запрос.
+     *
+     * @param offsetNanos время получения запроса от начала записи в наносекундах
+     * @param session     номер соединения, по которому пришел запрос
+     * @param request     запрос без пароля
+     */
+    public record Entry(long offsetNanos, long session, Request request) {
+    }
+
+    static void writeHeader(DataOutputStream out, long startEpochMillis) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(startEpochMillis);
+    }
+
+    static void writeEntry(DataOutputStream out, long offsetNanos, long session, byte[] body) throws IOException {
+        out.writeLong(offsetNanos);
+        out.writeLong(session);
+        out.writeInt(body.length);
+        out.write(body);
+    }
+
+    /**
+     * Последовательное чтение файла записи.
+     */
+    public static final class Reader implements Closeable {
+        private final DataInputStream in;
+        private final long startEpochMillis;
+
+        /**
+         * @param file файл записи
+         * @throws IOException если файл не читается или не является записью трафика
+         */
+        public Reader(Path file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))));
+            try {
+                if (in.readInt() != MAGIC) throw new IOException("Файл не является записью трафика: " + file);
+                int version = in.readInt();
+                if (version != VERSION) throw new IOException("Неподдерживаемая версия записи трафика: " + version);
+                startEpochMillis = in.readLong();
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        /**
+         * @return время начала записи в миллисекундах от эпохи
+         */
+        public long getStartEpochMillis() {
+            return startEpochMillis;
+        }
+
+        /**
+         * Читает следующую запись.
+         *
+         * @return запись или {@code null}, если записи закончились
+         * @throws IOException если файл поврежден
+         */
+        public Entry next() throws IOException {
+            long offsetNanos;
+            try {
+                offsetNanos = in.readLong();
+            } catch (EOFException e) {
+                return null;
+            }
+            long session = in.readLong();
+            int length = in.readInt();
+            if (length < 0 || length > FrameCodec.MAX_FRAME_SIZE) throw new IOException("Некорректная длина записи: " + length);
+            byte[] body = new byte[length];
+            in.readFully(body);
+            try {
+                return new Entry(offsetNanos, session, (Request) FrameCodec.decode(body));
+            } catch (ClassNotFoundException | ClassCastException e) {
+                throw new IOException("Запись не содержит запрос: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
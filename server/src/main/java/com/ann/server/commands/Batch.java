@@ -0,0 +1,94 @@
+package com.ann.server.commands;
+
+import com.general.command.Command;
+import com.general.exceptions.WrongAmountOfElementsException;
+import com.general.managers.CollectionManager;
+import com.general.managers.CommandManager;
+import com.general.network.BatchResult;
+import com.general.network.Request;
+import com.general.network.Response;
+import com.ann.server.utility.ServerConfig;
+
+import java.io.Serial;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Команда 'batch'. Выполняет список команд по порядку как одно целое: под одной блокировкой коллекции
+ * и в одной транзакции базы данных. Если одна из команд завершается ошибкой, изменения всех команд пакета отменяются.
+ * Данные запроса — список {@link Request} (см. {@link Request#batch(List)}), ответ содержит {@link BatchResult}.
+ */
+public class Batch extends Command {
+    private static final Set<String> NOT_BATCHABLE = Set.of("batch", "login", "register", "exit", "execute_script");
+    private static final int MAX_SIZE = ServerConfig.getInt("batch.max.size", 10000);
+
+    private final CollectionManager<?> collectionManager;
+    private final CommandManager commandManager;
+
+    public Batch(CollectionManager<?> collectionManager, CommandManager commandManager) {
+        super("batch {commands}", "выполнить список команд как одно целое");
+        this.collectionManager = collectionManager;
+        this.commandManager = commandManager;
+    }
+
+    /**
+     * Выполняет команду
+     *
+     * @return Response с результатом выполнения команды.
+     */
+    @Override
+    public Response execute(Request request) {
+        try {
+            if (!(request.getData() instanceof List<?> commands) || commands.isEmpty()) {
+                throw new WrongAmountOfElementsException();
+            }
+            if (commands.size() > MAX_SIZE) {
+                return new Response(false, "Слишком много команд в пакете, максимум: " + MAX_SIZE);
+            }
+            for (int i = 0; i < commands.size(); i++) {
+                if (!(commands.get(i) instanceof Request command) || NOT_BATCHABLE.contains(command.getCommand())) {
+                    return new Response(false, "Команда " + (i + 1) + " не может быть выполнена в пакете");
+                }
+            }
+
+            BatchResult result = new BatchResult(commands.size());
+            try {
+                collectionManager.atomically(() -> {
+                    for (int i = 0; i < commands.size(); i++) {
+                        Request command = (Request) commands.get(i);
+                        command.setLogin(request.getLogin());
+                        command.setUserId(request.getUserId());
+                        Response response = commandManager.handle(command);
+                        if (!response.isSuccess()) throw new BatchAbortedException(i, response.getMessage());
+                        result.applied(i, response.getData() instanceof Long id ? id : 0);
+                    }
+                    return null;
+                });
+            } catch (BatchAbortedException exception) {
+                result.failed(exception.index);
+                return new Response(false, "Пакет отменен, команда " + (exception.index + 1) + ": "
+                        + exception.getMessage(), result);
+            } catch (RuntimeException exception) {
+                result.rolledBack();
+                return new Response(false, "Пакет отменен: " + exception.getMessage(), result);
+            }
+            return new Response(true, "Пакет выполнен.", result);
+        } catch (WrongAmountOfElementsException exception) {
+            return new Response(false, "Неправильное количество аргументов! Правильное использование: '" + getName() + "'");
+        }
+    }
+
+    /**
+     * Прерывает пакет при ошибке команды; исключение в действии пакета откатывает его изменения.
+     */
+    private static class BatchAbortedException extends RuntimeException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private final int index;
+
+        private BatchAbortedException(int index, String message) {
+            super(message, null, false, false);
+            this.index = index;
+        }
+    }
+}
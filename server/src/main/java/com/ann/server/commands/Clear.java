@@ -31,6 +31,8 @@ public class Clear extends Command {
 
         } catch (WrongAmountOfElementsException exception) {
             return new Response(false, "Неправильное количество аргументов! Правильное использование: '" + getName() + "'");
+        } catch (IllegalStateException exception) {
+            return new Response(false, exception.getMessage());
         }
     }
 }
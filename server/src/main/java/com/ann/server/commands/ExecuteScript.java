@@ -0,0 +1,214 @@
+package com.ann.server.commands;
+
+import com.general.command.Command;
+import com.general.exceptions.IncorrectInputInScriptException;
+import com.general.exceptions.ScriptRecursionException;
+import com.general.exceptions.WrongAmountOfElementsException;
+import com.general.managers.CollectionManager;
+import com.general.managers.CommandManager;
+import com.general.models.Product;
+import com.general.network.Request;
+import com.general.network.Response;
+import com.general.network.ScriptBundle;
+import com.general.query.NearQuery;
+import com.general.query.ProductFilter;
+import com.general.query.WithinQuery;
+import com.ann.server.utility.ServerConfig;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+
+/**
+ * Команда 'execute_script'. Выполняет на сервере скрипт, присланный клиентом вместе со всеми вызываемыми
+ * им скриптами ({@link ScriptBundle}), за один запрос. Строки скрипта разбираются так же, как в клиенте,
+ * и выполняются через {@link CommandManager} от имени пользователя запроса. Вывод всех команд
+ * возвращается одним ответом.
+ * <p>
+ * Сортировки коллекции, которые запрашивают команды скрипта, откладываются до его конца
+ * ({@link CollectionManager#withSortDeferred}): коллекция сортируется один раз, а не после каждого добавления.
+ */
+public class ExecuteScript extends Command {
+    private static final Set<String> PRODUCT_COMMANDS = Set.of("add", "add_if_min", "remove_greater", "remove_lower");
+    private static final int OUTPUT_LIMIT = ServerConfig.getInt("script.output.limit", 1 << 20);
+
+    private final CollectionManager<?> collectionManager;
+    private final CommandManager commandManager;
+
+    /**
+     * Результат выполнения строки или скрипта.
+     */
+    private enum Status {
+        OK,    // Продолжить выполнение
+        ERROR, // Остановить скрипт из-за ошибки
+        EXIT   // Остановить скрипт командой exit
+    }
+
+    public ExecuteScript(CollectionManager<?> collectionManager, CommandManager commandManager) {
+        super("execute_script <file_name>", "исполнить скрипт из указанного файла");
+        this.collectionManager = collectionManager;
+        this.commandManager = commandManager;
+    }
+
+    /**
+     * Выполняет команду
+     *
+     * @return Response с выводом всех команд скрипта.
+     */
+    @Override
+    public Response execute(Request request) {
+        try {
+            if (!(request.getData() instanceof ScriptBundle bundle)) throw new WrongAmountOfElementsException();
+            Output output = new Output();
+            Status status = collectionManager.withSortDeferred(() -> {
+                try {
+                    return run(bundle, bundle.getMain(), new ArrayDeque<>(), request, output);
+                } catch (ScriptRecursionException exception) {
+                    output.append("Скрипты не могут вызываться рекурсивно!");
+                    return Status.ERROR;
+                }
+            });
+            if (status == Status.ERROR) output.append("Проверьте скрипт на корректность введенных данных!");
+            return new Response(status != Status.ERROR, output.toString());
+        } catch (WrongAmountOfElementsException exception) {
+            return new Response(false, "Неправильное количество аргументов! Правильное использование: '" + getName() + "'");
+        }
+    }
+
+    /**
+     * Выполняет скрипт из набора.
+     *
+     * @param bundle  набор скриптов
+     * @param name    имя скрипта
+     * @param stack   имена выполняемых скриптов для обнаружения рекурсии
+     * @param request запрос, от имени пользователя которого выполняется скрипт
+     * @param output  вывод скрипта
+     * @return результат выполнения
+     * @throws ScriptRecursionException если скрипт вызывает сам себя
+     */
+    private Status run(ScriptBundle bundle, String name, Deque<String> stack, Request request, Output output)
+            throws ScriptRecursionException {
+        String content = bundle.get(name);
+        if (content == null) {
+            output.append("Файл со скриптом не найден: " + name);
+            return Status.ERROR;
+        }
+        ScriptReader reader = new ScriptReader(content);
+        String line = reader.nextCommand();
+        if (line == null) {
+            output.append("Файл со скриптом пуст!");
+            return Status.ERROR;
+        }
+        stack.push(name);
+        try {
+            for (; line != null; line = reader.nextCommand()) {
+                String[] userCommand = (line + " ").split(" ", 2);
+                userCommand[1] = userCommand[1].trim();
+                output.append("> " + line);
+                if (userCommand[0].equals("execute_script") && stack.contains(userCommand[1])) {
+                    throw new ScriptRecursionException();
+                }
+                Status status = executeLine(userCommand, reader, bundle, stack, request, output);
+                if (status != Status.OK) return status;
+            }
+            return Status.OK;
+        } finally {
+            stack.pop();
+        }
+    }
+
+    private Status executeLine(String[] userCommand, ScriptReader reader, ScriptBundle bundle, Deque<String> stack,
+                               Request request, Output output) throws ScriptRecursionException {
+        try {
+            switch (userCommand[0]) {
+                case "exit" -> {
+                    return Status.EXIT;
+                }
+                case "execute_script" -> {
+                    return run(bundle, userCommand[1], stack, request, output);
+                }
+                case "login", "register" -> {
+                    output.append("Вход и регистрация недоступны в скрипте, выполните их до запуска скрипта");
+                    return Status.ERROR;
+                }
+                case "history" -> {
+                    output.append("История команд доступна только в интерактивном режиме");
+                    return Status.OK;
+                }
+                case "update" -> {
+                    long id = Long.parseLong(userCommand[1]);
+                    Product product = reader.readProduct();
+                    product.setId(id);
+                    return handle(new Request(userCommand[0], product), request, output);
+                }
+                case "remove_by_id" -> {
+                    return handle(new Request(userCommand[0], Long.parseLong(userCommand[1])), request, output);
+                }
+                case "filter" -> {
+                    if (userCommand[1].isEmpty()) throw new WrongAmountOfElementsException();
+                    return handle(new Request(userCommand[0], ProductFilter.parse(userCommand[1])), request, output);
+                }
+                case "near" -> {
+                    return handle(new Request(userCommand[0], NearQuery.parse(userCommand[1])), request, output);
+                }
+                case "within" -> {
+                    return handle(new Request(userCommand[0], WithinQuery.parse(userCommand[1])), request, output);
+                }
+                default -> {
+                    if (PRODUCT_COMMANDS.contains(userCommand[0])) {
+                        if (!userCommand[1].isEmpty()) throw new WrongAmountOfElementsException();
+                        return handle(new Request(userCommand[0], reader.readProduct()), request, output);
+                    }
+                    Request command = new Request(userCommand[0], userCommand[1].isEmpty() ? null : userCommand);
+                    return handle(command, request, output);
+                }
+            }
+        } catch (WrongAmountOfElementsException | NumberFormatException exception) {
+            output.append("Неправильное количество аргументов!");
+            return Status.OK;
+        } catch (IllegalArgumentException exception) {
+            output.append(exception.getMessage());
+            return Status.OK;
+        } catch (IncorrectInputInScriptException exception) {
+            output.append(exception.getMessage());
+            return Status.ERROR;
+        }
+    }
+
+    /**
+     * Выполняет команду скрипта от имени пользователя запроса и добавляет ответ в вывод.
+     *
+     * @return {@link Status#OK}, если команда выполнена успешно, иначе {@link Status#ERROR}
+     */
+    private Status handle(Request command, Request request, Output output) {
+        command.setLogin(request.getLogin());
+        command.setUserId(request.getUserId());
+        Response response = commandManager.handle(command);
+        output.append(response.toString());
+        return response.isSuccess() ? Status.OK : Status.ERROR;
+    }
+
+    /**
+     * Вывод скрипта, ограниченный {@code script.output.limit} символами; остаток вывода отбрасывается.
+     */
+    private static class Output {
+        private final StringBuilder text = new StringBuilder();
+        private boolean truncated;
+
+        void append(String line) {
+            if (truncated) return;
+            if (text.length() + line.length() + 1 > OUTPUT_LIMIT) {
+                truncated = true;
+                text.append("\n... вывод сокращен до ").append(OUTPUT_LIMIT).append(" символов");
+                return;
+            }
+            if (!text.isEmpty()) text.append('\n');
+            text.append(line);
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.ann.server.commands;
+
+import com.general.command.Command;
+import com.general.managers.CollectionIndex;
+import com.general.managers.CollectionManager;
+import com.general.models.Product;
+import com.general.network.Request;
+import com.general.network.Response;
+import com.general.query.ProductField;
+import com.general.query.ProductFilter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Команда 'filter'. Выводит по страницам продукты, удовлетворяющие всем условиям {@link ProductFilter}.
+ * <p>
+ * Перед выполнением выбирается план: если по полю одного из условий есть индекс коллекции, кандидаты берутся
+ * из индекса — по равенству из любого индекса, по диапазону ({@code < <= > >=}) из упорядоченного. Из подходящих
+ * индексов выбирается тот, что дает меньше кандидатов. Без подходящего индекса коллекция просматривается
+ * параллельно. Остальные условия проверяются для каждого кандидата.
+ */
+public class Filter extends Command {
+    private final CollectionManager<Product> collectionManager;
+
+    /**
+     * План выполнения запроса.
+     *
+     * @param description описание плана для ответа
+     * @param candidates  источник продуктов, среди которых ищутся подходящие
+     */
+    record Plan(String description, Supplier<Stream<Product>> candidates) {
+    }
+
+    /**
+     * Границы диапазона по одному полю, собранные из всех его условий.
+     */
+    private static final class Bounds {
+        private Comparable<Object> from;
+        private boolean fromInclusive;
+        private Comparable<Object> to;
+        private boolean toInclusive;
+
+        /**
+         * @return {@code true}, если нижняя граница лежит выше верхней и в диапазон ничего не попадает
+         */
+        private boolean isEmpty() {
+            if (from == null || to == null) return false;
+            int comparison = from.compareTo(to);
+            return comparison > 0 || comparison == 0 && !(fromInclusive && toInclusive);
+        }
+    }
+
+    public Filter(CollectionManager<Product> collectionManager) {
+        super("filter <условия> [page=N] [size=N]", "вывести элементы, удовлетворяющие условиям, по страницам");
+        this.collectionManager = collectionManager;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    /**
+     * Выполняет команду
+     *
+     * @return Response с результатом выполнения команды.
+     */
+    @Override
+    public Response execute(Request request) {
+        if (!(request.getData() instanceof ProductFilter filter)) {
+            return new Response(false, "Не указаны условия! Правильное использование: '" + getName()
+                    + "', например: filter price>100 unit=GRAMS org=\"Coca Cola\"");
+        }
+
+        Plan plan = plan(filter);
+        List<Product> found = plan.candidates().get()
+                .filter(filter::test)
+                .sorted(Comparator.comparingLong(Product::getId))
+                .toList();
+        if (found.isEmpty()) {
+            return new Response(true, "Ничего не найдено по условиям: " + filter + " (план: " + plan.description() + ")");
+        }
+
+        int pages = (found.size() + filter.getPageSize() - 1) / filter.getPageSize();
+        int from = (filter.getPage() - 1) * filter.getPageSize();
+        String header = "Найдено: " + found.size() + ", страница " + filter.getPage() + " из " + pages
+                + ", план: " + plan.description();
+        if (from >= found.size()) {
+            return new Response(false, header + ". Страницы с таким номером нет.");
+        }
+        try {
+            List<Product> page = found.subList(from, Math.min(from + filter.getPageSize(), found.size()));
+            return new Response(true, header + "\n" + Show.formatTable(page));
+        } catch (IllegalAccessException e) {
+            return new Response(false, "Ошибка доступа к полям объектов.");
+        }
+    }
+
+    /**
+     * Выбирает способ получения кандидатов для запроса.
+     *
+     * @param filter запрос
+     * @return план с наименьшим числом кандидатов среди доступных индексов или параллельный просмотр
+     */
+    @SuppressWarnings("unchecked")
+    Plan plan(ProductFilter filter) {
+        Plan best = null;
+        long bestCost = Long.MAX_VALUE;
+
+        Map<ProductField, Bounds> ranges = new EnumMap<>(ProductField.class);
+        for (ProductFilter.Condition condition : filter.getConditions()) {
+            CollectionIndex<Product, Object> index = collectionManager.getIndex(condition.field().getProperty());
+            if (index == null) continue;
+            Comparable<Object> value = (Comparable<Object>) condition.value();
+            switch (condition.operator()) {
+                case EQUAL -> {
+                    int cost = index.count(value);
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        best = new Plan("индекс " + index.getName() + " (равенство)", () -> index.equalTo(value));
+                    }
+                }
+                case LESS, LESS_OR_EQUAL, GREATER, GREATER_OR_EQUAL -> {
+                    if (index.getKind() == CollectionIndex.Kind.ORDERED) {
+                        narrow(ranges.computeIfAbsent(condition.field(), field -> new Bounds()), condition);
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        for (Map.Entry<ProductField, Bounds> range : ranges.entrySet()) {
+            CollectionIndex<Product, Object> index = collectionManager.getIndex(range.getKey().getProperty());
+            Bounds bounds = range.getValue();
+            if (bounds.isEmpty()) return new Plan("индекс " + index.getName() + " (пустой диапазон)", Stream::empty);
+            Supplier<Stream<Product>> candidates = () -> index.range(bounds.from, bounds.fromInclusive, bounds.to, bounds.toInclusive);
+            // Диапазон считается только до стоимости лучшего плана, чтобы оценка не стоила дороже самого запроса
+            long cost = candidates.get().limit(bestCost).count();
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = new Plan("индекс " + index.getName() + " (диапазон)", candidates);
+            }
+        }
+
+        if (best != null) return best;
+        return new Plan("полный просмотр", () -> new ArrayList<>(collectionManager.getCollection()).parallelStream());
+    }
+
+    /**
+     * Сужает границы диапазона условием: из нескольких нижних границ остается наибольшая, из верхних — наименьшая.
+     */
+    @SuppressWarnings("unchecked")
+    private static void narrow(Bounds bounds, ProductFilter.Condition condition) {
+        Comparable<Object> value = (Comparable<Object>) condition.value();
+        switch (condition.operator()) {
+            case GREATER, GREATER_OR_EQUAL -> {
+                boolean inclusive = condition.operator() == ProductFilter.Operator.GREATER_OR_EQUAL;
+                int comparison = bounds.from == null ? 1 : value.compareTo(bounds.from);
+                if (comparison > 0 || comparison == 0 && !inclusive) {
+                    bounds.from = value;
+                    bounds.fromInclusive = inclusive;
+                }
+            }
+            case LESS, LESS_OR_EQUAL -> {
+                boolean inclusive = condition.operator() == ProductFilter.Operator.LESS_OR_EQUAL;
+                int comparison = bounds.to == null ? -1 : value.compareTo(bounds.to);
+                if (comparison < 0 || comparison == 0 && !inclusive) {
+                    bounds.to = value;
+                    bounds.toInclusive = inclusive;
+                }
+            }
+            default -> {
+            }
+        }
+    }
+}
@@ -16,6 +16,11 @@ public class Help extends Command {
         this.commandManager = commandManager;
     }
 
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
     /**
      * Выполняет команду
      * @return Response с результатом выполнения команды.
@@ -2,8 +2,11 @@ package com.ann.server.commands;
 
 import com.general.command.Command;
 import com.general.managers.CollectionManager;
+import com.general.models.Organization;
 import com.general.network.Request;
 import com.general.network.Response;
+import com.general.utility.InternPool;
+import com.ann.server.storage.TieredProductCollection;
 
 import java.time.LocalDateTime;
 
@@ -18,6 +21,11 @@ public class Info extends Command {
         this.collectionManager = collectionManager;
     }
 
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
     /**
      * Выполняет команду
      * @return Response с результатом выполнения команды.
@@ -41,13 +49,24 @@ public class Info extends Command {
                         " Тип: %s\n" +
                         " Количество элементов: %d\n" +
                         " Дата последнего сохранения: %s\n" +
-                        " Дата последней инициализации: %s",
+                        " Дата последней инициализации: %s\n" +
+                        " Интернирование: %s; %s",
                 collectionManager.collectionType(),
                 collectionManager.collectionSize(),
                 lastSaveTimeString,
-                lastInitTimeString
+                lastInitTimeString,
+                Organization.pool(),
+                InternPool.STRINGS
         );
 
+        if (request.getLogin() != null) {
+            infoMessage += "\n Ваших элементов: " + collectionManager.countOwnedBy(request.getLogin());
+        }
+
+        if (collectionManager.getCollection() instanceof TieredProductCollection tiers) {
+            infoMessage += "\n Кэш продуктов: " + tiers.getCache();
+        }
+
         return new Response(true, infoMessage);
     }
 }
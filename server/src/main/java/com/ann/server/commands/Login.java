@@ -7,14 +7,18 @@ import com.general.models.User;
 import com.general.models.base.Element;
 import com.general.network.Request;
 import com.general.network.Response;
-import com.ann.server.data.UserDAO;
-import com.ann.server.managers.DatabaseManager;
+import com.ann.server.data.UserStorage;
 
 public class Login extends Command {
-    private UserDAO userDAO;
-    public Login(UserDAO userDAO) {
+    private UserStorage userStorage;
+    public Login(UserStorage userStorage) {
         super("login <login> <password>", "для входа в систему");
-        this.userDAO = userDAO;
+        this.userStorage = userStorage;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
     }
 
     /**
@@ -27,11 +31,11 @@ public class Login extends Command {
             String username = request.getLogin();
             String password = request.getPassword();
 
-            if (!userDAO.verifyUserPassword(username, password)) {
+            if (!userStorage.verifyUserPassword(username, password)) {
                 return new Response(false, "Invalid username or password", null);
             }
 
-            User user = userDAO.getUserByUsername(DatabaseManager.getConnection(), username);
+            User user = userStorage.getUserByUsername(username);
 
             if (user == null) {
                 return new Response(false, "User not found", null);
@@ -0,0 +1,71 @@
+package com.ann.server.commands;
+
+import com.general.command.Command;
+import com.general.managers.CollectionIndex;
+import com.general.managers.CollectionManager;
+import com.general.models.Product;
+import com.general.network.Request;
+import com.general.network.Response;
+import com.general.query.NearQuery;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Команда 'near'. Выводит продукты, ближайшие к точке, в порядке возрастания расстояния.
+ * Использует индекс координат коллекции, если он построен, иначе просматривает коллекцию.
+ */
+public class Near extends Command {
+    private final CollectionManager<Product> collectionManager;
+
+    public Near(CollectionManager<Product> collectionManager) {
+        super("near <x> <y> <k>", "вывести k элементов, ближайших к точке (x, y)");
+        this.collectionManager = collectionManager;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    /**
+     * Выполняет команду
+     *
+     * @return Response с результатом выполнения команды.
+     */
+    @Override
+    public Response execute(Request request) {
+        if (!(request.getData() instanceof NearQuery query)) {
+            return new Response(false, "Неправильное количество аргументов! Правильное использование: '" + getName() + "'");
+        }
+
+        List<Product> found;
+        String plan;
+        if (collectionManager.<CollectionIndex.Point>getIndex("coordinates") instanceof CollectionIndex.Spatial<Product> index) {
+            found = index.nearest(query.x(), query.y(), query.k());
+            plan = "индекс " + index.getName();
+        } else {
+            CollectionIndex.Point target = new CollectionIndex.Point(query.x(), query.y());
+            found = new ArrayList<>(collectionManager.getCollection()).parallelStream()
+                    .sorted(Comparator.<Product>comparingDouble(product -> distanceSquared(product, target))
+                            .thenComparing(Product::getId))
+                    .limit(query.k())
+                    .toList();
+            plan = "полный просмотр";
+        }
+        if (found.isEmpty()) return new Response(true, "Коллекция пуста.");
+
+        try {
+            return new Response(true, "Ближайшие к (" + query.x() + ", " + query.y() + "): " + found.size()
+                    + ", план: " + plan + "\n" + Show.formatTable(found));
+        } catch (IllegalAccessException e) {
+            return new Response(false, "Ошибка доступа к полям объектов.");
+        }
+    }
+
+    private static double distanceSquared(Product product, CollectionIndex.Point target) {
+        if (product.getCoordinates() == null) return Double.POSITIVE_INFINITY;
+        return new CollectionIndex.Point(product.getCoordinates().getX(), product.getCoordinates().getY()).distanceSquared(target);
+    }
+}
@@ -0,0 +1,29 @@
+package com.ann.server.commands;
+
+import com.general.command.Command;
+import com.general.network.Request;
+import com.general.network.Response;
+
+/**
+ * Команда 'ping'. Проверяет, что сервер отвечает; используется пулом соединений клиента.
+ */
+public class Ping extends Command {
+
+    public Ping() {
+        super("ping", "проверить соединение с сервером");
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    /**
+     * Выполняет команду
+     * @return Response с результатом выполнения команды.
+     */
+    @Override
+    public Response execute(Request request) {
+        return new Response(true, "pong");
+    }
+}
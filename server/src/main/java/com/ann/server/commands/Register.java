@@ -8,8 +8,7 @@ import com.general.models.User;
 import com.general.models.base.Element;
 import com.general.network.Request;
 import com.general.network.Response;
-import com.ann.server.data.UserDAO;
-import com.ann.server.managers.DatabaseManager;
+import com.ann.server.data.UserStorage;
 import com.ann.server.utility.PasswordHashing;
 
 import javax.management.InstanceAlreadyExistsException;
@@ -18,11 +17,11 @@ import java.time.LocalDateTime;
 public class Register extends Command {
     public static final int MIN_PASSWORD_LENGTH = 8;
     private static final int MAX_USERNAME_LENGTH = 50;
-    private UserDAO userDAO;
+    private UserStorage userStorage;
 
-    public Register(UserDAO userDAO) {
+    public Register(UserStorage userStorage) {
         super("register <login> <password>", "команда регистрации в системе");
-        this.userDAO = userDAO;
+        this.userStorage = userStorage;
     }
 
     /**
@@ -45,7 +44,7 @@ public class Register extends Command {
                     cryptoData[0],
                     cryptoData[1],
                     LocalDateTime.now());
-            var id = userDAO.insertUser(DatabaseManager.getConnection(), user);
+            int id = userStorage.insertUser(user);
 
             if (id < 0) throw new InstanceAlreadyExistsException("User already exists");
 
@@ -41,10 +41,8 @@ public class RemoveById<T extends Element & Comparable<T>> extends Command {
                 throw new CollectionIsEmptyException();
             }
 
-            // Ищем элемент по ID с использованием Stream API
-            Optional<T> elementToRemove = collectionManager.getCollection().stream()
-                    .filter(element -> element.getId().equals(id))
-                    .findFirst();
+            // Ищем элемент по ID; коллекция продуктов находит его по индексу без просмотра
+            Optional<T> elementToRemove = Optional.ofNullable(collectionManager.getById(id));
 
             if (elementToRemove.isEmpty()) {
                 throw new NotFoundException();
@@ -0,0 +1,144 @@
+package com.ann.server.commands;
+
+import com.general.exceptions.IncorrectInputInScriptException;
+import com.general.models.Coordinates;
+import com.general.models.Organization;
+import com.general.models.Product;
+import com.general.models.UnitOfMeasure;
+
+/**
+ * Построчное чтение скрипта на сервере. Поля продукта читаются в том же порядке и по тем же правилам,
+ * что и формы клиента в режиме скрипта: название, координаты X и Y, цена, единица измерения,
+ * название и год основания организации. Пустые строки вместо названий, координат и цены пропускаются.
+ */
+class ScriptReader {
+    private final String content;
+    private int position;
+    private int lineNumber;
+
+    ScriptReader(String content) {
+        this.content = content;
+    }
+
+    /**
+     * @return номер последней прочитанной строки
+     */
+    int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return следующая строка без начальных и конечных пробелов или {@code null}, если скрипт закончился
+     */
+    String nextLine() {
+        if (position >= content.length()) return null;
+        int end = content.indexOf('\n', position);
+        if (end < 0) end = content.length();
+        String line = content.substring(position, end).trim();
+        position = end + 1;
+        lineNumber++;
+        return line;
+    }
+
+    /**
+     * @return следующая непустая строка или {@code null}, если скрипт закончился
+     */
+    String nextCommand() {
+        String line;
+        do {
+            line = nextLine();
+        } while (line != null && line.isEmpty());
+        return line;
+    }
+
+    /**
+     * Читает поля продукта из следующих строк скрипта.
+     *
+     * @return продукт с ID -1
+     * @throws IncorrectInputInScriptException если скрипт закончился или поле не может быть разобрано
+     */
+    Product readProduct() throws IncorrectInputInScriptException {
+        String name = nextNonEmpty("название продукта");
+        Coordinates coordinates = new Coordinates(readX(), readY());
+        int price = readPrice();
+        UnitOfMeasure unitOfMeasure = readUnitOfMeasure();
+        Organization organization = Organization.intern(new Organization(readOrganizationName(), readYear()));
+        Product product = new Product(-1, name, coordinates, price, unitOfMeasure, organization);
+        if (!product.validate()) throw error("поля продукта не валидны");
+        return product;
+    }
+
+    private long readX() throws IncorrectInputInScriptException {
+        String input = nextNonEmpty("координата X");
+        try {
+            return Long.parseLong(input);
+        } catch (NumberFormatException exception) {
+            throw error("координата X должна быть представлена числом в Long");
+        }
+    }
+
+    private float readY() throws IncorrectInputInScriptException {
+        while (true) {
+            String input = nextNonEmpty("координата Y");
+            try {
+                float y = Float.parseFloat(input);
+                if (y > -519 && y < Float.MAX_VALUE) return y;
+            } catch (NumberFormatException exception) {
+                throw error("координата Y должна быть представлена числом");
+            }
+        }
+    }
+
+    private int readPrice() throws IncorrectInputInScriptException {
+        while (true) {
+            String input = nextLine();
+            if (input == null) throw error("скрипт закончился, ожидается цена продукта");
+            try {
+                int price = Integer.parseInt(input);
+                if (price > 0 && price < Integer.MAX_VALUE) return price;
+            } catch (NumberFormatException ignored) {
+                // Как и форма клиента, некорректная цена пропускается и читается следующая строка
+            }
+        }
+    }
+
+    private UnitOfMeasure readUnitOfMeasure() throws IncorrectInputInScriptException {
+        String input = nextLine();
+        if (input == null) throw error("скрипт закончился, ожидается единица измерения");
+        try {
+            return UnitOfMeasure.valueOf(input.toUpperCase());
+        } catch (IllegalArgumentException exception) {
+            throw error("единицы измерения '" + input + "' нет в списке " + UnitOfMeasure.names());
+        }
+    }
+
+    private String readOrganizationName() throws IncorrectInputInScriptException {
+        String input;
+        do {
+            input = nextNonEmpty("название организации");
+        } while (input.equals("null"));
+        return input;
+    }
+
+    private int readYear() throws IncorrectInputInScriptException {
+        String input = nextLine();
+        if (input == null || input.isEmpty()) throw error("год не может быть пустым");
+        try {
+            int year = Integer.parseInt(input);
+            if (year <= 0) throw error("год должен быть больше 0");
+            return year;
+        } catch (NumberFormatException exception) {
+            throw error("год должен быть представлен числом в Integer");
+        }
+    }
+
+    private String nextNonEmpty(String field) throws IncorrectInputInScriptException {
+        String input = nextCommand();
+        if (input == null) throw error("скрипт закончился, ожидается " + field);
+        return input;
+    }
+
+    private IncorrectInputInScriptException error(String message) {
+        return new IncorrectInputInScriptException("Строка " + lineNumber + ": " + message);
+    }
+}
@@ -6,24 +6,33 @@ import com.general.managers.CollectionManager;
 import com.general.models.base.Element;
 import com.general.network.Request;
 import com.general.network.Response;
+import com.general.query.ProductFilter;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ArrayList;
 
 /**
- * Команда 'show'. Выводит все элементы коллекции.
+ * Команда 'show'. Выводит элементы коллекции по страницам.
+ * <p>
+ * Параметры {@code page=N} и {@code size=N} задают номер страницы (с 1) и ее размер, как у команды 'filter'.
+ * Элементы страницы берутся из менеджера коллекции одним вызовом {@link CollectionManager#getPage(int, int)},
+ * поэтому в режиме tiered из базы данных загружается только выводимая страница.
  */
 public class Show<T extends Element & Comparable<T>> extends Command {
     private final CollectionManager<T> collectionManager;
 
     public Show(CollectionManager<T> collectionManager) {
-        super("show", "вывести все элементы коллекции");
+        super("show [page=N] [size=N]", "вывести элементы коллекции по страницам");
         this.collectionManager = collectionManager;
     }
 
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
     /**
      * Выполняет команду
      *
@@ -32,47 +41,101 @@ public class Show<T extends Element & Comparable<T>> extends Command {
     @Override
     public Response execute(Request request) {
         try {
-            if (request.getData() != null) {
-                throw new WrongAmountOfElementsException();
-            }
+            int[] pageAndSize = parsePage(request.getData());
+            int page = pageAndSize[0];
+            int pageSize = pageAndSize[1];
 
-            if (collectionManager.getCollection().isEmpty()) {
+            int size = collectionManager.collectionSize();
+            if (size == 0) {
                 return new Response(true, "Коллекция пуста.");
             }
 
-            StringBuilder result = new StringBuilder();
-            List<T> collection = new ArrayList<>(collectionManager.getCollection());
-            if (!collection.isEmpty()) {
-                T firstElement = collection.get(0);
-                String[] headers = getFieldNames(firstElement);
-                int[] columnWidths = getColumnWidths(headers, collection);
-
-                result.append(formatRow(headers, columnWidths)).append("\n");
-                result.append(formatRow(getSeparator(columnWidths), columnWidths)).append("\n");
-
-                Iterator<T> iterator = collection.iterator();
-                while (iterator.hasNext()) {
-                    T element = iterator.next();
-                    result.append(formatRow(getFieldValues(element), columnWidths)).append("\n");
-                }
+            int pages = (size + pageSize - 1) / pageSize;
+            String header = "Всего: " + size + ", страница " + page + " из " + pages;
+            List<T> elements = collectionManager.getPage((int) Math.min(Integer.MAX_VALUE, (long) (page - 1) * pageSize), pageSize);
+            if (elements.isEmpty()) {
+                return new Response(false, header + ". Страницы с таким номером нет.");
             }
-
-            return new Response(true, result.toString().trim());
+            return new Response(true, header + "\n" + formatTable(elements));
 
         } catch (WrongAmountOfElementsException exception) {
             return new Response(false, "Неправильное количество аргументов! Правильное использование: '" + getName() + "'");
+        } catch (IllegalArgumentException exception) {
+            return new Response(false, exception.getMessage());
         } catch (IllegalAccessException e) {
             return new Response(false, "Ошибка доступа к полям объектов.");
         }
     }
 
+    /**
+     * Разбирает параметры страницы из аргументов команды.
+     *
+     * @param data данные запроса: {@code null} или строка команды с аргументами
+     * @return номер страницы и ее размер
+     * @throws WrongAmountOfElementsException если аргументы не являются параметрами страницы
+     * @throws IllegalArgumentException       если номер или размер страницы вне допустимых границ
+     */
+    private static int[] parsePage(Object data) throws WrongAmountOfElementsException {
+        int page = 1;
+        int pageSize = ProductFilter.DEFAULT_PAGE_SIZE;
+        if (data != null) {
+            if (!(data instanceof String[] userCommand) || userCommand.length < 2) {
+                throw new WrongAmountOfElementsException();
+            }
+            for (String token : userCommand[1].trim().split("\\s+")) {
+                if (token.isEmpty()) continue;
+                String[] parameter = token.split("=", 2);
+                if (parameter.length != 2) throw new WrongAmountOfElementsException();
+                try {
+                    if (parameter[0].equalsIgnoreCase("page")) page = Integer.parseInt(parameter[1]);
+                    else if (parameter[0].equalsIgnoreCase("size")) pageSize = Integer.parseInt(parameter[1]);
+                    else throw new WrongAmountOfElementsException();
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Неверное значение " + parameter[0] + ": " + parameter[1]);
+                }
+            }
+        }
+        if (page < 1) throw new IllegalArgumentException("Номер страницы должен быть не меньше 1");
+        if (pageSize < 1 || pageSize > ProductFilter.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Размер страницы должен быть от 1 до " + ProductFilter.MAX_PAGE_SIZE);
+        }
+        return new int[]{page, pageSize};
+    }
+
+    /**
+     * Форматирует элементы в таблицу: заголовок с названиями полей и по строке на элемент.
+     *
+     * @param collection элементы
+     * @param <T>        тип элементов
+     * @return таблица или пустая строка, если элементов нет
+     * @throws IllegalAccessException если доступ к полям невозможен
+     */
+    static <T extends Element> String formatTable(List<T> collection) throws IllegalAccessException {
+        StringBuilder result = new StringBuilder();
+        if (!collection.isEmpty()) {
+            T firstElement = collection.get(0);
+            String[] headers = getFieldNames(firstElement);
+            int[] columnWidths = getColumnWidths(headers, collection);
+
+            result.append(formatRow(headers, columnWidths)).append("\n");
+            result.append(formatRow(getSeparator(columnWidths), columnWidths)).append("\n");
+
+            Iterator<T> iterator = collection.iterator();
+            while (iterator.hasNext()) {
+                T element = iterator.next();
+                result.append(formatRow(getFieldValues(element), columnWidths)).append("\n");
+            }
+        }
+        return result.toString().trim();
+    }
+
     /**
      * Возвращает названия полей объекта
      *
      * @param element объект
      * @return массив названий полей
      */
-    private String[] getFieldNames(T element) {
+    private static <T extends Element> String[] getFieldNames(T element) {
         Field[] fields = element.getClass().getDeclaredFields();
         String[] fieldNames = new String[fields.length + 2];
         fieldNames[0] = "id"; // Добавляем id как первое поле
@@ -90,7 +153,7 @@ public class Show<T extends Element & Comparable<T>> extends Command {
      * @return массив значений полей
      * @throws IllegalAccessException если доступ к полям невозможен
      */
-    private String[] getFieldValues(T element) throws IllegalAccessException {
+    private static <T extends Element> String[] getFieldValues(T element) throws IllegalAccessException {
         Field[] fields = element.getClass().getDeclaredFields();
         String[] fieldValues = new String[fields.length + 2];
         fieldValues[0] = String.valueOf(getId(element)); // Добавляем значение id как первое поле
@@ -111,7 +174,7 @@ public class Show<T extends Element & Comparable<T>> extends Command {
      * @return массив с ширинами колонок
      * @throws IllegalAccessException если доступ к полям невозможен
      */
-    private int[] getColumnWidths(String[] headers, List<T> collection) throws IllegalAccessException {
+    private static <T extends Element> int[] getColumnWidths(String[] headers, List<T> collection) throws IllegalAccessException {
         int[] widths = new int[headers.length];
         for (int i = 0; i < headers.length; i++) {
             widths[i] = headers[i].length();
@@ -136,7 +199,7 @@ public class Show<T extends Element & Comparable<T>> extends Command {
      * @param columnWidths ширины колонок
      * @return отформатированная строка
      */
-    private String formatRow(String[] row, int[] columnWidths) {
+    private static String formatRow(String[] row, int[] columnWidths) {
         StringBuilder formattedRow = new StringBuilder();
         for (int i = 0; i < row.length; i++) {
             formattedRow.append(String.format("%-" + columnWidths[i] + "s", row[i])).append(" | ");
@@ -150,7 +213,7 @@ public class Show<T extends Element & Comparable<T>> extends Command {
      * @param columnWidths ширины колонок
      * @return массив разделителей
      */
-    private String[] getSeparator(int[] columnWidths) {
+    private static String[] getSeparator(int[] columnWidths) {
         String[] separator = new String[columnWidths.length];
         for (int i = 0; i < columnWidths.length; i++) {
             separator[i] = "-".repeat(columnWidths[i]);
@@ -164,7 +227,7 @@ public class Show<T extends Element & Comparable<T>> extends Command {
      * @param element элемент
      * @return значение поля id
      */
-    private Object getId(T element) {
+    private static Object getId(Element element) {
         try {
             Method getIdMethod = element.getClass().getMethod("getId");
             return getIdMethod.invoke(element);
@@ -0,0 +1,33 @@
+package com.ann.server.commands;
+
+import com.general.command.Command;
+import com.general.managers.CommandManager;
+import com.general.network.Request;
+import com.general.network.Response;
+
+/**
+ * Команда 'stats'. Выводит задержки и количество выполнений команд сервера за последние 10 секунд,
+ * минуту и все время работы.
+ */
+public class Stats extends Command {
+    private final CommandManager commandManager;
+
+    public Stats(CommandManager commandManager) {
+        super("stats", "вывести статистику выполнения команд сервера");
+        this.commandManager = commandManager;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    /**
+     * Выполняет команду
+     * @return Response с таблицей задержек по командам.
+     */
+    @Override
+    public Response execute(Request request) {
+        return new Response(true, commandManager.getMetrics().report());
+    }
+}
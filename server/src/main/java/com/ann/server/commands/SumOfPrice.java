@@ -7,6 +7,7 @@ import com.general.managers.CollectionManager;
 import com.general.models.Product;
 import com.general.network.Request;
 import com.general.network.Response;
+import com.ann.server.storage.PriceColumn;
 
 /**
  * Команда 'sum_of_price'. Сумма значений поля price для всех продуктов.
@@ -19,6 +20,11 @@ public class SumOfPrice extends Command {
         this.collectionManager = collectionManager;
     }
 
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
     /**
      * Выполняет команду
      * @return Response с результатом выполнения команды.
@@ -30,7 +36,7 @@ public class SumOfPrice extends Command {
                 throw new WrongAmountOfElementsException();
             }
 
-            int sumOfPrice = getSumOfPrice();
+            long sumOfPrice = getSumOfPrice();
             if (sumOfPrice == 0) {
                 throw new CollectionIsEmptyException();
             }
@@ -45,9 +51,12 @@ public class SumOfPrice extends Command {
         }
     }
 
-    private int getSumOfPrice() {
+    private long getSumOfPrice() {
+        if (collectionManager.getCollection() instanceof PriceColumn columns) {
+            return columns.sumOfPrices(); // Суммирование по колонке цен без создания объектов
+        }
         return collectionManager.getCollection().stream()
-                .mapToInt(Product::getPrice)
+                .mapToLong(Product::getPrice)
                 .sum();
     }
 }
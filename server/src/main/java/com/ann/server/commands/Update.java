@@ -47,10 +47,8 @@ public class Update<T extends Element & Comparable<T>> extends Command {
                 throw new CollectionIsEmptyException();
             }
 
-            // Ищем элемент по ID с использованием Stream API
-            Optional<T> optionalElement = collectionManager.getCollection().stream()
-                    .filter(element -> element.getId().equals(id))
-                    .findFirst();
+            // Ищем элемент по ID; коллекция продуктов находит его по индексу без просмотра
+            Optional<T> optionalElement = Optional.ofNullable(collectionManager.getById(id));
 
             if (optionalElement.isEmpty()) {
                 return new Response(false, "Элемента с таким ID в коллекции нет!");
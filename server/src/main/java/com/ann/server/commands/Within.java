@@ -0,0 +1,71 @@
+package com.ann.server.commands;
+
+import com.general.command.Command;
+import com.general.managers.CollectionIndex;
+import com.general.managers.CollectionManager;
+import com.general.models.Coordinates;
+import com.general.models.Product;
+import com.general.network.Request;
+import com.general.network.Response;
+import com.general.query.WithinQuery;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Команда 'within'. Выводит продукты, координаты которых лежат в прямоугольнике, в порядке ID.
+ * Использует индекс координат коллекции, если он построен, иначе просматривает коллекцию.
+ */
+public class Within extends Command {
+    private final CollectionManager<Product> collectionManager;
+
+    public Within(CollectionManager<Product> collectionManager) {
+        super("within <x1> <y1> <x2> <y2> [limit]", "вывести элементы, координаты которых лежат в прямоугольнике");
+        this.collectionManager = collectionManager;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    /**
+     * Выполняет команду
+     *
+     * @return Response с результатом выполнения команды.
+     */
+    @Override
+    public Response execute(Request request) {
+        if (!(request.getData() instanceof WithinQuery query)) {
+            return new Response(false, "Неправильное количество аргументов! Правильное использование: '" + getName() + "'");
+        }
+
+        Stream<Product> candidates;
+        String plan;
+        if (collectionManager.<CollectionIndex.Point>getIndex("coordinates") instanceof CollectionIndex.Spatial<Product> index) {
+            candidates = index.within(query.x1(), query.y1(), query.x2(), query.y2());
+            plan = "индекс " + index.getName();
+        } else {
+            double minX = Math.min(query.x1(), query.x2()), maxX = Math.max(query.x1(), query.x2());
+            double minY = Math.min(query.y1(), query.y2()), maxY = Math.max(query.y1(), query.y2());
+            candidates = new ArrayList<>(collectionManager.getCollection()).parallelStream().filter(product -> {
+                Coordinates coordinates = product.getCoordinates();
+                return coordinates != null && coordinates.getX() >= minX && coordinates.getX() <= maxX
+                        && coordinates.getY() >= minY && coordinates.getY() <= maxY;
+            });
+            plan = "полный просмотр";
+        }
+        List<Product> found = candidates.sorted(Comparator.comparingLong(Product::getId)).toList();
+        if (found.isEmpty()) return new Response(true, "В прямоугольнике нет элементов (план: " + plan + ")");
+
+        List<Product> shown = found.subList(0, Math.min(query.limit(), found.size()));
+        try {
+            return new Response(true, "Найдено: " + found.size() + ", показано: " + shown.size() + ", план: " + plan
+                    + "\n" + Show.formatTable(shown));
+        } catch (IllegalAccessException e) {
+            return new Response(false, "Ошибка доступа к полям объектов.");
+        }
+    }
+}
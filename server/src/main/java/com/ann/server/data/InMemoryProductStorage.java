@@ -0,0 +1,186 @@
+package com.ann.server.data;
+
+import com.ann.server.managers.DatabaseManager;
+import com.general.models.Product;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Хранилище продуктов в памяти процесса вместо таблицы products.
+ * <p>
+ * Продукты копируются при записи и чтении, как если бы они проходили через базу данных, а каждое обращение
+ * может ждать заданное время ({@code storage.memory.latency.us}). Данные не сохраняются между запусками.
+ * Транзакции ведут журнал отмены потока: если действие в {@link #inTransaction} завершается исключением,
+ * изменения хранилища отменяются в обратном порядке вместе с изменениями коллекции.
+ */
+public class InMemoryProductStorage implements ProductStorage {
+    private final ConcurrentSkipListMap<Long, Product> products = new ConcurrentSkipListMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final SimulatedLatency latency;
+    private final ThreadLocal<Deque<Runnable>> undoLog = new ThreadLocal<>(); // Журнал отмены открытой транзакции потока
+
+    /**
+     * Создает хранилище с задержкой из настроек сервера.
+     */
+    public InMemoryProductStorage() {
+        this(SimulatedLatency.fromConfig());
+    }
+
+    /**
+     * @param latencyMicros постоянная задержка каждого обращения в микросекундах
+     * @param jitterMicros  верхняя граница случайной добавки к задержке в микросекундах
+     */
+    public InMemoryProductStorage(long latencyMicros, long jitterMicros) {
+        this(new SimulatedLatency(latencyMicros, jitterMicros));
+    }
+
+    private InMemoryProductStorage(SimulatedLatency latency) {
+        this.latency = latency;
+    }
+
+    @Override
+    public List<Product> getAllProducts() {
+        latency.pause();
+        return copies(products.values());
+    }
+
+    @Override
+    public long insertProduct(Product product) {
+        latency.pause();
+        long id = sequence.incrementAndGet();
+        Product stored = copy(product);
+        stored.setId(id);
+        products.put(id, stored);
+        recordUndo(() -> products.remove(id));
+        return id;
+    }
+
+    @Override
+    public boolean removeProductById(long id) {
+        latency.pause();
+        Product removed = products.remove(id);
+        if (removed == null) return false;
+        recordUndo(() -> products.put(id, removed));
+        return true;
+    }
+
+    @Override
+    public boolean updateProduct(Product product) {
+        latency.pause();
+        long id = product.getId();
+        Product previous = products.replace(id, copy(product));
+        if (previous == null) return false;
+        recordUndo(() -> products.put(id, previous));
+        return true;
+    }
+
+    @Override
+    public int removeProductsByUsername(String username) {
+        latency.pause();
+        int removed = 0;
+        for (Map.Entry<Long, Product> entry : products.entrySet()) {
+            Long id = entry.getKey();
+            Product product = entry.getValue();
+            if (username.equals(product.getUsername()) && products.remove(id, product)) {
+                recordUndo(() -> products.put(id, product));
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public List<Product> getProductsAfterId(long id) {
+        latency.pause();
+        return copies(products.tailMap(id, false).values());
+    }
+
+    @Override
+    public long[] getCountAndMaxId() {
+        latency.pause();
+        Map.Entry<Long, Product> last = products.lastEntry();
+        return new long[]{products.size(), last == null ? 0 : last.getKey()};
+    }
+
+    @Override
+    public Product getProductById(long id) {
+        latency.pause();
+        Product product = products.get(id);
+        return product == null ? null : copy(product);
+    }
+
+    @Override
+    public List<Product> getProductsByIds(long[] ids) {
+        latency.pause();
+        List<Product> found = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Product product = products.get(id);
+            if (product != null) found.add(copy(product));
+        }
+        return found;
+    }
+
+    @Override
+    public void forEachProductKey(ProductKeyConsumer consumer) {
+        latency.pause();
+        for (Product product : products.values()) {
+            consumer.accept(product.getId(), product.getPrice(), product.getUsername());
+        }
+    }
+
+    /**
+     * Выполняет действие так, что при исключении все сделанные в нем изменения хранилища отменяются.
+     * Вложенный вызов выполняется в уже открытой транзакции. ID, выданные отмененным вставкам, повторно
+     * не используются, как и у последовательности в базе данных.
+     */
+    @Override
+    public <R> R inTransaction(DatabaseManager.SqlWork<R> work) throws SQLException {
+        if (undoLog.get() != null) return work.run();
+        Deque<Runnable> undo = new ArrayDeque<>();
+        undoLog.set(undo);
+        try {
+            return work.run();
+        } catch (SQLException | RuntimeException e) {
+            while (!undo.isEmpty()) {
+                undo.pop().run();
+            }
+            throw e;
+        } finally {
+            undoLog.remove();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "память (" + products.size() + " продуктов, задержка " + latency + ")";
+    }
+
+    /**
+     * Запоминает обратное действие, если поток выполняет транзакцию.
+     */
+    private void recordUndo(Runnable action) {
+        Deque<Runnable> undo = undoLog.get();
+        if (undo != null) undo.push(action);
+    }
+
+    private static List<Product> copies(Iterable<Product> source) {
+        List<Product> result = new ArrayList<>();
+        for (Product product : source) result.add(copy(product));
+        return result;
+    }
+
+    private static Product copy(Product product) {
+        Product copy = new Product(product.getName(), product.getCoordinates(), product.getCreationDate(),
+                product.getPrice(), product.getUnitOfMeasure(), product.getOrganization());
+        copy.setId(product.getId());
+        copy.setUsername(product.getUsername());
+        return copy;
+    }
+}
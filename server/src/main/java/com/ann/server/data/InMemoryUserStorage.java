@@ -0,0 +1,70 @@
+package com.ann.server.data;
+
+import com.general.models.User;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.ann.server.utility.PasswordHashing.hashPassword;
+
+/**
+ * Хранилище пользователей в памяти процесса вместо таблицы users.
+ * <p>
+ * Пароли хешируются так же, как при работе с базой данных, поэтому стоимость проверки пароля в каждом запросе
+ * сохраняется. Каждое обращение может ждать заданное время ({@code storage.memory.latency.us}).
+ */
+public class InMemoryUserStorage implements UserStorage {
+    private final Map<String, User> usersByName = new ConcurrentHashMap<>();
+    private final Map<Integer, User> usersById = new ConcurrentHashMap<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final SimulatedLatency latency;
+
+    /**
+     * Создает хранилище с задержкой из настроек сервера.
+     */
+    public InMemoryUserStorage() {
+        this(SimulatedLatency.fromConfig());
+    }
+
+    /**
+     * @param latencyMicros постоянная задержка каждого обращения в микросекундах
+     * @param jitterMicros  верхняя граница случайной добавки к задержке в микросекундах
+     */
+    public InMemoryUserStorage(long latencyMicros, long jitterMicros) {
+        this(new SimulatedLatency(latencyMicros, jitterMicros));
+    }
+
+    private InMemoryUserStorage(SimulatedLatency latency) {
+        this.latency = latency;
+    }
+
+    @Override
+    public int insertUser(User user) {
+        latency.pause();
+        User stored = new User(sequence.incrementAndGet(), user.getUsername(), user.getPasswordHash(), user.getSalt(),
+                user.getRegistrationDate());
+        if (usersByName.putIfAbsent(stored.getUsername(), stored) != null) return -1;
+        usersById.put(stored.getId(), stored);
+        return stored.getId();
+    }
+
+    @Override
+    public User getUserByUsername(String username) {
+        latency.pause();
+        return usersByName.get(username);
+    }
+
+    @Override
+    public User getUserById(int id) {
+        latency.pause();
+        return usersById.get(id);
+    }
+
+    @Override
+    public boolean verifyUserPassword(String username, String password) {
+        latency.pause();
+        User user = usersByName.get(username);
+        return user != null && password != null && user.getPasswordHash().equals(hashPassword(password, user.getSalt()));
+    }
+}
@@ -10,6 +10,7 @@ import com.general.models.Product;
 import com.general.models.Organization;
 import com.general.models.Product;
 import com.general.models.UnitOfMeasure;
+import com.general.utility.InternPool;
 import com.ann.server.managers.DatabaseManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,8 +18,9 @@ import org.slf4j.LoggerFactory;
 /**
  * Класс для работы с данными о продуктх в базе данных.
  * Включает методы для создания таблицы, вставки, удаления, обновления и получения данных о продуктх.
+ * Время выполнения запросов замеряет {@link StatementTimer}, медленные запросы попадают в журнал {@code SlowQueryLog}.
  */
-public class ProductDAO {
+public class ProductDAO implements ProductStorage {
     private static final Logger LOGGER = LoggerFactory.getLogger(ProductDAO.class);
 
     // SQL-запрос для создания таблицы "products"
@@ -59,7 +61,21 @@ public class ProductDAO {
     private static final String SELECT_PRODUCT_BY_ID_SQL = "SELECT * FROM products WHERE id = ?";
 
     // SQL-запрос для получения всех products пользователя по имени пользователя
-    private static final String SELECT_PRODUCTS_BY_USER_ID_SQL = "SELECT * FROM products WHERE username = ?";
+
+    // SQL-запрос для получения products с ID больше указанного
+    private static final String SELECT_PRODUCTS_AFTER_ID_SQL = "SELECT * FROM products WHERE id > ? ORDER BY id";
+
+    // SQL-запрос для получения количества products и максимального ID
+    private static final String SELECT_COUNT_AND_MAX_ID_SQL = "SELECT COUNT(*), COALESCE(MAX(id), 0) FROM products";
+
+    // SQL-запрос для получения products по списку ID
+    private static final String SELECT_PRODUCTS_BY_IDS_SQL = "SELECT * FROM products WHERE id = ANY(?)";
+
+    // SQL-запрос для получения только ключей products (без остальных полей)
+    private static final String SELECT_PRODUCT_KEYS_SQL = "SELECT id, price, username FROM products";
+
+    // SQL-запрос для удаления всех products пользователя
+    private static final String REMOVE_PRODUCTS_BY_USERNAME_SQL = "DELETE FROM products WHERE username = ?";
 
     /**
      * Метод для создания таблицы "products" в базе данных.
@@ -92,12 +108,14 @@ public class ProductDAO {
 
         try (Connection connection = DatabaseManager.getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ALL_PRODUCTS_SQL);
+             StatementTimer timer = StatementTimer.start("select.all.products", 0);
              ResultSet resultSet = preparedStatement.executeQuery()) {
 
             while (resultSet.next()) {
                 Product product = mapResultSetToProduct(resultSet);
                 products.add(product);
             }
+            timer.rows(products.size());
 
         } catch (Exception e) {
             // Логируем ошибку и выбрасываем исключение или обрабатываем его соответствующим образом
@@ -114,7 +132,8 @@ public class ProductDAO {
      */
     public long insertProduct(Product product) {
         try (Connection connection = DatabaseManager.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(INSERT_PRODUCT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+             PreparedStatement preparedStatement = connection.prepareStatement(INSERT_PRODUCT_SQL, Statement.RETURN_GENERATED_KEYS);
+             StatementTimer timer = StatementTimer.start("insert.product", 9)) {
 
             // Устанавливаем параметры запроса
             preparedStatement.setString(1, product.getName());
@@ -129,6 +148,7 @@ public class ProductDAO {
 
             // Выполняем запрос и получаем ID новой записи
             int affectedRows = preparedStatement.executeUpdate();
+            timer.rows(affectedRows);
             if (affectedRows > 0) {
                 try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
@@ -151,11 +171,11 @@ public class ProductDAO {
      */
     public boolean removeProductById(long id) throws SQLException {
         try (Connection connection = DatabaseManager.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(REMOVE_PRODUCT_SQL)) {
+             PreparedStatement preparedStatement = connection.prepareStatement(REMOVE_PRODUCT_SQL);
+             StatementTimer timer = StatementTimer.start("remove.product", 1)) {
 
             preparedStatement.setLong(1, id);
-            int affectedRows = preparedStatement.executeUpdate();
-            return affectedRows > 0;
+            return timer.rows(preparedStatement.executeUpdate()) > 0;
         }
     }
 
@@ -166,47 +186,150 @@ public class ProductDAO {
      * @throws SQLException Если возникает ошибка при выполнении SQL-запроса
      */
     public boolean updateProduct(Product product) throws SQLException {
-        Connection connection = DatabaseManager.getConnection();
-        PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_PRODUCT_SQL);
-        preparedStatement.setString(1, product.getName());
-        preparedStatement.setLong(2, product.getCoordinates().getX());
-        preparedStatement.setFloat(3, product.getCoordinates().getY());
-        preparedStatement.setTimestamp(4, Timestamp.valueOf(product.getCreationDate().atStartOfDay()));
-        preparedStatement.setInt(5, product.getPrice());
-        preparedStatement.setString(6, product.getUnitOfMeasure().toString());
-        preparedStatement.setString(7, product.getOrganization().getName());
-        preparedStatement.setInt(8, product.getOrganization().getYear());
-        preparedStatement.setString(9, product.getUsername());
-        preparedStatement.setLong(10, product.getId());
-
-        int affectedRows = preparedStatement.executeUpdate();
-        return affectedRows > 0;
+        try (Connection connection = DatabaseManager.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_PRODUCT_SQL);
+             StatementTimer timer = StatementTimer.start("update.product", 10)) {
+            preparedStatement.setString(1, product.getName());
+            preparedStatement.setLong(2, product.getCoordinates().getX());
+            preparedStatement.setFloat(3, product.getCoordinates().getY());
+            preparedStatement.setTimestamp(4, Timestamp.valueOf(product.getCreationDate().atStartOfDay()));
+            preparedStatement.setInt(5, product.getPrice());
+            preparedStatement.setString(6, product.getUnitOfMeasure().toString());
+            preparedStatement.setString(7, product.getOrganization().getName());
+            preparedStatement.setInt(8, product.getOrganization().getYear());
+            preparedStatement.setString(9, product.getUsername());
+            preparedStatement.setLong(10, product.getId());
+
+            return timer.rows(preparedStatement.executeUpdate()) > 0;
+        }
+    }
+
+    /**
+     * Метод для удаления всех продуктов пользователя.
+     * @param username имя пользователя
+     * @return количество удаленных продуктов
+     * @throws SQLException Если возникает ошибка при выполнении SQL-запроса
+     */
+    public int removeProductsByUsername(String username) throws SQLException {
+        try (Connection connection = DatabaseManager.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(REMOVE_PRODUCTS_BY_USERNAME_SQL);
+             StatementTimer timer = StatementTimer.start("remove.products.by.username", 1)) {
+            preparedStatement.setString(1, username);
+            return (int) timer.rows(preparedStatement.executeUpdate());
+        }
+    }
+
+    /**
+     * Метод для получения продуктов, добавленных после продукта с указанным ID.
+     * @param id ID, после которого нужно получить продукты
+     * @return Список продуктов с ID больше указанного
+     * @throws SQLException Если возникает ошибка при выполнении SQL-запроса
+     */
+    public List<Product> getProductsAfterId(long id) throws SQLException {
+        List<Product> products = new ArrayList<>();
+        try (Connection connection = DatabaseManager.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_PRODUCTS_AFTER_ID_SQL);
+             StatementTimer timer = StatementTimer.start("select.products.after.id", 1)) {
+            preparedStatement.setLong(1, id);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    products.add(mapResultSetToProduct(resultSet));
+                }
+            }
+            timer.rows(products.size());
+        }
+        return products;
+    }
+
+    /**
+     * Метод для получения количества продуктов и максимального ID в таблице.
+     * @return массив из двух элементов: количество продуктов и максимальный ID (0, если таблица пуста)
+     * @throws SQLException Если возникает ошибка при выполнении SQL-запроса
+     */
+    public long[] getCountAndMaxId() throws SQLException {
+        try (Connection connection = DatabaseManager.getConnection();
+             Statement statement = connection.createStatement();
+             StatementTimer timer = StatementTimer.start("select.count.and.max.id", 0);
+             ResultSet resultSet = statement.executeQuery(SELECT_COUNT_AND_MAX_ID_SQL)) {
+            timer.rows(resultSet.next() ? 1 : 0);
+            return new long[]{resultSet.getLong(1), resultSet.getLong(2)};
+        }
     }
 
     // Метод для получения продукта по ID
-    public Product getProductById(int id) throws SQLException {
-        Connection connection = DatabaseManager.getConnection();
-        PreparedStatement preparedStatement = connection.prepareStatement(SELECT_PRODUCT_BY_ID_SQL);
-        preparedStatement.setInt(1, id);
-        ResultSet resultSet = preparedStatement.executeQuery();
-        if (resultSet.next()) {
-            return mapResultSetToProduct(resultSet);
+    public Product getProductById(long id) throws SQLException {
+        try (Connection connection = DatabaseManager.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_PRODUCT_BY_ID_SQL);
+             StatementTimer timer = StatementTimer.start("select.product.by.id", 1)) {
+            preparedStatement.setLong(1, id);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return timer.rows(resultSet.next() ? 1 : 0) > 0 ? mapResultSetToProduct(resultSet) : null;
+            }
+        }
+    }
+
+    /**
+     * Метод для получения продуктов по списку ID одним запросом.
+     * @param ids ID продуктов
+     * @return Список найденных продуктов; отсутствующие ID пропускаются
+     * @throws SQLException Если возникает ошибка при выполнении SQL-запроса
+     */
+    public List<Product> getProductsByIds(long[] ids) throws SQLException {
+        if (ids.length == 1) {
+            Product product = getProductById(ids[0]);
+            return product == null ? List.of() : List.of(product);
+        }
+        List<Product> products = new ArrayList<>(ids.length);
+        Long[] boxedIds = new Long[ids.length];
+        for (int i = 0; i < ids.length; i++) boxedIds[i] = ids[i];
+        try (Connection connection = DatabaseManager.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_PRODUCTS_BY_IDS_SQL);
+             StatementTimer timer = StatementTimer.start("select.products.by.ids", 1)) {
+            preparedStatement.setArray(1, connection.createArrayOf("bigint", boxedIds));
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    products.add(mapResultSetToProduct(resultSet));
+                }
+            }
+            timer.rows(products.size());
         }
-        return null;
+        return products;
     }
 
-    // Метод для получения всех продукт пользователя
-    public ResultSet getProductsByUserId(int userId) throws SQLException {
-        Connection connection = DatabaseManager.getConnection();
-        PreparedStatement preparedStatement = connection.prepareStatement(SELECT_PRODUCTS_BY_USER_ID_SQL);
-        preparedStatement.setInt(1, userId);
-        return preparedStatement.executeQuery();
+    /**
+     * Метод для обхода ключей всех продуктов без загрузки остальных полей.
+     * @param consumer получатель ID, цены и владельца каждого продукта
+     * @throws SQLException Если возникает ошибка при выполнении SQL-запроса
+     */
+    public void forEachProductKey(ProductKeyConsumer consumer) throws SQLException {
+        try (Connection connection = DatabaseManager.getConnection();
+             Statement statement = connection.createStatement();
+             StatementTimer timer = StatementTimer.start("select.product.keys", 0);
+             ResultSet resultSet = statement.executeQuery(SELECT_PRODUCT_KEYS_SQL)) {
+            long rows = 0;
+            while (resultSet.next()) {
+                rows++;
+                long id = resultSet.getLong("id");
+                Integer price = resultSet.getInt("price");
+                if (resultSet.wasNull()) price = null;
+                consumer.accept(id, price, InternPool.STRINGS.intern(resultSet.getString("username")));
+            }
+            timer.rows(rows);
+        }
+    }
+
+    /**
+     * Выполняет действие в одной транзакции базы данных через {@link DatabaseManager#inTransaction}.
+     */
+    @Override
+    public <R> R inTransaction(DatabaseManager.SqlWork<R> work) throws SQLException {
+        return DatabaseManager.inTransaction(work);
     }
 
     // Приватный метод для маппинга ResultSet в объект Product
     private Product mapResultSetToProduct(ResultSet resultSet) throws SQLException {
         // Извлекаем данные из ResultSet
-        long id = resultSet.getInt("id");
+        long id = resultSet.getLong("id");
         String name = resultSet.getString("name");
 
         Long coordinatesX = resultSet.getLong("coordinates_x");
@@ -227,7 +350,7 @@ public class ProductDAO {
             organizationYear = null;
         }
 
-        Organization org = new Organization(organizationName, organizationYear);
+        Organization org = Organization.intern(new Organization(organizationName, organizationYear));
 
         String username = resultSet.getString("username");
         if (resultSet.wasNull()) {
@@ -235,8 +358,8 @@ public class ProductDAO {
         }
 
         // Создаем объект Product и возвращаем его
-        Product product = new Product(name, coordinates, creationDate, price, unitOfMeasure, org);
-        product.setUsername(username);
+        Product product = new Product(InternPool.STRINGS.intern(name), coordinates, creationDate, price, unitOfMeasure, org);
+        product.setUsername(InternPool.STRINGS.intern(username));
         product.setId(id);  // Если у Product есть метод setId, чтобы установить идентификатор
 
         return product;
@@ -0,0 +1,107 @@
+package com.ann.server.data;
+
+import com.ann.server.managers.DatabaseManager;
+import com.general.models.Product;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Постоянное хранилище продуктов, с которым работают менеджеры коллекции.
+ * <p>
+ * Реализации: {@link ProductDAO} (таблица products в PostgreSQL) и {@link InMemoryProductStorage}
+ * (память процесса, для запуска сервера и нагрузочных тестов без базы данных).
+ * Реализация выбирается настройкой {@code storage.backend}.
+ */
+public interface ProductStorage {
+
+    /**
+     * @return все продукты хранилища
+     */
+    List<Product> getAllProducts();
+
+    /**
+     * Сохраняет новый продукт.
+     *
+     * @param product продукт
+     * @return ID сохраненного продукта или -1 в случае ошибки
+     */
+    long insertProduct(Product product);
+
+    /**
+     * @param id ID продукта
+     * @return {@code true}, если продукт был удален
+     * @throws SQLException если хранилище недоступно
+     */
+    boolean removeProductById(long id) throws SQLException;
+
+    /**
+     * @param product продукт с новыми значениями полей и ID заменяемого продукта
+     * @return {@code true}, если продукт был обновлен
+     * @throws SQLException если хранилище недоступно
+     */
+    boolean updateProduct(Product product) throws SQLException;
+
+    /**
+     * @param username имя пользователя
+     * @return количество удаленных продуктов пользователя
+     * @throws SQLException если хранилище недоступно
+     */
+    int removeProductsByUsername(String username) throws SQLException;
+
+    /**
+     * @param id ID, после которого нужно получить продукты
+     * @return продукты с ID больше указанного
+     * @throws SQLException если хранилище недоступно
+     */
+    List<Product> getProductsAfterId(long id) throws SQLException;
+
+    /**
+     * @return массив из двух элементов: количество продуктов и максимальный ID (0, если хранилище пусто)
+     * @throws SQLException если хранилище недоступно
+     */
+    long[] getCountAndMaxId() throws SQLException;
+
+    /**
+     * @param id ID продукта
+     * @return продукт или {@code null}, если его нет
+     * @throws SQLException если хранилище недоступно
+     */
+    Product getProductById(long id) throws SQLException;
+
+    /**
+     * @param ids ID продуктов
+     * @return найденные продукты; отсутствующие ID пропускаются
+     * @throws SQLException если хранилище недоступно
+     */
+    List<Product> getProductsByIds(long[] ids) throws SQLException;
+
+    /**
+     * Обходит ключи всех продуктов без загрузки остальных полей.
+     *
+     * @param consumer получатель ID, цены и владельца каждого продукта
+     * @throws SQLException если хранилище недоступно
+     */
+    void forEachProductKey(ProductKeyConsumer consumer) throws SQLException;
+
+    /**
+     * Выполняет действие так, чтобы все изменения хранилища в нем были зафиксированы или отменены вместе.
+     * По умолчанию хранилище транзакций не поддерживает и просто выполняет действие.
+     *
+     * @param work действие
+     * @param <R>  тип результата действия
+     * @return результат действия
+     * @throws SQLException если транзакцию не удалось открыть или зафиксировать
+     */
+    default <R> R inTransaction(DatabaseManager.SqlWork<R> work) throws SQLException {
+        return work.run();
+    }
+
+    /**
+     * Получатель ключей продукта для {@link #forEachProductKey(ProductKeyConsumer)}.
+     */
+    @FunctionalInterface
+    interface ProductKeyConsumer {
+        void accept(long id, Integer price, String username);
+    }
+}
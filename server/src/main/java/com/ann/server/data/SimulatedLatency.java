@@ -0,0 +1,47 @@
+package com.ann.server.data;
+
+import com.ann.server.utility.ServerConfig;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Задержка, которой хранилище в памяти имитирует обращение к базе данных по сети.
+ * Каждое обращение ждет {@code storage.memory.latency.us} микросекунд плюс случайную добавку
+ * до {@code storage.memory.latency.jitter.us} микросекунд.
+ */
+final class SimulatedLatency {
+    private final long baseNanos;
+    private final long jitterNanos;
+
+    /**
+     * @param baseMicros   постоянная часть задержки в микросекундах
+     * @param jitterMicros верхняя граница случайной добавки в микросекундах
+     */
+    SimulatedLatency(long baseMicros, long jitterMicros) {
+        this.baseNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, baseMicros));
+        this.jitterNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, jitterMicros));
+    }
+
+    /**
+     * @return задержка из настроек сервера
+     */
+    static SimulatedLatency fromConfig() {
+        return new SimulatedLatency(ServerConfig.getLong("storage.memory.latency.us", 0),
+                ServerConfig.getLong("storage.memory.latency.jitter.us", 0));
+    }
+
+    /**
+     * Приостанавливает текущий поток на время одного обращения к хранилищу.
+     */
+    void pause() {
+        long nanos = baseNanos + (jitterNanos > 0 ? ThreadLocalRandom.current().nextLong(jitterNanos + 1) : 0);
+        if (nanos > 0) LockSupport.parkNanos(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return TimeUnit.NANOSECONDS.toMicros(baseNanos) + "+" + TimeUnit.NANOSECONDS.toMicros(jitterNanos) + " мкс";
+    }
+}
@@ -0,0 +1,67 @@
+package com.ann.server.data;
+
+import com.ann.server.utility.LogSampler;
+import com.ann.server.utility.ServerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замер времени выполнения SQL-запроса DAO-класса, включая чтение результата.
+ * <p>
+ * Если запрос выполнялся дольше {@code log.slow.query.ms}, при закрытии в журнал {@code SlowQueryLog} пишется
+ * запись: ключ запроса, количество параметров, время и количество строк. Частота записей ограничена
+ * настройкой {@code log.slow.max.per.second}. Используется в try-with-resources вместе с соединением:
+ * <pre>
+ * try (Connection connection = DatabaseManager.getConnection();
+ *      PreparedStatement statement = connection.prepareStatement(SQL);
+ *      StatementTimer timer = StatementTimer.start("select.product.by.id", 1)) {
+ *     ...
+ *     timer.rows(count);
+ * }
+ * </pre>
+ */
+final class StatementTimer implements AutoCloseable {
+    private static final Logger slowLog = LoggerFactory.getLogger("SlowQueryLog");
+    private static final long THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(ServerConfig.getLong("log.slow.query.ms", 100));
+    private static final LogSampler sampler = new LogSampler(ServerConfig.getInt("log.slow.max.per.second", 10));
+
+    private final String key;
+    private final int parameters;
+    private final long startTime = System.nanoTime();
+    private long rows = -1;
+
+    private StatementTimer(String key, int parameters) {
+        this.key = key;
+        this.parameters = parameters;
+    }
+
+    /**
+     * @param key        ключ запроса, как в {@code queries.properties}
+     * @param parameters количество параметров запроса
+     * @return начатый замер
+     */
+    static StatementTimer start(String key, int parameters) {
+        return new StatementTimer(key, parameters);
+    }
+
+    /**
+     * @param rows количество прочитанных или измененных строк
+     * @return это значение для подстановки в return
+     */
+    long rows(long rows) {
+        this.rows = rows;
+        return rows;
+    }
+
+    @Override
+    public void close() {
+        long duration = System.nanoTime() - startTime;
+        if (duration < THRESHOLD_NANOS) return;
+        long skipped = sampler.tryAcquire();
+        if (skipped < 0) return;
+        slowLog.warn("{} параметров={} строк={} время={} мс пропущено={}", key, parameters, rows,
+                TimeUnit.NANOSECONDS.toMillis(duration), skipped);
+    }
+}
@@ -17,8 +17,9 @@ import static com.ann.server.utility.PasswordHashing.hashPassword;
  * Класс `UserDAO` отвечает за доступ к данным пользователей в базе данных.
  * Он содержит методы для создания таблицы пользователей, добавления,
  * обновления и получения данных пользователей, а также верификации паролей.
+ * Время выполнения запросов замеряет {@link StatementTimer}, медленные запросы попадают в журнал {@code SlowQueryLog}.
  */
-public class UserDAO {
+public class UserDAO implements UserStorage {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(UserDAO.class);
 
@@ -92,14 +93,15 @@ public class UserDAO {
      * @throws SQLException Если происходит ошибка при выполнении SQL-запроса
      */
     public int insertUser(Connection connection, User user) throws SQLException {
-        try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_USER_SQL, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_USER_SQL, Statement.RETURN_GENERATED_KEYS);
+             StatementTimer timer = StatementTimer.start("insert.user", 5)) {
             preparedStatement.setString(1, user.getUsername());
             preparedStatement.setString(2, user.getPasswordHash());
             preparedStatement.setString(3, user.getSalt());
             preparedStatement.setObject(4, user.getRegistrationDate());
             preparedStatement.setObject(5, LocalDateTime.now());
 
-            int affectedRows = preparedStatement.executeUpdate();
+            int affectedRows = (int) timer.rows(preparedStatement.executeUpdate());
             if (affectedRows > 0) {
                 try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
@@ -120,10 +122,11 @@ public class UserDAO {
      * @throws SQLException Если происходит ошибка при выполнении SQL-запроса
      */
     public User getUserByUsername(Connection connection, String username) throws SQLException {
-        try (PreparedStatement preparedStatement = connection.prepareStatement(SELECT_USER_BY_USERNAME_SQL)) {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(SELECT_USER_BY_USERNAME_SQL);
+             StatementTimer timer = StatementTimer.start("select.user.by.username", 1)) {
             preparedStatement.setString(1, username);
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
-                if (resultSet.next()) {
+                if (timer.rows(resultSet.next() ? 1 : 0) > 0) {
                     return mapResultSetToUser(resultSet);
                 }
             }
@@ -140,10 +143,11 @@ public class UserDAO {
      * @throws SQLException Если происходит ошибка при выполнении SQL-запроса
      */
     public User getUserById(Connection connection, int id) throws SQLException {
-        try (PreparedStatement preparedStatement = connection.prepareStatement(SELECT_USER_BY_USERNAME_SQL)) {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(SELECT_USER_BY_USERNAME_SQL);
+             StatementTimer timer = StatementTimer.start("select.user.by.username", 1)) {
             preparedStatement.setInt(1, id);
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
-                if (resultSet.next()) {
+                if (timer.rows(resultSet.next() ? 1 : 0) > 0) {
                     return mapResultSetToUser(resultSet);
                 }
             }
@@ -160,13 +164,13 @@ public class UserDAO {
      * @throws SQLException Если происходит ошибка при выполнении SQL-запроса
      */
     public boolean updateUser(Connection connection, User user) throws SQLException {
-        try (PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_USER_SQL)) {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_USER_SQL);
+             StatementTimer timer = StatementTimer.start("update.user", 3)) {
             preparedStatement.setString(1, user.getUsername());
             preparedStatement.setString(2, user.getPasswordHash());
             preparedStatement.setInt(3, user.getId());
 
-            int affectedRows = preparedStatement.executeUpdate();
-            return affectedRows > 0;
+            return timer.rows(preparedStatement.executeUpdate()) > 0;
         }
     }
 
@@ -179,10 +183,11 @@ public class UserDAO {
      * @throws SQLException Если происходит ошибка при выполнении SQL-запроса
      */
     public String getSaltByUsername(Connection connection, String username) throws SQLException {
-        try (PreparedStatement preparedStatement = connection.prepareStatement(SELECT_SALT_BY_USERNAME_SQL)) {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(SELECT_SALT_BY_USERNAME_SQL);
+             StatementTimer timer = StatementTimer.start("select.salt.by.username", 1)) {
             preparedStatement.setString(1, username);
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
-                if (resultSet.next()) {
+                if (timer.rows(resultSet.next() ? 1 : 0) > 0) {
                     return resultSet.getString("salt");
                 }
             }
@@ -208,6 +213,27 @@ public class UserDAO {
         return new User(id, username, passwordHash, salt, registrationDate);
     }
 
+    @Override
+    public int insertUser(User user) throws SQLException {
+        try (Connection connection = DatabaseManager.getConnection()) {
+            return insertUser(connection, user);
+        }
+    }
+
+    @Override
+    public User getUserByUsername(String username) throws SQLException {
+        try (Connection connection = DatabaseManager.getConnection()) {
+            return getUserByUsername(connection, username);
+        }
+    }
+
+    @Override
+    public User getUserById(int id) throws SQLException {
+        try (Connection connection = DatabaseManager.getConnection()) {
+            return getUserById(connection, id);
+        }
+    }
+
     /**
      * Верифицирует пароль пользователя, сравнивая введенный пароль с сохраненным в базе данных.
      *
@@ -215,12 +241,14 @@ public class UserDAO {
      * @param password Введенный пароль
      * @return true, если пароль совпадает, false в противном случае
      */
+    @Override
     public boolean verifyUserPassword(String username, String password) {
         try (Connection connection = DatabaseManager.getConnection();
-             PreparedStatement statement = connection.prepareStatement(SELECT_USER_BY_USERNAME_SQL)) {
+             PreparedStatement statement = connection.prepareStatement(SELECT_USER_BY_USERNAME_SQL);
+             StatementTimer timer = StatementTimer.start("select.user.by.username", 1)) {
             statement.setString(1, username);
             try (ResultSet resultSet = statement.executeQuery()) {
-                if (resultSet.next()) {
+                if (timer.rows(resultSet.next() ? 1 : 0) > 0) {
                     String storedPasswordHash = resultSet.getString("password_hash");
                     String storedSalt = resultSet.getString("salt");
                     String enteredPasswordHash = hashPassword(password, storedSalt);
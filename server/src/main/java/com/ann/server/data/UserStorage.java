@@ -0,0 +1,45 @@
+package com.ann.server.data;
+
+import com.general.models.User;
+
+import java.sql.SQLException;
+
+/**
+ * Постоянное хранилище пользователей, с которым работают обработчик запросов и команды входа и регистрации.
+ * <p>
+ * Реализации: {@link UserDAO} (таблица users в PostgreSQL) и {@link InMemoryUserStorage} (память процесса).
+ */
+public interface UserStorage {
+
+    /**
+     * Сохраняет нового пользователя.
+     *
+     * @param user пользователь
+     * @return ID нового пользователя, либо -1, если пользователь с таким именем уже существует
+     * @throws SQLException если хранилище недоступно
+     */
+    int insertUser(User user) throws SQLException;
+
+    /**
+     * @param username имя пользователя
+     * @return пользователь или {@code null}, если его нет
+     * @throws SQLException если хранилище недоступно
+     */
+    User getUserByUsername(String username) throws SQLException;
+
+    /**
+     * @param id ID пользователя
+     * @return пользователь или {@code null}, если его нет
+     * @throws SQLException если хранилище недоступно
+     */
+    User getUserById(int id) throws SQLException;
+
+    /**
+     * Сравнивает введенный пароль с сохраненным хешем.
+     *
+     * @param username имя пользователя
+     * @param password введенный пароль
+     * @return {@code true}, если пароль совпадает; {@code false}, если нет или хранилище недоступно
+     */
+    boolean verifyUserPassword(String username, String password);
+}
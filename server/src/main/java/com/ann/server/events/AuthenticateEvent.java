@@ -0,0 +1,26 @@
+package com.ann.server.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Проверка пользователя запроса на стадии проверки пользователя.
+ */
+@Name("com.ann.Authenticate")
+@Label("Проверка пользователя")
+@Category({"Lab7", "Запросы"})
+public class AuthenticateEvent extends Event {
+    @Label("Команда")
+    public String command;
+
+    @Label("Пользователь")
+    public String user;
+
+    @Label("Проверен ранее в соединении")
+    public boolean cached;
+
+    @Label("Проверка пройдена")
+    public boolean success;
+}
@@ -0,0 +1,28 @@
+package com.ann.server.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Десериализация запроса на стадии декодирования.
+ */
+@Name("com.ann.Decode")
+@Label("Декодирование запроса")
+@Category({"Lab7", "Запросы"})
+public class DecodeEvent extends Event {
+    @Label("Идентификатор запроса")
+    public long requestId;
+
+    @Label("Размер тела кадра")
+    @DataAmount
+    public int bytes;
+
+    @Label("Команда")
+    public String command;
+
+    @Label("Пользователь")
+    public String user;
+}
@@ -0,0 +1,80 @@
+package com.ann.server.events;
+
+import com.ann.server.utility.ServerConfig;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Запись JDK Flight Recorder, управляемая командой {@code jfr} консоли сервера.
+ * <p>
+ * Запись включает события JVM из настроек {@code jfr.settings} ({@code default} или {@code profile}) и события
+ * сервера {@code com.ann.*}: чтение кадров, декодирование, проверку пользователя, выполнение команд, обращения
+ * к хранилищу и отправку ответов. В памяти хранятся последние {@code jfr.max.age.minutes} минут записи;
+ * снимок сохраняется в каталог {@code jfr.dir} и открывается в JDK Mission Control или командой {@code jfr print}.
+ */
+public final class FlightRecording {
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static Recording recording;
+
+    private FlightRecording() {
+    }
+
+    /**
+     * Начинает запись, если она еще не идет.
+     *
+     * @return сообщение о результате
+     * @throws IOException    если настройки записи не удалось прочитать
+     * @throws ParseException если настройки записи имеют неверный формат
+     */
+    public static synchronized String start() throws IOException, ParseException {
+        if (isRunning()) return "Запись уже идет с " + recording.getStartTime();
+        Configuration configuration = Configuration.getConfiguration(ServerConfig.getString("jfr.settings", "profile"));
+        recording = new Recording(configuration);
+        recording.setName("lab7-server");
+        recording.setToDisk(true);
+        recording.setMaxAge(Duration.ofMinutes(ServerConfig.getLong("jfr.max.age.minutes", 10)));
+        recording.start();
+        return "Запись начата с настройками " + configuration.getName();
+    }
+
+    /**
+     * Сохраняет накопленную запись в файл, не останавливая ее.
+     *
+     * @return путь к файлу записи
+     * @throws IOException если запись не идет или файл не удалось записать
+     */
+    public static synchronized Path dump() throws IOException {
+        if (!isRunning()) throw new IOException("Запись не идет, начните ее командой jfr start");
+        Path directory = ServerConfig.getPath("jfr.dir", "data/jfr");
+        Files.createDirectories(directory);
+        Path file = directory.resolve("server-" + LocalDateTime.now().format(FILE_TIME) + ".jfr");
+        recording.dump(file);
+        return file;
+    }
+
+    /**
+     * Сохраняет запись в файл и останавливает ее.
+     *
+     * @return путь к файлу записи
+     * @throws IOException если запись не идет или файл не удалось записать
+     */
+    public static synchronized Path stop() throws IOException {
+        Path file = dump();
+        recording.close();
+        recording = null;
+        return file;
+    }
+
+    private static boolean isRunning() {
+        return recording != null && recording.getState() == RecordingState.RUNNING;
+    }
+}
@@ -0,0 +1,22 @@
+package com.ann.server.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Чтение данных из канала клиента и выделение полных кадров в потоке селектора.
+ */
+@Name("com.ann.FrameRead")
+@Label("Чтение кадров")
+@Category({"Lab7", "Запросы"})
+public class FrameReadEvent extends Event {
+    @Label("Прочитано байт")
+    @DataAmount
+    public long bytes;
+
+    @Label("Полных кадров")
+    public int frames;
+}
@@ -0,0 +1,31 @@
+package com.ann.server.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Сериализация ответа в кадр или запись кадра ответа в канал клиента.
+ */
+@Name("com.ann.FrameWrite")
+@Label("Отправка ответа")
+@Category({"Lab7", "Запросы"})
+public class FrameWriteEvent extends Event {
+    @Label("Этап")
+    public String phase;
+
+    @Label("Идентификатор запроса")
+    public long requestId;
+
+    @Label("Размер кадра")
+    @DataAmount
+    public int bytes;
+
+    @Label("Команда")
+    public String command;
+
+    @Label("Пользователь")
+    public String user;
+}
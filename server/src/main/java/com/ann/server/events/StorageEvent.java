@@ -0,0 +1,27 @@
+package com.ann.server.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Вызов метода постоянного хранилища ({@link com.ann.server.data.ProductStorage} или
+ * {@link com.ann.server.data.UserStorage}).
+ */
+@Name("com.ann.Storage")
+@Label("Обращение к хранилищу")
+@Category({"Lab7", "Хранилище"})
+public class StorageEvent extends Event {
+    @Label("Хранилище")
+    public String storage;
+
+    @Label("Операция")
+    public String operation;
+
+    @Label("Строк в результате")
+    public int rows;
+
+    @Label("Завершено исключением")
+    public boolean failed;
+}
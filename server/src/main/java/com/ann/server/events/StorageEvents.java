@@ -0,0 +1,51 @@
+package com.ann.server.events;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Оборачивает хранилище так, что каждый вызов его методов записывается событием {@link StorageEvent}.
+ * Если запись событий не включена, обертка только передает вызов хранилищу.
+ */
+public final class StorageEvents {
+
+    private StorageEvents() {
+    }
+
+    /**
+     * @param type    интерфейс хранилища
+     * @param storage реализация хранилища
+     * @param <T>     тип интерфейса
+     * @return хранилище, вызовы которого записываются событиями
+     */
+    public static <T> T traced(Class<T> type, T storage) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) return method.invoke(storage, args);
+            StorageEvent event = new StorageEvent();
+            event.begin();
+            try {
+                Object result = method.invoke(storage, args);
+                event.rows = rows(result);
+                return result;
+            } catch (InvocationTargetException e) {
+                event.failed = true;
+                throw e.getCause();
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.storage = type.getSimpleName();
+                    event.operation = method.getName();
+                    event.commit();
+                }
+            }
+        }));
+    }
+
+    private static int rows(Object result) {
+        if (result instanceof Collection<?> collection) return collection.size();
+        if (result instanceof Map<?, ?> map) return map.size();
+        return result == null ? 0 : 1;
+    }
+}
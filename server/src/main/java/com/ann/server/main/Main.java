@@ -1,21 +1,36 @@
 package com.ann.server.main;
 
-import com.general.command.Command;
 import com.general.io.Interrogator;
 import com.general.managers.CollectionManager;
 import com.general.managers.CommandManager;
 import com.general.models.Product;
-import com.general.network.Request;
-import com.general.network.Response;
+import com.ann.server.capture.TrafficCapture;
 import com.ann.server.commands.*;
+import com.ann.server.data.InMemoryProductStorage;
+import com.ann.server.data.InMemoryUserStorage;
 import com.ann.server.data.ProductDAO;
+import com.ann.server.data.ProductStorage;
 import com.ann.server.data.UserDAO;
+import com.ann.server.data.UserStorage;
+import com.ann.server.events.FlightRecording;
+import com.ann.server.events.StorageEvent;
+import com.ann.server.events.StorageEvents;
+import com.ann.server.management.ServerMBeans;
+import com.ann.server.managers.ColumnarProductCollectionManager;
+import com.ann.server.managers.ConnectionPool;
+import com.ann.server.managers.DatabaseManager;
+import com.ann.server.managers.MappedProductCollectionManager;
 import com.ann.server.managers.ProductCollectionManager;
+import com.ann.server.managers.TieredProductCollectionManager;
 import com.ann.server.network.Handler;
+import com.ann.server.network.RequestPipeline;
 import com.ann.server.network.TCPServer;
+import com.ann.server.utility.ServerConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.text.ParseException;
 import java.util.Scanner;
 
 import static com.ann.server.managers.DatabaseManager.createDatabaseIfNotExists;
@@ -23,39 +38,92 @@ import static com.ann.server.managers.DatabaseManager.createDatabaseIfNotExists;
 public class Main {
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
     private static final int PORT = 28358;
+    private static ProductStorage productStorage;
+    private static UserStorage userStorage;
+    private static ConnectionPool connectionPool; // Только для хранилища jdbc
 
     public static void main(String[] args) {
         Interrogator.setUserScanner(new Scanner(System.in));
-        createDatabaseIfNotExists();
-        CollectionManager<Product> collectionManager = initializeCollectionManager();
+        initializeStorage();
+        ProductCollectionManager collectionManager = initializeCollectionManager();
+        RequestPipeline pipeline = new RequestPipeline();
+        CommandManager commandManager = initializeCommandManager(collectionManager);
+        if (ServerConfig.getBoolean("management.jmx.enabled", true)) {
+            ServerMBeans.register(collectionManager, pipeline, connectionPool);
+        }
 
-        startConsoleListener(collectionManager);
+        startConsoleListener(commandManager, pipeline);
 
-        CommandManager commandManager = initializeCommandManager(collectionManager);
-        startServer(commandManager);
+        startServer(commandManager, pipeline);
+    }
+
+    /**
+     * Выбирает постоянное хранилище по настройке {@code storage.backend}: {@code jdbc} (PostgreSQL, по умолчанию)
+     * или {@code memory} (память процесса, данные не сохраняются между запусками).
+     * Вызовы хранилищ записываются событиями JFR {@link StorageEvent}.
+     */
+    private static void initializeStorage() {
+        String backend = ServerConfig.getString("storage.backend", "jdbc");
+        if ("memory".equals(backend)) {
+            productStorage = new InMemoryProductStorage();
+            userStorage = new InMemoryUserStorage();
+        } else {
+            createDatabaseIfNotExists();
+            productStorage = new ProductDAO();
+            userStorage = new UserDAO();
+            connectionPool = DatabaseManager.getConnectionPool();
+        }
+        productStorage = StorageEvents.traced(ProductStorage.class, productStorage);
+        userStorage = StorageEvents.traced(UserStorage.class, userStorage);
+        logger.info("Хранилище данных: {}", backend);
+    }
+
+    private static ProductCollectionManager initializeCollectionManager() {
+        ProductCollectionManager collectionManager = createCollectionManager(productStorage, userStorage);
+        Runtime.getRuntime().addShutdownHook(new Thread(collectionManager::shutdown, "snapshot-shutdown"));
+        return collectionManager;
     }
 
-    private static CollectionManager<Product> initializeCollectionManager() {
-        return new ProductCollectionManager(new ProductDAO(), new UserDAO());
+    /**
+     * Создает менеджер коллекции в режиме хранения, заданном параметром {@code collection.mode}.
+     *
+     * @param productStorage хранилище продуктов
+     * @param userStorage    хранилище пользователей
+     * @return менеджер коллекции
+     */
+    public static ProductCollectionManager createCollectionManager(ProductStorage productStorage, UserStorage userStorage) {
+        String mode = ServerConfig.getString("collection.mode", "heap");
+        ProductCollectionManager collectionManager = switch (mode) {
+            case "columnar" -> new ColumnarProductCollectionManager(productStorage, userStorage);
+            case "mapped" -> new MappedProductCollectionManager(productStorage, userStorage);
+            case "tiered" -> new TieredProductCollectionManager(productStorage, userStorage);
+            default -> new ProductCollectionManager(productStorage, userStorage);
+        };
+        logger.info("Режим хранения коллекции: {}", mode);
+        return collectionManager;
     }
 
     private static CommandManager initializeCommandManager(CollectionManager<Product> collectionManager) {
         CommandManager commandManager = new CommandManager();
-        UserDAO userDAO = new UserDAO();
-        Handler.setUserDAO(userDAO);
-        initCommands(collectionManager, commandManager, userDAO);
+        Handler.setUserStorage(userStorage);
+        initCommands(collectionManager, commandManager, userStorage);
         return commandManager;
     }
 
-    private static void startServer(CommandManager commandManager) {
+    private static void startServer(CommandManager commandManager, RequestPipeline pipeline) {
         Handler.setCommandManager(commandManager);
-        new TCPServer(PORT).start();
+        new TCPServer(PORT, pipeline).start();
     }
 
-    public static void initCommands(CollectionManager<Product> collectionManager, CommandManager commandManager, UserDAO userDAO) {
+    public static void initCommands(CollectionManager<Product> collectionManager, CommandManager commandManager, UserStorage userStorage) {
         commandManager.register("help", new Help(commandManager));
+        commandManager.register("ping", new Ping());
         commandManager.register("info", new Info(collectionManager));
+        commandManager.register("stats", new Stats(commandManager));
         commandManager.register("show", new Show<>(collectionManager));
+        commandManager.register("filter", new Filter(collectionManager));
+        commandManager.register("near", new Near(collectionManager));
+        commandManager.register("within", new Within(collectionManager));
         commandManager.register("add", new Add<>(collectionManager));
         commandManager.register("update", new Update<>(collectionManager));
         commandManager.register("remove_by_id", new RemoveById<>(collectionManager));
@@ -64,25 +132,14 @@ public class Main {
         commandManager.register("remove_lower", new RemoveLower<>(collectionManager));
         commandManager.register("add_if_min", new AddIfMin<>(collectionManager));
         commandManager.register("sum_of_price", new SumOfPrice(collectionManager));
-        commandManager.register("register", new Register(userDAO));
-        commandManager.register("login", new Login(userDAO));
-        Command executeScriptCommand = new Command("execute_script", "исполнить скрипт из указанного файла") {
-
-            public Request execute(String[] arguments) {
-                return null; // Stub implementation
-            }
-
-            @Override
-            public Response execute(Request request) {
-                return null; // Stub implementation
-            }
-        };
-        commandManager.register("execute_script", executeScriptCommand);
-
+        commandManager.register("register", new Register(userStorage));
+        commandManager.register("login", new Login(userStorage));
+        commandManager.register("batch", new Batch(collectionManager, commandManager));
+        commandManager.register("execute_script", new ExecuteScript(collectionManager, commandManager));
     }
 
 
-    private static void startConsoleListener(CollectionManager<Product> collectionManager) {
+    private static void startConsoleListener(CommandManager commandManager, RequestPipeline pipeline) {
         new Thread(() -> {
             Scanner scanner = new Scanner(System.in);
             while (true) {
@@ -90,10 +147,55 @@ public class Main {
                 if ("exit".equalsIgnoreCase(input)) {
                     logger.info("Завершение работы программы...");
                     System.exit(0);
+                } else if ("pipeline".equalsIgnoreCase(input)) {
+                    logger.info("Стадии конвейера:\n{}", pipeline);
+                } else if ("stats".equalsIgnoreCase(input)) {
+                    logger.info("Статистика команд:\n{}", commandManager.getMetrics().report());
+                } else if (input.toLowerCase().startsWith("jfr")) {
+                    controlFlightRecording(input.substring(3).trim().toLowerCase());
+                } else if (input.toLowerCase().startsWith("capture")) {
+                    controlTrafficCapture(input.substring(7).trim().toLowerCase());
                 } else {
                     logger.warn("Неизвестная команда: {}", input);
                 }
             }
         }).start();
     }
+
+    /**
+     * Выполняет команду консоли {@code jfr start|dump|stop}: начинает запись JDK Flight Recorder,
+     * сохраняет ее в файл или сохраняет и останавливает.
+     *
+     * @param action действие
+     */
+    private static void controlFlightRecording(String action) {
+        try {
+            switch (action) {
+                case "start" -> logger.info(FlightRecording.start());
+                case "dump" -> logger.info("Запись сохранена в {}", FlightRecording.dump());
+                case "stop" -> logger.info("Запись остановлена и сохранена в {}", FlightRecording.stop());
+                default -> logger.warn("Использование: jfr start|dump|stop");
+            }
+        } catch (IOException | ParseException e) {
+            logger.error("Ошибка записи JFR: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Выполняет команду консоли {@code capture start|stop}: начинает или останавливает запись входящих запросов
+     * для воспроизведения нагрузочным тестом.
+     *
+     * @param action действие
+     */
+    private static void controlTrafficCapture(String action) {
+        try {
+            switch (action) {
+                case "start" -> logger.info(TrafficCapture.start());
+                case "stop" -> logger.info(TrafficCapture.stop());
+                default -> logger.warn("Использование: capture start|stop");
+            }
+        } catch (IOException e) {
+            logger.error("Ошибка записи трафика: {}", e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,27 @@
+package com.ann.server.management;
+
+/**
+ * Проверка пользователей: {@code com.ann.server:type=Auth}.
+ */
+public interface AuthMXBean {
+
+    /**
+     * @return количество открытых соединений, в которых пользователь прошел проверку
+     */
+    int getAuthenticatedSessions();
+
+    /**
+     * @return количество запросов, пользователь которых уже был проверен в том же соединении
+     */
+    long getCacheHits();
+
+    /**
+     * @return количество запросов, пользователь которых проверялся через хранилище
+     */
+    long getCacheMisses();
+
+    /**
+     * @return доля запросов, не обращавшихся к хранилищу пользователей, от 0 до 1
+     */
+    double getCacheHitRate();
+}
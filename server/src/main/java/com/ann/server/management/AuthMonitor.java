@@ -0,0 +1,31 @@
+package com.ann.server.management;
+
+import com.ann.server.network.NetworkStatistics;
+
+/**
+ * Реализация {@link AuthMXBean} поверх {@link NetworkStatistics}.
+ */
+public class AuthMonitor implements AuthMXBean {
+
+    @Override
+    public int getAuthenticatedSessions() {
+        return NetworkStatistics.getAuthenticatedSessions();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return NetworkStatistics.getAuthCacheHits();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return NetworkStatistics.getAuthCacheMisses();
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        long hits = getCacheHits();
+        long total = hits + getCacheMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
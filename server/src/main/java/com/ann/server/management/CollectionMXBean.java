@@ -0,0 +1,43 @@
+package com.ann.server.management;
+
+import java.util.Map;
+
+/**
+ * Состояние коллекции продуктов: {@code com.ann.server:type=Collection}.
+ */
+public interface CollectionMXBean {
+
+    /**
+     * @return режим хранения коллекции ({@code collection.mode})
+     */
+    String getMode();
+
+    int getSize();
+
+    /**
+     * @return номер версии коллекции; увеличивается при каждом изменении
+     */
+    long getVersion();
+
+    /**
+     * @return количество записей в индексах коллекции по их названиям
+     */
+    Map<String, Integer> getIndexSizes();
+
+    long getLockAcquisitions();
+
+    /**
+     * @return количество захватов блокировки, которым пришлось ждать
+     */
+    long getLockContentions();
+
+    /**
+     * @return суммарное время ожидания блокировки коллекции в миллисекундах
+     */
+    double getLockWaitMillis();
+
+    /**
+     * @return наибольшее время одного ожидания блокировки в миллисекундах
+     */
+    double getMaxLockWaitMillis();
+}
@@ -0,0 +1,57 @@
+package com.ann.server.management;
+
+import com.ann.server.managers.ProductCollectionManager;
+import com.ann.server.utility.ServerConfig;
+
+import java.util.Map;
+
+/**
+ * Реализация {@link CollectionMXBean} поверх менеджера коллекции.
+ */
+public class CollectionMonitor implements CollectionMXBean {
+    private final ProductCollectionManager collectionManager;
+
+    public CollectionMonitor(ProductCollectionManager collectionManager) {
+        this.collectionManager = collectionManager;
+    }
+
+    @Override
+    public String getMode() {
+        return ServerConfig.getString("collection.mode", "heap");
+    }
+
+    @Override
+    public int getSize() {
+        return collectionManager.collectionSize();
+    }
+
+    @Override
+    public long getVersion() {
+        return collectionManager.getVersion();
+    }
+
+    @Override
+    public Map<String, Integer> getIndexSizes() {
+        return collectionManager.getIndexSizes();
+    }
+
+    @Override
+    public long getLockAcquisitions() {
+        return collectionManager.getLockAcquisitions();
+    }
+
+    @Override
+    public long getLockContentions() {
+        return collectionManager.getLockContentions();
+    }
+
+    @Override
+    public double getLockWaitMillis() {
+        return collectionManager.getLockWaitNanos() / 1e6;
+    }
+
+    @Override
+    public double getMaxLockWaitMillis() {
+        return collectionManager.getMaxLockWaitNanos() / 1e6;
+    }
+}
@@ -0,0 +1,52 @@
+package com.ann.server.management;
+
+/**
+ * Пул соединений с базой данных и время запросов: {@code com.ann.server:type=Database}.
+ * Время запроса — время от выдачи соединения из пула до его возврата за последнюю минуту.
+ */
+public interface DatabaseMXBean {
+
+    int getActiveConnections();
+
+    int getIdleConnections();
+
+    /**
+     * @return максимальное количество одновременно выданных соединений
+     */
+    int getPoolSize();
+
+    /**
+     * @param poolSize новое максимальное количество одновременно выданных соединений
+     */
+    void setPoolSize(int poolSize);
+
+    /**
+     * @return максимальное время ожидания свободного соединения в миллисекундах
+     */
+    long getPoolTimeoutMillis();
+
+    void setPoolTimeoutMillis(long timeoutMillis);
+
+    /**
+     * @return количество ожиданий свободного соединения
+     */
+    long getPoolWaits();
+
+    /**
+     * @return количество отказов из-за истечения времени ожидания соединения
+     */
+    long getPoolTimeouts();
+
+    /**
+     * @return запросов к базе данных в секунду за последнюю минуту
+     */
+    double getQueriesPerSecond();
+
+    double getQueryLatencyP50Millis();
+
+    double getQueryLatencyP99Millis();
+
+    double getQueryLatencyP999Millis();
+
+    double getQueryLatencyMaxMillis();
+}
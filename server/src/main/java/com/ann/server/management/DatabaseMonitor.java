@@ -0,0 +1,88 @@
+package com.ann.server.management;
+
+import com.ann.server.managers.ConnectionPool;
+import com.general.metrics.LatencySnapshot;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Реализация {@link DatabaseMXBean} поверх пула соединений.
+ */
+public class DatabaseMonitor implements DatabaseMXBean {
+    private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final ConnectionPool connectionPool;
+
+    public DatabaseMonitor(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return connectionPool.getActive();
+    }
+
+    @Override
+    public int getIdleConnections() {
+        return connectionPool.getIdle();
+    }
+
+    @Override
+    public int getPoolSize() {
+        return connectionPool.getMaxSize();
+    }
+
+    @Override
+    public void setPoolSize(int poolSize) {
+        connectionPool.setMaxSize(poolSize);
+    }
+
+    @Override
+    public long getPoolTimeoutMillis() {
+        return connectionPool.getTimeoutMillis();
+    }
+
+    @Override
+    public void setPoolTimeoutMillis(long timeoutMillis) {
+        connectionPool.setTimeoutMillis(timeoutMillis);
+    }
+
+    @Override
+    public long getPoolWaits() {
+        return connectionPool.getWaits();
+    }
+
+    @Override
+    public long getPoolTimeouts() {
+        return connectionPool.getTimeouts();
+    }
+
+    @Override
+    public double getQueriesPerSecond() {
+        return latency().getThroughput();
+    }
+
+    @Override
+    public double getQueryLatencyP50Millis() {
+        return latency().getValueAtPercentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getQueryLatencyP99Millis() {
+        return latency().getValueAtPercentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getQueryLatencyP999Millis() {
+        return latency().getValueAtPercentile(99.9) / 1000.0;
+    }
+
+    @Override
+    public double getQueryLatencyMaxMillis() {
+        return latency().getMaxValue() / 1000.0;
+    }
+
+    private LatencySnapshot latency() {
+        return connectionPool.getLeaseLatency(WINDOW_NANOS);
+    }
+}
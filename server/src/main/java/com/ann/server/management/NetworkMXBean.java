@@ -0,0 +1,58 @@
+package com.ann.server.management;
+
+import java.util.Map;
+
+/**
+ * Соединения, трафик и стадии конвейера запросов: {@code com.ann.server:type=Network}.
+ */
+public interface NetworkMXBean {
+
+    int getOpenConnections();
+
+    /**
+     * @return количество принятых соединений с момента запуска
+     */
+    long getAcceptedConnections();
+
+    long getBytesRead();
+
+    long getBytesWritten();
+
+    /**
+     * @return количество запросов, ожидающих в очереди каждой стадии конвейера
+     */
+    Map<String, Integer> getQueueDepths();
+
+    /**
+     * @return количество запросов в работе на каждой стадии конвейера
+     */
+    Map<String, Integer> getActiveRequests();
+
+    /**
+     * @return количество потоков каждой стадии; -1 для стадий с виртуальным потоком на запрос
+     */
+    Map<String, Integer> getStageThreads();
+
+    /**
+     * @return количество запросов, отклоненных из-за перегрузки конвейера
+     */
+    long getRejectedRequests();
+
+    /**
+     * @return количество потоков стадии выполнения команд
+     */
+    int getExecuteThreads();
+
+    /**
+     * @param threads новое количество потоков стадии выполнения команд
+     */
+    void setExecuteThreads(int threads);
+
+    /**
+     * Изменяет количество потоков стадии конвейера.
+     *
+     * @param stage   название стадии: decode, authenticate, execute, encode или write
+     * @param threads новое количество потоков
+     */
+    void setStageThreads(String stage, int threads);
+}
@@ -0,0 +1,88 @@
+package com.ann.server.management;
+
+import com.ann.server.network.NetworkStatistics;
+import com.ann.server.network.RequestPipeline;
+import com.ann.server.network.Stage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Реализация {@link NetworkMXBean} поверх {@link NetworkStatistics} и стадий конвейера.
+ */
+public class NetworkMonitor implements NetworkMXBean {
+    private final RequestPipeline pipeline;
+
+    public NetworkMonitor(RequestPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    @Override
+    public int getOpenConnections() {
+        return NetworkStatistics.getOpenConnections();
+    }
+
+    @Override
+    public long getAcceptedConnections() {
+        return NetworkStatistics.getAcceptedConnections();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return NetworkStatistics.getBytesRead();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return NetworkStatistics.getBytesWritten();
+    }
+
+    @Override
+    public Map<String, Integer> getQueueDepths() {
+        return byStage(Stage::getQueueDepth);
+    }
+
+    @Override
+    public Map<String, Integer> getActiveRequests() {
+        return byStage(Stage::getActive);
+    }
+
+    @Override
+    public Map<String, Integer> getStageThreads() {
+        return byStage(Stage::getThreads);
+    }
+
+    @Override
+    public long getRejectedRequests() {
+        return pipeline.getStages().stream().mapToLong(Stage::getRejected).sum();
+    }
+
+    @Override
+    public int getExecuteThreads() {
+        return stage("execute").getThreads();
+    }
+
+    @Override
+    public void setExecuteThreads(int threads) {
+        stage("execute").setThreads(threads);
+    }
+
+    @Override
+    public void setStageThreads(String stage, int threads) {
+        stage(stage).setThreads(threads);
+    }
+
+    private Stage<?> stage(String name) {
+        return pipeline.getStages().stream()
+                .filter(stage -> stage.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Неизвестная стадия конвейера: " + name));
+    }
+
+    private Map<String, Integer> byStage(ToIntFunction<Stage<?>> metric) {
+        Map<String, Integer> values = new LinkedHashMap<>();
+        for (Stage<?> stage : pipeline.getStages()) values.put(stage.getName(), metric.applyAsInt(stage));
+        return values;
+    }
+}
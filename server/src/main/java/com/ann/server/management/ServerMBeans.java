@@ -0,0 +1,55 @@
+package com.ann.server.management;
+
+import com.ann.server.managers.ConnectionPool;
+import com.ann.server.managers.ProductCollectionManager;
+import com.ann.server.network.RequestPipeline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Регистрирует MBean-объекты сервера в платформенном MBean-сервере, откуда их читают jconsole, VisualVM
+ * и другие JMX-клиенты. Все объекты находятся в домене {@code com.ann.server}.
+ * <p>
+ * Размер пула соединений, время ожидания соединения и количество потоков стадий конвейера можно изменять
+ * во время работы через атрибуты и операции MBean-объектов.
+ */
+public final class ServerMBeans {
+    private static final Logger logger = LoggerFactory.getLogger("ServerMBeans");
+    private static final String DOMAIN = "com.ann.server";
+
+    private ServerMBeans() {
+    }
+
+    /**
+     * Регистрирует MBean-объекты коллекции, сетевого уровня, проверки пользователей и, если сервер работает
+     * с базой данных, пула соединений. Ошибка регистрации записывается в журнал и не останавливает сервер.
+     *
+     * @param collectionManager менеджер коллекции
+     * @param pipeline          конвейер обработки запросов
+     * @param connectionPool    пул соединений с базой данных или {@code null}, если база данных не используется
+     */
+    public static void register(ProductCollectionManager collectionManager, RequestPipeline pipeline,
+                                ConnectionPool connectionPool) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        register(server, "Collection", new CollectionMonitor(collectionManager));
+        register(server, "Network", new NetworkMonitor(pipeline));
+        register(server, "Auth", new AuthMonitor());
+        if (connectionPool != null) register(server, "Database", new DatabaseMonitor(connectionPool));
+    }
+
+    private static void register(MBeanServer server, String type, Object bean) {
+        try {
+            ObjectName name = new ObjectName(DOMAIN + ":type=" + type);
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            server.registerMBean(bean, name);
+            logger.info("Зарегистрирован MBean {}", name);
+        } catch (JMException e) {
+            logger.error("Не удалось зарегистрировать MBean {}: {}", type, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.ann.server.managers;
+
+import com.general.models.Product;
+import com.ann.server.data.ProductStorage;
+import com.ann.server.data.UserStorage;
+import com.ann.server.storage.ColumnarProductCollection;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Класс {@code ColumnarProductCollectionManager} управляет коллекцией продуктов,
+ * хранящейся в колоночном виде ({@link ColumnarProductCollection}).
+ * <p>
+ * Работа с базой данных, снимком и журналом наследуется от {@link ProductCollectionManager}.
+ * Объекты {@link Product} создаются только при выдаче наружу, поэтому коллекция занимает в несколько раз меньше памяти.
+ */
+public class ColumnarProductCollectionManager extends ProductCollectionManager {
+
+    public ColumnarProductCollectionManager(ProductStorage productStorage, UserStorage userStorage) {
+        super(productStorage, userStorage);
+    }
+
+    /**
+     * Создает колоночную коллекцию продуктов.
+     *
+     * @return новая пустая {@link ColumnarProductCollection}.
+     */
+    @Override
+    protected Collection<Product> createCollection() {
+        return new ColumnarProductCollection();
+    }
+
+    /**
+     * Вторичные индексы не строятся: они держали бы в куче все продукты, которые колоночное хранилище
+     * создает только при выдаче. ID, организации и владельцы индексируются самим хранилищем.
+     */
+    @Override
+    protected boolean indexesEnabled() {
+        return false;
+    }
+
+    /**
+     * Возвращает продукт по ID через индекс колоночного хранилища.
+     *
+     * @param id ID элемента.
+     * @return продукт или null.
+     */
+    @Override
+    public Product getById(Long id) {
+        return id == null ? null : columns().get(id);
+    }
+
+    @Override
+    public boolean checkExist(Long id) {
+        return getById(id) != null;
+    }
+
+    /**
+     * Колоночное хранилище не поддерживает упорядочивание: пересортировка потребовала бы
+     * переписать все колонки при каждом добавлении, поэтому элементы выдаются в порядке хранения.
+     */
+    @Override
+    public void sortCollection() {
+    }
+
+    @Override
+    public Map<String, Integer> getIndexSizes() {
+        return columns().indexSizes();
+    }
+
+    private ColumnarProductCollection columns() {
+        return (ColumnarProductCollection) getCollection();
+    }
+}
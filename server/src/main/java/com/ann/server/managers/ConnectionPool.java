@@ -0,0 +1,282 @@
+package com.ann.server.managers;
+
+import com.general.metrics.LatencySnapshot;
+import com.general.metrics.Outcome;
+import com.general.metrics.SlidingLatencyRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serial;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Пул соединений с базой данных ограниченного размера.
+ * <p>
+ * Пул ограничивает количество одновременно используемых соединений: при исчерпании пула поток ждет
+ * освобождения соединения не дольше заданного времени. Выданное соединение возвращается в пул
+ * вызовом {@link Connection#close()}, поэтому DAO-классы продолжают использовать try-with-resources.
+ * Пул безопасен для использования из виртуальных потоков: ожидание не удерживает мониторы.
+ * <p>
+ * Размер пула и время ожидания можно менять во время работы. Время от выдачи соединения до его возврата
+ * записывается в гистограмму: DAO-классы берут соединение на один запрос, поэтому это время запроса к базе данных
+ * вместе с обработкой результата.
+ */
+public class ConnectionPool {
+    private static final Logger logger = LoggerFactory.getLogger("ConnectionPool");
+
+    private final Supplier<Connection> connectionFactory;
+    private final ResizableSemaphore permits;
+    private volatile int maxSize;
+    private volatile long timeoutMillis;
+    private final ConcurrentLinkedDeque<Connection> idle = new ConcurrentLinkedDeque<>();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final SlidingLatencyRecorder leases = new SlidingLatencyRecorder(TimeUnit.SECONDS.toNanos(5), 12);
+
+    /**
+     * @param connectionFactory источник новых физических соединений; возвращает {@code null} при ошибке
+     * @param maxSize           максимальное количество одновременно выданных соединений
+     * @param timeoutMillis     максимальное время ожидания свободного соединения в миллисекундах
+     */
+    public ConnectionPool(Supplier<Connection> connectionFactory, int maxSize, long timeoutMillis) {
+        this.connectionFactory = connectionFactory;
+        this.maxSize = Math.max(1, maxSize);
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new ResizableSemaphore(this.maxSize);
+    }
+
+    /**
+     * Выдает соединение из пула, при необходимости открывая новое.
+     *
+     * @return соединение, которое возвращается в пул при закрытии
+     * @throws SQLException если свободное соединение не появилось за отведенное время или его не удалось открыть
+     */
+    public Connection getConnection() throws SQLException {
+        acquirePermit();
+        try {
+            Connection physical;
+            while ((physical = idle.pollFirst()) != null) {
+                if (!physical.isClosed()) return wrap(physical);
+            }
+            physical = connectionFactory.get();
+            if (physical == null) throw new SQLException("Не удалось установить соединение с базой данных");
+            return wrap(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return количество соединений, выданных в данный момент
+     */
+    public int getActive() {
+        return maxSize - permits.availablePermits();
+    }
+
+    /**
+     * @return количество открытых соединений, ожидающих в пуле
+     */
+    public int getIdle() {
+        return idle.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Изменяет максимальное количество одновременно выданных соединений. При уменьшении лишние свободные
+     * соединения закрываются, а уже выданные не отзываются: новые соединения выдаются, когда выданных станет
+     * меньше нового размера, и свободных остается не больше нового размера.
+     *
+     * @param maxSize новый размер пула, не меньше 1
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 1) throw new IllegalArgumentException("Размер пула должен быть положительным");
+        int delta = maxSize - this.maxSize;
+        if (delta > 0) {
+            permits.release(delta);
+        } else if (delta < 0) {
+            permits.reducePermits(-delta);
+        }
+        this.maxSize = maxSize;
+        trimIdle();
+        logger.info("Размер пула соединений изменен на {}", maxSize);
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * @param timeoutMillis новое максимальное время ожидания свободного соединения в миллисекундах
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        if (timeoutMillis < 0) throw new IllegalArgumentException("Время ожидания не может быть отрицательным");
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @return количество ожиданий свободного соединения
+     */
+    public long getWaits() {
+        return waits.sum();
+    }
+
+    /**
+     * @return количество отказов из-за истечения времени ожидания
+     */
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    /**
+     * @param windowNanos длина окна в наносекундах, не больше минуты
+     * @return время использования соединений за окно в микросекундах
+     */
+    public LatencySnapshot getLeaseLatency(long windowNanos) {
+        return leases.snapshot(windowNanos);
+    }
+
+    /**
+     * Закрывает все свободные соединения. Выданные соединения закрываются при возврате в пул.
+     */
+    public void close() {
+        Connection physical;
+        while ((physical = idle.pollFirst()) != null) {
+            ConnectionManager.closeConnection(physical);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("соединений занято %d/%d, свободно %d, ожиданий %d, отказов по таймауту %d",
+                getActive(), maxSize, getIdle(), getWaits(), getTimeouts());
+    }
+
+    private void acquirePermit() throws SQLException {
+        if (permits.tryAcquire()) return;
+        waits.increment();
+        long timeoutMillis = this.timeoutMillis;
+        try {
+            if (permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Ожидание соединения прервано", e);
+        }
+        timeouts.increment();
+        throw new SQLTransientConnectionException("Нет свободных соединений с базой данных за " + timeoutMillis + " мс");
+    }
+
+    /**
+     * Возвращает физическое соединение в пул, восстанавливая режим автоматической фиксации,
+     * и записывает время, в течение которого соединение было выдано.
+     */
+    private void release(Connection physical, long leasedAt) {
+        leases.record(System.nanoTime() - leasedAt, Outcome.SUCCESS);
+        try {
+            if (!physical.isClosed()) {
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                idle.offerFirst(physical);
+                trimIdle();
+            }
+        } catch (SQLException e) {
+            logger.warn("Соединение не возвращено в пул: {}", e.getMessage());
+            ConnectionManager.closeConnection(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Закрывает давно не использованные свободные соединения, пока их не больше размера пула.
+     */
+    private void trimIdle() {
+        while (idle.size() > maxSize) {
+            Connection physical = idle.pollLast();
+            if (physical == null) return;
+            ConnectionManager.closeConnection(physical);
+        }
+    }
+
+    private Connection wrap(Connection physical) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                new PooledConnection(physical));
+    }
+
+    /**
+     * Обработчик вызовов выданного соединения: закрытие возвращает соединение в пул, остальные вызовы
+     * передаются физическому соединению.
+     */
+    private class PooledConnection implements InvocationHandler {
+        private final Connection physical;
+        private final long leasedAt = System.nanoTime();
+        private boolean returned;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        release(physical, leasedAt);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || physical.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                    if (returned) throw new SQLException("Соединение уже возвращено в пул");
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Семафор, количество разрешений которого можно уменьшить без ожидания их возврата.
+     */
+    private static class ResizableSemaphore extends Semaphore {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private ResizableSemaphore(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
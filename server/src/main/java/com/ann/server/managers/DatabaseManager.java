@@ -2,9 +2,12 @@ package com.ann.server.managers;
 
 import com.ann.server.data.ProductDAO;
 import com.ann.server.data.UserDAO;
+import com.ann.server.utility.ServerConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.SQLException;
 
@@ -22,25 +25,60 @@ public class DatabaseManager {
     private static final UserDAO userDAO = new UserDAO();
     private static final ProductDAO productDAO = new ProductDAO();
     private static final Logger logger = LoggerFactory.getLogger("DatabaseManager");
-    private static final ThreadLocal<Connection> threadLocalConnection = new ThreadLocal<>();
+    private static final ConnectionPool connectionPool = new ConnectionPool(ConnectionManager::getConnection,
+            ServerConfig.getInt("db.pool.size", 10), ServerConfig.getLong("db.pool.timeout.ms", 5000));
+    private static final ThreadLocal<Connection> transaction = new ThreadLocal<>(); // Соединение открытой транзакции потока
 
 
     /**
-     * Возвращает соединение с базой данных для текущего потока.
-     * Если соединение не установлено или закрыто, оно создается заново.
+     * Возвращает соединение с базой данных из пула.
+     * Соединение должно быть закрыто после использования, закрытие возвращает его в пул.
+     * Размер пула ограничивает количество одновременных обращений к базе данных.
+     * Внутри {@link #inTransaction(SqlWork)} возвращается соединение транзакции, закрытие которого ничего не делает.
      *
      * @return Объект {@link Connection}, представляющий соединение с базой данных.
-     * @throws SQLException Если возникает ошибка при попытке установить соединение.
+     * @throws SQLException Если свободное соединение не появилось вовремя или его не удалось установить.
      */
     public static Connection getConnection() throws SQLException {
-        Connection connection = threadLocalConnection.get();
+        Connection bound = transaction.get();
+        if (bound != null) return unclosable(bound);
+        return connectionPool.getConnection();
+    }
 
-        if (connection == null || connection.isClosed()) {
-            connection = ConnectionManager.getConnection();
-            threadLocalConnection.set(connection);
+    /**
+     * Выполняет действие в одной транзакции. Все обращения DAO-классов к базе данных из текущего потока
+     * во время действия используют одно соединение, а изменения фиксируются одним commit.
+     * Если действие завершается исключением, транзакция откатывается. Вложенный вызов выполняется
+     * в уже открытой транзакции.
+     *
+     * @param work действие
+     * @param <R>  тип результата действия
+     * @return результат действия
+     * @throws SQLException если транзакцию не удалось открыть или зафиксировать
+     */
+    public static <R> R inTransaction(SqlWork<R> work) throws SQLException {
+        if (transaction.get() != null) return work.run();
+        try (Connection connection = connectionPool.getConnection()) {
+            connection.setAutoCommit(false);
+            transaction.set(connection);
+            try {
+                R result = work.run();
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                transaction.remove();
+            }
         }
+    }
 
-        return connection;
+    /**
+     * @return пул соединений с базой данных
+     */
+    public static ConnectionPool getConnectionPool() {
+        return connectionPool;
     }
 
     /**
@@ -96,4 +134,28 @@ public class DatabaseManager {
         }
     }
 
+    /**
+     * Оборачивает соединение транзакции так, чтобы try-with-resources в DAO-классах не закрывал его.
+     */
+    private static Connection unclosable(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close")) return null;
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Действие с базой данных, выполняемое в транзакции.
+     *
+     * @param <R> тип результата
+     */
+    @FunctionalInterface
+    public interface SqlWork<R> {
+        R run() throws SQLException;
+    }
 }
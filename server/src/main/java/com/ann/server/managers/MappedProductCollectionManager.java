@@ -0,0 +1,151 @@
+package com.ann.server.managers;
+
+import com.general.models.Product;
+import com.ann.server.data.ProductStorage;
+import com.ann.server.data.UserStorage;
+import com.ann.server.storage.MappedProductCollection;
+import com.ann.server.utility.ServerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс {@code MappedProductCollectionManager} управляет коллекцией продуктов,
+ * хранящейся вне кучи в файле, отображенном в память ({@link MappedProductCollection}).
+ * <p>
+ * Файл хранилища сам сохраняется между перезапусками, поэтому снимок и журнал изменений в этом режиме не ведутся.
+ * При запуске слоты с неверной контрольной суммой отбрасываются, а содержимое файла сверяется с базой данных
+ * по количеству строк и максимальному ID.
+ */
+public class MappedProductCollectionManager extends ProductCollectionManager {
+    private static final Logger logger = LoggerFactory.getLogger("MappedProductCollectionManager");
+
+    public MappedProductCollectionManager(ProductStorage productStorage, UserStorage userStorage) {
+        super(productStorage, userStorage);
+    }
+
+    /**
+     * Открывает файл хранилища в каталоге {@code storage.dir}.
+     *
+     * @return хранилище продуктов, отображенное в память.
+     */
+    @Override
+    protected Collection<Product> createCollection() {
+        return new MappedProductCollection(ServerConfig.getPath("storage.dir", "data/storage").resolve("products.mapped"));
+    }
+
+    /**
+     * Снимок не нужен: файл хранилища сохраняется на диске при каждом изменении.
+     */
+    @Override
+    protected boolean snapshotsEnabled() {
+        return false;
+    }
+
+    /**
+     * Вторичные индексы не строятся: они держали бы в куче продукты, хранящиеся вне кучи.
+     */
+    @Override
+    protected boolean indexesEnabled() {
+        return false;
+    }
+
+    /**
+     * Сверяет файл хранилища с базой данных и догружает недостающие элементы.
+     * Если количество элементов расходится, хранилище заполняется заново из базы данных.
+     */
+    @Override
+    protected void loadCollection() {
+        long startTime = System.nanoTime();
+        MappedProductCollection store = store();
+        int reconciled = 0;
+        if (store.droppedOnOpen() > 0) {
+            logger.warn("Отброшено поврежденных слотов хранилища: {}", store.droppedOnOpen());
+        }
+        try {
+            long[] countAndMaxId = getProductStorage().getCountAndMaxId();
+            long localMaxId = store.maxId();
+            if (!store.isEmpty() && countAndMaxId[1] > localMaxId) {
+                for (Product product : getProductStorage().getProductsAfterId(localMaxId)) {
+                    store.add(product);
+                    reconciled++;
+                }
+            }
+            if (countAndMaxId[0] != store.size()) {
+                if (!store.isEmpty()) {
+                    logger.warn("Хранилище расходится с базой данных ({} элементов против {}), выполняется полная загрузка",
+                            store.size(), countAndMaxId[0]);
+                }
+                reloadFromDatabase(store);
+            }
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("Не удалось сверить хранилище с базой данных, используется локальное состояние: {}", e.getMessage());
+        }
+        setLastInitTime(LocalDateTime.now());
+        logger.info("Хранилище открыто за {} мс: {} элементов, догружено из БД: {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), store.size(), reconciled);
+    }
+
+    /**
+     * Заполняет хранилище всеми продуктами из базы данных.
+     *
+     * @param store хранилище продуктов
+     */
+    private void reloadFromDatabase(MappedProductCollection store) {
+        store.clear();
+        for (Product product : getProductStorage().getAllProducts()) {
+            store.add(product);
+        }
+    }
+
+    /**
+     * Возвращает продукт по ID через индекс хранилища.
+     *
+     * @param id ID элемента.
+     * @return продукт или null.
+     */
+    @Override
+    public Product getById(Long id) {
+        return id == null ? null : store().get(id);
+    }
+
+    @Override
+    public boolean checkExist(Long id) {
+        return getById(id) != null;
+    }
+
+    /**
+     * Хранилище не поддерживает упорядочивание, элементы выдаются в порядке хранения.
+     */
+    @Override
+    public void sortCollection() {
+    }
+
+    /**
+     * Сбрасывает изменения на диск и закрывает файл хранилища.
+     */
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        try {
+            store().close();
+        } catch (IOException e) {
+            logger.error("Не удалось закрыть файл хранилища: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, Integer> getIndexSizes() {
+        return Map.of("id", store().idIndexSize());
+    }
+
+    private MappedProductCollection store() {
+        return (MappedProductCollection) getCollection();
+    }
+}
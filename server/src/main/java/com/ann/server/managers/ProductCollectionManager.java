@@ -1,64 +1,386 @@
 package com.ann.server.managers;
 
+import com.general.managers.CollectionIndex;
 import com.general.managers.CollectionManager;
+import com.general.models.Organization;
 import com.general.models.Product;
-import com.ann.server.data.ProductDAO;
-import com.ann.server.data.UserDAO;
+import com.general.utility.InternPool;
+import com.ann.server.data.ProductStorage;
+import com.ann.server.data.UserStorage;
+import com.ann.server.storage.OwnerColumn;
+import com.ann.server.storage.OwnerPartitionedQueue;
+import com.ann.server.storage.ProductJournal;
+import com.ann.server.storage.ProductSnapshot;
+import com.ann.server.utility.ServerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.PriorityQueue;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * Класс {@code ProductCollectionManager} управляет коллекцией объектов типа {@link Product}.
  * <p>
  * Этот класс предоставляет методы для загрузки, добавления, удаления и сортировки объектов Product в коллекции.
- * Он работает с базой данных через DAO-классы {@link ProductDAO} и {@link UserDAO}.
+ * Он работает с постоянным хранилищем через интерфейсы {@link ProductStorage} и {@link UserStorage}:
+ * с базой данных PostgreSQL или, при {@code storage.backend=memory}, с памятью процесса.
+ * <p>
+ * Для быстрого перезапуска коллекция периодически сохраняется в локальный снимок {@link ProductSnapshot},
+ * а все изменения после снимка записываются в журнал {@link ProductJournal}. При запуске коллекция
+ * восстанавливается из снимка и журнала и сверяется с базой данных по количеству строк и максимальному ID.
+ * <p>
+ * Пакет изменений ({@link #atomically(Supplier)}) выполняется под одной блокировкой коллекции и в одной
+ * транзакции базы данных. Изменения коллекции внутри пакета запоминаются, чтобы отменить их при откате.
+ * Другие изменения ждут завершения пакета, но чтение коллекции идет без блокировки и может застать пакет
+ * выполненным частично.
+ * <p>
+ * В режиме heap коллекция индексируется по ID, цене, дате создания, единице измерения и организации
+ * ({@link CollectionIndex}); индексы обновляются под той же блокировкой, что и коллекция. Продукты хранятся
+ * по владельцам ({@link OwnerPartitionedQueue}), поэтому очистка коллекции пользователем не затрагивает чужие продукты.
  */
 public class ProductCollectionManager extends CollectionManager<Product> {
-    private final ProductDAO productDAO;
-    private final UserDAO userDAO;
+    private static final Logger logger = LoggerFactory.getLogger("ProductCollectionManager");
+    private final ProductStorage productStorage;
+    private final UserStorage userStorage;
     private final ReentrantLock lock = new ReentrantLock(); // Объект для синхронизации доступа к коллекции
+    private final ProductSnapshot snapshot;
+    private final ProductJournal journal;
+    private final ScheduledExecutorService snapshotService;
+    private volatile boolean snapshotOutdated = true;
+    private Batch batch; // Открытый пакет изменений, доступен только потоку, удерживающему блокировку
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder lockAcquisitions = new LongAdder();
+    private final LongAdder lockContentions = new LongAdder();
+    private final LongAdder lockWaitNanos = new LongAdder();
+    private final AtomicLong maxLockWaitNanos = new AtomicLong();
+    private final LongAdder sorts = new LongAdder();
+    private final int maxProductsPerUser = ServerConfig.getInt("collection.max.per.user", 0);
 
     /**
-     * Конструктор, инициализирующий DAO и загружающий коллекцию объектов Product из базы данных.
+     * Конструктор, инициализирующий хранилища и загружающий коллекцию объектов Product из базы данных.
      *
-     * @param productDAO объект для работы с базой данных Product.
-     * @param userDAO объект для работы с базой данных пользователей.
+     * @param productStorage хранилище продуктов.
+     * @param userStorage    хранилище пользователей.
      */
-    public ProductCollectionManager(ProductDAO productDAO, UserDAO userDAO) {
-        this.productDAO = productDAO;
-        this.userDAO = userDAO;
+    public ProductCollectionManager(ProductStorage productStorage, UserStorage userStorage) {
+        this.productStorage = productStorage;
+        this.userStorage = userStorage;
+        if (snapshotsEnabled()) {
+            Path directory = ServerConfig.getPath("storage.dir", "data/storage");
+            this.snapshot = new ProductSnapshot(directory.resolve("products.snapshot"));
+            this.journal = new ProductJournal(directory, ServerConfig.getBoolean("storage.journal.fsync", false));
+            this.snapshotService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "snapshot-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.snapshot = null;
+            this.journal = null;
+            this.snapshotService = null;
+        }
         loadCollection();
+        if (indexesEnabled()) declareIndexes();
+        scheduleSnapshots();
+    }
+
+    /**
+     * Определяет, нужно ли строить вторичные индексы коллекции. Индексы хранят ссылки на продукты,
+     * поэтому режимы хранения, которые создают продукты только при выдаче или изменяют коллекцию в обход
+     * методов {@link CollectionManager}, их не строят.
+     * Вызывается из конструктора, поэтому не должен обращаться к полям подкласса.
+     *
+     * @return {@code true}, если индексы включены в настройках сервера
+     */
+    protected boolean indexesEnabled() {
+        return ServerConfig.getBoolean("collection.indexes.enabled", true);
+    }
+
+    private void declareIndexes() {
+        long startTime = System.nanoTime();
+        lockCollection();
+        try {
+            declareIndex(CollectionIndex.unique("id", Product::getId));
+            declareIndex(CollectionIndex.ordered("price", Product::getPrice));
+            declareIndex(CollectionIndex.ordered("creationDate", Product::getCreationDate));
+            declareIndex(CollectionIndex.multi("unitOfMeasure", Product::getUnitOfMeasure));
+            declareIndex(CollectionIndex.multi("organization", product ->
+                    product.getOrganization() == null ? null : product.getOrganization().getName()));
+            declareIndex(CollectionIndex.multi("username", Product::getUsername));
+            declareIndex(CollectionIndex.spatial("coordinates", product -> product.getCoordinates() == null ? null
+                            : new CollectionIndex.Point(product.getCoordinates().getX(), product.getCoordinates().getY()),
+                    Math.max(1, ServerConfig.getInt("collection.spatial.cell.size", 10))));
+        } finally {
+            lock.unlock();
+        }
+        logger.info("Индексы коллекции построены за {} мс: {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), getIndexes());
+    }
+
+    /**
+     * Определяет, нужно ли вести локальный снимок и журнал изменений.
+     * Вызывается из конструктора, поэтому не должен обращаться к полям подкласса.
+     *
+     * @return {@code true}, если снимок включен в настройках сервера
+     */
+    protected boolean snapshotsEnabled() {
+        return ServerConfig.getBoolean("storage.snapshot.enabled", true);
+    }
+
+    /**
+     * @return хранилище продуктов
+     */
+    protected ProductStorage getProductStorage() {
+        return productStorage;
+    }
+
+    /**
+     * @return номер версии коллекции; увеличивается при каждом изменении и при отмене пакета изменений
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Возвращает размеры индексов коллекции по их названиям: количество различных значений
+     * в объявленных индексах. Режимы хранения со своими индексами переопределяют метод.
+     *
+     * @return размеры индексов
+     */
+    public Map<String, Integer> getIndexSizes() {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        getIndexes().forEach(index -> sizes.put(index.getName(), index.size()));
+        return sizes;
+    }
+
+    /**
+     * Возвращает продукт по ID через индекс, если он построен.
+     *
+     * @param id ID элемента.
+     * @return продукт или null.
+     */
+    @Override
+    public Product getById(Long id) {
+        CollectionIndex<Product, Long> ids = getIndex("id");
+        if (ids == null) return super.getById(id);
+        return ids.equalTo(id).findFirst().orElse(null);
+    }
+
+    @Override
+    public boolean checkExist(Long id) {
+        CollectionIndex<Product, Long> ids = getIndex("id");
+        return ids == null ? super.checkExist(id) : ids.count(id) > 0;
+    }
+
+    /**
+     * Возвращает продукты пользователя через индекс по владельцу, если он построен, или по колонке владельцев
+     * хранилища ({@link OwnerColumn}); без них коллекция просматривается целиком.
+     *
+     * @param username имя пользователя.
+     * @return продукты пользователя.
+     */
+    @Override
+    public List<Product> getOwnedBy(String username) {
+        CollectionIndex<Product, String> owners = getIndex("username");
+        if (owners != null) return owners.equalTo(username).toList();
+        if (getCollection() instanceof OwnerColumn owned) return owned.filterByUsername(username);
+        return super.getOwnedBy(username);
+    }
+
+    @Override
+    public int countOwnedBy(String username) {
+        CollectionIndex<Product, String> owners = getIndex("username");
+        if (owners != null) return owners.count(username);
+        if (getCollection() instanceof OwnerPartitionedQueue partitions) return partitions.countOwner(username);
+        if (getCollection() instanceof OwnerColumn owned) return owned.countByUsername(username);
+        return super.countOwnedBy(username);
+    }
+
+    /**
+     * @return количество захватов блокировки коллекции
+     */
+    public long getLockAcquisitions() {
+        return lockAcquisitions.sum();
+    }
+
+    /**
+     * @return количество захватов, которым пришлось ждать освобождения блокировки
+     */
+    public long getLockContentions() {
+        return lockContentions.sum();
+    }
+
+    /**
+     * @return суммарное время ожидания блокировки коллекции в наносекундах
+     */
+    public long getLockWaitNanos() {
+        return lockWaitNanos.sum();
+    }
+
+    /**
+     * @return наибольшее время одного ожидания блокировки коллекции в наносекундах
+     */
+    public long getMaxLockWaitNanos() {
+        return maxLockWaitNanos.get();
+    }
+
+    /**
+     * @return количество выполненных сортировок коллекции; отложенные в пакете сортировки не учитываются
+     */
+    public long getSortCount() {
+        return sorts.sum();
     }
 
     /**
      * Создает коллекцию объектов {@link Product}.
      *
-     * @return новая коллекция типа {@link PriorityQueue}.
+     * @return новая коллекция {@link OwnerPartitionedQueue} с очередью {@link java.util.PriorityQueue} на пользователя.
      */
     @Override
     protected Collection<Product> createCollection() {
-        return new PriorityQueue<>();
+        return new OwnerPartitionedQueue();
     }
 
     /**
-     * Загружает коллекцию объектов Product из базы данных и сортирует её.
+     * Загружает коллекцию объектов Product из локального снимка или из базы данных и сортирует её.
      */
     @Override
     protected void loadCollection() {
-        Collection<Product> loadedCollection = productDAO.getAllProducts(); // Загружаем из БД
-        lock.lock(); // Начало критической секции
+        Collection<Product> loadedCollection = null;
+        if (snapshot != null && snapshot.exists()) {
+            try {
+                loadedCollection = restoreFromDisk();
+            } catch (IOException e) {
+                logger.warn("Не удалось прочитать локальный снимок коллекции: {}", e.getMessage());
+            }
+        }
+        if (loadedCollection == null) {
+            loadedCollection = productStorage.getAllProducts(); // Загружаем из БД
+            snapshotOutdated = true;
+        }
+        lockCollection(); // Начало критической секции
         try {
             setCollection(loadedCollection); // Устанавливаем в коллекцию в памяти
+            rebuildIndexes();
             sortCollection(); // Сортировка коллекции после загрузки
             setLastInitTime(LocalDateTime.now()); // Устанавливаем время инициализации
+            logger.info("Интернирование после загрузки: {}; {}", Organization.pool(), InternPool.STRINGS);
+            if (journal != null) journal.rotate(journal.lastGeneration() + 1);
+        } catch (IOException e) {
+            logger.error("Не удалось открыть журнал изменений: {}", e.getMessage());
+        } finally {
+            lock.unlock(); // Конец критической секции
+        }
+    }
+
+    /**
+     * Восстанавливает коллекцию из снимка и журнала и сверяет её с базой данных.
+     *
+     * @return восстановленная коллекция или {@code null}, если она расходится с базой данных
+     * @throws IOException если снимок или журнал не могут быть прочитаны
+     */
+    private Collection<Product> restoreFromDisk() throws IOException {
+        long startTime = System.nanoTime();
+        ProductSnapshot.Contents contents = snapshot.read();
+        Map<Long, Product> products = contents.products();
+        long replayed = journal.replay(products, contents.journalGeneration());
+        long localMaxId = Math.max(contents.maxId(), products.keySet().stream().mapToLong(Long::longValue).max().orElse(0));
+        int reconciled = 0;
+
+        try {
+            long[] countAndMaxId = productStorage.getCountAndMaxId();
+            if (countAndMaxId[1] > localMaxId) {
+                for (Product product : productStorage.getProductsAfterId(localMaxId)) {
+                    products.put(product.getId(), product);
+                    reconciled++;
+                }
+            }
+            if (countAndMaxId[0] != products.size()) {
+                logger.warn("Снимок расходится с базой данных ({} элементов против {}), выполняется полная загрузка",
+                        products.size(), countAndMaxId[0]);
+                return null;
+            }
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("Не удалось сверить снимок с базой данных, используется локальное состояние: {}", e.getMessage());
+        }
+
+        snapshotOutdated = replayed > 0 || reconciled > 0;
+        logger.info("Коллекция восстановлена из снимка за {} мс: {} элементов, записей журнала: {}, догружено из БД: {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), products.size(), replayed, reconciled);
+        return products.values();
+    }
+
+    /**
+     * Запускает периодическую запись снимка коллекции.
+     */
+    private void scheduleSnapshots() {
+        if (snapshotService == null) return;
+        long interval = Math.max(1, ServerConfig.getLong("storage.snapshot.interval.minutes", 10));
+        snapshotService.scheduleWithFixedDelay(this::saveSnapshot, snapshotOutdated ? 0 : interval, interval, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Записывает снимок коллекции, если она изменилась после последнего снимка.
+     * Под блокировкой копируется только список ссылок и начинается новое поколение журнала,
+     * сама запись снимка выполняется без блокировки коллекции.
+     */
+    public void saveSnapshot() {
+        if (snapshot == null || !snapshotOutdated) return;
+        List<Product> products;
+        long generation;
+        lockCollection(); // Начало критической секции
+        try {
+            products = new ArrayList<>(getCollection());
+            generation = journal.getGeneration() + 1;
+            journal.rotate(generation);
+            snapshotOutdated = false;
+        } catch (IOException e) {
+            logger.error("Не удалось начать новое поколение журнала: {}", e.getMessage());
+            return;
         } finally {
             lock.unlock(); // Конец критической секции
         }
+
+        try {
+            snapshot.write(products, generation);
+            journal.deleteBefore(generation);
+            setLastSaveTime(LocalDateTime.now());
+        } catch (IOException e) {
+            snapshotOutdated = true;
+            logger.error("Не удалось записать снимок коллекции: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Записывает итоговый снимок и закрывает журнал. Вызывается при завершении работы сервера.
+     */
+    public void shutdown() {
+        if (snapshotService == null) return;
+        snapshotService.shutdownNow();
+        saveSnapshot();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.error("Не удалось закрыть журнал изменений: {}", e.getMessage());
+        }
     }
 
     /**
@@ -79,7 +401,7 @@ public class ProductCollectionManager extends CollectionManager<Product> {
      * @param collection коллекция объектов Product для установки.
      */
     private void setCollection(Collection<Product> collection) {
-        lock.lock(); // Начало критической секции
+        lockCollection(); // Начало критической секции
         try {
             super.getCollection().clear(); // Очищаем текущую коллекцию
             super.getCollection().addAll(collection); // Добавляем новые элементы в коллекцию
@@ -95,19 +417,36 @@ public class ProductCollectionManager extends CollectionManager<Product> {
      * @param username имя пользователя, добавляющего объект.
      * @param element  объект Product для добавления.
      * @return ID добавленного объекта или отрицательное значение в случае ошибки.
+     * @throws IllegalStateException если объект нарушает уникальный индекс коллекции или пользователь
+     *                               достиг лимита продуктов.
      */
     @Override
     public Long addToCollection(String username, Product element) {
         element.setUsername(username); // Устанавливаем имя пользователя
-        long id = productDAO.insertProduct(element); // Добавляем объект в базу данных
-        if (id < 0) return id; // Если ошибка, возвращаем отрицательный ID
-        element.setId(id); // Устанавливаем ID объекта
-
-        lock.lock(); // Начало критической секции
+        checkIndexes(element);
+        // При лимите продуктов он проверяется, а продукт вставляется в базу данных и коллекцию под одной блокировкой,
+        // иначе одновременные добавления одного пользователя могли бы превысить лимит
+        boolean limited = maxProductsPerUser > 0;
+        if (limited) lockCollection();
         try {
-            return super.addToCollection("", element); // Добавляем объект в коллекцию
+            if (limited && countOwnedBy(username) >= maxProductsPerUser) {
+                throw new IllegalStateException("Достигнут лимит продуктов пользователя: " + maxProductsPerUser);
+            }
+            long id = productStorage.insertProduct(element); // Добавляем объект в базу данных
+            if (id < 0) return id; // Если ошибка, возвращаем отрицательный ID
+            element.setId(id); // Устанавливаем ID объекта
+
+            lockCollection(); // Начало критической секции
+            try {
+                Long result = super.addToCollection("", element); // Добавляем объект в коллекцию
+                if (inBatch()) batch.undo.push(() -> super.removeFromCollection(element, username));
+                journal(journal -> journal.logAdd(element));
+                return result;
+            } finally {
+                lock.unlock(); // Конец критической секции
+            }
         } finally {
-            lock.unlock(); // Конец критической секции
+            if (limited) lock.unlock();
         }
     }
 
@@ -125,33 +464,253 @@ public class ProductCollectionManager extends CollectionManager<Product> {
         if (!element.getUsername().equals(username)) return false; // Проверка, что пользователь является создателем объекта
 
         try {
-            if (!productDAO.removeProductById(element.getId())) throw new Exception(); // Удаление объекта из базы данных
+            if (!productStorage.removeProductById(element.getId())) throw new Exception(); // Удаление объекта из базы данных
         } catch (Exception e) {
             return false; // В случае ошибки возвращаем false
         }
 
-        lock.lock(); // Начало критической секции
+        lockCollection(); // Начало критической секции
         try {
-            return super.removeFromCollection(element, username); // Удаляем объект из коллекции
+            boolean removed = super.removeFromCollection(element, username); // Удаляем объект из коллекции
+            if (removed) {
+                if (inBatch()) batch.undo.push(() -> super.addToCollection("", element));
+                journal(journal -> journal.logRemove(element.getId()));
+            }
+            return removed;
         } finally {
             lock.unlock(); // Конец критической секции
         }
     }
 
+    /**
+     * Удаляет продукт по ID за одно обращение к коллекции: все коллекции продуктов удаляют по ID,
+     * а продукт для обновления индексов находится через {@link #getById}.
+     */
+    @Override
+    protected Product removeElement(Product element) {
+        Product stored = getById(element.getId());
+        return stored != null && getCollection().remove(stored) ? stored : null;
+    }
+
+    /**
+     * Обновляет объект Product в базе данных и в коллекции.
+     * Используется блокировка для синхронизации доступа к коллекции.
+     *
+     * @param newElement объект Product с новыми значениями полей и ID заменяемого объекта.
+     * @throws IllegalStateException если объект не удалось обновить в базе данных.
+     */
+    @Override
+    public void updateInCollection(Product newElement) {
+        checkIndexes(newElement);
+        try {
+            if (!productStorage.updateProduct(newElement)) throw new IllegalStateException("Элемент не найден в базе данных");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Не удалось обновить элемент в базе данных: " + e.getMessage());
+        }
+
+        lockCollection(); // Начало критической секции
+        try {
+            Product previous = inBatch() ? getById(newElement.getId()) : null;
+            if (previous != null) batch.undo.push(() -> replaceInCollection(previous));
+            replaceInCollection(newElement);
+            journal(journal -> journal.logUpdate(newElement));
+        } finally {
+            lock.unlock(); // Конец критической секции
+        }
+    }
+
+    /**
+     * Удаляет из базы данных и коллекции все объекты Product, принадлежащие пользователю.
+     * Используется блокировка для синхронизации доступа к коллекции.
+     *
+     * @param username имя пользователя.
+     * @throws IllegalStateException если объекты не удалось удалить из базы данных.
+     */
+    @Override
+    public void clearCollection(String username) {
+        // Внутри пакета элементы пользователя запоминаются до удаления из базы данных, из которой их можно догрузить
+        List<Product> owned = inBatch() ? getOwnedBy(username) : List.of();
+        try {
+            productStorage.removeProductsByUsername(username);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Не удалось очистить коллекцию в базе данных: " + e.getMessage());
+        }
+
+        lockCollection(); // Начало критической секции
+        try {
+            removeOwnedBy(username);
+            if (inBatch()) batch.undo.push(() -> owned.forEach(product -> super.addToCollection("", product)));
+            journal(journal -> journal.logClear(username));
+        } finally {
+            lock.unlock(); // Конец критической секции
+        }
+    }
+
+    /**
+     * Заменяет в коллекции объект с тем же ID. Вызывается под блокировкой коллекции.
+     *
+     * @param newElement объект Product с новыми значениями полей.
+     */
+    protected void replaceInCollection(Product newElement) {
+        super.updateInCollection(newElement);
+    }
+
+    /**
+     * Удаляет из коллекции все объекты пользователя. Вызывается под блокировкой коллекции.
+     * Хранилища с колонкой владельцев ({@link OwnerColumn}) удаляют продукты по ней, не создавая объектов;
+     * в режиме heap снимается очередь пользователя ({@link OwnerPartitionedQueue}), а из индексов удаляются
+     * только его продукты.
+     *
+     * @param username имя пользователя.
+     */
+    protected void removeOwnedBy(String username) {
+        if (getCollection() instanceof OwnerColumn owned) {
+            owned.removeByUsername(username);
+            return;
+        }
+        super.clearCollection(username);
+    }
+
+    /**
+     * В режиме heap снимает очередь продуктов пользователя целиком, не просматривая чужие продукты.
+     */
+    @Override
+    protected List<Product> removeOwned(String username) {
+        if (getCollection() instanceof OwnerPartitionedQueue partitions) return partitions.removeOwner(username);
+        return super.removeOwned(username);
+    }
+
     /**
      * Сортирует коллекцию объектов Product по имени.
      * Используется блокировка для синхронизации доступа к коллекции.
      */
     @Override
     public void sortCollection() {
-        lock.lock(); // Начало критической секции
+        if (inBatch()) {
+            batch.sortPending = true; // Сортировка выполняется один раз при завершении пакета
+            return;
+        }
+        if (deferSort()) return; // Сортировка выполняется один раз после скрипта
+        lockCollection(); // Начало критической секции
         try {
             Collection<Product> sortedCollection = getCollection().stream()
                     .sorted(Comparator.comparing(Product::getName)) // Сортировка по имени
                     .collect(Collectors.toList());
             setCollection(sortedCollection); // Устанавливаем отсортированную коллекцию
+            sorts.increment();
+        } finally {
+            lock.unlock(); // Конец критической секции
+        }
+    }
+
+    /**
+     * Выполняет пакет изменений под одной блокировкой коллекции и в одной транзакции базы данных.
+     * Записи журнала пакета записываются и коллекция сортируется один раз, после фиксации транзакции.
+     * Если действие завершается исключением или транзакцию не удалось зафиксировать, транзакция
+     * откатывается, а изменения коллекции отменяются в обратном порядке.
+     *
+     * @param action действие над коллекцией
+     * @param <R>    тип результата действия
+     * @return результат действия
+     * @throws IllegalStateException если транзакцию не удалось открыть или зафиксировать
+     */
+    @Override
+    public <R> R atomically(Supplier<R> action) {
+        lockCollection(); // Начало критической секции
+        try {
+            if (batch != null) return action.get(); // Вложенный пакет выполняется в уже открытом
+            batch = new Batch();
+            try {
+                R result = productStorage.inTransaction(action::get);
+                commitBatch();
+                return result;
+            } catch (SQLException e) {
+                rollbackBatch();
+                throw new IllegalStateException("Не удалось выполнить транзакцию: " + e.getMessage());
+            } catch (RuntimeException e) {
+                rollbackBatch();
+                throw e;
+            }
         } finally {
             lock.unlock(); // Конец критической секции
         }
     }
+
+    /**
+     * Захватывает блокировку коллекции и учитывает время ожидания, если блокировка была занята.
+     */
+    private void lockCollection() {
+        lockAcquisitions.increment();
+        if (lock.tryLock()) return;
+        long startTime = System.nanoTime();
+        lock.lock();
+        long waited = System.nanoTime() - startTime;
+        lockContentions.increment();
+        lockWaitNanos.add(waited);
+        maxLockWaitNanos.accumulateAndGet(waited, Math::max);
+    }
+
+    /**
+     * @return {@code true}, если текущий поток выполняет пакет изменений
+     */
+    private boolean inBatch() {
+        return lock.isHeldByCurrentThread() && batch != null;
+    }
+
+    private void commitBatch() {
+        Batch committed = batch;
+        batch = null;
+        committed.journalEntries.forEach(this::writeJournal);
+        if (committed.sortPending) sortCollection();
+    }
+
+    private void rollbackBatch() {
+        Batch rolledBack = batch;
+        while (!rolledBack.undo.isEmpty()) {
+            rolledBack.undo.pop().run();
+        }
+        batch = null;
+        version.incrementAndGet();
+        if (rolledBack.sortPending) sortCollection();
+        logger.info("Пакет изменений отменен");
+    }
+
+    /**
+     * Увеличивает версию коллекции, записывает изменение в журнал и помечает снимок устаревшим.
+     * Вызывается под блокировкой коллекции. Внутри пакета запись откладывается до фиксации пакета.
+     *
+     * @param entry запись журнала
+     */
+    private void journal(JournalEntry entry) {
+        version.incrementAndGet();
+        if (journal == null) return;
+        if (inBatch()) {
+            batch.journalEntries.add(entry);
+            return;
+        }
+        writeJournal(entry);
+    }
+
+    private void writeJournal(JournalEntry entry) {
+        snapshotOutdated = true;
+        try {
+            entry.writeTo(journal);
+        } catch (IOException e) {
+            logger.error("Не удалось записать изменение в журнал: {}", e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface JournalEntry {
+        void writeTo(ProductJournal journal) throws IOException;
+    }
+
+    /**
+     * Состояние открытого пакета изменений.
+     */
+    private static final class Batch {
+        private final Deque<Runnable> undo = new ArrayDeque<>(); // Отмена изменений коллекции, последнее сверху
+        private final List<JournalEntry> journalEntries = new ArrayList<>();
+        private boolean sortPending;
+    }
 }
@@ -0,0 +1,130 @@
+package com.ann.server.managers;
+
+import com.general.models.Product;
+import com.ann.server.data.ProductStorage;
+import com.ann.server.data.UserStorage;
+import com.ann.server.storage.TieredProductCollection;
+import com.ann.server.utility.ServerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс {@code TieredProductCollectionManager} управляет коллекцией продуктов, в которой в памяти постоянно
+ * находятся только ключи, а полные объекты загружаются из базы данных по требованию ({@link TieredProductCollection}).
+ * <p>
+ * Количество продуктов в памяти ограничено настройкой {@code collection.cache.size}, поэтому сервер может работать
+ * с таблицей, которая не помещается в куче. Снимок и журнал в этом режиме не ведутся: при запуске читаются только ключи.
+ */
+public class TieredProductCollectionManager extends ProductCollectionManager {
+    private static final Logger logger = LoggerFactory.getLogger("TieredProductCollectionManager");
+
+    public TieredProductCollectionManager(ProductStorage productStorage, UserStorage userStorage) {
+        super(productStorage, userStorage);
+    }
+
+    /**
+     * Создает двухуровневую коллекцию. Хранилище запрашивается при каждой загрузке,
+     * так как коллекция создается до инициализации полей менеджера.
+     *
+     * @return новая пустая {@link TieredProductCollection}.
+     */
+    @Override
+    protected Collection<Product> createCollection() {
+        return new TieredProductCollection(ids -> getProductStorage().getProductsByIds(ids),
+                ServerConfig.getInt("collection.cache.size", 10000));
+    }
+
+    /**
+     * Ключи читаются из базы данных при каждом запуске, поэтому снимок не нужен.
+     */
+    @Override
+    protected boolean snapshotsEnabled() {
+        return false;
+    }
+
+    /**
+     * Вторичные индексы не строятся: для этого пришлось бы загрузить из базы данных все продукты.
+     */
+    @Override
+    protected boolean indexesEnabled() {
+        return false;
+    }
+
+    /**
+     * Загружает из базы данных только ключи продуктов.
+     */
+    @Override
+    protected void loadCollection() {
+        long startTime = System.nanoTime();
+        TieredProductCollection tiers = tiers();
+        try {
+            getProductStorage().forEachProductKey(tiers::addKey);
+        } catch (SQLException e) {
+            logger.error("Не удалось загрузить ключи продуктов: {}", e.getMessage());
+        }
+        setLastInitTime(LocalDateTime.now());
+        logger.info("Загружено ключей продуктов: {} за {} мс", tiers.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    }
+
+    /**
+     * Возвращает продукт по ID из кэша или из базы данных.
+     *
+     * @param id ID элемента.
+     * @return продукт или null.
+     */
+    @Override
+    public Product getById(Long id) {
+        return id == null ? null : tiers().get(id);
+    }
+
+    /**
+     * Возвращает страницу коллекции, загружая из базы данных одним запросом только ее продукты.
+     */
+    @Override
+    public List<Product> getPage(int from, int count) {
+        return tiers().page(from, count);
+    }
+
+    @Override
+    public boolean checkExist(Long id) {
+        return id != null && tiers().containsId(id);
+    }
+
+    @Override
+    protected void replaceInCollection(Product newElement) {
+        if (tiers().containsId(newElement.getId())) tiers().add(newElement);
+    }
+
+    /**
+     * Упорядочивание не поддерживается: оно потребовало бы загрузить все продукты.
+     */
+    @Override
+    public void sortCollection() {
+    }
+
+    @Override
+    public void shutdown() {
+        logger.info("Статистика кэша продуктов: {}", tiers().getCache());
+        super.shutdown();
+    }
+
+    /**
+     * @return количество ключей в памяти и продуктов в кэше
+     */
+    @Override
+    public Map<String, Integer> getIndexSizes() {
+        return Map.of("keys", tiers().size(), "cache", tiers().getCache().size());
+    }
+
+    private TieredProductCollection tiers() {
+        return (TieredProductCollection) getCollection();
+    }
+}
@@ -0,0 +1,43 @@
+package com.ann.server.network;
+
+import com.general.models.User;
+import com.general.network.Request;
+import com.general.network.Response;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Обмен запросом и ответом с клиентом, передаваемый между стадиями конвейера.
+ * Каждая стадия заполняет свою часть: запрос, пользователя, ответ и кадр ответа.
+ * Время получения кадра и длительность выполнения команды нужны журналу медленных запросов.
+ */
+@Getter
+@Setter
+class Exchange {
+    /**
+     * Положение запроса в порядке выполнения запросов сессии.
+     */
+    enum Order {
+        PENDING, READ, WRITE_WAITING, WRITE_RUNNING
+    }
+
+    private final Session session;
+    private final long requestId;
+    private final byte[] requestBytes;
+    private final long receivedAt = System.nanoTime();
+    private long executeNanos;
+    private long sequence;
+    private Order order = Order.PENDING;
+    private Request request;
+    private User user;
+    private Response response;
+    private ByteBuffer responseBuffer;
+
+    Exchange(Session session, long requestId, byte[] requestBytes) {
+        this.session = session;
+        this.requestId = requestId;
+        this.requestBytes = requestBytes;
+    }
+}
@@ -1,113 +1,163 @@
 package com.ann.server.network;
 
+import com.ann.server.capture.TrafficCapture;
+import com.ann.server.events.AuthenticateEvent;
+import com.ann.server.events.DecodeEvent;
 import com.general.managers.CommandManager;
 import com.general.models.User;
+import com.general.network.FrameCodec;
 import com.general.network.Request;
 import com.general.network.Response;
-import com.ann.server.data.UserDAO;
-import com.ann.server.managers.DatabaseManager;
+import com.ann.server.data.UserStorage;
+import com.ann.server.utility.LogSampler;
+import com.ann.server.utility.ServerConfig;
 import lombok.Setter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.ObjectInputStream;
-import java.nio.channels.SocketChannel;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ForkJoinPool;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Обрабатывает входящие запросы от клиентов в отдельном потоке.
- * Этот класс читает запрос, обрабатывает его и отправляет ответ.
+ * Обработка запроса на стадиях конвейера: декодирование, проверка пользователя и выполнение команды.
+ * Каждый метод заполняет соответствующую часть {@link Exchange}; при ошибке в обмен записывается ответ,
+ * и оставшиеся стадии обработки пропускаются.
  */
-public class Handler implements Runnable {
+public class Handler {
     private static final Logger logger = LoggerFactory.getLogger("Handler");
-    private static final Request SAVE_REQUEST = new Request("save", null);
+    private static final Logger slowLog = LoggerFactory.getLogger("SlowRequestLog");
+    private static final long SLOW_REQUEST_NANOS = TimeUnit.MILLISECONDS.toNanos(ServerConfig.getLong("log.slow.request.ms", 500));
+    private static final LogSampler slowSampler = new LogSampler(ServerConfig.getInt("log.slow.max.per.second", 10));
+    private static final Set<String> PUBLIC_COMMANDS = Set.of("help", "ping", "register", "login");
     @Setter
-    private static UserDAO userDAO;
+    private static UserStorage userStorage;
 
     @Setter
     private static CommandManager commandManager;
 
-    private final SocketChannel clientSocketChannel;
-    private final ByteArrayOutputStream byteArrayOutputStream;
-    private static final ExecutorService senderPool;
-
-    static {
-        senderPool = new ForkJoinPool();
+    private Handler() {
     }
 
     /**
-     * Конструктор для создания нового объекта Handler.
+     * Стадия декодирования: десериализует запрос. Команда "exit" закрывает соединение.
+     * Если идет запись трафика, декодированный запрос попадает в нее ({@link TrafficCapture}).
      *
-     * @param clientSocketChannel   Канал сокета, подключенный к клиенту.
-     * @param byteArrayOutputStream Поток вывода, содержащий запрос клиента.
-     */
-    public Handler(SocketChannel clientSocketChannel, ByteArrayOutputStream byteArrayOutputStream) {
-        this.clientSocketChannel = clientSocketChannel;
-        this.byteArrayOutputStream = byteArrayOutputStream;
-    }
-
-    /**
-     * Точка входа для выполнения Handler.
-     * Читает запрос, обрабатывает его и отправляет соответствующий ответ.
+     * @param exchange обмен с клиентом
+     * @return {@code false}, если соединение закрыто и отвечать не нужно
      */
-    @Override
-    public void run() {
+    static boolean decode(Exchange exchange) {
+        DecodeEvent event = new DecodeEvent();
+        event.begin();
         try {
-            byte[] requestBytes = byteArrayOutputStream.toByteArray();
-            try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(requestBytes))) {
-                Request request = (Request) objectInputStream.readObject();
-                if ("exit".equals(request.getCommand())) {
-                    logger.info("Клиент {} завершил работу", clientSocketChannel.getRemoteAddress());
-                    clientSocketChannel.close();
-                    if (commandManager.handle(SAVE_REQUEST).isSuccess())
-                        logger.info("Коллекция сохранена");
-                    return;
-                }
-                User user = null;
-                if (!"help".equals(request.getCommand()) && !"register".equals(request.getCommand()) && !"login".equals(request.getCommand()) && request.getLogin() != null) {
-                    user = userDAO.getUserByUsername(DatabaseManager.getConnection(), request.getLogin());
-                }
-                handleRequest(request, user);
+            Request request = (Request) FrameCodec.decode(exchange.getRequestBytes());
+            event.command = request.getCommand();
+            event.user = request.getLogin();
+            TrafficCapture.record(exchange.getSession().getId(), exchange.getReceivedAt(), exchange.getRequestBytes());
+            if ("exit".equals(request.getCommand())) {
+                logger.info("Клиент {} завершил работу", exchange.getSession().getChannel().getRemoteAddress());
+                exchange.getSession().close();
+                return false;
             }
-        } catch (Exception e) {
+            exchange.setRequest(request);
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
             logger.error("Ошибка обработки запроса: {}", e.getMessage());
-            sendErrorResponse(clientSocketChannel);
+            exchange.setResponse(new Response(false, "Недействительный запрос"));
+        } finally {
+            event.requestId = exchange.getRequestId();
+            event.bytes = exchange.getRequestBytes().length;
+            event.commit();
         }
+        return true;
     }
 
     /**
-     * Обрабатывает входящий запрос, передавая его в CommandManager.
-     * Отправляет обработанный ответ обратно клиенту.
+     * Стадия проверки пользователя: проверяет логин и пароль для всех команд, кроме регистрации, входа, справки и ping.
+     * Пользователь, уже прошедший проверку в том же соединении с тем же паролем, повторно через хранилище не проверяется.
      *
-     * @param request Объект запроса, полученный от клиента.
+     * @param exchange обмен с клиентом
      */
-    private void handleRequest(Request request, User user) {
-        if (user != null && userDAO.verifyUserPassword(user.getUsername(), request.getPassword())) {
+    static void authenticate(Exchange exchange) {
+        Request request = exchange.getRequest();
+        if (PUBLIC_COMMANDS.contains(request.getCommand())) return;
+        AuthenticateEvent event = new AuthenticateEvent();
+        event.begin();
+        event.command = request.getCommand();
+        event.user = request.getLogin();
+        Session session = exchange.getSession();
+        User user = session.verifiedUser(request.getLogin(), request.getPassword());
+        if (user != null) {
+            NetworkStatistics.authCacheHit();
+            event.cached = true;
+        } else if (request.getLogin() != null) {
+            NetworkStatistics.authCacheMiss();
+            try {
+                user = userStorage.getUserByUsername(request.getLogin());
+                if (user != null && userStorage.verifyUserPassword(user.getUsername(), request.getPassword())) {
+                    session.rememberUser(user, request.getPassword());
+                } else {
+                    user = null;
+                }
+            } catch (SQLException e) {
+                logger.error("Ошибка проверки пользователя: {}", e.getMessage());
+                exchange.setResponse(new Response(false, "Сервер временно не может проверить пользователя, повторите запрос позже"));
+                event.commit();
+                return;
+            }
+        }
+        event.success = user != null;
+        event.commit();
+        if (user != null) {
             request.setUserId(user.getId());
-        } else if (!("login".equals(request.getCommand()) || "register".equals(request.getCommand()) || "help".equals(request.getCommand()))) {
-            sendUnauthorizedResponse(clientSocketChannel);
-            return;
+            exchange.setUser(user);
+        } else {
+            exchange.setResponse(new Response(false, "Вы не вошли в систему." + '\n' +
+                    "Введите register <login> <password> для регистрации или login <login> <password> для входа"));
         }
-        Response response = commandManager.handle(request);
-        senderPool.submit(new TCPWriter(clientSocketChannel, response));
     }
 
-    private void sendUnauthorizedResponse(SocketChannel channel) {
-        Response response = new Response(false, "Вы не вошли в систему." + '\n' +
-                "Введите register <login> <password> для регистрации или login <login> <password> для входа");
-        senderPool.submit(new TCPWriter(clientSocketChannel, response));
+    /**
+     * @param exchange обмен с клиентом
+     * @return {@code true}, если команда запроса может изменить коллекцию
+     */
+    static boolean isWrite(Exchange exchange) {
+        return !commandManager.isReadOnly(exchange.getRequest().getCommand());
+    }
+
+    /**
+     * Стадия выполнения: передает запрос в {@link CommandManager}.
+     *
+     * @param exchange обмен с клиентом
+     */
+    static void execute(Exchange exchange) {
+        long startTime = System.nanoTime();
+        try {
+            exchange.setResponse(commandManager.handle(exchange.getRequest()));
+        } catch (RuntimeException e) {
+            logger.error("Ошибка выполнения команды {}: {}", exchange.getRequest().getCommand(), e.getMessage());
+            exchange.setResponse(new Response(false, "Недействительный запрос"));
+        } finally {
+            exchange.setExecuteNanos(System.nanoTime() - startTime);
+        }
     }
 
     /**
-     * Отправляет клиенту ответ об ошибке, указывая на то, что запрос был недействительным.
+     * Пишет запрос в журнал {@code SlowRequestLog}, если от получения кадра до записи ответа прошло больше
+     * {@code log.slow.request.ms}. Частота записей ограничена настройкой {@code log.slow.max.per.second},
+     * сами записи выводятся асинхронно и не задерживают потоки конвейера.
      *
-     * @param channel Канал сокета, в который отправляется ответ.
+     * @param exchange обмен с клиентом, ответ на который уже записан
      */
-    private void sendErrorResponse(SocketChannel channel) {
-        Response response = new Response(false, "Недействительный запрос");
-        senderPool.submit(new TCPWriter(clientSocketChannel, response));
+    static void logIfSlow(Exchange exchange) {
+        long total = System.nanoTime() - exchange.getReceivedAt();
+        if (total < SLOW_REQUEST_NANOS) return;
+        long skipped = slowSampler.tryAcquire();
+        if (skipped < 0) return;
+        Request request = exchange.getRequest();
+        slowLog.warn("{} пользователь={} запрос={} время={} мс выполнение={} мс ответ={} байт пропущено={}",
+                request != null ? request.getCommand() : "?", request != null ? request.getLogin() : null,
+                exchange.getRequestId(), TimeUnit.NANOSECONDS.toMillis(total),
+                TimeUnit.NANOSECONDS.toMillis(exchange.getExecuteNanos()), exchange.getResponseBuffer().limit(), skipped);
     }
 }
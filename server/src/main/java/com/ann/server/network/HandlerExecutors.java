@@ -0,0 +1,74 @@
+package com.ann.server.network;
+
+import com.ann.server.utility.ServerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Создает исполнители для стадий конвейера обработки запросов.
+ * <p>
+ * Блокирующие стадии (проверка пользователя и выполнение команды) подчиняются настройке {@code server.executor}:
+ * <ul>
+ *     <li>{@code fixed} — фиксированный пул из {@code pipeline.<стадия>.threads} потоков;</li>
+ *     <li>{@code virtual} — отдельный виртуальный поток на каждый запрос (Java 21 и новее).
+ *     Количество одновременных обращений к базе данных в этом режиме ограничивает пул соединений.</li>
+ * </ul>
+ * Остальные стадии всегда используют фиксированный пул.
+ */
+public final class HandlerExecutors {
+    private static final Logger logger = LoggerFactory.getLogger("HandlerExecutors");
+
+    private HandlerExecutors() {
+    }
+
+    /**
+     * Создает исполнитель стадии.
+     *
+     * @param stage          название стадии
+     * @param defaultThreads количество потоков, если оно не задано в настройках
+     * @param blocking       {@code true} для стадий, блокирующихся на базе данных
+     * @return исполнитель стадии
+     */
+    public static ExecutorService create(String stage, int defaultThreads, boolean blocking) {
+        if (blocking && "virtual".equals(ServerConfig.getString("server.executor", "fixed"))) {
+            ExecutorService executor = newVirtualThreadPerTaskExecutor();
+            if (executor != null) {
+                logger.info("Стадия {}: виртуальный поток на каждый запрос", stage);
+                return executor;
+            }
+            logger.warn("Виртуальные потоки недоступны в Java {}, стадия {} использует фиксированный пул",
+                    Runtime.version().feature(), stage);
+        }
+        int threads = Math.max(1, ServerConfig.getInt("pipeline." + stage + ".threads", defaultThreads));
+        logger.info("Стадия {}: фиксированный пул из {} потоков", stage, threads);
+        return Executors.newFixedThreadPool(threads, namedThreads(stage));
+    }
+
+    /**
+     * Вызывает {@code Executors.newVirtualThreadPerTaskExecutor()} через отражение,
+     * чтобы сервер собирался и запускался и на Java 17.
+     *
+     * @return исполнитель или {@code null}, если виртуальные потоки не поддерживаются
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory namedThreads(String stage) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, stage + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package com.ann.server.network;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счетчики сетевого уровня сервера: соединения, переданные байты и проверка пользователей.
+ * Счетчики общие для всех экземпляров {@link TCPServer} в процессе.
+ */
+public final class NetworkStatistics {
+    private static final AtomicInteger openConnections = new AtomicInteger();
+    private static final LongAdder acceptedConnections = new LongAdder();
+    private static final LongAdder bytesRead = new LongAdder();
+    private static final LongAdder bytesWritten = new LongAdder();
+    private static final AtomicInteger authenticatedSessions = new AtomicInteger();
+    private static final LongAdder authCacheHits = new LongAdder();
+    private static final LongAdder authCacheMisses = new LongAdder();
+
+    private NetworkStatistics() {
+    }
+
+    static void connectionOpened() {
+        acceptedConnections.increment();
+        openConnections.incrementAndGet();
+    }
+
+    static void connectionClosed(boolean authenticated) {
+        openConnections.decrementAndGet();
+        if (authenticated) authenticatedSessions.decrementAndGet();
+    }
+
+    static void sessionAuthenticated() {
+        authenticatedSessions.incrementAndGet();
+    }
+
+    static void bytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    static void bytesWritten(long bytes) {
+        bytesWritten.add(bytes);
+    }
+
+    static void authCacheHit() {
+        authCacheHits.increment();
+    }
+
+    static void authCacheMiss() {
+        authCacheMisses.increment();
+    }
+
+    /**
+     * @return количество открытых соединений с клиентами
+     */
+    public static int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    /**
+     * @return количество принятых соединений с момента запуска
+     */
+    public static long getAcceptedConnections() {
+        return acceptedConnections.sum();
+    }
+
+    public static long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public static long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * @return количество открытых соединений, в которых пользователь прошел проверку
+     */
+    public static int getAuthenticatedSessions() {
+        return authenticatedSessions.get();
+    }
+
+    /**
+     * @return количество запросов, пользователь которых найден среди уже проверенных в соединении
+     */
+    public static long getAuthCacheHits() {
+        return authCacheHits.sum();
+    }
+
+    /**
+     * @return количество запросов, для которых пользователь проверялся через хранилище
+     */
+    public static long getAuthCacheMisses() {
+        return authCacheMisses.sum();
+    }
+}
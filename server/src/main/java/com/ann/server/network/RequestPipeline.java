@@ -0,0 +1,132 @@
+package com.ann.server.network;
+
+import com.general.network.FrameCodec;
+import com.general.network.Response;
+import com.ann.server.utility.LogSampler;
+import com.ann.server.utility.ServerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Конвейер обработки запросов: декодирование → проверка пользователя → выполнение → сериализация → запись.
+ * <p>
+ * У каждой стадии свой пул потоков, ограниченная очередь и метрики ({@link Stage}). Количество потоков и емкость
+ * стадии задаются настройками {@code pipeline.<стадия>.threads} и {@code pipeline.<стадия>.capacity}.
+ * При перегрузке запрос отбрасывается на входной стадии, и клиент сразу получает отказ;
+ * внутренние стадии при заполнении очереди задерживают предыдущие.
+ * <p>
+ * Запросы одного соединения обрабатываются параллельно, порядок изменяющих запросов соблюдает {@link Session}.
+ * Ответы несут идентификатор запроса и могут отправляться не в порядке получения запросов.
+ */
+public class RequestPipeline {
+    private static final Logger logger = LoggerFactory.getLogger("RequestPipeline");
+    private static final LogSampler overloadSampler = new LogSampler(1);
+
+    private final Stage<Exchange> decode;
+    private final Stage<Exchange> authenticate;
+    private final Stage<Exchange> execute;
+    private final Stage<Exchange> encode;
+    private final Stage<Exchange> write;
+
+    public RequestPipeline() {
+        write = stage("write", 2, false, exchange -> {
+            TCPWriter.write(exchange);
+            Handler.logIfSlow(exchange);
+        });
+        encode = stage("encode", 2, false, exchange -> {
+            TCPWriter.encode(exchange);
+            write.submit(exchange);
+        });
+        execute = stage("execute", ServerConfig.getInt("server.handler.threads", 10), true, this::executeInOrder);
+        authenticate = stage("authenticate", 4, true, exchange -> {
+            Handler.authenticate(exchange);
+            if (exchange.getResponse() != null) {
+                skip(exchange);
+                return;
+            }
+            boolean write = Handler.isWrite(exchange);
+            Exchange runnableWrite = exchange.getSession().classify(exchange, write);
+            if (!write) execute.submit(exchange);
+            if (runnableWrite != null) execute.submit(runnableWrite);
+        });
+        decode = stage("decode", 2, false, exchange -> {
+            if (!Handler.decode(exchange)) {
+                Exchange runnableWrite = exchange.getSession().complete(exchange);
+                if (runnableWrite != null) execute.submit(runnableWrite);
+            } else if (exchange.getResponse() != null) {
+                skip(exchange);
+            } else {
+                authenticate.submit(exchange);
+            }
+        });
+    }
+
+    /**
+     * Принимает кадр запроса на входную стадию. Если конвейер перегружен, отказ ставится в исходящую очередь
+     * сессии. Вызывается потоком селектора, поэтому ничего не ждет: ни места в стадиях, ни готовности канала.
+     *
+     * @param session сессия клиента
+     * @param frame   кадр запроса
+     */
+    void accept(Session session, FrameCodec.Frame frame) {
+        Exchange exchange = new Exchange(session, frame.requestId(), frame.body());
+        session.register(exchange);
+        if (!decode.offer(exchange)) {
+            long suppressed = overloadSampler.tryAcquire();
+            if (suppressed >= 0) logger.warn("Конвейер перегружен, запрос отброшен (пропущено сообщений: {})", suppressed);
+            session.discard(exchange);
+            session.write(TCPWriter.encode(new Response(false, "Сервер перегружен, повторите запрос позже"), frame.requestId()));
+        }
+    }
+
+    /**
+     * @return стадии конвейера в порядке обработки
+     */
+    public List<Stage<?>> getStages() {
+        return List.of(decode, authenticate, execute, encode, write);
+    }
+
+    /**
+     * Останавливает потоки всех стадий.
+     */
+    public void shutdown() {
+        getStages().forEach(Stage::shutdown);
+    }
+
+    @Override
+    public String toString() {
+        return getStages().stream().map(Stage::toString).collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Выполняет запрос. После изменяющего запроса в том же потоке выполняются следующие изменяющие запросы сессии,
+     * которые ждали его завершения.
+     */
+    private void executeInOrder(Exchange exchange) {
+        Exchange next = exchange;
+        while (next != null) {
+            Handler.execute(next);
+            encode.submit(next);
+            next = next.getOrder() == Exchange.Order.WRITE_RUNNING ? next.getSession().complete(next) : null;
+        }
+    }
+
+    /**
+     * Отправляет готовый ответ, минуя выполнение, и освобождает место запроса в порядке сессии.
+     */
+    private void skip(Exchange exchange) {
+        Exchange runnableWrite = exchange.getSession().complete(exchange);
+        encode.submit(exchange);
+        if (runnableWrite != null) execute.submit(runnableWrite);
+    }
+
+    private static Stage<Exchange> stage(String name, int defaultThreads, boolean blocking, Consumer<Exchange> handler) {
+        ExecutorService executor = HandlerExecutors.create(name, defaultThreads, blocking);
+        return new Stage<>(name, executor, ServerConfig.getInt("pipeline." + name + ".capacity", 1024), handler);
+    }
+}
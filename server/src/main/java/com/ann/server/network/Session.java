@@ -0,0 +1,283 @@
+package com.ann.server.network;
+
+import com.ann.server.utility.ServerConfig;
+import com.general.models.User;
+import com.general.network.FrameCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Состояние соединения с клиентом.
+ * <p>
+ * Клиент может отправить несколько запросов, не дожидаясь ответов. Запросы только для чтения выполняются сразу
+ * и параллельно, а изменяющий запрос выполняется только после того, как завершены все изменяющие запросы,
+ * полученные раньше него, и известен тип всех более ранних запросов. Так изменения одного клиента применяются
+ * в порядке отправки.
+ * <p>
+ * Запись ответов никогда не блокирует поток: кадр записывается в канал, сколько поместится, а остаток
+ * ставится в исходящую очередь сессии, которую дописывает поток селектора по готовности канала к записи
+ * ({@link SelectionKey#OP_WRITE}). Очередь и запись защищены блокировкой сессии, чтобы кадры не перемешивались.
+ * Если клиент не читает ответы и очередь превышает {@code server.outbound.max.bytes} байт, соединение закрывается.
+ * <p>
+ * Сессия запоминает пользователя, прошедшего проверку, и следующие запросы с теми же логином и паролем
+ * не обращаются к хранилищу пользователей.
+ */
+final class Session {
+    private static final Logger logger = LoggerFactory.getLogger("Session");
+    private static final AtomicLong nextId = new AtomicLong();
+
+    private final long id = nextId.incrementAndGet();
+    private final SocketChannel channel;
+    private final FrameCodec.Decoder decoder = new FrameCodec.Decoder();
+    private final Object writeLock = new Object();
+    private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>(); // Неотправленные кадры, под writeLock
+    private final long maxOutboundBytes = ServerConfig.getLong("server.outbound.max.bytes", 16L << 20);
+    private long outboundBytes;
+    private volatile SelectionKey key;
+    // Запросы, тип которых еще не известен, и изменяющие запросы, которые еще не выполнены, по порядковому номеру
+    private final TreeMap<Long, Exchange> unfinished = new TreeMap<>();
+    private long nextSequence;
+    private User user; // Пользователь, прошедший проверку в этом соединении, и его пароль
+    private String password;
+    private volatile boolean closed;
+
+    Session(SocketChannel channel) {
+        this.channel = channel;
+        NetworkStatistics.connectionOpened();
+    }
+
+    /**
+     * @return номер соединения, уникальный в пределах запуска сервера
+     */
+    long getId() {
+        return id;
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Запоминает ключ регистрации канала в селекторе, через который включается ожидание готовности к записи.
+     *
+     * @param key ключ выбора канала
+     */
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    /**
+     * @return накопитель кадров; используется только потоком селектора
+     */
+    FrameCodec.Decoder getDecoder() {
+        return decoder;
+    }
+
+    /**
+     * Назначает запросу порядковый номер в момент получения.
+     *
+     * @param exchange полученный запрос
+     */
+    synchronized void register(Exchange exchange) {
+        exchange.setSequence(nextSequence++);
+        unfinished.put(exchange.getSequence(), exchange);
+    }
+
+    /**
+     * Сообщает тип запроса после его декодирования и проверки пользователя.
+     *
+     * @param exchange запрос
+     * @param write    {@code true}, если запрос изменяет коллекцию
+     * @return изменяющий запрос, который можно выполнять, или {@code null}
+     */
+    synchronized Exchange classify(Exchange exchange, boolean write) {
+        if (write) {
+            exchange.setOrder(Exchange.Order.WRITE_WAITING);
+        } else {
+            exchange.setOrder(Exchange.Order.READ);
+            unfinished.remove(exchange.getSequence());
+        }
+        return nextWrite();
+    }
+
+    /**
+     * Сообщает о завершении запроса, в том числе не дошедшего до выполнения.
+     *
+     * @param exchange запрос
+     * @return изменяющий запрос, который теперь можно выполнять, или {@code null}
+     */
+    synchronized Exchange complete(Exchange exchange) {
+        unfinished.remove(exchange.getSequence());
+        return nextWrite();
+    }
+
+    /**
+     * Забывает только что зарегистрированный запрос, отброшенный до обработки. Запрос зарегистрирован последним,
+     * поэтому изменяющих запросов, ожидающих его завершения, нет.
+     *
+     * @param exchange отброшенный запрос
+     */
+    synchronized void discard(Exchange exchange) {
+        unfinished.remove(exchange.getSequence());
+    }
+
+    /**
+     * @param login    логин из запроса
+     * @param password пароль из запроса
+     * @return пользователь, уже прошедший проверку в этом соединении с тем же логином и паролем, или {@code null}
+     */
+    synchronized User verifiedUser(String login, String password) {
+        if (user == null || !user.getUsername().equals(login) || !Objects.equals(this.password, password)) return null;
+        return user;
+    }
+
+    /**
+     * Запоминает пользователя, прошедшего проверку через хранилище.
+     *
+     * @param user     пользователь
+     * @param password пароль, с которым пользователь прошел проверку
+     */
+    synchronized void rememberUser(User user, String password) {
+        if (closed) return;
+        if (this.user == null) NetworkStatistics.sessionAuthenticated();
+        this.user = user;
+        this.password = password;
+    }
+
+    /**
+     * Закрывает канал клиента. Повторный вызов ничего не делает.
+     */
+    void close() {
+        boolean authenticated;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            authenticated = user != null;
+        }
+        NetworkStatistics.connectionClosed(authenticated);
+        synchronized (writeLock) {
+            outbound.clear();
+            outboundBytes = 0;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.error("Ошибка закрытия канала: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Отправляет кадр ответа клиенту без ожидания: записывает в канал, сколько он принимает, а остаток
+     * ставит в исходящую очередь. Может вызываться из любого потока.
+     *
+     * @param buffer кадр ответа
+     */
+    void write(ByteBuffer buffer) {
+        boolean overflow;
+        synchronized (writeLock) {
+            if (closed) return;
+            try {
+                // Пока очередь не пуста, кадр пишется за ней, иначе кадры перемешаются
+                if (outbound.isEmpty()) writeToChannel(buffer);
+            } catch (IOException e) {
+                logger.error("Ошибка отправки ответа: {}", e.getMessage());
+                close();
+                return;
+            }
+            if (!buffer.hasRemaining()) return;
+            outbound.add(buffer);
+            outboundBytes += buffer.remaining();
+            overflow = outboundBytes > maxOutboundBytes;
+            if (!overflow && outbound.size() == 1) interestInWrite(true); // Первый кадр в очереди
+        }
+        if (overflow) {
+            logger.warn("Клиент соединения {} не читает ответы, в очереди {} байт; соединение закрыто", id, outboundBytes);
+            close();
+        }
+    }
+
+    /**
+     * Дописывает исходящую очередь в канал, когда селектор сообщает о готовности канала к записи.
+     * Вызывается потоком селектора и не блокируется.
+     */
+    void flush() {
+        synchronized (writeLock) {
+            try {
+                while (!outbound.isEmpty()) {
+                    ByteBuffer head = outbound.peek();
+                    outboundBytes -= writeToChannel(head);
+                    if (head.hasRemaining()) return; // Канал снова заполнен, ждем следующей готовности
+                    outbound.poll();
+                }
+                interestInWrite(false);
+            } catch (IOException e) {
+                logger.error("Ошибка отправки ответа: {}", e.getMessage());
+                close();
+            }
+        }
+    }
+
+    /**
+     * @return количество байтов ответов, ожидающих отправки
+     */
+    long getOutboundBytes() {
+        synchronized (writeLock) {
+            return outboundBytes;
+        }
+    }
+
+    /**
+     * Записывает в канал, сколько он принимает сейчас.
+     *
+     * @return количество записанных байтов
+     */
+    private int writeToChannel(ByteBuffer buffer) throws IOException {
+        int total = 0;
+        int written;
+        while (buffer.hasRemaining() && (written = channel.write(buffer)) > 0) {
+            total += written;
+        }
+        NetworkStatistics.bytesWritten(total);
+        return total;
+    }
+
+    /**
+     * Включает или выключает ожидание готовности канала к записи. Селектор пробуждается, чтобы изменение
+     * учитывалось в текущем ожидании.
+     */
+    private void interestInWrite(boolean enabled) {
+        SelectionKey selectionKey = key;
+        if (selectionKey == null) return;
+        try {
+            if (enabled) {
+                selectionKey.interestOpsOr(SelectionKey.OP_WRITE);
+                selectionKey.selector().wakeup();
+            } else {
+                selectionKey.interestOpsAnd(~SelectionKey.OP_WRITE);
+            }
+        } catch (CancelledKeyException e) {
+            // Соединение уже закрыто
+        }
+    }
+
+    /**
+     * Возвращает самый ранний незавершенный запрос, если это ожидающий изменяющий запрос, и помечает его выполняемым.
+     */
+    private Exchange nextWrite() {
+        Map.Entry<Long, Exchange> first = unfinished.firstEntry();
+        if (first == null || first.getValue().getOrder() != Exchange.Order.WRITE_WAITING) return null;
+        first.getValue().setOrder(Exchange.Order.WRITE_RUNNING);
+        return first.getValue();
+    }
+}
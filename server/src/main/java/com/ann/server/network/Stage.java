@@ -0,0 +1,204 @@
+package com.ann.server.network;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Стадия конвейера обработки запросов с ограниченной очередью и метриками.
+ * <p>
+ * Количество элементов, принятых стадией и еще не обработанных (в очереди и в работе), не превышает емкости стадии.
+ * Входная стадия принимает элементы методом {@link #offer(Object)} и отказывает при переполнении,
+ * внутренние стадии принимают элементы методом {@link #submit(Object)}, который ждет освобождения места
+ * и тем самым замедляет предыдущую стадию.
+ *
+ * @param <T> тип обрабатываемых элементов
+ */
+public class Stage<T> {
+    private static final Logger logger = LoggerFactory.getLogger("Stage");
+
+    private final String name;
+    private final ExecutorService executor;
+    private final int capacity;
+    private final Semaphore permits;
+    private final Consumer<T> handler;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder serviceNanos = new LongAdder();
+    private final AtomicLong maxServiceNanos = new AtomicLong();
+
+    /**
+     * @param name     название стадии для метрик и журналов
+     * @param executor исполнитель, потоки которого обрабатывают элементы
+     * @param capacity максимальное количество принятых и еще не обработанных элементов
+     * @param handler  обработчик элемента; передает элемент следующей стадии
+     */
+    public Stage(String name, ExecutorService executor, int capacity, Consumer<T> handler) {
+        this.name = name;
+        this.executor = executor;
+        this.capacity = Math.max(1, capacity);
+        this.permits = new Semaphore(this.capacity);
+        this.handler = handler;
+    }
+
+    /**
+     * Принимает элемент, если в стадии есть место.
+     *
+     * @param item элемент
+     * @return {@code false}, если стадия переполнена и элемент отброшен
+     */
+    public boolean offer(T item) {
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            return false;
+        }
+        return dispatch(item);
+    }
+
+    /**
+     * Принимает элемент, ожидая освобождения места в стадии.
+     *
+     * @param item элемент
+     */
+    public void submit(T item) {
+        permits.acquireUninterruptibly();
+        dispatch(item);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return количество потоков стадии или -1, если каждый элемент обрабатывается в отдельном виртуальном потоке
+     */
+    public int getThreads() {
+        return executor instanceof ThreadPoolExecutor pool ? pool.getMaximumPoolSize() : -1;
+    }
+
+    /**
+     * Изменяет количество потоков стадии. Лишние потоки завершаются после обработки текущих элементов.
+     *
+     * @param threads новое количество потоков, не меньше 1
+     * @throws UnsupportedOperationException если стадия не использует пул потоков
+     */
+    public synchronized void setThreads(int threads) {
+        if (!(executor instanceof ThreadPoolExecutor pool)) {
+            throw new UnsupportedOperationException("Стадия " + name + " не использует пул потоков");
+        }
+        if (threads < 1) throw new IllegalArgumentException("Количество потоков должно быть положительным");
+        if (threads > pool.getMaximumPoolSize()) {
+            pool.setMaximumPoolSize(threads);
+            pool.setCorePoolSize(threads);
+        } else {
+            pool.setCorePoolSize(threads);
+            pool.setMaximumPoolSize(threads);
+        }
+        logger.info("Стадия {}: количество потоков изменено на {}", name, threads);
+    }
+
+    /**
+     * @return количество элементов, ожидающих обработки
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * @return количество элементов в работе
+     */
+    public int getActive() {
+        return active.get();
+    }
+
+    public long getProcessed() {
+        return processed.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return среднее время ожидания в очереди в микросекундах
+     */
+    public long getAverageWaitMicros() {
+        long count = processed.sum();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(waitNanos.sum() / count);
+    }
+
+    /**
+     * @return среднее время обработки элемента в микросекундах
+     */
+    public long getAverageServiceMicros() {
+        long count = processed.sum();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(serviceNanos.sum() / count);
+    }
+
+    /**
+     * Останавливает прием новых элементов исполнителем стадии.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: очередь %d, в работе %d, емкость %d, обработано %d, отказов %d, ошибок %d, " +
+                        "ожидание %d мкс, обработка %d мкс (макс. %d мкс)",
+                name, getQueueDepth(), getActive(), capacity, getProcessed(), getRejected(), failed.sum(),
+                getAverageWaitMicros(), getAverageServiceMicros(), TimeUnit.NANOSECONDS.toMicros(maxServiceNanos.get()));
+    }
+
+    private boolean dispatch(T item) {
+        long enqueuedAt = System.nanoTime();
+        queued.incrementAndGet();
+        try {
+            executor.execute(() -> run(item, enqueuedAt));
+            return true;
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            permits.release();
+            rejected.increment();
+            return false;
+        }
+    }
+
+    private void run(T item, long enqueuedAt) {
+        long startTime = System.nanoTime();
+        queued.decrementAndGet();
+        active.incrementAndGet();
+        waitNanos.add(startTime - enqueuedAt);
+        try {
+            handler.accept(item);
+        } catch (RuntimeException e) {
+            failed.increment();
+            logger.error("Ошибка на стадии {}: {}", name, e.getMessage());
+        } finally {
+            long duration = System.nanoTime() - startTime;
+            serviceNanos.add(duration);
+            maxServiceNanos.accumulateAndGet(duration, Math::max);
+            processed.increment();
+            active.decrementAndGet();
+            permits.release();
+        }
+    }
+}
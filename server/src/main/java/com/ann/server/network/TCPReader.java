@@ -1,97 +1,79 @@
 package com.ann.server.network;
 
+import com.ann.server.events.FrameReadEvent;
+import com.general.network.FrameCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.List;
 
 /**
- * Задача, выполняемая в отдельном потоке, для чтения входящих запросов из канала сокета клиента.
- * Этот класс читает данные из канала, парсит их и передает дальнейшую обработку обработчику.
- * Обеспечивает эффективное неблокирующее чтение с использованием Java NIO.
+ * Чтение входящих запросов из канала сокета клиента.
+ * Чтение неблокирующее и выполняется в потоке селектора: прочитанные байты накапливаются в сессии,
+ * а полные кадры передаются конвейеру {@link RequestPipeline}.
  */
-public class TCPReader implements Runnable {
+public final class TCPReader {
     private static final Logger logger = LoggerFactory.getLogger("TCPReader");
-    private final SelectionKey key;
-    private static final ExecutorService handlerService;
+    private static final ByteBuffer buffer = ByteBuffer.allocate(65536); // Используется только потоком селектора
 
-    static {
-        handlerService = Executors.newFixedThreadPool(10);
+    private TCPReader() {
     }
 
     /**
-     * Создает TCPReader с указанным ключом выбора.
+     * Читает доступные байты из канала сокета клиента и выделяет из них полные кадры.
+     * Если клиент закрыл соединение или прислал некорректный кадр, канал закрывается.
      *
-     * @param key Ключ выбора, связанный с каналом сокета клиента.
+     * @param key ключ выбора, к которому прикреплена сессия клиента
+     * @return полные кадры запросов (возможно, пустой список)
      */
-    public TCPReader(SelectionKey key) {
-        this.key = key;
-    }
-
-    /**
-     * Читает данные из канала сокета клиента и передает дальнейшую обработку обработчику.
-     * Этот метод является точкой входа для выполнения задачи.
-     */
-    @Override
-    public void run() {
-        readRequest();
-        // Set interest back to OP_READ after parsing is complete
-        key.interestOps(key.interestOps() | SelectionKey.OP_READ);
-        // Wake up the selector to update interest operations
-        key.selector().wakeup();
-    }
-
-    /**
-     * Читает входящий запрос из канала сокета клиента.
-     * Этот метод обрабатывает процесс чтения, обеспечивая неблокирующую работу и обработку частичных чтений.
-     */
-    private void readRequest() {
+    static List<FrameCodec.Frame> readFrames(SelectionKey key) {
         SocketChannel clientSocketChannel = (SocketChannel) key.channel();
-        ByteBuffer buffer = ByteBuffer.allocate(8192);
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        Session session = (Session) key.attachment();
+        FrameReadEvent event = new FrameReadEvent();
+        event.begin();
 
         try {
-            logger.debug("Чтение запроса от {}", clientSocketChannel.getRemoteAddress());
             int bytesRead;
             while ((bytesRead = clientSocketChannel.read(buffer)) > 0) {
+                NetworkStatistics.bytesRead(bytesRead);
+                event.bytes += bytesRead;
                 buffer.flip();
-                byteArrayOutputStream.write(buffer.array(), 0, buffer.limit());
+                session.getDecoder().feed(buffer);
                 buffer.clear();
             }
+            List<FrameCodec.Frame> frames = session.getDecoder().frames();
+            event.frames = frames.size();
+            event.commit();
             if (bytesRead == -1) {
                 // Соединение закрыто клиентом
-                closeConnection(clientSocketChannel);
-                return;
+                closeConnection(key, session);
             }
+            return frames;
         } catch (IOException e) {
             logger.error("Ошибка чтения данных: {}", e.getMessage());
-            closeConnection(clientSocketChannel);
-            return;
+            buffer.clear();
+            closeConnection(key, session);
+            return List.of();
         }
-
-        // Запускаем новый обработчик для обработки запроса
-        handlerService.submit(new Handler(clientSocketChannel, byteArrayOutputStream));
     }
 
     /**
      * Закрывает соединение с клиентом.
      * Этот метод обрабатывает закрытие канала и отмену ключа выбора.
      *
-     * @param clientSocketChannel Канал сокета клиента, который нужно закрыть.
+     * @param session Сессия клиента, канал которой нужно закрыть.
      */
-    private void closeConnection(SocketChannel clientSocketChannel) {
+    private static void closeConnection(SelectionKey key, Session session) {
+        key.cancel();
         try {
-            key.cancel();
-            clientSocketChannel.close();
-            logger.info("Соединение закрыто: {}", clientSocketChannel.getRemoteAddress());
+            logger.info("Соединение закрыто: {}", session.getChannel().getRemoteAddress());
         } catch (IOException e) {
             logger.error("Ошибка закрытия канала: {}", e.getMessage());
         }
+        session.close();
     }
 }
@@ -1,32 +1,35 @@
 package com.ann.server.network;
 
+import com.general.network.FrameCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.channels.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * TCP-сервер, прослушивающий входящие соединения и обрабатывающий их асинхронно.
  * Сервер разработан для неблокирующей работы, используя Java NIO и селектор для управления несколькими соединениями.
- * Он использует многопоточную обработку операций чтения.
+ * Запросы читаются в потоке селектора и передаются конвейеру {@link RequestPipeline}; поток селектора также
+ * дописывает ответы, не поместившиеся в канал сразу ({@link Session#flush()}), и никогда не блокируется.
  */
 public class TCPServer {
     private static final Logger logger = LoggerFactory.getLogger("TCPServer");
     private final int port;
+    private final RequestPipeline pipeline;
     private Selector selector;
     private ServerSocketChannel serverSocketChannel;
 
     /**
      * Создает TCP-сервер с указанным портом.
      *
-     * @param port Порт, на котором сервер будет прослушивать входящие соединения.
+     * @param port     Порт, на котором сервер будет прослушивать входящие соединения.
+     * @param pipeline Конвейер обработки прочитанных запросов.
      */
-    public TCPServer(int port) {
+    public TCPServer(int port, RequestPipeline pipeline) {
         this.port = port;
+        this.pipeline = pipeline;
     }
 
     /**
@@ -38,12 +41,19 @@ public class TCPServer {
         while (!Thread.currentThread().isInterrupted()) {
             select();
             for (SelectionKey key : selector.selectedKeys()) {
+                if (!key.isValid()) continue;
                 if (key.isAcceptable()) {
                     handleAccept();
-                } else if (key.isReadable()) {
-                    key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
-                    // Создание нового потока для обработки каждого запроса
-                    new Thread(new TCPReader(key)).start();
+                    continue;
+                }
+                Session session = (Session) key.attachment();
+                if (key.isReadable()) {
+                    for (FrameCodec.Frame frame : TCPReader.readFrames(key)) {
+                        pipeline.accept(session, frame);
+                    }
+                }
+                if (key.isValid() && key.isWritable()) {
+                    session.flush();
                 }
             }
             selector.selectedKeys().clear();
@@ -90,7 +100,8 @@ public class TCPServer {
             SocketChannel client = serverSocketChannel.accept();
             if (client != null) {
                 client.configureBlocking(false);
-                client.register(selector, SelectionKey.OP_READ);
+                Session session = new Session(client);
+                session.setKey(client.register(selector, SelectionKey.OP_READ, session));
                 logger.info("Новое соединение: {}", client.getRemoteAddress());
             }
         } catch (IOException e) {
@@ -1,54 +1,82 @@
 package com.ann.server.network;
 
+import com.ann.server.events.FrameWriteEvent;
+import com.general.network.FrameCodec;
 import com.general.network.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.nio.ByteBuffer;
-import java.nio.channels.SocketChannel;
 
 /**
  * Утилитарный класс для отправки ответов клиентам по TCP-соединениям.
- * Этот класс предоставляет методы для сериализации и отправки объектов ответов через SocketChannel.
+ * Сериализация ответа в кадр ({@link #encode(Exchange)}) и запись кадра в канал ({@link #write(Exchange)})
+ * выполняются на разных стадиях конвейера и записываются событиями JFR {@link FrameWriteEvent}.
  */
-public class TCPWriter implements Runnable {
+public final class TCPWriter {
     private static final Logger logger = LoggerFactory.getLogger("TCPWriter");
-    private SocketChannel clientSocketChannel;
-    private Response response;
 
-    TCPWriter(final SocketChannel clientSocketChannel, final Response response) {
-        this.clientSocketChannel = clientSocketChannel;
-        this.response = response;
+    private TCPWriter() {
     }
 
-    public void run() {
-        sendResponse();
+    /**
+     * Стадия сериализации: сериализует ответ обмена в кадр. Если ответ не сериализуется, вместо него
+     * отправляется сообщение об ошибке.
+     *
+     * @param exchange обмен с клиентом
+     */
+    static void encode(Exchange exchange) {
+        FrameWriteEvent event = new FrameWriteEvent();
+        event.begin();
+        try {
+            exchange.setResponseBuffer(encode(exchange.getResponse(), exchange.getRequestId()));
+        } catch (IllegalStateException e) {
+            logger.error(e.getMessage());
+            exchange.setResponseBuffer(encode(new Response(false, "Ответ не может быть отправлен"), exchange.getRequestId()));
+        }
+        commit(event, "encode", exchange);
     }
 
     /**
-     * Отправляет объект ответа клиенту через указанный сокет-канал.
-     * Ответ сериализуется и записывается в канал неблокирующим способом.
+     * Стадия записи: записывает кадр ответа обмена в канал клиента.
+     *
+     * @param exchange обмен с клиентом
      */
-    public void sendResponse() {
-        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-             ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream)) {
-
-            logger.debug("Отправка ответа клиенту {}", clientSocketChannel.getRemoteAddress());
-            objectOutputStream.writeObject(response);
-            objectOutputStream.flush();
-
-            byte[] responseBytes = byteArrayOutputStream.toByteArray();
-            ByteBuffer buffer = ByteBuffer.wrap(responseBytes);
+    static void write(Exchange exchange) {
+        FrameWriteEvent event = new FrameWriteEvent();
+        event.begin();
+        exchange.getSession().write(exchange.getResponseBuffer());
+        commit(event, "write", exchange);
+    }
 
-            // Запись байтов ответа в канал
-            while (buffer.hasRemaining()) {
-                clientSocketChannel.write(buffer);
-            }
+    /**
+     * Сериализует ответ в кадр.
+     *
+     * @param response  ответ
+     * @param requestId идентификатор запроса, на который дается ответ
+     * @return кадр ответа
+     * @throws IllegalStateException если ответ не может быть сериализован
+     */
+    static ByteBuffer encode(Response response, long requestId) {
+        response.setRequestId(requestId);
+        try {
+            return FrameCodec.encode(response);
         } catch (IOException e) {
-            logger.error("Ошибка отправки ответа: {}", e.getMessage());
+            throw new IllegalStateException("Ошибка сериализации ответа: " + e.getMessage(), e);
+        }
+    }
+
+    private static void commit(FrameWriteEvent event, String phase, Exchange exchange) {
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.phase = phase;
+        event.requestId = exchange.getRequestId();
+        event.bytes = exchange.getResponseBuffer().limit();
+        if (exchange.getRequest() != null) {
+            event.command = exchange.getRequest().getCommand();
+            event.user = exchange.getRequest().getLogin();
         }
+        event.commit();
     }
 }
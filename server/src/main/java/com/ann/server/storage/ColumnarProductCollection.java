@@ -0,0 +1,340 @@
+package com.ann.server.storage;
+
+import com.general.models.Coordinates;
+import com.general.models.Organization;
+import com.general.models.Product;
+import com.general.models.UnitOfMeasure;
+
+import java.time.LocalDate;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Колоночное хранилище продуктов.
+ * <p>
+ * Поля продуктов хранятся в параллельных массивах примитивов, а организации и имена пользователей
+ * кодируются словарями. Объекты {@link Product} создаются только при обращении к элементам
+ * (итерация, {@link #get(long)}), поэтому агрегаты и фильтры по цене выполняются простыми циклами по массивам.
+ * Удаление переносит последний элемент на место удаленного, поэтому порядок итерации не сохраняется.
+ * Изменения должны выполняться под блокировкой менеджера коллекции. Чтение по ID, агрегаты и фильтры выполняются
+ * без нее, поэтому колонки защищены собственной блокировкой чтения-записи: иначе читатель мог бы взять старый массив
+ * и новый размер или прочитать слот, в который удаление только что перенесло другой продукт.
+ */
+public class ColumnarProductCollection extends AbstractCollection<Product> implements PriceColumn, OwnerColumn {
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final UnitOfMeasure[] UNITS = UnitOfMeasure.values();
+
+    private final ValueDictionary<Organization> organizations = new ValueDictionary<>();
+    private final ValueDictionary<String> usernames = new ValueDictionary<>();
+    private final LongIntHashMap slotsById = new LongIntHashMap(16);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] ids = new long[0];
+    private int[] prices = new int[0];
+    private long[] xs = new long[0];
+    private float[] ys = new float[0];
+    private int[] epochDays = new int[0];
+    private byte[] units = new byte[0];
+    private int[] organizationCodes = new int[0];
+    private int[] usernameCodes = new int[0];
+    private String[] names = new String[0];
+    private int size;
+    private int modCount;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Добавляет продукт в колонки. Продукт с уже существующим ID заменяет прежний.
+     *
+     * @param product продукт для добавления
+     * @return всегда {@code true}
+     */
+    @Override
+    public boolean add(Product product) {
+        lock.writeLock().lock();
+        try {
+            int slot = slotsById.get(product.getId());
+            if (slot < 0) {
+                ensureCapacity(size + 1);
+                slot = size;
+                slotsById.put(product.getId(), slot);
+                size++;
+            }
+            write(slot, product);
+            modCount++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        if (!(object instanceof Product product) || product.getId() == null) return false;
+        lock.writeLock().lock();
+        try {
+            int slot = slotsById.get(product.getId());
+            if (slot < 0) return false;
+            removeAt(slot);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        if (!(object instanceof Product product) || product.getId() == null) return false;
+        Product stored = get(product.getId());
+        return stored != null && stored.equals(product);
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(names, 0, size, null);
+            slotsById.clear();
+            size = 0;
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterator<Product> iterator() {
+        return new ColumnIterator();
+    }
+
+    /**
+     * Возвращает продукт по ID.
+     *
+     * @param id ID продукта
+     * @return продукт или {@code null}, если его нет
+     */
+    public Product get(long id) {
+        lock.readLock().lock();
+        try {
+            int slot = slotsById.get(id);
+            return slot < 0 || ids[slot] != id ? null : materialize(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long sumOfPrices() {
+        lock.readLock().lock();
+        try {
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                if (prices[i] != NULL_INT) sum += prices[i];
+            }
+            return sum;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Product> filterByPrice(IntPredicate condition) {
+        lock.readLock().lock();
+        try {
+            List<Product> result = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                if (prices[i] != NULL_INT && condition.test(prices[i])) result.add(materialize(i));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int countByUsername(String username) {
+        lock.readLock().lock();
+        try {
+            int code = usernames.codeOf(username);
+            if (code < 0) return 0;
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (usernameCodes[i] == code) count++;
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Product> filterByUsername(String username) {
+        List<Product> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            int code = usernames.codeOf(username);
+            if (code < 0) return result;
+            for (int i = 0; i < size; i++) {
+                if (usernameCodes[i] == code) result.add(materialize(i));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int removeByUsername(String username) {
+        lock.writeLock().lock();
+        try {
+            int code = usernames.codeOf(username);
+            if (code < 0) return 0;
+            int removed = 0;
+            for (int slot = size - 1; slot >= 0; slot--) {
+                if (usernameCodes[slot] == code) {
+                    removeAt(slot);
+                    removed++;
+                }
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return примерный объем памяти, занимаемой колонками и индексом ID, в байтах (без строк названий)
+     */
+    public long estimatedBytes() {
+        long perSlot = Long.BYTES + Integer.BYTES + Long.BYTES + Float.BYTES + Integer.BYTES + 1
+                + Integer.BYTES + Integer.BYTES + Integer.BYTES;
+        return perSlot * ids.length + slotsById.estimatedBytes();
+    }
+
+    /**
+     * @return количество записей в индексе ID и в словарях организаций и имен пользователей
+     */
+    public Map<String, Integer> indexSizes() {
+        lock.readLock().lock();
+        try {
+            return Map.of("id", slotsById.size(), "organizations", organizations.size(), "usernames", usernames.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(int slot, Product product) {
+        ids[slot] = product.getId();
+        prices[slot] = product.getPrice() == null ? NULL_INT : product.getPrice();
+        xs[slot] = product.getCoordinates().getX();
+        ys[slot] = product.getCoordinates().getY();
+        epochDays[slot] = product.getCreationDate() == null ? NULL_INT : (int) product.getCreationDate().toEpochDay();
+        units[slot] = (byte) (product.getUnitOfMeasure() == null ? -1 : product.getUnitOfMeasure().ordinal());
+        organizationCodes[slot] = organizations.encode(product.getOrganization());
+        usernameCodes[slot] = usernames.encode(product.getUsername());
+        names[slot] = product.getName();
+    }
+
+    private Product materialize(int slot) {
+        Product product = new Product(names[slot],
+                new Coordinates(xs[slot], ys[slot]),
+                epochDays[slot] == NULL_INT ? null : LocalDate.ofEpochDay(epochDays[slot]),
+                prices[slot] == NULL_INT ? null : prices[slot],
+                units[slot] < 0 ? null : UNITS[units[slot]],
+                organizations.decode(organizationCodes[slot]));
+        product.setId(ids[slot]);
+        product.setUsername(usernames.decode(usernameCodes[slot]));
+        return product;
+    }
+
+    /**
+     * Удаляет продукт из слота, перенося на его место последний. Вызывается под блокировкой записи.
+     */
+    private void removeAt(int slot) {
+        int last = size - 1;
+        slotsById.remove(ids[slot]);
+        if (slot != last) {
+            ids[slot] = ids[last];
+            prices[slot] = prices[last];
+            xs[slot] = xs[last];
+            ys[slot] = ys[last];
+            epochDays[slot] = epochDays[last];
+            units[slot] = units[last];
+            organizationCodes[slot] = organizationCodes[last];
+            usernameCodes[slot] = usernameCodes[last];
+            names[slot] = names[last];
+            slotsById.put(ids[slot], slot);
+        }
+        names[last] = null;
+        size = last;
+        modCount++;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) return;
+        int capacity = Math.max(16, Math.max(required, ids.length + (ids.length >> 1)));
+        ids = Arrays.copyOf(ids, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        units = Arrays.copyOf(units, capacity);
+        organizationCodes = Arrays.copyOf(organizationCodes, capacity);
+        usernameCodes = Arrays.copyOf(usernameCodes, capacity);
+        names = Arrays.copyOf(names, capacity);
+    }
+
+    /**
+     * Итератор, создающий объекты {@link Product} по мере обхода.
+     */
+    private class ColumnIterator implements Iterator<Product> {
+        private int cursor;
+        private int lastReturned = -1;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        @Override
+        public Product next() {
+            lock.readLock().lock();
+            try {
+                if (expectedModCount != modCount) throw new ConcurrentModificationException();
+                if (cursor >= size) throw new NoSuchElementException();
+                lastReturned = cursor++;
+                return materialize(lastReturned);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) throw new IllegalStateException();
+            lock.writeLock().lock();
+            try {
+                if (expectedModCount != modCount) throw new ConcurrentModificationException();
+                removeAt(lastReturned);
+                // На место удаленного элемента перенесен последний, который еще не был пройден
+                cursor = lastReturned;
+                lastReturned = -1;
+                expectedModCount = modCount;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,596 @@
+package com.ann.server.storage;
+
+import com.general.models.Coordinates;
+import com.general.models.Organization;
+import com.general.models.Product;
+import com.general.models.UnitOfMeasure;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.zip.CRC32C;
+
+/**
+ * Хранилище продуктов вне кучи JVM, в файле, отображенном в память.
+ * <p>
+ * Каждый продукт занимает слот фиксированного размера {@value #SLOT_SIZE} байт. Файл отображается сегментами
+ * по {@value #SLOTS_PER_SEGMENT} слотов и растет по мере добавления. В куче хранится только индекс ID → слот.
+ * Поля читаются напрямую из отображенной памяти, объекты {@link Product} создаются только при выдаче наружу.
+ * Строки, которые не помещаются в поле слота, дописываются в файл переполнения рядом с основным
+ * ({@code <файл>.overflow}), а в слоте остается ссылка на них. Место устаревших строк в файле переполнения
+ * освобождается только при очистке хранилища.
+ * <p>
+ * Содержимое файла сохраняется между перезапусками сервера. Последние 4 байта слота — контрольная сумма CRC32C
+ * его полей и строк из файла переполнения; при открытии слоты с неверной суммой (например, недописанные
+ * при аварийном завершении) отбрасываются.
+ * Изменения должны выполняться под блокировкой менеджера коллекции. Чтение по ID, агрегаты и фильтры выполняются
+ * без нее, поэтому слоты защищены собственной блокировкой чтения-записи: удаление переносит последний слот
+ * на место удаленного, а рост файла добавляет сегменты.
+ */
+public class MappedProductCollection extends AbstractCollection<Product> implements PriceColumn, OwnerColumn, Closeable {
+    private static final int MAGIC = 0x50534C54; // "PSLT"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    private static final int COUNT_OFFSET = 12;
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final short NULL_STRING = -1;
+    private static final short OVERFLOW_STRING = -2;
+    private static final UnitOfMeasure[] UNITS = UnitOfMeasure.values();
+
+    static final int SLOT_SIZE = 512;
+    static final int SLOTS_PER_SEGMENT = 1 << 16;
+    private static final long SEGMENT_SIZE = (long) SLOT_SIZE * SLOTS_PER_SEGMENT;
+
+    // Смещения полей внутри слота. Строки хранятся как длина (2 байта) и байты UTF-8: название — до 256 байт
+    // с 40-го, организация — до 106 байт с 298-го, имя пользователя — до 100 байт с 406-го. Более длинная строка
+    // хранится как -2, длина (4 байта) и смещение (8 байт) в файле переполнения. С 508-го байта — контрольная сумма
+    private static final int ID = 0;
+    private static final int PRICE = 8;
+    private static final int EPOCH_DAY = 12;
+    private static final int X = 16;
+    private static final int Y = 24;
+    private static final int UNIT = 28;
+    private static final int ORGANIZATION_YEAR = 32;
+    private static final int NAME = 40;
+    private static final int NAME_CAPACITY = 256;
+    private static final int ORGANIZATION_NAME = NAME + 2 + NAME_CAPACITY;
+    private static final int ORGANIZATION_NAME_CAPACITY = 106;
+    private static final int USERNAME = ORGANIZATION_NAME + 2 + ORGANIZATION_NAME_CAPACITY;
+    private static final int CHECKSUM = SLOT_SIZE - 4;
+    private static final int USERNAME_CAPACITY = CHECKSUM - USERNAME - 2;
+    private static final int[] STRINGS = {NAME, ORGANIZATION_NAME, USERNAME};
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final FileChannel overflow;
+    private final LongIntHashMap slotsById;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long overflowSize;
+    private int size;
+    private int modCount;
+    private int droppedOnOpen;
+
+    /**
+     * Открывает хранилище в указанном файле, создавая его при необходимости. Файл прежней версии формата
+     * очищается, а слоты с неверной контрольной суммой отбрасываются.
+     *
+     * @param file путь к файлу хранилища
+     * @throws UncheckedIOException если файл не может быть открыт или не является хранилищем продуктов
+     */
+    public MappedProductCollection(Path file) {
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            overflow = FileChannel.open(file.resolveSibling(file.getFileName() + ".overflow"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            boolean created = channel.size() < HEADER_SIZE;
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            if (!created && header.getInt(0) != MAGIC) {
+                throw new IOException("Файл " + file + " не является хранилищем продуктов");
+            }
+            if (created || header.getInt(4) != FORMAT_VERSION || header.getInt(8) != SLOT_SIZE) {
+                header.putInt(0, MAGIC).putInt(4, FORMAT_VERSION).putInt(8, SLOT_SIZE).putInt(COUNT_OFFSET, 0);
+                overflow.truncate(0);
+            }
+            overflowSize = overflow.size();
+            size = header.getInt(COUNT_OFFSET);
+            slotsById = new LongIntHashMap(size);
+            ensureCapacity(size);
+            List<Integer> corrupted = new ArrayList<>();
+            for (int slot = 0; slot < size; slot++) {
+                if (isIntact(slot)) {
+                    slotsById.put(segment(slot).getLong(offset(slot) + ID), slot);
+                } else {
+                    corrupted.add(slot);
+                }
+            }
+            dropSlots(corrupted);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return количество слотов, отброшенных при открытии из-за неверной контрольной суммы
+     */
+    public int droppedOnOpen() {
+        return droppedOnOpen;
+    }
+
+    /**
+     * Добавляет продукт в хранилище. Продукт с уже существующим ID заменяет прежний.
+     *
+     * @param product продукт для добавления
+     * @return всегда {@code true}
+     * @throws UncheckedIOException если строку не удалось записать в файл переполнения
+     */
+    @Override
+    public boolean add(Product product) {
+        lock.writeLock().lock();
+        try {
+            int slot = slotsById.get(product.getId());
+            if (slot < 0) {
+                slot = size;
+                ensureCapacity(slot + 1);
+                write(slot, product);
+                slotsById.put(product.getId(), slot);
+                setSize(size + 1);
+            } else {
+                write(slot, product);
+            }
+            modCount++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        if (!(object instanceof Product product) || product.getId() == null) return false;
+        lock.writeLock().lock();
+        try {
+            int slot = slotsById.get(product.getId());
+            if (slot < 0) return false;
+            removeAt(slot);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        if (!(object instanceof Product product) || product.getId() == null) return false;
+        Product stored = get(product.getId());
+        return stored != null && stored.equals(product);
+    }
+
+    /**
+     * Удаляет все продукты и освобождает файл переполнения.
+     */
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            slotsById.clear();
+            setSize(0);
+            try {
+                overflow.truncate(0);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось очистить файл переполнения", e);
+            }
+            overflowSize = 0;
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterator<Product> iterator() {
+        return new SlotIterator();
+    }
+
+    /**
+     * Возвращает продукт по ID.
+     *
+     * @param id ID продукта
+     * @return продукт или {@code null}, если его нет
+     */
+    public Product get(long id) {
+        lock.readLock().lock();
+        try {
+            int slot = slotsById.get(id);
+            return slot < 0 || segment(slot).getLong(offset(slot) + ID) != id ? null : materialize(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return количество записей в индексе ID
+     */
+    public int idIndexSize() {
+        lock.readLock().lock();
+        try {
+            return slotsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return максимальный ID продукта в хранилище или 0, если хранилище пусто
+     */
+    public long maxId() {
+        lock.readLock().lock();
+        try {
+            long max = 0;
+            for (int slot = 0; slot < size; slot++) {
+                max = Math.max(max, segment(slot).getLong(offset(slot) + ID));
+            }
+            return max;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long sumOfPrices() {
+        lock.readLock().lock();
+        try {
+            long sum = 0;
+            for (int slot = 0; slot < size; slot++) {
+                int price = segment(slot).getInt(offset(slot) + PRICE);
+                if (price != NULL_INT) sum += price;
+            }
+            return sum;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Product> filterByPrice(IntPredicate condition) {
+        lock.readLock().lock();
+        try {
+            List<Product> result = new ArrayList<>();
+            for (int slot = 0; slot < size; slot++) {
+                int price = segment(slot).getInt(offset(slot) + PRICE);
+                if (price != NULL_INT && condition.test(price)) result.add(materialize(slot));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int countByUsername(String username) {
+        byte[] encoded = username.getBytes(StandardCharsets.UTF_8);
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            for (int slot = 0; slot < size; slot++) {
+                if (ownedBy(slot, encoded)) count++;
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Product> filterByUsername(String username) {
+        byte[] encoded = username.getBytes(StandardCharsets.UTF_8);
+        lock.readLock().lock();
+        try {
+            List<Product> result = new ArrayList<>();
+            for (int slot = 0; slot < size; slot++) {
+                if (ownedBy(slot, encoded)) result.add(materialize(slot));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int removeByUsername(String username) {
+        byte[] encoded = username.getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        try {
+            int removed = 0;
+            for (int slot = size - 1; slot >= 0; slot--) {
+                if (ownedBy(slot, encoded)) {
+                    removeAt(slot);
+                    removed++;
+                }
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Сбрасывает измененные страницы на диск и закрывает файл.
+     *
+     * @throws IOException если файл не может быть закрыт
+     */
+    @Override
+    public void close() throws IOException {
+        header.force();
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        overflow.force(false);
+        overflow.close();
+        channel.close();
+    }
+
+    private void write(int slot, Product product) {
+        MappedByteBuffer segment = segment(slot);
+        int base = offset(slot);
+        Organization organization = product.getOrganization();
+        segment.putLong(base + ID, product.getId())
+                .putInt(base + PRICE, product.getPrice() == null ? NULL_INT : product.getPrice())
+                .putInt(base + EPOCH_DAY, product.getCreationDate() == null ? NULL_INT : (int) product.getCreationDate().toEpochDay())
+                .putLong(base + X, product.getCoordinates().getX())
+                .putFloat(base + Y, product.getCoordinates().getY())
+                .put(base + UNIT, (byte) (product.getUnitOfMeasure() == null ? -1 : product.getUnitOfMeasure().ordinal()))
+                .putInt(base + ORGANIZATION_YEAR, organization == null || organization.getYear() == null ? NULL_INT : organization.getYear());
+        putString(segment, base + NAME, NAME_CAPACITY, product.getName());
+        putString(segment, base + ORGANIZATION_NAME, ORGANIZATION_NAME_CAPACITY, organization == null ? null : organization.getName());
+        putString(segment, base + USERNAME, USERNAME_CAPACITY, product.getUsername());
+        segment.putInt(base + CHECKSUM, checksum(segment, base)); // Сумма записывается последней
+    }
+
+    /**
+     * Считает контрольную сумму полей слота и его строк из файла переполнения.
+     *
+     * @throws UncheckedIOException если строку не удалось прочитать из файла переполнения
+     */
+    private int checksum(MappedByteBuffer segment, int base) {
+        CRC32C crc = new CRC32C();
+        crc.update(segment.slice(base, CHECKSUM));
+        for (int field : STRINGS) {
+            if (segment.getShort(base + field) == OVERFLOW_STRING) crc.update(readOverflow(segment, base + field));
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * @return {@code true}, если контрольная сумма слота совпадает, а его строки есть в файле переполнения
+     */
+    private boolean isIntact(int slot) {
+        MappedByteBuffer segment = segment(slot);
+        int base = offset(slot);
+        for (int field : STRINGS) {
+            short length = segment.getShort(base + field);
+            if (length < OVERFLOW_STRING) return false;
+            if (length == OVERFLOW_STRING) {
+                int overflowLength = segment.getInt(base + field + 2);
+                long position = segment.getLong(base + field + 6);
+                if (overflowLength < 0 || position < 0 || position + overflowLength > overflowSize) return false;
+            }
+        }
+        return segment.getInt(base + CHECKSUM) == checksum(segment, base);
+    }
+
+    /**
+     * Удаляет слоты, перенося на их место последние. Индекс ID для удаляемых слотов не заполнен.
+     *
+     * @param slots номера слотов по возрастанию
+     */
+    private void dropSlots(List<Integer> slots) {
+        for (int i = slots.size() - 1; i >= 0; i--) {
+            int slot = slots.get(i);
+            int last = size - 1;
+            if (slot != last) { // Последний слот исправен: все поврежденные слоты после текущего уже удалены
+                segment(slot).put(offset(slot), segment(last), offset(last), SLOT_SIZE);
+                slotsById.put(segment(slot).getLong(offset(slot) + ID), slot);
+            }
+            setSize(last);
+        }
+        droppedOnOpen = slots.size();
+    }
+
+    private Product materialize(int slot) {
+        MappedByteBuffer segment = segment(slot);
+        int base = offset(slot);
+        int price = segment.getInt(base + PRICE);
+        int epochDay = segment.getInt(base + EPOCH_DAY);
+        byte unit = segment.get(base + UNIT);
+        int organizationYear = segment.getInt(base + ORGANIZATION_YEAR);
+        String organizationName = getString(segment, base + ORGANIZATION_NAME);
+
+        Product product = new Product(getString(segment, base + NAME),
+                new Coordinates(segment.getLong(base + X), segment.getFloat(base + Y)),
+                epochDay == NULL_INT ? null : LocalDate.ofEpochDay(epochDay),
+                price == NULL_INT ? null : price,
+                unit < 0 ? null : UNITS[unit],
+                organizationName == null ? null
+                        : new Organization(organizationName, organizationYear == NULL_INT ? null : organizationYear));
+        product.setId(segment.getLong(base + ID));
+        product.setUsername(getString(segment, base + USERNAME));
+        return product;
+    }
+
+    /**
+     * Сравнивает имя пользователя в слоте с байтами UTF-8, не создавая строку.
+     */
+    private boolean ownedBy(int slot, byte[] username) {
+        MappedByteBuffer segment = segment(slot);
+        int position = offset(slot) + USERNAME;
+        if (segment.getShort(position) == OVERFLOW_STRING) {
+            return Arrays.equals(readOverflow(segment, position), username);
+        }
+        if (segment.getShort(position) != username.length) return false;
+        for (int i = 0; i < username.length; i++) {
+            if (segment.get(position + 2 + i) != username[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Удаляет продукт из слота, перенося на его место последний. Вызывается под блокировкой записи.
+     */
+    private void removeAt(int slot) {
+        int last = size - 1;
+        slotsById.remove(segment(slot).getLong(offset(slot) + ID));
+        if (slot != last) {
+            MappedByteBuffer source = segment(last);
+            MappedByteBuffer target = segment(slot);
+            target.put(offset(slot), source, offset(last), SLOT_SIZE);
+            slotsById.put(target.getLong(offset(slot) + ID), slot);
+        }
+        setSize(last);
+        modCount++;
+    }
+
+    private void setSize(int newSize) {
+        size = newSize;
+        header.putInt(COUNT_OFFSET, newSize);
+    }
+
+    private void ensureCapacity(int slots) {
+        try {
+            while ((long) segments.size() * SLOTS_PER_SEGMENT < slots) {
+                long position = HEADER_SIZE + segments.size() * SEGMENT_SIZE;
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, position, SEGMENT_SIZE));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось расширить файл хранилища", e);
+        }
+    }
+
+    private MappedByteBuffer segment(int slot) {
+        return segments.get(slot / SLOTS_PER_SEGMENT);
+    }
+
+    private static int offset(int slot) {
+        return (slot % SLOTS_PER_SEGMENT) * SLOT_SIZE;
+    }
+
+    /**
+     * Записывает строку в поле слота или, если она длиннее {@code capacity} байт, в файл переполнения.
+     */
+    private void putString(MappedByteBuffer segment, int position, int capacity, String value) {
+        if (value == null) {
+            segment.putShort(position, NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= capacity) {
+            segment.putShort(position, (short) bytes.length);
+            segment.put(position + 2, bytes);
+            return;
+        }
+        long overflowPosition = overflowSize;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                overflow.write(buffer, overflowPosition + buffer.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать строку в файл переполнения", e);
+        }
+        overflowSize += bytes.length;
+        segment.putShort(position, OVERFLOW_STRING).putInt(position + 2, bytes.length).putLong(position + 6, overflowPosition);
+    }
+
+    private String getString(MappedByteBuffer segment, int position) {
+        short length = segment.getShort(position);
+        if (length == NULL_STRING) return null;
+        if (length == OVERFLOW_STRING) return new String(readOverflow(segment, position), StandardCharsets.UTF_8);
+        byte[] bytes = new byte[length];
+        segment.get(position + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Читает байты строки, на которую ссылается поле слота, из файла переполнения.
+     */
+    private byte[] readOverflow(MappedByteBuffer segment, int position) {
+        ByteBuffer buffer = ByteBuffer.allocate(segment.getInt(position + 2));
+        long overflowPosition = segment.getLong(position + 6);
+        try {
+            while (buffer.hasRemaining()) {
+                if (overflow.read(buffer, overflowPosition + buffer.position()) < 0) {
+                    throw new IOException("Файл переполнения короче ссылки на строку");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать строку из файла переполнения", e);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Итератор, создающий объекты {@link Product} по мере обхода слотов.
+     */
+    private class SlotIterator implements Iterator<Product> {
+        private int cursor;
+        private int lastReturned = -1;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        @Override
+        public Product next() {
+            lock.readLock().lock();
+            try {
+                if (expectedModCount != modCount) throw new ConcurrentModificationException();
+                if (cursor >= size) throw new NoSuchElementException();
+                lastReturned = cursor++;
+                return materialize(lastReturned);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) throw new IllegalStateException();
+            lock.writeLock().lock();
+            try {
+                if (expectedModCount != modCount) throw new ConcurrentModificationException();
+                removeAt(lastReturned);
+                // На место удаленного слота перенесен последний, который еще не был пройден
+                cursor = lastReturned;
+                lastReturned = -1;
+                expectedModCount = modCount;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
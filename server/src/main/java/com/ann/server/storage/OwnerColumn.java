@@ -0,0 +1,32 @@
+package com.ann.server.storage;
+
+import com.general.models.Product;
+
+import java.util.List;
+
+/**
+ * Хранилище продуктов, позволяющее считать, выбирать и удалять продукты пользователя по колонке владельцев,
+ * не создавая объектов {@link Product} для чужих продуктов.
+ */
+public interface OwnerColumn {
+
+    /**
+     * @param username имя пользователя
+     * @return количество продуктов пользователя
+     */
+    int countByUsername(String username);
+
+    /**
+     * @param username имя пользователя
+     * @return продукты пользователя
+     */
+    List<Product> filterByUsername(String username);
+
+    /**
+     * Удаляет все продукты пользователя.
+     *
+     * @param username имя пользователя
+     * @return количество удаленных продуктов
+     */
+    int removeByUsername(String username);
+}
@@ -0,0 +1,146 @@
+package com.ann.server.storage;
+
+import com.general.models.Product;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Коллекция продуктов режима heap, разделенная по владельцам: продукты каждого пользователя лежат
+ * в отдельной очереди с приоритетом {@link PriorityQueue}.
+ * <p>
+ * Удаление всех продуктов пользователя ({@link #removeOwner(String)}) снимает его очередь целиком, не просматривая
+ * чужие продукты, поэтому стоимость очистки пропорциональна количеству продуктов пользователя.
+ * Итерация обходит очереди пользователей по очереди в порядке их появления. Как и другие коллекции продуктов,
+ * {@link #remove} и {@link #contains} находят продукт по ID: равные по полям продукты с разными ID различаются.
+ * Не потокобезопасно: изменения должны выполняться под блокировкой менеджера коллекции.
+ */
+public class OwnerPartitionedQueue extends AbstractCollection<Product> {
+    private final Map<String, PriorityQueue<Product>> partitions = new LinkedHashMap<>();
+    private int size;
+    private int modCount;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(Product product) {
+        partitions.computeIfAbsent(product.getUsername(), username -> new PriorityQueue<>()).add(product);
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        if (!(object instanceof Product product) || product.getId() == null) return false;
+        PriorityQueue<Product> partition = partitions.get(product.getUsername());
+        // PriorityQueue.remove сравнивает по equals и удалил бы первый равный продукт, а не продукт с этим ID
+        if (partition == null || !partition.removeIf(stored -> product.getId().equals(stored.getId()))) return false;
+        if (partition.isEmpty()) partitions.remove(product.getUsername());
+        size--;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        if (!(object instanceof Product product) || product.getId() == null) return false;
+        PriorityQueue<Product> partition = partitions.get(product.getUsername());
+        if (partition == null) return false;
+        for (Product stored : partition) {
+            if (product.getId().equals(stored.getId())) return stored.equals(product);
+        }
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        partitions.clear();
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Удаляет все продукты пользователя.
+     *
+     * @param username имя пользователя
+     * @return удаленные продукты
+     */
+    public List<Product> removeOwner(String username) {
+        PriorityQueue<Product> partition = partitions.remove(username);
+        if (partition == null) return List.of();
+        size -= partition.size();
+        modCount++;
+        return new ArrayList<>(partition);
+    }
+
+    /**
+     * @param username имя пользователя
+     * @return количество продуктов пользователя
+     */
+    public int countOwner(String username) {
+        PriorityQueue<Product> partition = partitions.get(username);
+        return partition == null ? 0 : partition.size();
+    }
+
+    @Override
+    public Iterator<Product> iterator() {
+        return new PartitionIterator();
+    }
+
+    /**
+     * Итератор, обходящий очереди пользователей одну за другой.
+     */
+    private class PartitionIterator implements Iterator<Product> {
+        private final Iterator<PriorityQueue<Product>> partitionIterator = partitions.values().iterator();
+        private PriorityQueue<Product> partition;
+        private Iterator<Product> iterator;
+        private Iterator<Product> lastIterator; // Итератор очереди последнего выданного продукта
+        private PriorityQueue<Product> lastPartition;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            while (iterator == null || !iterator.hasNext()) {
+                if (!partitionIterator.hasNext()) return false;
+                partition = partitionIterator.next();
+                iterator = partition.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public Product next() {
+            if (expectedModCount != modCount) throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+            lastIterator = iterator;
+            lastPartition = partition;
+            return iterator.next();
+        }
+
+        @Override
+        public void remove() {
+            if (lastIterator == null) throw new IllegalStateException();
+            if (expectedModCount != modCount) throw new ConcurrentModificationException();
+            lastIterator.remove();
+            // Опустевшую очередь можно снять, только если hasNext() еще не перешел к следующей
+            if (lastPartition.isEmpty() && lastPartition == partition) {
+                partitionIterator.remove();
+                iterator = null;
+            }
+            lastIterator = null;
+            size--;
+            expectedModCount = ++modCount;
+        }
+    }
+}
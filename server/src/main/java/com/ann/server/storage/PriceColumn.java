@@ -0,0 +1,25 @@
+package com.ann.server.storage;
+
+import com.general.models.Product;
+
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Хранилище продуктов, позволяющее выполнять агрегаты и фильтры по цене без создания объектов {@link Product}.
+ */
+public interface PriceColumn {
+
+    /**
+     * @return сумма цен всех продуктов
+     */
+    long sumOfPrices();
+
+    /**
+     * Возвращает продукты, цена которых удовлетворяет условию. Продукты без цены не возвращаются.
+     *
+     * @param condition условие на цену
+     * @return список подходящих продуктов
+     */
+    List<Product> filterByPrice(IntPredicate condition);
+}
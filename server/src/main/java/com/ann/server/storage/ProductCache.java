@@ -0,0 +1,147 @@
+package com.ann.server.storage;
+
+import com.general.models.Product;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограниченный по размеру LRU-кэш продуктов с метриками попаданий и времени загрузки.
+ * <p>
+ * При переполнении вытесняется продукт, к которому дольше всего не обращались. Потокобезопасен.
+ * Изменения кэша считаются, чтобы продукты, загруженные из базы данных одновременно с изменением,
+ * не заменили в кэше более новые ({@link #putLoaded}).
+ */
+public class ProductCache {
+    private final int capacity;
+    private final Map<Long, Product> products;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadedProducts = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final AtomicLong maxLoadNanos = new AtomicLong();
+    private long writes; // Изменения кэша, защищены монитором products
+
+    /**
+     * @param capacity максимальное количество продуктов в кэше
+     */
+    public ProductCache(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.products = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Product> eldest) {
+                return size() > ProductCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Возвращает продукт из кэша и учитывает попадание или промах.
+     *
+     * @param id ID продукта
+     * @return продукт или {@code null}, если его нет в кэше
+     */
+    public Product get(long id) {
+        Product product;
+        synchronized (products) {
+            product = products.get(id);
+        }
+        (product == null ? misses : hits).increment();
+        return product;
+    }
+
+    public void put(Product product) {
+        synchronized (products) {
+            products.put(product.getId(), product);
+            writes++;
+        }
+    }
+
+    /**
+     * Помещает в кэш продукты, загруженные из базы данных, если с начала загрузки кэш не изменялся.
+     * Иначе загрузка могла прочитать строку до изменения, и продукты в кэш не помещаются.
+     *
+     * @param loaded           загруженные продукты
+     * @param writesBeforeLoad значение {@link #writeCount()} перед загрузкой
+     */
+    public void putLoaded(List<Product> loaded, long writesBeforeLoad) {
+        synchronized (products) {
+            if (writes != writesBeforeLoad) return;
+            for (Product product : loaded) {
+                products.putIfAbsent(product.getId(), product);
+            }
+        }
+    }
+
+    /**
+     * @return количество изменений кэша (добавлений, удалений и очисток)
+     */
+    public long writeCount() {
+        synchronized (products) {
+            return writes;
+        }
+    }
+
+    public void invalidate(long id) {
+        synchronized (products) {
+            products.remove(id);
+            writes++;
+        }
+    }
+
+    public void clear() {
+        synchronized (products) {
+            products.clear();
+            writes++;
+        }
+    }
+
+    public int size() {
+        synchronized (products) {
+            return products.size();
+        }
+    }
+
+    /**
+     * Учитывает одну загрузку продуктов из базы данных.
+     *
+     * @param count    количество загруженных продуктов
+     * @param nanos    длительность загрузки в наносекундах
+     */
+    public void recordLoad(int count, long nanos) {
+        loads.increment();
+        loadedProducts.add(count);
+        loadNanos.add(nanos);
+        maxLoadNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * @return доля обращений, обслуженных из кэша, от 0 до 1
+     */
+    public double hitRate() {
+        long hits = this.hits.sum();
+        long total = hits + misses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return среднее время одной загрузки из базы данных в микросекундах
+     */
+    public long averageLoadMicros() {
+        long loads = this.loads.sum();
+        return loads == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(loadNanos.sum() / loads);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("кэш %d/%d, попаданий %.1f%% (%d из %d), загрузок из БД %d (%d продуктов), " +
+                        "среднее время загрузки %d мкс, максимальное %d мкс",
+                size(), capacity, hitRate() * 100, hits.sum(), hits.sum() + misses.sum(),
+                loads.sum(), loadedProducts.sum(), averageLoadMicros(), TimeUnit.NANOSECONDS.toMicros(maxLoadNanos.get()));
+    }
+}
@@ -0,0 +1,109 @@
+package com.ann.server.storage;
+
+import com.general.models.Coordinates;
+import com.general.models.Organization;
+import com.general.models.Product;
+import com.general.models.UnitOfMeasure;
+import com.general.utility.InternPool;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Класс {@code ProductCodec} кодирует объекты {@link Product} в компактный двоичный формат и обратно.
+ * <p>
+ * Используется снимком коллекции и журналом изменений. Формат записи:
+ * id, дата создания (эпохальный день), цена, x, y, единица измерения, год организации,
+ * затем строки: название, название организации, имя пользователя (длина в байтах UTF-8 и сами байты, -1 для null).
+ */
+public final class ProductCodec {
+    private static final int NULL_INT = Integer.MIN_VALUE;
+
+    private ProductCodec() {
+    }
+
+    /**
+     * Записывает продукт в поток.
+     *
+     * @param product продукт для записи
+     * @param output  поток для записи
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    public static void write(Product product, DataOutput output) throws IOException {
+        output.writeLong(product.getId());
+        output.writeInt(product.getCreationDate() == null ? NULL_INT : (int) product.getCreationDate().toEpochDay());
+        output.writeInt(product.getPrice() == null ? NULL_INT : product.getPrice());
+        output.writeLong(product.getCoordinates().getX());
+        output.writeFloat(product.getCoordinates().getY());
+        output.writeByte(product.getUnitOfMeasure() == null ? -1 : product.getUnitOfMeasure().ordinal());
+        Organization organization = product.getOrganization();
+        output.writeInt(organization == null || organization.getYear() == null ? NULL_INT : organization.getYear());
+        writeString(product.getName(), output);
+        writeString(organization == null ? null : organization.getName(), output);
+        writeString(product.getUsername(), output);
+    }
+
+    /**
+     * Читает продукт из буфера, начиная с его текущей позиции.
+     *
+     * @param buffer буфер с данными
+     * @return прочитанный продукт
+     */
+    public static Product read(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        int epochDay = buffer.getInt();
+        int price = buffer.getInt();
+        long x = buffer.getLong();
+        float y = buffer.getFloat();
+        byte unit = buffer.get();
+        int organizationYear = buffer.getInt();
+        String name = readString(buffer);
+        String organizationName = readString(buffer);
+        String username = readString(buffer);
+
+        Organization organization = organizationName == null ? null
+                : Organization.intern(new Organization(organizationName, organizationYear == NULL_INT ? null : organizationYear));
+        Product product = new Product(InternPool.STRINGS.intern(name), new Coordinates(x, y),
+                epochDay == NULL_INT ? null : LocalDate.ofEpochDay(epochDay),
+                price == NULL_INT ? null : price,
+                unit < 0 ? null : UnitOfMeasure.values()[unit],
+                organization);
+        product.setId(id);
+        product.setUsername(InternPool.STRINGS.intern(username));
+        return product;
+    }
+
+    /**
+     * Записывает строку в поток (длина в байтах UTF-8 и сами байты, -1 для null).
+     *
+     * @param value  строка
+     * @param output поток для записи
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    public static void writeString(String value, DataOutput output) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Читает строку, записанную методом {@link #writeString(String, DataOutput)}.
+     *
+     * @param buffer буфер с данными
+     * @return прочитанная строка или null
+     */
+    public static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
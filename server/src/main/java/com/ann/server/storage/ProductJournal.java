@@ -0,0 +1,237 @@
+package com.ann.server.storage;
+
+import com.general.models.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Класс {@code ProductJournal} ведет журнал изменений коллекции, произошедших после последнего снимка.
+ * <p>
+ * Журнал разбит на поколения: каждое поколение хранится в отдельном файле {@code products.journal.<N>}.
+ * При записи снимка начинается новое поколение, а старые файлы удаляются после успешной записи снимка.
+ * Каждая запись журнала имеет вид: длина, CRC32, код операции, данные. Поврежденный или недописанный
+ * хвост файла при воспроизведении отбрасывается.
+ */
+public class ProductJournal implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger("ProductJournal");
+    private static final String PREFIX = "products.journal.";
+
+    private static final byte ADD = 1;
+    private static final byte UPDATE = 2;
+    private static final byte REMOVE = 3;
+    private static final byte CLEAR_USER = 4;
+
+    private final Path directory;
+    private final boolean fsync;
+    private FileChannel channel;
+    private long generation;
+
+    /**
+     * Создает журнал в указанном каталоге.
+     *
+     * @param directory каталог хранения файлов журнала
+     * @param fsync     сбрасывать ли данные на диск после каждой записи
+     */
+    public ProductJournal(Path directory, boolean fsync) {
+        this.directory = directory;
+        this.fsync = fsync;
+    }
+
+    /**
+     * @return номер текущего поколения журнала
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Возвращает номер последнего поколения журнала, найденного на диске.
+     *
+     * @return номер последнего поколения или 0, если файлов журнала нет
+     * @throws IOException если каталог не может быть прочитан
+     */
+    public long lastGeneration() throws IOException {
+        return listGenerations().stream().mapToLong(Long::longValue).max().orElse(0);
+    }
+
+    /**
+     * Закрывает текущий файл журнала и начинает новое поколение.
+     *
+     * @param newGeneration номер нового поколения
+     * @throws IOException если файл журнала не может быть создан
+     */
+    public synchronized void rotate(long newGeneration) throws IOException {
+        close();
+        Files.createDirectories(directory);
+        channel = FileChannel.open(fileOf(newGeneration), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        generation = newGeneration;
+    }
+
+    /**
+     * Удаляет файлы журнала старше указанного поколения.
+     *
+     * @param generation поколение, с которого журнал нужно сохранить
+     * @throws IOException если файлы не могут быть удалены
+     */
+    public void deleteBefore(long generation) throws IOException {
+        for (long existing : listGenerations()) {
+            if (existing < generation) Files.deleteIfExists(fileOf(existing));
+        }
+    }
+
+    public void logAdd(Product product) throws IOException {
+        append(ADD, product, null, 0);
+    }
+
+    public void logUpdate(Product product) throws IOException {
+        append(UPDATE, product, null, 0);
+    }
+
+    public void logRemove(long id) throws IOException {
+        append(REMOVE, null, null, id);
+    }
+
+    public void logClear(String username) throws IOException {
+        append(CLEAR_USER, null, username, 0);
+    }
+
+    /**
+     * Применяет к отображению ID → продукт все записи журнала, начиная с указанного поколения.
+     *
+     * @param products   состояние коллекции из снимка
+     * @param generation первое поколение журнала для воспроизведения
+     * @return количество примененных записей
+     * @throws IOException если файлы журнала не могут быть прочитаны
+     */
+    public long replay(Map<Long, Product> products, long generation) throws IOException {
+        long applied = 0;
+        for (long existing : listGenerations()) {
+            if (existing < generation) continue;
+            applied += replayFile(fileOf(existing), products);
+        }
+        return applied;
+    }
+
+    private long replayFile(Path file, Map<Long, Product> products) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        long applied = 0;
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= 8) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int expectedCrc = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                logger.warn("Журнал {} обрезан на позиции {}, остаток проигнорирован", file.getFileName(), start);
+                return applied;
+            }
+            ByteBuffer entry = buffer.slice(buffer.position(), length);
+            crc.reset();
+            crc.update(entry.duplicate());
+            if ((int) crc.getValue() != expectedCrc) {
+                logger.warn("Запись журнала {} на позиции {} повреждена, остаток проигнорирован", file.getFileName(), start);
+                return applied;
+            }
+            buffer.position(buffer.position() + length);
+            try {
+                apply(entry, products);
+                applied++;
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                logger.warn("Некорректная запись журнала {} на позиции {}: {}", file.getFileName(), start, e.getMessage());
+                return applied;
+            }
+        }
+        return applied;
+    }
+
+    private void apply(ByteBuffer entry, Map<Long, Product> products) {
+        byte operation = entry.get();
+        switch (operation) {
+            case ADD, UPDATE -> {
+                Product product = ProductCodec.read(entry);
+                products.put(product.getId(), product);
+            }
+            case REMOVE -> products.remove(entry.getLong());
+            case CLEAR_USER -> {
+                String username = ProductCodec.readString(entry);
+                products.values().removeIf(product -> username.equals(product.getUsername()));
+            }
+            default -> throw new IllegalArgumentException("Неизвестная операция " + operation);
+        }
+    }
+
+    private synchronized void append(byte operation, Product product, String username, long id) throws IOException {
+        if (channel == null) return;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(0); // длина, заполняется ниже
+        output.writeInt(0); // CRC32, заполняется ниже
+        output.writeByte(operation);
+        switch (operation) {
+            case ADD, UPDATE -> ProductCodec.write(product, output);
+            case REMOVE -> output.writeLong(id);
+            default -> ProductCodec.writeString(username, output);
+        }
+        output.flush();
+
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        int length = record.limit() - 8;
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 8, length);
+        record.putInt(0, length).putInt(4, (int) crc.getValue());
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        if (fsync) channel.force(false);
+    }
+
+    private List<Long> listGenerations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        if (!Files.isDirectory(directory)) return generations;
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX))
+                    .forEach(name -> {
+                        try {
+                            generations.add(Long.parseLong(name.substring(PREFIX.length())));
+                        } catch (NumberFormatException ignored) {
+                        }
+                    });
+        }
+        generations.sort(Long::compare);
+        return generations;
+    }
+
+    private Path fileOf(long generation) {
+        return directory.resolve(PREFIX + generation);
+    }
+
+    /**
+     * Закрывает текущий файл журнала.
+     *
+     * @throws IOException если файл не может быть закрыт
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
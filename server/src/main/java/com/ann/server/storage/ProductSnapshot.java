@@ -0,0 +1,147 @@
+package com.ann.server.storage;
+
+import com.general.models.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Класс {@code ProductSnapshot} записывает и читает двоичный снимок коллекции продуктов.
+ * <p>
+ * Файл состоит из заголовка фиксированной длины и тела с записями в формате {@link ProductCodec}.
+ * Заголовок содержит сигнатуру, версию формата, поколение журнала, с которого продолжается история,
+ * количество записей, максимальный ID, длину тела и контрольную сумму CRC32 тела.
+ * Снимок читается через отображение файла в память, запись выполняется во временный файл с атомарной заменой.
+ */
+public class ProductSnapshot {
+    private static final Logger logger = LoggerFactory.getLogger("ProductSnapshot");
+    private static final int MAGIC = 0x50534E50; // "PSNP"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 8 + 8 + 8;
+
+    private final Path file;
+
+    /**
+     * Результат чтения снимка.
+     *
+     * @param products          продукты из снимка по их ID в порядке записи
+     * @param journalGeneration поколение журнала, изменения которого следуют за снимком
+     * @param maxId             максимальный ID продукта на момент записи снимка
+     */
+    public record Contents(Map<Long, Product> products, long journalGeneration, long maxId) {
+    }
+
+    /**
+     * Создает снимок, связанный с указанным файлом.
+     *
+     * @param file путь к файлу снимка
+     */
+    public ProductSnapshot(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Проверяет, существует ли файл снимка.
+     *
+     * @return {@code true}, если снимок уже записан
+     */
+    public boolean exists() {
+        return Files.isRegularFile(file);
+    }
+
+    /**
+     * Записывает снимок коллекции.
+     *
+     * @param products          продукты для записи
+     * @param journalGeneration поколение журнала, начатое в момент снимка
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    public void write(Collection<Product> products, long journalGeneration) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        long maxId = 0;
+        long bodyLength;
+        CRC32 crc = new CRC32();
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.position(HEADER_SIZE);
+            OutputStream body = Channels.newOutputStream(channel);
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(body, 1 << 16), crc);
+            DataOutputStream output = new DataOutputStream(checked);
+            for (Product product : products) {
+                ProductCodec.write(product, output);
+                maxId = Math.max(maxId, product.getId());
+            }
+            output.flush();
+            bodyLength = channel.position() - HEADER_SIZE;
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC)
+                    .putInt(FORMAT_VERSION)
+                    .putLong(journalGeneration)
+                    .putInt(products.size())
+                    .putLong(maxId)
+                    .putLong(bodyLength)
+                    .putLong(crc.getValue())
+                    .flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("Снимок коллекции записан: {} элементов, {} байт", products.size(), bodyLength + HEADER_SIZE);
+    }
+
+    /**
+     * Читает снимок коллекции, отображая файл в память.
+     *
+     * @return содержимое снимка
+     * @throws IOException если файл поврежден, имеет неизвестный формат или не может быть прочитан
+     */
+    public Contents read() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) throw new IOException("Файл снимка слишком короткий");
+            if (size > Integer.MAX_VALUE) throw new IOException("Файл снимка больше 2 ГиБ и не может быть отображен");
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC) throw new IOException("Неизвестная сигнатура файла снимка");
+            int version = buffer.getInt();
+            if (version != FORMAT_VERSION) throw new IOException("Неподдерживаемая версия снимка: " + version);
+            long journalGeneration = buffer.getLong();
+            int count = buffer.getInt();
+            long maxId = buffer.getLong();
+            long bodyLength = buffer.getLong();
+            long expectedCrc = buffer.getLong();
+            if (HEADER_SIZE + bodyLength != size) throw new IOException("Размер тела снимка не совпадает с заголовком");
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice());
+            if (crc.getValue() != expectedCrc) throw new IOException("Контрольная сумма снимка не совпадает");
+
+            Map<Long, Product> products = new LinkedHashMap<>(Math.max(16, (int) (count / 0.75f) + 1));
+            for (int i = 0; i < count; i++) {
+                Product product = ProductCodec.read(buffer);
+                products.put(product.getId(), product);
+            }
+            return new Contents(products, journalGeneration, maxId);
+        }
+    }
+}
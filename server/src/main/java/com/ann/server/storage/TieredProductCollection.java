@@ -0,0 +1,443 @@
+package com.ann.server.storage;
+
+import com.general.models.Product;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Двухуровневое хранилище продуктов: в памяти постоянно находятся только ключи (ID, цена и владелец),
+ * а полные объекты {@link Product} хранятся в ограниченном кэше {@link ProductCache} и загружаются
+ * из базы данных при промахе.
+ * <p>
+ * Итерация загружает недостающие продукты пакетами по {@value #PREFETCH_SIZE} штук, а {@link #page(int, int)}
+ * загружает одну страницу одним запросом, поэтому вывод коллекции выполняет один запрос к базе данных на пакет,
+ * а не на каждый продукт. Агрегаты по цене и удаление
+ * продуктов пользователя выполняются только по ключам. Удаление переносит последний элемент на место удаленного.
+ * <p>
+ * Изменения должны выполняться под блокировкой менеджера коллекции. Чтение выполняется без нее, поэтому ключи
+ * защищены собственной блокировкой чтения-записи; ID нужных продуктов копируются под блокировкой чтения,
+ * а загрузка из базы данных выполняется уже без нее. Загруженные продукты попадают в кэш, только если кэш
+ * не изменялся во время загрузки, иначе старая строка могла бы заменить в кэше только что обновленный продукт.
+ */
+public class TieredProductCollection extends AbstractCollection<Product> implements PriceColumn, OwnerColumn {
+    static final int PREFETCH_SIZE = 256;
+    private static final int NULL_INT = Integer.MIN_VALUE;
+
+    private final Loader loader;
+    private final ProductCache cache;
+    private final ValueDictionary<String> usernames = new ValueDictionary<>();
+    private final LongIntHashMap slotsById = new LongIntHashMap(16);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] ids = new long[0];
+    private int[] prices = new int[0];
+    private int[] usernameCodes = new int[0];
+    private int size;
+    private int modCount;
+
+    /**
+     * Загрузчик полных объектов продуктов по ID.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * @param ids ID продуктов
+         * @return найденные продукты; отсутствующие в базе данных ID пропускаются
+         * @throws Exception если продукты не удалось загрузить
+         */
+        List<Product> load(long[] ids) throws Exception;
+    }
+
+    /**
+     * @param loader        загрузчик продуктов из базы данных
+     * @param cacheCapacity максимальное количество полных продуктов в памяти
+     */
+    public TieredProductCollection(Loader loader, int cacheCapacity) {
+        this.loader = loader;
+        this.cache = new ProductCache(cacheCapacity);
+    }
+
+    /**
+     * @return кэш полных продуктов с метриками попаданий и загрузок
+     */
+    public ProductCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Добавляет только ключи продукта, не помещая сам продукт в кэш. Используется при загрузке коллекции.
+     *
+     * @param id       ID продукта
+     * @param price    цена или {@code null}
+     * @param username владелец продукта
+     */
+    public void addKey(long id, Integer price, String username) {
+        lock.writeLock().lock();
+        try {
+            int slot = slotsById.get(id);
+            if (slot < 0) {
+                ensureCapacity(size + 1);
+                slot = size;
+                slotsById.put(id, slot);
+                size++;
+            }
+            ids[slot] = id;
+            prices[slot] = price == null ? NULL_INT : price;
+            usernameCodes[slot] = usernames.encode(username);
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Добавляет продукт. Продукт с уже существующим ID заменяет прежний.
+     *
+     * @param product продукт для добавления
+     * @return всегда {@code true}
+     */
+    @Override
+    public boolean add(Product product) {
+        addKey(product.getId(), product.getPrice(), product.getUsername());
+        cache.put(product);
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        if (!(object instanceof Product product) || product.getId() == null) return false;
+        lock.writeLock().lock();
+        try {
+            int slot = slotsById.get(product.getId());
+            if (slot < 0) return false;
+            removeAt(slot);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        if (!(object instanceof Product product) || product.getId() == null) return false;
+        return product.equals(get(product.getId()));
+    }
+
+    /**
+     * Проверяет наличие продукта без загрузки его из базы данных.
+     *
+     * @param id ID продукта
+     * @return {@code true}, если продукт есть в коллекции
+     */
+    public boolean containsId(long id) {
+        lock.readLock().lock();
+        try {
+            return slotsById.get(id) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет подходящие продукты. Сначала выбираются ID, затем продукты удаляются по индексу.
+     */
+    @Override
+    public boolean removeIf(Predicate<? super Product> filter) {
+        List<Long> matching = new ArrayList<>();
+        for (Product product : this) {
+            if (filter.test(product)) matching.add(product.getId());
+        }
+        lock.writeLock().lock();
+        try {
+            for (long id : matching) {
+                int slot = slotsById.get(id);
+                if (slot >= 0) removeAt(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return !matching.isEmpty();
+    }
+
+    /**
+     * Удаляет все продукты пользователя, не загружая их из базы данных.
+     *
+     * @param username имя пользователя
+     * @return количество удаленных продуктов
+     */
+    @Override
+    public int removeByUsername(String username) {
+        lock.writeLock().lock();
+        try {
+            int code = usernames.codeOf(username);
+            if (code < 0) return 0;
+            int removed = 0;
+            for (int slot = size - 1; slot >= 0; slot--) {
+                if (usernameCodes[slot] == code) {
+                    removeAt(slot);
+                    removed++;
+                }
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Считает продукты пользователя по колонке владельцев, не загружая их из базы данных.
+     */
+    @Override
+    public int countByUsername(String username) {
+        lock.readLock().lock();
+        try {
+            int code = usernames.codeOf(username);
+            if (code < 0) return 0;
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (usernameCodes[i] == code) count++;
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает продукты пользователя; из базы данных загружаются только его продукты, которых нет в кэше.
+     */
+    @Override
+    public List<Product> filterByUsername(String username) {
+        return fetchMatching(() -> {
+            int code = usernames.codeOf(username);
+            return code < 0 ? slot -> false : slot -> usernameCodes[slot] == code;
+        });
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            slotsById.clear();
+            cache.clear();
+            size = 0;
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterator<Product> iterator() {
+        return new PrefetchingIterator();
+    }
+
+    /**
+     * Возвращает продукт по ID из кэша или из базы данных.
+     *
+     * @param id ID продукта
+     * @return продукт или {@code null}, если его нет в коллекции
+     */
+    public Product get(long id) {
+        if (!containsId(id)) return null;
+        Product product = cache.get(id);
+        if (product != null) return product;
+        List<Product> loaded = load(new long[]{id});
+        return loaded.isEmpty() ? null : loaded.get(0);
+    }
+
+    /**
+     * Возвращает продукты слотов с {@code from} по {@code from + count - 1} в порядке итерации, загружая
+     * отсутствующие в кэше одним запросом. Остальные продукты коллекции не загружаются.
+     *
+     * @param from  номер первого слота
+     * @param count наибольшее количество продуктов
+     * @return продукты страницы; пустой список, если {@code from} не меньше размера коллекции
+     */
+    public List<Product> page(int from, int count) {
+        long[] pageIds = copyIds(from, count);
+        List<Product> result = new ArrayList<>(pageIds.length);
+        fetch(pageIds, pageIds.length, result);
+        return result;
+    }
+
+    @Override
+    public long sumOfPrices() {
+        lock.readLock().lock();
+        try {
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                if (prices[i] != NULL_INT) sum += prices[i];
+            }
+            return sum;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Product> filterByPrice(IntPredicate condition) {
+        return fetchMatching(() -> slot -> prices[slot] != NULL_INT && condition.test(prices[slot]));
+    }
+
+    /**
+     * Копирует ID слотов с {@code from} по {@code from + count - 1} под блокировкой чтения.
+     *
+     * @return ID слотов; пустой массив, если {@code from} не меньше размера коллекции
+     */
+    private long[] copyIds(int from, int count) {
+        lock.readLock().lock();
+        try {
+            int end = (int) Math.min(size, (long) from + count);
+            return from < end ? Arrays.copyOfRange(ids, from, end) : new long[0];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает продукты подходящих слотов, загружая отсутствующие в кэше пачками по {@value #PREFETCH_SIZE}.
+     * ID подходящих слотов выбираются под блокировкой чтения, загрузка выполняется после ее снятия.
+     *
+     * @param slotCondition условие на номер слота; создается под блокировкой чтения
+     */
+    private List<Product> fetchMatching(Supplier<IntPredicate> slotCondition) {
+        long[] matching;
+        int count = 0;
+        lock.readLock().lock();
+        try {
+            IntPredicate condition = slotCondition.get();
+            matching = new long[size];
+            for (int i = 0; i < size; i++) {
+                if (condition.test(i)) matching[count++] = ids[i];
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Product> result = new ArrayList<>(count);
+        for (int from = 0; from < count; from += PREFETCH_SIZE) {
+            int batchSize = Math.min(PREFETCH_SIZE, count - from);
+            fetch(Arrays.copyOfRange(matching, from, from + batchSize), batchSize, result);
+        }
+        return result;
+    }
+
+    /**
+     * Добавляет в результат продукты с указанными ID в том же порядке, загружая отсутствующие в кэше одним запросом.
+     */
+    private void fetch(long[] ids, int count, List<Product> result) {
+        Product[] found = new Product[count];
+        long[] missing = new long[count];
+        int missingCount = 0;
+        for (int i = 0; i < count; i++) {
+            found[i] = cache.get(ids[i]);
+            if (found[i] == null) missing[missingCount++] = ids[i];
+        }
+        if (missingCount > 0) {
+            LongIntHashMap positions = new LongIntHashMap(missingCount);
+            for (int i = 0; i < count; i++) {
+                if (found[i] == null) positions.put(ids[i], i);
+            }
+            for (Product product : load(Arrays.copyOf(missing, missingCount))) {
+                int position = positions.get(product.getId());
+                if (position >= 0) found[position] = product;
+            }
+        }
+        for (Product product : found) {
+            if (product != null) result.add(product); // Продукты, которых нет в базе данных, пропускаются
+        }
+    }
+
+    private List<Product> load(long[] ids) {
+        long writesBeforeLoad = cache.writeCount();
+        long startTime = System.nanoTime();
+        List<Product> products;
+        try {
+            products = loader.load(ids);
+        } catch (Exception e) {
+            throw new IllegalStateException("Не удалось загрузить продукты из базы данных: " + e.getMessage(), e);
+        }
+        cache.recordLoad(products.size(), System.nanoTime() - startTime);
+        cache.putLoaded(products, writesBeforeLoad);
+        return products;
+    }
+
+    /**
+     * Удаляет ключи слота, перенося на его место последний. Вызывается под блокировкой записи.
+     */
+    private void removeAt(int slot) {
+        int last = size - 1;
+        slotsById.remove(ids[slot]);
+        cache.invalidate(ids[slot]);
+        if (slot != last) {
+            ids[slot] = ids[last];
+            prices[slot] = prices[last];
+            usernameCodes[slot] = usernameCodes[last];
+            slotsById.put(ids[slot], slot);
+        }
+        size = last;
+        modCount++;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) return;
+        int capacity = Math.max(16, Math.max(required, ids.length + (ids.length >> 1)));
+        ids = Arrays.copyOf(ids, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        usernameCodes = Arrays.copyOf(usernameCodes, capacity);
+    }
+
+    /**
+     * Итератор, загружающий продукты пакетами. Удаление через итератор не поддерживается,
+     * для этого используется {@link #removeIf(Predicate)}.
+     */
+    private class PrefetchingIterator implements Iterator<Product> {
+        private final int expectedModCount = modCount;
+        private int cursor;
+        private List<Product> batch = List.of();
+        private int batchPosition;
+
+        @Override
+        public boolean hasNext() {
+            while (batchPosition == batch.size()) {
+                long[] batchIds;
+                lock.readLock().lock();
+                try {
+                    if (cursor >= size) return false;
+                    if (expectedModCount != modCount) throw new ConcurrentModificationException();
+                    batchIds = Arrays.copyOfRange(ids, cursor, Math.min(size, cursor + PREFETCH_SIZE));
+                } finally {
+                    lock.readLock().unlock();
+                }
+                List<Product> next = new ArrayList<>(batchIds.length);
+                fetch(batchIds, batchIds.length, next);
+                cursor += batchIds.length;
+                batch = next;
+                batchPosition = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public Product next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return batch.get(batchPosition++);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.ann.server.storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Словарь, кодирующий повторяющиеся значения целыми числами.
+ * <p>
+ * Каждое различное значение хранится один раз, а в колонках хранится только его код.
+ * Значению {@code null} соответствует код -1. Не потокобезопасен.
+ *
+ * @param <T> тип кодируемых значений
+ */
+final class ValueDictionary<T> {
+    private final List<T> values = new ArrayList<>();
+    private final Map<T, Integer> codes = new HashMap<>();
+
+    int encode(T value) {
+        if (value == null) return -1;
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            values.add(value);
+            codes.put(value, code);
+        }
+        return code;
+    }
+
+    /**
+     * @return код значения или -1, если значение не встречалось
+     */
+    int codeOf(T value) {
+        Integer code = value == null ? null : codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    T decode(int code) {
+        return code < 0 ? null : values.get(code);
+    }
+
+    int size() {
+        return values.size();
+    }
+}
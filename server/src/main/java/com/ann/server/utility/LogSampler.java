@@ -0,0 +1,44 @@
+package com.ann.server.utility;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограничитель частоты записей журнала: пропускает не больше заданного количества записей в секунду,
+ * допуская короткий всплеск такого же размера. Пропущенные записи подсчитываются, и их количество сообщается
+ * со следующей разрешенной записью.
+ * <p>
+ * Проверка выполняется одной атомарной операцией без блокировок, поэтому журнал не становится узким местом
+ * даже тогда, когда медленными оказываются все запросы.
+ */
+public class LogSampler {
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong nextAllowed = new AtomicLong(System.nanoTime());
+    private final LongAdder suppressed = new LongAdder();
+
+    /**
+     * @param perSecond максимальное количество записей в секунду
+     */
+    public LogSampler(int perSecond) {
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, perSecond);
+        this.burstNanos = TimeUnit.SECONDS.toNanos(1) - intervalNanos;
+    }
+
+    /**
+     * Решает, можно ли сделать запись сейчас.
+     *
+     * @return количество записей, пропущенных после предыдущей разрешенной, или -1, если запись нужно пропустить
+     */
+    public long tryAcquire() {
+        long now = System.nanoTime();
+        long allowedAt = nextAllowed.get();
+        if (allowedAt - now > burstNanos
+                || !nextAllowed.compareAndSet(allowedAt, Math.max(allowedAt, now) + intervalNanos)) {
+            suppressed.increment();
+            return -1;
+        }
+        return suppressed.sumThenReset();
+    }
+}
@@ -0,0 +1,98 @@
+package com.ann.server.utility;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Класс {@code ServerConfig} предоставляет доступ к настройкам сервера из файла {@code server.properties}.
+ * <p>
+ * Любой параметр можно переопределить системным свойством JVM с тем же именем (например, {@code -Dstorage.dir=/tmp}).
+ */
+public class ServerConfig {
+    private static final Logger LOGGER = LoggerFactory.getLogger("ServerConfig");
+    private static final Properties properties = new Properties();
+
+    static {
+        try (InputStream input = ServerConfig.class.getClassLoader().getResourceAsStream("server.properties")) {
+            if (input == null) {
+                LOGGER.warn("Файл server.properties не найден, используются значения по умолчанию");
+            } else {
+                properties.load(input);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Ошибка при загрузке файла server.properties", e);
+        }
+    }
+
+    private ServerConfig() {
+    }
+
+    /**
+     * Возвращает строковое значение параметра.
+     *
+     * @param key          имя параметра
+     * @param defaultValue значение по умолчанию
+     * @return значение параметра или {@code defaultValue}, если параметр не задан
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key, properties.getProperty(key));
+        return (value == null || value.isBlank()) ? defaultValue : value.trim();
+    }
+
+    /**
+     * Возвращает целочисленное значение параметра.
+     *
+     * @param key          имя параметра
+     * @param defaultValue значение по умолчанию
+     * @return значение параметра или {@code defaultValue}, если параметр не задан или задан неверно
+     */
+    public static int getInt(String key, int defaultValue) {
+        return (int) getLong(key, defaultValue);
+    }
+
+    /**
+     * Возвращает значение параметра типа long.
+     *
+     * @param key          имя параметра
+     * @param defaultValue значение по умолчанию
+     * @return значение параметра или {@code defaultValue}, если параметр не задан или задан неверно
+     */
+    public static long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null) return defaultValue;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Параметр {} должен быть числом, используется значение {}", key, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Возвращает логическое значение параметра.
+     *
+     * @param key          имя параметра
+     * @param defaultValue значение по умолчанию
+     * @return значение параметра или {@code defaultValue}, если параметр не задан
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Возвращает путь из параметра.
+     *
+     * @param key          имя параметра
+     * @param defaultValue значение по умолчанию
+     * @return путь из параметра или {@code defaultValue}
+     */
+    public static Path getPath(String key, String defaultValue) {
+        return Path.of(getString(key, defaultValue));
+    }
+}
@@ -0,0 +1,69 @@
+package com.ann.server.capture;
+
+import com.general.network.FrameCodec;
+import com.general.network.Request;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Проверяет запись запросов в файл трафика и ее чтение.
+ */
+public class TrafficCaptureTest extends TestCase {
+    private Path file;
+
+    @Override
+    protected void setUp() throws IOException {
+        file = Files.createTempFile("traffic", ".bin.gz");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        TrafficCapture.stop();
+        Files.deleteIfExists(file);
+    }
+
+    public void testRecordedRequestsAreReadBackWithoutPasswords() throws IOException {
+        TrafficCapture.start(file);
+        assertTrue(TrafficCapture.isActive());
+        long now = System.nanoTime();
+        TrafficCapture.record(7, now, body(request("show", "alice")));
+        TrafficCapture.record(7, now + 1000, new byte[]{1, 2, 3}); // Недействительный кадр в запись не попадает
+        TrafficCapture.record(8, now + 2000, body(request("remove_by_id", "bob")));
+        TrafficCapture.stop();
+        assertFalse(TrafficCapture.isActive());
+
+        try (TrafficFile.Reader reader = new TrafficFile.Reader(file)) {
+            TrafficFile.Entry first = reader.next();
+            TrafficFile.Entry second = reader.next();
+            assertNull(reader.next());
+
+            assertEquals(7, first.session());
+            assertEquals("show", first.request().getCommand());
+            assertEquals("alice", first.request().getLogin());
+            assertNull(first.request().getPassword());
+
+            assertEquals(8, second.session());
+            assertEquals(42L, second.request().getData());
+            assertNull(second.request().getPassword());
+            assertEquals(2000, second.offsetNanos() - first.offsetNanos());
+        }
+    }
+
+    private static Request request(String command, String login) {
+        Request request = new Request(command, "remove_by_id".equals(command) ? 42L : null);
+        request.setLogin(login);
+        request.setPassword("secret");
+        return request;
+    }
+
+    private static byte[] body(Request request) throws IOException {
+        ByteBuffer frame = FrameCodec.encode(request);
+        byte[] body = new byte[frame.remaining() - Integer.BYTES - Long.BYTES];
+        frame.position(Integer.BYTES + Long.BYTES).get(body);
+        return body;
+    }
+}
@@ -0,0 +1,168 @@
+package com.ann.server.commands;
+
+import com.ann.server.data.InMemoryProductStorage;
+import com.ann.server.managers.CollectionManagerTestCase;
+import com.ann.server.managers.ProductCollectionManager;
+import com.general.managers.CollectionIndex;
+import com.general.managers.CommandManager;
+import com.general.models.Coordinates;
+import com.general.models.Organization;
+import com.general.models.Product;
+import com.general.models.UnitOfMeasure;
+import com.general.network.BatchResult;
+import com.general.network.Request;
+import com.general.network.Response;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Проверяет выполнение пакета команд: фиксацию, откат изменений коллекции, индексов и хранилища и отложенную сортировку.
+ */
+public class BatchTest extends CollectionManagerTestCase {
+    private InMemoryProductStorage storage;
+    private ProductCollectionManager manager;
+    private CommandManager commandManager;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        storage = new InMemoryProductStorage(0, 0);
+        manager = createManager(storage);
+        commandManager = new CommandManager();
+        commandManager.register("add", new Add<>(manager));
+        commandManager.register("update", new Update<>(manager));
+        commandManager.register("remove_by_id", new RemoveById<>(manager));
+        commandManager.register("clear", new Clear(manager));
+        commandManager.register("batch", new Batch(manager, commandManager));
+        for (int i = 1; i <= 8; i++) {
+            manager.addToCollection(i <= 5 ? "ann" : "bob", product("продукт " + i, i * 10));
+        }
+    }
+
+    private static Product product(String name, int price) {
+        return new Product(0, name, new Coordinates((long) price, 1f), price, UnitOfMeasure.GRAMS, new Organization("Нестле", 2000));
+    }
+
+    private Response batch(Request... commands) {
+        Request request = Request.batch(List.of(commands));
+        request.setLogin("ann");
+        return commandManager.handle(request);
+    }
+
+    /**
+     * @return продукты коллекции по ID
+     */
+    private Map<Long, Product> contents() {
+        Map<Long, Product> contents = new TreeMap<>();
+        manager.getCollection().forEach(product -> contents.put(product.getId(), product));
+        return contents;
+    }
+
+    private void assertIndexesMatch(Map<Long, Product> expected) {
+        assertEquals(expected, contents());
+        expected.forEach((id, product) -> assertSame(product, manager.getById(id)));
+        assertEquals(expected.values().stream().filter(product -> product.getUsername().equals("ann")).count(),
+                manager.countOwnedBy("ann"));
+        CollectionIndex<Product, Integer> prices = manager.getIndex("price");
+        for (Product product : expected.values()) {
+            assertEquals(List.of(product), prices.equalTo(product.getPrice()).toList());
+        }
+        assertEquals(expected.size(), prices.range(null, true, null, true).count());
+    }
+
+    /**
+     * Проверяет, что хранилище после отката содержит те же продукты, что и коллекция.
+     */
+    private void assertStorageMatches(Map<Long, Product> expected) throws Exception {
+        long[] countAndMaxId = storage.getCountAndMaxId();
+        assertEquals(expected.size(), countAndMaxId[0]);
+        assertEquals((long) Collections.max(expected.keySet()), countAndMaxId[1]);
+        List<Product> stored = storage.getAllProducts();
+        assertEquals(expected.size(), stored.size());
+        for (Product product : stored) {
+            Product kept = expected.get(product.getId());
+            assertNotNull("лишний продукт " + product.getId(), kept);
+            assertEquals(kept.getName(), product.getName());
+            assertEquals(kept.getPrice(), product.getPrice());
+            assertEquals(kept.getUsername(), product.getUsername());
+        }
+    }
+
+    public void testCommitsAllCommandsAndSortsOnce() {
+        Product updated = product("обновленный", 1000);
+        updated.setId(1L);
+        updated.setUsername("ann");
+        long sorts = manager.getSortCount();
+
+        Response response = batch(new Request("add", product("новый", 500)), new Request("add", product("еще один", 600)),
+                new Request("update", updated), new Request("remove_by_id", 2L));
+
+        assertTrue(response.getMessage(), response.isSuccess());
+        BatchResult result = (BatchResult) response.getData();
+        assertEquals(4, result.count(BatchResult.APPLIED));
+        assertTrue(result.getValue(0) > 8);
+        assertEquals(sorts + 1, manager.getSortCount());
+        assertEquals(9, manager.collectionSize());
+        assertNull(manager.getById(2L));
+        assertEquals(Integer.valueOf(1000), manager.getById(1L).getPrice());
+        assertEquals(List.of(manager.getById(1L)), manager.<Integer>getIndex("price").equalTo(1000).toList());
+        assertEquals(6, manager.countOwnedBy("ann"));
+    }
+
+    public void testRollsBackAddRemoveUpdateAndClear() throws Exception {
+        Map<Long, Product> before = contents();
+        Product updated = product("обновленный", 1000);
+        updated.setId(1L);
+        updated.setUsername("ann");
+        long sorts = manager.getSortCount();
+
+        Response response = batch(new Request("add", product("новый", 500)), new Request("update", updated),
+                new Request("remove_by_id", 3L), new Request("clear", null), new Request("remove_by_id", 999L),
+                new Request("add", product("не выполнится", 700)));
+
+        assertFalse(response.isSuccess());
+        assertTrue(response.getMessage(), response.getMessage().startsWith("Пакет отменен, команда 5"));
+        BatchResult result = (BatchResult) response.getData();
+        assertEquals(4, result.count(BatchResult.ROLLED_BACK));
+        assertEquals(0, result.getValue(0));
+        assertEquals(BatchResult.FAILED, result.getStatus(4));
+        assertEquals(BatchResult.SKIPPED, result.getStatus(5));
+
+        assertIndexesMatch(before);
+        assertStorageMatches(before);
+        // Отложенная в пакете сортировка выполняется один раз и после отката
+        assertEquals(sorts + 1, manager.getSortCount());
+    }
+
+    public void testRollsBackRemoveAndClear() throws Exception {
+        Map<Long, Product> before = contents();
+        long sorts = manager.getSortCount();
+
+        Response response = batch(new Request("remove_by_id", 3L), new Request("clear", null), new Request("remove_by_id", 4L));
+
+        assertFalse(response.isSuccess());
+        BatchResult result = (BatchResult) response.getData();
+        assertEquals(2, result.count(BatchResult.ROLLED_BACK));
+        assertEquals(BatchResult.FAILED, result.getStatus(2));
+        assertIndexesMatch(before);
+        assertStorageMatches(before);
+        assertEquals(5, manager.countOwnedBy("ann"));
+        // Откат возвращает удаленные элементы добавлением, и коллекция сортируется один раз в конце отката
+        assertEquals(sorts + 1, manager.getSortCount());
+    }
+
+    public void testRejectsCommandsThatCannotBeBatched() throws Exception {
+        Map<Long, Product> before = contents();
+
+        Response response = batch(new Request("add", product("новый", 500)), new Request("login", null));
+
+        assertFalse(response.isSuccess());
+        assertEquals("Команда 2 не может быть выполнена в пакете", response.getMessage());
+        assertEquals(before, contents());
+        assertStorageMatches(before);
+        assertFalse(batch().isSuccess());
+    }
+}
@@ -0,0 +1,123 @@
+package com.ann.server.commands;
+
+import com.ann.server.managers.CollectionManagerTestCase;
+import com.ann.server.managers.ProductCollectionManager;
+import com.general.command.Command;
+import com.general.managers.CommandManager;
+import com.general.models.Product;
+import com.general.models.UnitOfMeasure;
+import com.general.network.Request;
+import com.general.network.Response;
+import com.general.network.ScriptBundle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Проверяет выполнение скриптов на сервере.
+ */
+public class ExecuteScriptTest extends CollectionManagerTestCase {
+    private final List<Request> received = new ArrayList<>();
+    private final CommandManager commandManager = new CommandManager();
+    private ProductCollectionManager manager;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        manager = createManager();
+        Command recorder = new Command("recorder", "") {
+            @Override
+            public Response execute(Request request) {
+                received.add(request);
+                return new Response(true, "ok");
+            }
+        };
+        commandManager.register("add", recorder);
+        commandManager.register("info", recorder);
+        commandManager.register("execute_script", new ExecuteScript(manager, commandManager));
+    }
+
+    private Response run(ScriptBundle bundle) {
+        Request request = new Request("execute_script", bundle);
+        request.setLogin("ann");
+        return commandManager.handle(request);
+    }
+
+    public void testParsesProductsAndNestedScripts() {
+        ScriptBundle bundle = new ScriptBundle("main");
+        bundle.put("main", "add\nмолоко\n\n10\n2.5\n100\ngrams\nnull\nПростоквашино\n2002\nexecute_script nested\n");
+        bundle.put("nested", "info\n");
+
+        Response response = run(bundle);
+
+        assertTrue(response.getMessage(), response.isSuccess());
+        assertEquals(2, received.size());
+        Product product = (Product) received.get(0).getData();
+        assertEquals("молоко", product.getName());
+        assertEquals(Integer.valueOf(100), product.getPrice());
+        assertEquals(UnitOfMeasure.GRAMS, product.getUnitOfMeasure());
+        assertEquals("Простоквашино", product.getOrganization().getName());
+        assertEquals("ann", received.get(0).getLogin());
+        assertEquals("info", received.get(1).getCommand());
+    }
+
+    public void testDetectsRecursionAndBadInput() {
+        ScriptBundle recursive = new ScriptBundle("a");
+        recursive.put("a", "execute_script b");
+        recursive.put("b", "info\nexecute_script a\ninfo");
+        Response response = run(recursive);
+        assertFalse(response.isSuccess());
+        assertTrue(response.getMessage().contains("рекурсивно"));
+        assertEquals(1, received.size());
+
+        ScriptBundle broken = new ScriptBundle("c");
+        broken.put("c", "add\nмолоко\n10\n2.5\n100\nгаллоны\n");
+        response = run(broken);
+        assertFalse(response.isSuccess());
+        assertTrue(response.getMessage(), response.getMessage().contains("Строка 6"));
+        assertEquals(1, received.size());
+    }
+
+    public void testFailedCommandStopsScript() {
+        Command rejecting = new Command("rejecting", "") {
+            @Override
+            public Response execute(Request request) {
+                received.add(request);
+                return new Response(false, "отказано");
+            }
+        };
+        commandManager.register("remove_by_id", rejecting);
+        commandManager.register("update", rejecting);
+        String product = "молоко\n\n10\n2.5\n100\ngrams\nnull\nПростоквашино\n2002\n";
+
+        for (String line : List.of("remove_by_id 5\n", "update 5\n" + product)) {
+            received.clear();
+            ScriptBundle bundle = new ScriptBundle("main");
+            bundle.put("main", line + "info\n");
+
+            Response response = run(bundle);
+
+            assertFalse(response.getMessage(), response.isSuccess());
+            assertTrue(response.getMessage().contains("отказано"));
+            assertEquals(1, received.size()); // info после отказа не выполняется
+        }
+    }
+
+    public void testSortsCollectionOnceAfterScript() {
+        commandManager.register("add", new Add<>(manager));
+        ScriptBundle bundle = new ScriptBundle("main");
+        String add = "add\nмолоко\n\n10\n2.5\n100\ngrams\nnull\nПростоквашино\n2002\n";
+        bundle.put("main", add.repeat(3) + "execute_script nested\n");
+        bundle.put("nested", add.repeat(2));
+        long sorts = manager.getSortCount();
+
+        Response response = run(bundle);
+
+        assertTrue(response.getMessage(), response.isSuccess());
+        assertEquals(5, manager.collectionSize());
+        assertEquals(sorts + 1, manager.getSortCount());
+        // Вне скрипта сортировка снова выполняется сразу
+        manager.sortCollection();
+        assertEquals(sorts + 2, manager.getSortCount());
+    }
+}
@@ -0,0 +1,112 @@
+package com.ann.server.commands;
+
+import com.ann.server.managers.CollectionManagerTestCase;
+import com.ann.server.managers.ProductCollectionManager;
+import com.general.models.Coordinates;
+import com.general.models.Organization;
+import com.general.models.Product;
+import com.general.models.UnitOfMeasure;
+import com.general.network.Request;
+import com.general.network.Response;
+import com.general.query.ProductField;
+import com.general.query.ProductFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Проверяет разбор условий и выбор плана команды filter.
+ */
+public class FilterTest extends CollectionManagerTestCase {
+    private ProductCollectionManager manager;
+    private Filter filter;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        manager = createManager();
+        for (int i = 1; i <= 30; i++) {
+            UnitOfMeasure unit = i % 3 == 0 ? UnitOfMeasure.GRAMS : UnitOfMeasure.METERS;
+            Organization organization = new Organization(i % 10 == 0 ? "Coca Cola" : "Нестле", 2000);
+            manager.addToCollection(i % 2 == 0 ? "ann" : "bob",
+                    new Product(0, "продукт " + i, new Coordinates((long) i, 1f), i * 10, unit, organization));
+        }
+        filter = new Filter(manager);
+    }
+
+    public void testParsesConditions() {
+        ProductFilter parsed = ProductFilter.parse("price>=100 unit=grams org=\"Coca Cola\" page=2 size=5");
+        assertEquals(3, parsed.getConditions().size());
+        assertEquals(UnitOfMeasure.GRAMS, parsed.getConditions().get(1).value());
+        assertEquals("Coca Cola", parsed.getConditions().get(2).value());
+        assertEquals(2, parsed.getPage());
+        assertEquals(5, parsed.getPageSize());
+
+        for (String wrong : new String[]{"price", "price>abc", "color=red", "org=\"Coca Cola", "page=2", "price>1 size=0"}) {
+            try {
+                ProductFilter.parse(wrong);
+                fail(wrong);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    public void testChoosesMostSelectiveIndex() {
+        assertTrue(filter.plan(ProductFilter.parse("unit=GRAMS org=\"Coca Cola\"")).description().contains("organization"));
+        assertTrue(filter.plan(ProductFilter.parse("unit=GRAMS price>280")).description().contains("price"));
+        assertTrue(filter.plan(ProductFilter.parse("price>100 price<50")).description().contains("пустой"));
+        assertTrue(filter.plan(ProductFilter.parse("owner=ann name!=x")).description().contains("username"));
+        assertEquals("полный просмотр", filter.plan(ProductFilter.parse("name!=x year>1990")).description());
+    }
+
+    public void testReturnsMatchingPage() {
+        Response response = filter.execute(new Request("filter", ProductFilter.parse("unit=GRAMS price>100 size=2 page=2")));
+        assertTrue(response.getMessage(), response.isSuccess());
+        // Подходят цены 120, 150, ..., 300 — 7 продуктов, 4 страницы по 2
+        assertTrue(response.getMessage(), response.getMessage().startsWith("Найдено: 7, страница 2 из 4"));
+        assertTrue(response.getMessage(), response.getMessage().contains("продукт 18"));
+        assertFalse(response.getMessage(), response.getMessage().contains("продукт 12"));
+
+        response = filter.execute(new Request("filter", ProductFilter.parse("price>100 page=100")));
+        assertFalse(response.isSuccess());
+    }
+
+    public void testRejectsConditionValueOfWrongType() throws Exception {
+        try {
+            new ProductFilter.Condition(ProductField.YEAR, ProductFilter.Operator.EQUAL, "x");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(2000, deserialize(serialize(ProductFilter.parse("year=2000"))).getConditions().get(0).value());
+
+        // Присланное условие name=x с полем, подмененным на year, получает строковое значение для числового поля
+        byte[] data = serialize(ProductFilter.parse("name=x"));
+        int position = new String(data, StandardCharsets.ISO_8859_1).indexOf("NAME");
+        assertTrue(position >= 0);
+        System.arraycopy("YEAR".getBytes(StandardCharsets.ISO_8859_1), 0, data, position, 4);
+        try {
+            deserialize(data);
+            fail();
+        } catch (InvalidObjectException expected) {
+        }
+    }
+
+    private static byte[] serialize(ProductFilter filter) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(filter);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ProductFilter deserialize(byte[] data) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return (ProductFilter) in.readObject();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.ann.server.data;
+
+import com.ann.server.managers.CollectionManagerTestCase;
+import com.ann.server.managers.ProductCollectionManager;
+import com.ann.server.utility.PasswordHashing;
+import com.general.models.Coordinates;
+import com.general.models.Organization;
+import com.general.models.Product;
+import com.general.models.UnitOfMeasure;
+import com.general.models.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Проверяет хранилища в памяти и работу менеджера коллекции поверх них без базы данных.
+ */
+public class InMemoryStorageTest extends CollectionManagerTestCase {
+
+    private static Product product(String name, int price) {
+        return new Product(0, name, new Coordinates(1L, 2.0f), price, UnitOfMeasure.GRAMS,
+                new Organization("Простоквашино", 2002));
+    }
+
+    public void testProductStorageCopiesAndKeys() throws Exception {
+        InMemoryProductStorage storage = new InMemoryProductStorage(0, 0);
+        Product milk = product("молоко", 80);
+        milk.setUsername("ann");
+        long id = storage.insertProduct(milk);
+        storage.insertProduct(product("сыр", 300));
+
+        assertEquals(1, id);
+        assertEquals(0L, (long) milk.getId()); // Хранилище не меняет переданный объект
+        assertEquals("молоко", storage.getProductById(id).getName());
+        assertNotSame(storage.getProductById(id), storage.getProductById(id));
+        assertEquals(2, storage.getCountAndMaxId()[0]);
+        assertEquals(1, storage.getProductsAfterId(1).size());
+        assertEquals(1, storage.removeProductsByUsername("ann"));
+        assertNull(storage.getProductById(id));
+    }
+
+    public void testTransactionRollbackRestoresProducts() throws Exception {
+        InMemoryProductStorage storage = new InMemoryProductStorage(0, 0);
+        Product milk = product("молоко", 80);
+        milk.setUsername("ann");
+        long milkId = storage.insertProduct(milk);
+        long cheeseId = storage.insertProduct(product("сыр", 300));
+
+        try {
+            storage.inTransaction(() -> {
+                Product changed = product("кефир", 90);
+                changed.setId(cheeseId);
+                storage.updateProduct(changed);
+                storage.insertProduct(product("хлеб", 40));
+                storage.removeProductsByUsername("ann");
+                throw new IllegalStateException("отмена");
+            });
+            fail("исключение действия не передано");
+        } catch (IllegalStateException expected) {
+        }
+
+        assertEquals(2, storage.getCountAndMaxId()[0]);
+        assertEquals("молоко", storage.getProductById(milkId).getName());
+        assertEquals("сыр", storage.getProductById(cheeseId).getName());
+        assertEquals(4, storage.insertProduct(product("хлеб", 40))); // ID отмененной вставки не используется повторно
+
+        storage.inTransaction(() -> storage.removeProductById(milkId));
+        assertNull(storage.getProductById(milkId));
+    }
+
+    public void testUserStorageVerifiesPasswords() throws Exception {
+        InMemoryUserStorage storage = new InMemoryUserStorage(0, 0);
+        String[] hashed = PasswordHashing.hashPassword("password1");
+        User user = new User("ann", hashed[0], hashed[1], LocalDateTime.now());
+
+        int id = storage.insertUser(user);
+        assertTrue(id > 0);
+        assertEquals(-1, storage.insertUser(user));
+        assertEquals("ann", storage.getUserById(id).getUsername());
+        assertTrue(storage.verifyUserPassword("ann", "password1"));
+        assertFalse(storage.verifyUserPassword("ann", "password2"));
+        assertFalse(storage.verifyUserPassword("bob", "password1"));
+    }
+
+    public void testCollectionManagerRunsWithoutDatabase() {
+        InMemoryProductStorage storage = new InMemoryProductStorage(0, 0);
+        storage.insertProduct(product("хлеб", 40));
+        ProductCollectionManager manager = createManager(storage);
+        assertEquals(1, manager.collectionSize());
+
+        Product added = product("масло", 150);
+        long id = manager.addToCollection("ann", added);
+        assertEquals(2, manager.collectionSize());
+        assertEquals("ann", manager.getById(id).getUsername());
+        assertTrue(manager.removeFromCollection(manager.getById(id), "ann"));
+        assertEquals(1, manager.collectionSize());
+        assertEquals(1, storage.getAllProducts().size());
+    }
+
+    public void testRemovesEqualProductById() throws Exception {
+        InMemoryProductStorage storage = new InMemoryProductStorage(0, 0);
+        ProductCollectionManager manager = createManager(storage);
+        manager.addToCollection("u", product("хлеб", 40));
+        manager.addToCollection("u", product("хлеб", 40));
+        assertEquals(manager.getById(1L), manager.getById(2L)); // Равенство продуктов не учитывает ID
+
+        assertTrue(manager.removeFromCollection(manager.getById(2L), "u"));
+        assertEquals(1, manager.collectionSize());
+        assertEquals(1L, (long) manager.getCollection().iterator().next().getId());
+        assertNull(manager.getById(2L));
+        assertEquals(1L, (long) manager.getById(1L).getId());
+        assertNotNull(storage.getProductById(1));
+
+        assertTrue(manager.removeFromCollection(manager.getById(1L), "u"));
+        assertEquals(0, manager.collectionSize());
+        assertNull(manager.getById(1L));
+    }
+
+    public void testOwnerIndexAndQuota() {
+        setProperty("collection.max.per.user", "3");
+        ProductCollectionManager manager = createManager();
+        for (int i = 0; i < 3; i++) {
+            manager.addToCollection("ann", product("хлеб", 40 + i));
+        }
+        manager.addToCollection("bob", product("масло", 150));
+        try {
+            manager.addToCollection("ann", product("сыр", 300));
+            fail("лимит не проверен");
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(3, manager.countOwnedBy("ann"));
+        assertEquals(1, manager.getOwnedBy("bob").size());
+        assertEquals(0, manager.countOwnedBy("eve"));
+
+        manager.clearCollection("ann");
+        assertEquals(0, manager.countOwnedBy("ann"));
+        assertEquals(1, manager.collectionSize());
+        manager.clearCollection("eve");
+        assertEquals("bob", manager.getOwnedBy("bob").get(0).getUsername());
+    }
+
+    public void testQuotaHoldsUnderConcurrentAdds() throws Exception {
+        setProperty("collection.max.per.user", "3");
+        // Задержка хранилища расширяет окно между проверкой лимита и вставкой
+        ProductCollectionManager manager = createManager(new InMemoryProductStorage(2000, 0));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> adds = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int price = 10 + i;
+                adds.add(executor.submit(() -> manager.addToCollection("ann", product("хлеб", price))));
+            }
+            int rejected = 0;
+            for (Future<?> add : adds) {
+                try {
+                    add.get();
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof IllegalStateException);
+                    rejected++;
+                }
+            }
+            assertEquals(5, rejected);
+            assertEquals(3, manager.countOwnedBy("ann"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
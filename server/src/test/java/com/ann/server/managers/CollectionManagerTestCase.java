@@ -0,0 +1,60 @@
+package com.ann.server.managers;
+
+import com.ann.server.data.InMemoryProductStorage;
+import com.ann.server.data.InMemoryUserStorage;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Основа тестов, которым нужен менеджер коллекции поверх хранилищ в памяти.
+ * <p>
+ * Снимок коллекции отключается на время теста. Созданные менеджеры останавливаются, а заданные через
+ * {@link #setProperty} настройки сбрасываются после теста.
+ */
+public abstract class CollectionManagerTestCase extends TestCase {
+    private final List<ProductCollectionManager> managers = new ArrayList<>();
+    private final List<String> properties = new ArrayList<>();
+
+    @Override
+    protected void setUp() {
+        setProperty("storage.snapshot.enabled", "false");
+    }
+
+    @Override
+    protected void tearDown() {
+        managers.forEach(ProductCollectionManager::shutdown);
+        managers.clear();
+        properties.forEach(System::clearProperty);
+        properties.clear();
+    }
+
+    /**
+     * Задает настройку до конца теста. Настройки менеджера нужно задавать до его создания.
+     *
+     * @param key   название настройки
+     * @param value значение
+     */
+    protected void setProperty(String key, String value) {
+        System.setProperty(key, value);
+        properties.add(key);
+    }
+
+    /**
+     * @param storage хранилище продуктов
+     * @return менеджер коллекции поверх хранилища и пустого хранилища пользователей без задержек
+     */
+    protected ProductCollectionManager createManager(InMemoryProductStorage storage) {
+        ProductCollectionManager manager = new ProductCollectionManager(storage, new InMemoryUserStorage(0, 0));
+        managers.add(manager);
+        return manager;
+    }
+
+    /**
+     * @return менеджер коллекции поверх пустых хранилищ в памяти без задержек
+     */
+    protected ProductCollectionManager createManager() {
+        return createManager(new InMemoryProductStorage(0, 0));
+    }
+}
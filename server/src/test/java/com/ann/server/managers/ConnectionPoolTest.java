@@ -0,0 +1,105 @@
+package com.ann.server.managers;
+
+import junit.framework.TestCase;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Проверяет ограничение и повторное использование соединений в пуле.
+ */
+public class ConnectionPoolTest extends TestCase {
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicInteger closedPhysical = new AtomicInteger();
+
+    private Connection fakeConnection() {
+        opened.incrementAndGet();
+        boolean[] closed = {false};
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "isClosed" -> closed[0];
+                    case "close" -> {
+                        closed[0] = true;
+                        yield closedPhysical.incrementAndGet();
+                    }
+                    case "getAutoCommit" -> true;
+                    default -> null;
+                });
+    }
+
+    public void testClosedConnectionIsReused() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(this::fakeConnection, 2, 10);
+        Connection first = pool.getConnection();
+        first.close();
+        assertTrue(first.isClosed());
+        try (Connection ignored = pool.getConnection()) {
+            assertEquals(1, pool.getActive());
+        }
+        assertEquals(1, opened.get());
+        assertEquals(0, pool.getActive());
+        assertEquals(1, pool.getIdle());
+    }
+
+    public void testExhaustedPoolTimesOut() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(this::fakeConnection, 2, 10);
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+        try {
+            pool.getConnection();
+            fail();
+        } catch (SQLException expected) {
+            assertEquals(2, pool.getActive());
+        }
+        first.close();
+        first.close();
+        pool.getConnection().close();
+        second.close();
+        assertEquals(0, pool.getActive());
+        assertEquals(2, opened.get());
+    }
+
+    public void testResizeAppliesToWaitingAndNewConnections() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(this::fakeConnection, 1, 10);
+        Connection first = pool.getConnection();
+        pool.setMaxSize(2);
+        Connection second = pool.getConnection();
+        assertEquals(2, pool.getActive());
+
+        pool.setMaxSize(1);
+        first.close();
+        try {
+            pool.getConnection();
+            fail();
+        } catch (SQLException expected) {
+            assertEquals(1, pool.getActive());
+        }
+        second.close();
+        pool.getConnection().close();
+        assertEquals(0, pool.getActive());
+        assertEquals(3, pool.getLeaseLatency(TimeUnit.MINUTES.toNanos(1)).getCount());
+    }
+
+    public void testShrinkClosesExtraIdleConnections() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(this::fakeConnection, 4, 10);
+        Connection[] connections = new Connection[4];
+        for (int i = 0; i < connections.length; i++) {
+            connections[i] = pool.getConnection();
+        }
+        for (int i = 0; i < 3; i++) {
+            connections[i].close();
+        }
+        assertEquals(3, pool.getIdle());
+
+        pool.setMaxSize(1);
+        assertEquals(1, pool.getIdle());
+        assertEquals(2, closedPhysical.get());
+        connections[3].close(); // Возвращенное после уменьшения соединение тоже не копится
+        assertEquals(1, pool.getIdle());
+        assertEquals(3, closedPhysical.get());
+        pool.getConnection().close();
+        assertEquals(4, opened.get());
+    }
+}
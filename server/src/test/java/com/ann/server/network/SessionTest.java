@@ -0,0 +1,101 @@
+package com.ann.server.network;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверяет, что запись ответов не блокируется клиентом, который их не читает.
+ */
+public class SessionTest extends TestCase {
+    private static final int FRAME = 256 * 1024;
+
+    private ServerSocketChannel server;
+    private SocketChannel client;
+    private SocketChannel accepted;
+    private Selector selector;
+
+    @Override
+    protected void setUp() throws IOException {
+        server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+        client = SocketChannel.open(server.getLocalAddress());
+        accepted = server.accept();
+        accepted.configureBlocking(false);
+        selector = Selector.open();
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        System.clearProperty("server.outbound.max.bytes");
+        selector.close();
+        client.close();
+        accepted.close();
+        server.close();
+    }
+
+    private Session session() throws IOException {
+        Session session = new Session(accepted);
+        session.setKey(accepted.register(selector, SelectionKey.OP_READ, session));
+        return session;
+    }
+
+    public void testWriteQueuesWhenClientDoesNotReadAndFlushesOnWritable() throws Exception {
+        Session session = session();
+        int frames = 40;
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            ByteBuffer frame = ByteBuffer.allocate(FRAME);
+            while (frame.hasRemaining()) frame.put((byte) i);
+            session.write(frame.flip());
+        }
+        assertTrue("запись ждала клиента", System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertTrue(session.getOutboundBytes() > 0);
+
+        CompletableFuture<Boolean> reader = CompletableFuture.supplyAsync(() -> {
+            ByteBuffer buffer = ByteBuffer.allocate(FRAME);
+            try {
+                for (int i = 0; i < frames; i++) {
+                    buffer.clear();
+                    while (buffer.hasRemaining()) {
+                        if (client.read(buffer) < 0) return false;
+                    }
+                    for (int j = 0; j < FRAME; j++) {
+                        if (buffer.get(j) != (byte) i) return false; // Кадры не перемешались
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!reader.isDone() && System.nanoTime() < deadline) {
+            selector.select(100);
+            for (SelectionKey key : selector.selectedKeys()) {
+                if (key.isValid() && key.isWritable()) session.flush();
+            }
+            selector.selectedKeys().clear();
+        }
+        assertTrue(reader.get(1, TimeUnit.SECONDS));
+        assertEquals(0, session.getOutboundBytes());
+        assertEquals(0, accepted.keyFor(selector).interestOps() & SelectionKey.OP_WRITE);
+    }
+
+    public void testClosesConnectionWhenQueueOverflows() throws IOException {
+        System.setProperty("server.outbound.max.bytes", String.valueOf(FRAME));
+        Session session = session();
+        for (int i = 0; i < 100 && accepted.isOpen(); i++) {
+            session.write(ByteBuffer.allocate(FRAME));
+        }
+        assertFalse(accepted.isOpen());
+        assertEquals(0, session.getOutboundBytes());
+    }
+}
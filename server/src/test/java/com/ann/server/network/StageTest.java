@@ -0,0 +1,43 @@
+package com.ann.server.network;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверяет ограничение емкости и метрики стадии конвейера.
+ */
+public class StageTest extends TestCase {
+
+    public void testOfferShedsWhenFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Stage<Integer> stage = new Stage<>("test", executor, 3, item -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+
+        assertTrue(stage.offer(1));
+        assertTrue(stage.offer(2));
+        assertTrue(stage.offer(3));
+        assertFalse(stage.offer(4));
+        assertEquals(1, stage.getRejected());
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        stage.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(3, stage.getProcessed());
+        assertEquals(0, stage.getQueueDepth());
+        assertFalse(stage.offer(5));
+        assertEquals(2, stage.getRejected());
+    }
+}
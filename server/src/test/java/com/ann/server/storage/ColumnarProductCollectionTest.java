@@ -0,0 +1,115 @@
+package com.ann.server.storage;
+
+import com.general.models.Coordinates;
+import com.general.models.Organization;
+import com.general.models.Product;
+import com.general.models.UnitOfMeasure;
+import junit.framework.TestCase;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Проверяет колоночное хранилище продуктов.
+ */
+public class ColumnarProductCollectionTest extends TestCase {
+
+    private static Product product(long id, int price, String username) {
+        Product product = new Product(id, "продукт " + id, new Coordinates(id, 2.0f), price, UnitOfMeasure.METERS,
+                new Organization("Простоквашино", 2002));
+        product.setUsername(username);
+        return product;
+    }
+
+    public void testAddGetAndAggregate() {
+        ColumnarProductCollection collection = new ColumnarProductCollection();
+        for (long id = 1; id <= 1000; id++) {
+            collection.add(product(id, (int) id, id % 2 == 0 ? "ann" : "bob"));
+        }
+        assertEquals(1000, collection.size());
+        assertEquals(500500, collection.sumOfPrices());
+        assertEquals(product(42, 42, "ann"), collection.get(42));
+        assertEquals("ann", collection.get(42).getUsername());
+        assertEquals(10, collection.filterByPrice(price -> price > 990).size());
+        assertNull(collection.get(1001));
+    }
+
+    public void testRemoveIfKeepsIndexConsistent() {
+        ColumnarProductCollection collection = new ColumnarProductCollection();
+        for (long id = 1; id <= 1000; id++) {
+            collection.add(product(id, (int) id, id % 3 == 0 ? "ann" : "bob"));
+        }
+        collection.removeIf(product -> "ann".equals(product.getUsername()));
+        assertEquals(667, collection.size());
+
+        Set<Long> seen = new HashSet<>();
+        for (Product product : collection) {
+            assertEquals("bob", product.getUsername());
+            assertTrue(seen.add(product.getId()));
+            assertEquals(product.getId(), collection.get(product.getId()).getId());
+        }
+        for (long id = 3; id <= 1000; id += 3) {
+            assertNull(collection.get(id));
+        }
+        assertTrue(collection.remove(product(1, 1, "bob")));
+        assertFalse(collection.remove(product(1, 1, "bob")));
+        assertEquals(666, collection.size());
+    }
+
+    public void testOwnerColumn() {
+        ColumnarProductCollection collection = new ColumnarProductCollection();
+        for (long id = 1; id <= 1000; id++) {
+            collection.add(product(id, (int) id, id % 4 == 0 ? "ann" : "bob"));
+        }
+        assertEquals(250, collection.countByUsername("ann"));
+        assertEquals(0, collection.countByUsername("carol"));
+        assertTrue(collection.filterByUsername("ann").stream().allMatch(product -> product.getId() % 4 == 0));
+
+        assertEquals(250, collection.removeByUsername("ann"));
+        assertEquals(750, collection.size());
+        assertEquals(0, collection.countByUsername("ann"));
+        assertNull(collection.get(4));
+        assertEquals(product(5, 5, "bob"), collection.get(5));
+        assertEquals(0, collection.removeByUsername("carol"));
+    }
+
+    public void testReadsDuringWritesSeeConsistentColumns() throws Exception {
+        ColumnarProductCollection collection = new ColumnarProductCollection();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            // Рост колонок и перенос последнего продукта на место удаленного
+            for (long id = 1; id <= 200_000 && failure.get() == null; id++) {
+                collection.add(product(id, (int) id, id % 2 == 0 ? "ann" : "bob"));
+                if (id % 3 == 0) collection.remove(product(id / 2, 0, "bob"));
+            }
+            done.set(true);
+        });
+        Thread reader = new Thread(() -> {
+            Random random = new Random(7);
+            try {
+                while (!done.get()) {
+                    long id = 1 + random.nextInt(200_000);
+                    Product product = collection.get(id);
+                    if (product != null) {
+                        assertEquals(id, (long) product.getId());
+                        assertEquals((int) id, (int) product.getPrice());
+                    }
+                    collection.sumOfPrices();
+                    collection.countByUsername("ann");
+                    if (random.nextInt(100) == 0) collection.filterByUsername("bob");
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        writer.start();
+        reader.start();
+        writer.join();
+        reader.join();
+        if (failure.get() != null) throw new AssertionError(failure.get());
+    }
+}
@@ -0,0 +1,139 @@
+package com.ann.server.storage;
+
+import com.general.models.Coordinates;
+import com.general.models.Organization;
+import com.general.models.Product;
+import com.general.models.UnitOfMeasure;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Проверяет хранилище продуктов, отображенное в память.
+ */
+public class MappedProductCollectionTest extends TestCase {
+    private Path directory;
+
+    @Override
+    protected void setUp() throws IOException {
+        directory = Files.createTempDirectory("mapped");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    private static Product product(long id, int price) {
+        Product product = new Product(id, "продукт " + id, new Coordinates(id, 2.0f), price, UnitOfMeasure.METERS,
+                new Organization("Простоквашино", 2002));
+        product.setUsername(id % 2 == 0 ? "ann" : "bob");
+        return product;
+    }
+
+    public void testContentsSurviveReopen() throws IOException {
+        Path file = directory.resolve("products.mapped");
+        try (MappedProductCollection collection = new MappedProductCollection(file)) {
+            for (long id = 1; id <= 1000; id++) {
+                collection.add(product(id, (int) id));
+            }
+            collection.removeIf(product -> "ann".equals(product.getUsername()));
+        }
+        try (MappedProductCollection collection = new MappedProductCollection(file)) {
+            assertEquals(500, collection.size());
+            assertEquals(250000, collection.sumOfPrices());
+            assertEquals(999, collection.maxId());
+            assertEquals(product(41, 41), collection.get(41));
+            assertEquals("bob", collection.get(41).getUsername());
+            assertNull(collection.get(42));
+            assertEquals(5, collection.filterByPrice(price -> price > 990).size());
+        }
+    }
+
+    public void testLongStringsGoToOverflowFile() throws IOException {
+        Path file = directory.resolve("products.mapped");
+        Product product = product(1, 1);
+        product.setName("x".repeat(300));
+        product.setOrganization(new Organization("о".repeat(60), 2002)); // 120 байт UTF-8
+        product.setUsername("登".repeat(49)); // 147 байт UTF-8, допустимо при регистрации
+        try (MappedProductCollection collection = new MappedProductCollection(file)) {
+            collection.add(product);
+            collection.add(product(2, 2));
+            assertEquals(product, collection.get(1));
+            assertEquals(1, collection.countByUsername(product.getUsername()));
+        }
+        try (MappedProductCollection collection = new MappedProductCollection(file)) {
+            assertEquals(0, collection.droppedOnOpen());
+            assertEquals(product, collection.get(1));
+            assertEquals(product.getUsername(), collection.get(1).getUsername());
+            assertEquals(1, collection.removeByUsername(product.getUsername()));
+            collection.clear();
+            assertEquals(0, Files.size(directory.resolve("products.mapped.overflow")));
+        }
+    }
+
+    public void testUsernameFieldHoldsHundredUtf8Bytes() throws IOException {
+        Path file = directory.resolve("products.mapped");
+        try (MappedProductCollection collection = new MappedProductCollection(file)) {
+            Product product = product(1, 1);
+            product.setUsername("ж".repeat(50)); // 100 байт UTF-8
+            collection.add(product);
+            assertEquals(product.getUsername(), collection.get(1).getUsername());
+        }
+        assertEquals(0, Files.size(directory.resolve("products.mapped.overflow")));
+    }
+
+    public void testDropsSlotsWithBadChecksumOnOpen() throws IOException {
+        Path file = directory.resolve("products.mapped");
+        try (MappedProductCollection collection = new MappedProductCollection(file)) {
+            for (long id = 1; id <= 10; id++) {
+                collection.add(product(id, (int) id));
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // Недописанный слот 3: цена изменена, контрольная сумма осталась прежней
+            long pricePosition = 64 + 3L * MappedProductCollection.SLOT_SIZE + 8;
+            channel.write(ByteBuffer.allocate(4).putInt(0, 12345), pricePosition);
+        }
+        try (MappedProductCollection collection = new MappedProductCollection(file)) {
+            assertEquals(1, collection.droppedOnOpen());
+            assertEquals(9, collection.size());
+            assertNull(collection.get(4));
+            assertEquals(product(10, 10), collection.get(10));
+            assertEquals(55 - 4, collection.sumOfPrices());
+        }
+        try (MappedProductCollection collection = new MappedProductCollection(file)) {
+            assertEquals(0, collection.droppedOnOpen());
+            assertEquals(9, collection.size());
+        }
+    }
+
+    public void testOwnerColumn() throws IOException {
+        try (MappedProductCollection collection = new MappedProductCollection(directory.resolve("products.mapped"))) {
+            for (long id = 1; id <= 1000; id++) {
+                collection.add(product(id, (int) id));
+            }
+            Product other = product(1001, 1);
+            other.setUsername("annа"); // Совпадающий префикс и кириллическая "а" в конце
+            collection.add(other);
+
+            assertEquals(500, collection.countByUsername("ann"));
+            assertEquals(1, collection.countByUsername("annа"));
+            assertTrue(collection.filterByUsername("ann").stream().allMatch(product -> product.getId() % 2 == 0));
+
+            assertEquals(500, collection.removeByUsername("ann"));
+            assertEquals(501, collection.size());
+            assertNull(collection.get(2));
+            assertEquals(product(3, 3), collection.get(3));
+            assertEquals(1, collection.countByUsername("annа"));
+        }
+    }
+}
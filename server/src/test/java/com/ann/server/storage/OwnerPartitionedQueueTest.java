@@ -0,0 +1,80 @@
+package com.ann.server.storage;
+
+import com.general.models.Coordinates;
+import com.general.models.Organization;
+import com.general.models.Product;
+import com.general.models.UnitOfMeasure;
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Проверяет коллекцию режима heap, разделенную по владельцам.
+ */
+public class OwnerPartitionedQueueTest extends TestCase {
+
+    private static Product product(long id, String username) {
+        Product product = new Product(id, "продукт " + id, new Coordinates(id, 2.0f), (int) id, UnitOfMeasure.METERS,
+                new Organization("Простоквашино", 2002));
+        product.setUsername(username);
+        return product;
+    }
+
+    public void testRemoveOwnerTakesOnlyHisPartition() {
+        OwnerPartitionedQueue queue = new OwnerPartitionedQueue();
+        for (long id = 1; id <= 10; id++) {
+            queue.add(product(id, id <= 3 ? "ann" : "bob"));
+        }
+
+        List<Product> removed = queue.removeOwner("ann");
+        assertEquals(3, removed.size());
+        assertTrue(removed.stream().allMatch(product -> product.getUsername().equals("ann")));
+        assertEquals(7, queue.size());
+        assertEquals(0, queue.countOwner("ann"));
+        assertEquals(7, queue.countOwner("bob"));
+        assertTrue(queue.removeOwner("eve").isEmpty());
+        assertEquals(7, queue.stream().count());
+    }
+
+    public void testRemoveAndRemoveIfKeepSize() {
+        OwnerPartitionedQueue queue = new OwnerPartitionedQueue();
+        for (long id = 1; id <= 10; id++) {
+            queue.add(product(id, id % 2 == 0 ? "ann" : "bob"));
+        }
+        Product carol = product(11, "carol");
+        queue.add(carol);
+
+        assertTrue(queue.contains(carol));
+        assertTrue(queue.remove(carol));
+        assertFalse(queue.remove(carol));
+        assertEquals(0, queue.countOwner("carol"));
+
+        assertTrue(queue.removeIf(product -> product.getPrice() > 5));
+        assertEquals(5, queue.size());
+        assertEquals(5, queue.stream().count());
+        assertEquals(2, queue.countOwner("ann"));
+        assertEquals(3, queue.countOwner("bob"));
+
+        queue.removeIf(product -> product.getUsername().equals("ann"));
+        queue.add(product(12, "ann"));
+        assertEquals(1, queue.countOwner("ann"));
+        assertEquals(4, queue.size());
+    }
+
+    public void testRemoveMatchesIdOfEqualProducts() {
+        OwnerPartitionedQueue queue = new OwnerPartitionedQueue();
+        Product first = product(1, "ann");
+        Product second = product(1, "ann");
+        second.setId(2L);
+        assertEquals(first, second); // Равенство продуктов не учитывает ID
+        queue.add(first);
+        queue.add(second);
+
+        assertTrue(queue.remove(second));
+        assertEquals(List.of(1L), queue.stream().map(Product::getId).toList());
+        assertTrue(queue.contains(first));
+        assertFalse(queue.contains(second));
+        assertFalse(queue.remove(second));
+        assertEquals(1, queue.size());
+    }
+}
@@ -0,0 +1,80 @@
+package com.ann.server.storage;
+
+import com.general.models.Coordinates;
+import com.general.models.Organization;
+import com.general.models.Product;
+import com.general.models.UnitOfMeasure;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Проверяет запись и чтение снимка коллекции и воспроизведение журнала изменений.
+ */
+public class ProductSnapshotTest extends TestCase {
+    private Path directory;
+
+    @Override
+    protected void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot-test");
+    }
+
+    private static Product product(long id, String name, int price, String username) {
+        Product product = new Product(id, name, new Coordinates(id, 1.5f), price, UnitOfMeasure.GRAMS,
+                new Organization("Нестле", 1866));
+        product.setUsername(username);
+        return product;
+    }
+
+    public void testSnapshotAndJournalRoundTrip() throws IOException {
+        ProductSnapshot snapshot = new ProductSnapshot(directory.resolve("products.snapshot"));
+        snapshot.write(List.of(product(1, "молоко", 85, "ann"), product(2, "кефир", 70, "bob")), 1);
+
+        ProductJournal journal = new ProductJournal(directory, false);
+        journal.rotate(1);
+        journal.logAdd(product(3, "сыр", 300, "ann"));
+        journal.logUpdate(product(2, "кефир 1%", 75, "bob"));
+        journal.logRemove(1);
+        journal.close();
+
+        ProductSnapshot.Contents contents = snapshot.read();
+        assertEquals(2, contents.maxId());
+        Map<Long, Product> products = contents.products();
+        assertEquals(3, journal.replay(products, contents.journalGeneration()));
+        assertEquals(2, products.size());
+        assertEquals("кефир 1%", products.get(2L).getName());
+        assertEquals(Integer.valueOf(300), products.get(3L).getPrice());
+        assertEquals("ann", products.get(3L).getUsername());
+    }
+
+    public void testTornJournalTailIsIgnored() throws IOException {
+        ProductJournal journal = new ProductJournal(directory, false);
+        journal.rotate(1);
+        journal.logAdd(product(1, "молоко", 85, "ann"));
+        journal.logClear("ann");
+        journal.close();
+        Files.write(directory.resolve("products.journal.1"), new byte[]{0, 0, 0, 42, 1}, StandardOpenOption.APPEND);
+
+        Map<Long, Product> products = new java.util.HashMap<>();
+        assertEquals(2, journal.replay(products, 1));
+        assertTrue(products.isEmpty());
+    }
+
+    public void testCorruptedSnapshotIsRejected() throws IOException {
+        Path file = directory.resolve("products.snapshot");
+        new ProductSnapshot(file).write(List.of(product(1, "молоко", 85, "ann")), 1);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+        try {
+            new ProductSnapshot(file).read();
+            fail("Поврежденный снимок должен быть отклонен");
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.ann.server.storage;
+
+import com.general.models.Coordinates;
+import com.general.models.Organization;
+import com.general.models.Product;
+import com.general.models.UnitOfMeasure;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Проверяет двухуровневое хранилище продуктов с загрузкой по требованию.
+ */
+public class TieredProductCollectionTest extends TestCase {
+    private final Map<Long, Product> database = new HashMap<>();
+    private final List<Integer> batchSizes = new ArrayList<>();
+
+    private TieredProductCollection collection(int cacheCapacity) {
+        for (long id = 1; id <= 1000; id++) {
+            Product product = new Product(id, "продукт " + id, new Coordinates(id, 2.0f), (int) id, UnitOfMeasure.METERS,
+                    new Organization("Простоквашино", 2002));
+            product.setUsername(id % 2 == 0 ? "ann" : "bob");
+            database.put(id, product);
+        }
+        TieredProductCollection collection = new TieredProductCollection(ids -> {
+            batchSizes.add(ids.length);
+            List<Product> products = new ArrayList<>();
+            for (long id : ids) {
+                if (database.containsKey(id)) products.add(database.get(id));
+            }
+            return products;
+        }, cacheCapacity);
+        for (Product product : database.values()) {
+            collection.addKey(product.getId(), product.getPrice(), product.getUsername());
+        }
+        return collection;
+    }
+
+    public void testIterationLoadsInBatches() {
+        TieredProductCollection collection = collection(100);
+        assertEquals(500500, collection.sumOfPrices());
+        assertTrue(batchSizes.isEmpty());
+
+        int count = 0;
+        for (Product ignored : collection) count++;
+        assertEquals(1000, count);
+        assertEquals(4, batchSizes.size());
+        assertEquals(100, collection.getCache().size());
+    }
+
+    public void testCacheHitsAndMisses() {
+        TieredProductCollection collection = collection(10);
+        assertEquals("продукт 5", collection.get(5).getName());
+        assertSame(collection.get(5), collection.get(5));
+        assertEquals(1, batchSizes.size());
+        assertNull(collection.get(5000));
+        assertEquals(1, batchSizes.size());
+        assertTrue(collection.getCache().hitRate() > 0.5);
+    }
+
+    public void testRemoveByUsernameWithoutLoading() {
+        TieredProductCollection collection = collection(10);
+        assertEquals(500, collection.removeByUsername("ann"));
+        assertEquals(500, collection.size());
+        assertEquals(250000, collection.sumOfPrices());
+        assertFalse(collection.containsId(2));
+        assertTrue(batchSizes.isEmpty());
+    }
+
+    public void testOwnerLookupsLoadOnlyOwnedProducts() {
+        TieredProductCollection collection = collection(2000);
+        assertEquals(500, collection.countByUsername("ann"));
+        assertEquals(0, collection.countByUsername("carol"));
+        assertTrue(batchSizes.isEmpty());
+
+        List<Product> owned = collection.filterByUsername("ann");
+        assertEquals(500, owned.size());
+        assertTrue(owned.stream().allMatch(product -> product.getUsername().equals("ann")));
+        assertEquals(500, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(500, collection.getCache().size());
+        assertTrue(collection.filterByUsername("carol").isEmpty());
+    }
+
+    public void testPageLoadsOnlyItsProductsInOneBatch() {
+        TieredProductCollection collection = collection(100);
+        List<Long> iterationOrder = new ArrayList<>();
+        collection.forEach(product -> iterationOrder.add(product.getId()));
+        batchSizes.clear();
+        collection.get(iterationOrder.get(502)); // Часть страницы уже в кэше
+        batchSizes.clear();
+
+        List<Product> page = collection.page(500, 50);
+        assertEquals(iterationOrder.subList(500, 550), page.stream().map(Product::getId).toList());
+        assertEquals(List.of(49), batchSizes);
+
+        assertEquals(10, collection.page(990, 50).size()); // Конец коллекции остался в кэше после обхода
+        assertTrue(collection.page(1000, 50).isEmpty());
+        assertEquals(1, batchSizes.size());
+    }
+
+    public void testLoadDoesNotReplaceProductUpdatedDuringIt() {
+        Product stale = new Product(7L, "старый", new Coordinates(1L, 2.0f), 10, UnitOfMeasure.METERS,
+                new Organization("Простоквашино", 2002));
+        stale.setUsername("ann");
+        Product updated = new Product(7L, "новый", new Coordinates(1L, 2.0f), 20, UnitOfMeasure.METERS,
+                new Organization("Простоквашино", 2002));
+        updated.setUsername("ann");
+        TieredProductCollection[] collection = new TieredProductCollection[1];
+        collection[0] = new TieredProductCollection(ids -> {
+            // Строка прочитана до обновления, которое завершается раньше загрузки
+            if (batchSizes.isEmpty()) collection[0].add(updated);
+            batchSizes.add(ids.length);
+            return List.of(stale);
+        }, 10);
+        collection[0].addKey(7L, 10, "ann");
+
+        assertEquals("старый", collection[0].get(7).getName());
+        assertSame(updated, collection[0].get(7));
+        assertEquals(1, batchSizes.size());
+    }
+}
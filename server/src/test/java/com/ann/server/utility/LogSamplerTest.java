@@ -0,0 +1,22 @@
+package com.ann.server.utility;
+
+import junit.framework.TestCase;
+
+/**
+ * Проверяет ограничение частоты записей журнала.
+ */
+public class LogSamplerTest extends TestCase {
+
+    public void testBurstIsLimitedAndSuppressedAreReported() throws InterruptedException {
+        LogSampler sampler = new LogSampler(5);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, sampler.tryAcquire());
+        }
+        assertEquals(-1, sampler.tryAcquire());
+        assertEquals(-1, sampler.tryAcquire());
+
+        Thread.sleep(250); // Больше интервала между записями при 5 записях в секунду
+        assertEquals(2, sampler.tryAcquire());
+        assertEquals(-1, sampler.tryAcquire());
+    }
+}